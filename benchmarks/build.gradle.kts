@@ -0,0 +1,37 @@
+import net.ltgt.gradle.errorprone.errorprone
+import net.ltgt.gradle.nullaway.nullaway
+
+plugins {
+    id("local.java-conventions")
+    java
+}
+
+dependencies {
+    implementation(projects.oidcServlets)
+    implementation(libs.jspecify)
+    implementation(libs.errorprone.annotations)
+    implementation(libs.nimbus.oidcSdk)
+    implementation(libs.nimbus.joseJwt)
+    implementation(libs.jakarta.servletApi)
+    implementation(libs.jmh.core)
+    annotationProcessor(libs.jmh.generatorAnnprocess)
+}
+
+tasks {
+    compileJava {
+        // The JMH annotation processor doesn't claim all annotations
+        options.compilerArgs.add("-Xlint:-processing")
+        options.errorprone {
+            excludedPaths = ".*/build/generated/.*"
+            nullaway {
+                customInitializerAnnotations.add("org.openjdk.jmh.annotations.Setup")
+            }
+        }
+    }
+
+    // Use --args to pass arguments to JMH, e.g. --args="UserFilterBenchmark -prof gc"
+    register<JavaExec>("jmh") {
+        classpath(sourceSets.main.map { it.runtimeClasspath })
+        mainClass.set("org.openjdk.jmh.Main")
+    }
+}
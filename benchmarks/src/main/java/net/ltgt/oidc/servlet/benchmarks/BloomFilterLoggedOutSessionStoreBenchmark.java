@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import net.ltgt.oidc.servlet.BloomFilterLoggedOutSessionStore;
+import net.ltgt.oidc.servlet.LoggedOutSessionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the {@link BloomFilterLoggedOutSessionStore} in front of a simulated remote store, whose
+ * calls burn a fixed amount of CPU to stand for a network round-trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BloomFilterLoggedOutSessionStoreBenchmark {
+  @Param({"false", "true"})
+  public boolean bloomFilter;
+
+  @Param({"1000"})
+  public int loggedOutCount;
+
+  LoggedOutSessionStore store;
+  SessionID[] loggedOutSids;
+
+  @Setup
+  public void setup() {
+    LoggedOutSessionStore remote = new RemoteLoggedOutSessionStore();
+    store =
+        bloomFilter
+            ? new BloomFilterLoggedOutSessionStore(
+                remote, loggedOutCount * 10, 0.001, Duration.ofHours(1))
+            : remote;
+    loggedOutSids = new SessionID[loggedOutCount];
+    for (int i = 0; i < loggedOutCount; i++) {
+      loggedOutSids[i] = new SessionID("logged-out-" + i);
+      store.logout(loggedOutSids[i]);
+    }
+  }
+
+  /** The common case: a request for a session that hasn't been logged out. */
+  @Benchmark
+  public boolean isLoggedOutActive() {
+    return store.isLoggedOut(new SessionID("active-" + ThreadLocalRandom.current().nextInt()));
+  }
+
+  /** The rare case: a request for a session that has been logged out. */
+  @Benchmark
+  public boolean isLoggedOutLoggedOut() {
+    return store.isLoggedOut(
+        loggedOutSids[ThreadLocalRandom.current().nextInt(loggedOutSids.length)]);
+  }
+
+  /** A store that only knows about logged out sessions, with a simulated network cost. */
+  static class RemoteLoggedOutSessionStore implements LoggedOutSessionStore {
+    private final Set<SessionID> loggedOut = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void logout(SessionID sessionID) {
+      Blackhole.consumeCPU(1000);
+      loggedOut.add(sessionID);
+    }
+
+    @Override
+    public boolean isLoggedOut(SessionID sessionID) {
+      Blackhole.consumeCPU(1000);
+      return loggedOut.contains(sessionID);
+    }
+
+    @Override
+    public void acquire(SessionID sessionID, String sessionId) {}
+
+    @Override
+    public void release(SessionID sessionID, String sessionId) {}
+
+    @Override
+    public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {}
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import static java.util.Objects.requireNonNull;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/** An in-memory {@link HttpSession}, only implementing what's needed by the benchmarks. */
+class FakeHttpSession implements HttpSession {
+  private final String id;
+  private final long creationTime = System.currentTimeMillis();
+  private final Map<String, Object> attributes = new HashMap<>();
+  private int maxInactiveInterval = 30 * 60;
+  private boolean invalidated;
+
+  FakeHttpSession(String id) {
+    this.id = requireNonNull(id);
+  }
+
+  boolean isInvalidated() {
+    return invalidated;
+  }
+
+  @Override
+  public long getCreationTime() {
+    return creationTime;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public long getLastAccessedTime() {
+    return creationTime;
+  }
+
+  @Override
+  public ServletContext getServletContext() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void setMaxInactiveInterval(int interval) {
+    this.maxInactiveInterval = interval;
+  }
+
+  @Override
+  public int getMaxInactiveInterval() {
+    return maxInactiveInterval;
+  }
+
+  @Override
+  public @Nullable Object getAttribute(String name) {
+    return attributes.get(name);
+  }
+
+  @Override
+  public Enumeration<String> getAttributeNames() {
+    return Collections.enumeration(attributes.keySet());
+  }
+
+  @Override
+  public void setAttribute(String name, @Nullable Object value) {
+    if (value == null) {
+      attributes.remove(name);
+    } else {
+      attributes.put(name, value);
+    }
+  }
+
+  @Override
+  public void removeAttribute(String name) {
+    attributes.remove(name);
+  }
+
+  @Override
+  public void invalidate() {
+    attributes.clear();
+    invalidated = true;
+  }
+
+  @Override
+  public boolean isNew() {
+    return false;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.id.Audience;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import com.nimbusds.openid.connect.sdk.claims.UserInfo;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import net.ltgt.oidc.servlet.SessionInfo;
+
+/** Helpers to create test data for the benchmarks. */
+final class Fixtures {
+  /** The name of the session attribute where the {@code UserFilter} expects the session info. */
+  static final String SESSION_INFO_ATTRIBUTE_NAME = SessionInfo.class.getName();
+
+  private Fixtures() {
+    // non-instantiable
+  }
+
+  /** Creates a session info for the given OpenID Provider session ID and User Info. */
+  static SessionInfo sessionInfo(SessionID sessionID, UserInfo userInfo) throws ParseException {
+    var idTokenClaims = idTokenClaims(sessionID, userInfo);
+    var idToken = new PlainJWT(idTokenClaims.toJWTClaimsSet());
+    return new SessionInfo(idToken, idTokenClaims, userInfo);
+  }
+
+  /**
+   * Creates a session info for the given OpenID Provider session ID and User Info, with a signed ID
+   * Token (as would be the case in real-world use).
+   */
+  static SessionInfo signedSessionInfo(SessionID sessionID, UserInfo userInfo)
+      throws ParseException, JOSEException {
+    var idTokenClaims = idTokenClaims(sessionID, userInfo);
+    var key = new ECKeyGenerator(Curve.P_256).keyID("key").generate();
+    var idToken =
+        new SignedJWT(
+            new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(key.getKeyID()).build(),
+            idTokenClaims.toJWTClaimsSet());
+    idToken.sign(new ECDSASigner(key));
+    return new SessionInfo(idToken, idTokenClaims, userInfo);
+  }
+
+  private static IDTokenClaimsSet idTokenClaims(SessionID sessionID, UserInfo userInfo) {
+    var idTokenClaims =
+        new IDTokenClaimsSet(
+            new Issuer("https://op.example.com"),
+            userInfo.getSubject(),
+            List.of(new Audience("app")),
+            Date.from(Instant.now().plus(10, ChronoUnit.MINUTES)),
+            Date.from(Instant.now().minus(5, ChronoUnit.MINUTES)));
+    idTokenClaims.setSessionID(sessionID);
+    return idTokenClaims;
+  }
+
+  /**
+   * Creates a User Info with the given number of Keycloak realm roles, the last one being the given
+   * role.
+   */
+  static UserInfo keycloakUserInfo(int roleCount, String lastRole) throws ParseException {
+    var roles =
+        IntStream.range(0, roleCount)
+            .mapToObj(i -> i == roleCount - 1 ? lastRole : "role-" + i)
+            .map(role -> "\"" + role + "\"")
+            .collect(Collectors.joining(","));
+    return UserInfo.parse(
+        """
+        {
+          "sub": "user",
+          "name": "Some User",
+          "email": "user@example.com",
+          "realm_access": { "roles": [%s] }
+        }
+        """
+            .formatted(roles));
+  }
+
+  /** Creates a User Info with only basic claims. */
+  static UserInfo userInfo() {
+    var userInfo = new UserInfo(new Subject("user"));
+    userInfo.setName("Some User");
+    userInfo.setEmailAddress("user@example.com");
+    return userInfo;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.AuthorizationCodeGrant;
+import com.nimbusds.oauth2.sdk.TokenRequest;
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import net.ltgt.oidc.servlet.HttpClientRequestSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the default {@link java.net.HttpURLConnection}-based sending of requests with the
+ * {@link HttpClientRequestSender}, against a local stub token endpoint.
+ *
+ * <p>The stub uses plain HTTP/1.1, so this only measures the per-request overhead of each
+ * implementation; the savings of connection reuse on TLS handshakes to a remote OpenID Provider
+ * will come in addition.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HTTPRequestSenderBenchmark {
+  private static final byte[] TOKEN_RESPONSE =
+      """
+      {"access_token":"access-token","token_type":"Bearer","expires_in":300}\
+      """
+          .getBytes(UTF_8);
+
+  HttpServer server;
+  TokenRequest tokenRequest;
+  HttpClientRequestSender httpClientRequestSender;
+
+  @Setup
+  public void setup() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/token",
+        exchange -> {
+          exchange.getRequestBody().readAllBytes();
+          exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+          exchange.sendResponseHeaders(200, TOKEN_RESPONSE.length);
+          try (var os = exchange.getResponseBody()) {
+            os.write(TOKEN_RESPONSE);
+          }
+        });
+    server.start();
+    tokenRequest =
+        new TokenRequest.Builder(
+                URI.create(
+                    "http://"
+                        + server.getAddress().getHostString()
+                        + ":"
+                        + server.getAddress().getPort()
+                        + "/token"),
+                new ClientSecretBasic(new ClientID("app"), new Secret("secret")),
+                new AuthorizationCodeGrant(
+                    new AuthorizationCode("code"), URI.create("https://rp.example.com/callback")))
+            .build();
+    httpClientRequestSender =
+        new HttpClientRequestSender(Duration.ofSeconds(5), Duration.ofSeconds(5));
+  }
+
+  @TearDown
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Benchmark
+  public HTTPResponse defaultSender() throws IOException {
+    return tokenRequest.toHTTPRequest().send();
+  }
+
+  @Benchmark
+  public HTTPResponse httpClientSender() throws IOException {
+    return tokenRequest.toHTTPRequest().send(httpClientRequestSender);
+  }
+
+  @Benchmark
+  public Object httpClientSenderAsync() throws InterruptedException, ExecutionException {
+    return httpClientRequestSender.sendAsync(tokenRequest.toHTTPRequest()).get();
+  }
+}
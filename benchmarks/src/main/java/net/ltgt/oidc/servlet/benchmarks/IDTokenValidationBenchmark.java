@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.id.Audience;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.validators.IDTokenValidator;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.ltgt.oidc.servlet.CachingJWSVerificationKeySelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the validation of an ID Token, as done by the {@code CallbackServlet} on each login,
+ * with the {@link CachingJWSVerificationKeySelector} or Nimbus' {@link JWSVerificationKeySelector}
+ * that converts the JWK to a Java key each time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IDTokenValidationBenchmark {
+  @Param({"default", "caching"})
+  public String keySelector;
+
+  @Param({"RS256", "ES256"})
+  public String algorithm;
+
+  IDTokenValidator validator;
+  SignedJWT idToken;
+
+  @Setup
+  public void setup() throws ParseException, JOSEException {
+    var jwsAlg = JWSAlgorithm.parse(algorithm);
+    JWK key;
+    if (jwsAlg.equals(JWSAlgorithm.RS256)) {
+      var rsaKey = new RSAKeyGenerator(2048).keyID("key").generate();
+      key = rsaKey;
+      idToken = signedIDToken(jwsAlg, new RSASSASigner(rsaKey));
+    } else {
+      var ecKey = new ECKeyGenerator(Curve.P_256).keyID("key").generate();
+      key = ecKey;
+      idToken = signedIDToken(jwsAlg, new ECDSASigner(ecKey));
+    }
+    // Like a caching JWK source, always returns the same JWK instances
+    JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK()));
+    JWSKeySelector<SecurityContext> jwsKeySelector =
+        switch (keySelector) {
+          case "default" -> new JWSVerificationKeySelector<>(Set.of(jwsAlg), jwkSource);
+          case "caching" -> new CachingJWSVerificationKeySelector<>(Set.of(jwsAlg), jwkSource);
+          default -> throw new IllegalArgumentException(keySelector);
+        };
+    validator =
+        new IDTokenValidator(
+            new Issuer("https://op.example.com"), new ClientID("app"), jwsKeySelector, null);
+  }
+
+  private static SignedJWT signedIDToken(JWSAlgorithm jwsAlg, JWSSigner signer)
+      throws ParseException, JOSEException {
+    var idTokenClaims =
+        new IDTokenClaimsSet(
+            new Issuer("https://op.example.com"),
+            new Subject("user"),
+            List.of(new Audience("app")),
+            Date.from(Instant.now().plus(1, ChronoUnit.HOURS)),
+            Date.from(Instant.now()));
+    var idToken =
+        new SignedJWT(
+            new JWSHeader.Builder(jwsAlg).keyID("key").build(), idTokenClaims.toJWTClaimsSet());
+    idToken.sign(signer);
+    return idToken;
+  }
+
+  @Benchmark
+  public IDTokenClaimsSet validate() throws BadJOSEException, JOSEException {
+    return validator.validate(idToken, null);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import net.ltgt.oidc.servlet.JournalingLoggedOutSessionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the startup time of the {@link JournalingLoggedOutSessionStore}: replaying then
+ * compacting a journal with a given number of logged out session IDs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalingLoggedOutSessionStoreBenchmark {
+  private static final Duration RETENTION = Duration.ofHours(1);
+
+  @Param({"100000", "1000000"})
+  public int entries;
+
+  Path dir;
+  Path file;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("journal-benchmark");
+    file = dir.resolve("journal");
+    try (var store = new JournalingLoggedOutSessionStore(file, RETENTION, Duration.ofHours(1))) {
+      for (int i = 0; i < entries; i++) {
+        store.logout(new SessionID(UUID.randomUUID().toString()));
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(dir);
+  }
+
+  @Benchmark
+  public JournalingLoggedOutSessionStore replay() throws IOException {
+    try (var store = new JournalingLoggedOutSessionStore(file, RETENTION, Duration.ofHours(1))) {
+      return store;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import static java.util.function.Predicate.not;
+
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import net.ltgt.oidc.servlet.InMemoryLoggedOutSessionStore;
+import net.ltgt.oidc.servlet.LoggedOutSessionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link LoggedOutSessionStore} operations called on each login, session ID change,
+ * and request, with a given number of live sessions.
+ *
+ * <p>The {@code skipList} implementation reproduces the {@link InMemoryLoggedOutSessionStore}
+ * implementation prior to the introduction of the hash-based one. Run with {@code -t} to measure
+ * contention, e.g. {@code --args="LoggedOutSessionStoreBenchmark -t 8"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggedOutSessionStoreBenchmark {
+  @Param({"hash", "skipList"})
+  public String implementation;
+
+  @Param({"1000", "100000"})
+  public int sessionCount;
+
+  LoggedOutSessionStore store;
+  SessionID[] sids;
+
+  @Setup
+  public void setup() {
+    store =
+        switch (implementation) {
+          case "hash" -> new InMemoryLoggedOutSessionStore();
+          case "skipList" -> new SkipListLoggedOutSessionStore();
+          default -> throw new IllegalArgumentException(implementation);
+        };
+    sids = new SessionID[sessionCount];
+    for (int i = 0; i < sessionCount; i++) {
+      sids[i] = new SessionID("sid-" + i);
+      store.acquire(sids[i], "session-" + i);
+    }
+  }
+
+  private SessionID randomSid() {
+    return sids[ThreadLocalRandom.current().nextInt(sessionCount)];
+  }
+
+  @Benchmark
+  public boolean isLoggedOut() {
+    return store.isLoggedOut(randomSid());
+  }
+
+  /** A login then logout of a second session sharing the same OpenID Provider session. */
+  @Benchmark
+  public void acquireRelease() {
+    var sid = randomSid();
+    var sessionId = "extra-" + Thread.currentThread().threadId();
+    store.acquire(sid, sessionId);
+    store.release(sid, sessionId);
+  }
+
+  /** A session ID change, back and forth to keep the store stable. */
+  @Benchmark
+  public void renew() {
+    var sid = randomSid();
+    var sessionId = "renewed-" + Thread.currentThread().threadId();
+    var otherSessionId = sessionId + "-bis";
+    store.acquire(sid, sessionId);
+    store.renew(sid, sessionId, otherSessionId);
+    store.release(sid, otherSessionId);
+  }
+
+  /** The {@link InMemoryLoggedOutSessionStore} implementation as of before the hash-based one. */
+  static class SkipListLoggedOutSessionStore implements LoggedOutSessionStore {
+    private final ConcurrentMap<SessionID, Set<String>> loggedInSessions =
+        new ConcurrentSkipListMap<>();
+
+    @Override
+    public void logout(SessionID sessionID) {
+      loggedInSessions.remove(sessionID);
+    }
+
+    @Override
+    public boolean isLoggedOut(SessionID sessionID) {
+      return loggedInSessions.getOrDefault(sessionID, Set.of()).isEmpty();
+    }
+
+    @Override
+    public void acquire(SessionID sessionID, String sessionId) {
+      loggedInSessions.compute(
+          sessionID,
+          (ignored, old) ->
+              old == null
+                  ? Set.of(sessionId)
+                  : Stream.concat(old.stream(), Stream.of(sessionId))
+                      .collect(Collectors.toUnmodifiableSet()));
+    }
+
+    @Override
+    public void release(SessionID sessionID, String sessionId) {
+      loggedInSessions.compute(
+          sessionID,
+          (ignored, old) -> {
+            if (old == null) {
+              return null;
+            }
+            if (!old.contains(sessionId)) {
+              return old;
+            }
+            if (old.size() == 1) {
+              return null;
+            }
+            return old.stream()
+                .filter(not(sessionId::equals))
+                .collect(Collectors.toUnmodifiableSet());
+          });
+    }
+
+    @Override
+    public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
+      loggedInSessions.compute(
+          sessionID,
+          (ignored, old) -> {
+            if (old == null) {
+              return Set.of(newSessionId);
+            }
+            return Stream.concat(
+                    old.stream().filter(not(oldSessionId::equals)), Stream.of(newSessionId))
+                .collect(Collectors.toUnmodifiableSet());
+          });
+    }
+  }
+}
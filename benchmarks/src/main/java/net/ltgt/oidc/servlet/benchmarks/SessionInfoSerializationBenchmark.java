@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import com.nimbusds.openid.connect.sdk.claims.UserInfo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import net.ltgt.oidc.servlet.BinarySessionInfoCodec;
+import net.ltgt.oidc.servlet.SessionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of serializing and deserializing a {@link SessionInfo}, as happens when
+ * sessions are persisted or replicated.
+ *
+ * <p>The {@code legacy*} benchmarks reproduce the format used before the introduction of the {@link
+ * BinarySessionInfoCodec}: Java serialization of the raw ID Token and User Info JSON strings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionInfoSerializationBenchmark {
+  SessionInfo sessionInfo;
+  byte[] javaSerialized;
+  byte[] legacySerialized;
+
+  @Setup
+  public void setup() throws Exception {
+    sessionInfo = createSessionInfo();
+    javaSerialized = serialize(sessionInfo);
+    legacySerialized = serialize(LegacySessionInfo.of(sessionInfo));
+  }
+
+  static SessionInfo createSessionInfo() throws Exception {
+    return Fixtures.signedSessionInfo(new SessionID("sid"), Fixtures.keycloakUserInfo(20, "admin"));
+  }
+
+  /** The state for the codec benchmarks, with or without compression. */
+  @State(Scope.Benchmark)
+  public static class CodecState {
+    @Param({"false", "true"})
+    public boolean deflate;
+
+    BinarySessionInfoCodec codec;
+    SessionInfo sessionInfo;
+    byte[] encoded;
+
+    @Setup
+    public void setup() throws Exception {
+      codec = new BinarySessionInfoCodec(deflate);
+      sessionInfo = createSessionInfo();
+      encoded = codec.encode(sessionInfo);
+    }
+  }
+
+  @Benchmark
+  public byte[] codecEncode(CodecState state) {
+    return state.codec.encode(state.sessionInfo);
+  }
+
+  @Benchmark
+  public SessionInfo codecDecode(CodecState state) throws IOException {
+    return state.codec.decode(state.encoded);
+  }
+
+  /** Decodes then accesses all claims, forcing the lazily-parsed ID Token and User Info. */
+  @Benchmark
+  public long codecDecodeAndParse(CodecState state) throws IOException {
+    var sessionInfo = state.codec.decode(state.encoded);
+    return sessionInfo.getIDTokenClaims().getExpirationTime().getTime()
+        + sessionInfo.getUserInfo().toJSONObject().size();
+  }
+
+  @Benchmark
+  public byte[] javaSerialize() throws IOException {
+    return serialize(sessionInfo);
+  }
+
+  @Benchmark
+  public Object javaDeserialize() throws Exception {
+    return deserialize(javaSerialized);
+  }
+
+  @Benchmark
+  public byte[] legacySerialize() throws IOException {
+    return serialize(LegacySessionInfo.of(sessionInfo));
+  }
+
+  @Benchmark
+  public Object legacyDeserialize() throws Exception {
+    return ((LegacySessionInfo) deserialize(legacySerialized)).toSessionInfo();
+  }
+
+  private static byte[] serialize(Object o) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new ObjectOutputStream(bytes)) {
+      out.writeObject(o);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+
+  /** Reproduces the serialized form of {@link SessionInfo} before the binary codec. */
+  record LegacySessionInfo(String idToken, String serializedUserInfo) implements Serializable {
+    static LegacySessionInfo of(SessionInfo sessionInfo) {
+      return new LegacySessionInfo(
+          sessionInfo.getIDToken().serialize(), sessionInfo.getUserInfo().toJSONString());
+    }
+
+    SessionInfo toSessionInfo() throws Exception {
+      var parsedIdToken = JWTParser.parse(idToken());
+      var idTokenClaims = new IDTokenClaimsSet(parsedIdToken.getJWTClaimsSet());
+      var userInfo = UserInfo.parse(serializedUserInfo());
+      return new SessionInfo(parsedIdToken, idTokenClaims, userInfo);
+    }
+  }
+}
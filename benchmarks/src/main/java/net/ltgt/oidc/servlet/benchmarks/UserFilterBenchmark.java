@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet.benchmarks;
+
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import net.ltgt.oidc.servlet.CachingUserPrincipalFactory;
+import net.ltgt.oidc.servlet.InMemoryLoggedOutSessionStore;
+import net.ltgt.oidc.servlet.KeycloakUserPrincipal;
+import net.ltgt.oidc.servlet.SimpleUserPrincipal;
+import net.ltgt.oidc.servlet.UserFilter;
+import org.jspecify.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-request cost of the {@link UserFilter}.
+ *
+ * <p>Each benchmark runs the filter then checks a role on the request passed down the filter chain,
+ * as a {@link net.ltgt.oidc.servlet.HasRoleFilter HasRoleFilter} would do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserFilterBenchmark {
+  static final String ROLE = "admin";
+
+  static final HttpServletResponse RESPONSE =
+      (HttpServletResponse)
+          Proxy.newProxyInstance(
+              UserFilterBenchmark.class.getClassLoader(),
+              new Class<?>[] {HttpServletResponse.class},
+              (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+              });
+
+  /** A request without session. */
+  @State(Scope.Thread)
+  public static class AnonymousState {
+    final UserFilter filter = new UserFilter(SimpleUserPrincipal.FACTORY);
+    final HttpServletRequest request = new FakeHttpServletRequest(null);
+    final CapturingFilterChain chain = new CapturingFilterChain();
+  }
+
+  /** A request authenticated with a {@link SimpleUserPrincipal}. */
+  @State(Scope.Thread)
+  public static class SimpleUserPrincipalState {
+    final UserFilter filter = new UserFilter(SimpleUserPrincipal.FACTORY);
+    final CapturingFilterChain chain = new CapturingFilterChain();
+    HttpServletRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+      var session = new FakeHttpSession("session");
+      session.setAttribute(
+          Fixtures.SESSION_INFO_ATTRIBUTE_NAME,
+          Fixtures.sessionInfo(new SessionID("sid"), Fixtures.userInfo()));
+      request = new FakeHttpServletRequest(session);
+    }
+  }
+
+  /** A request authenticated with a {@link KeycloakUserPrincipal}. */
+  @State(Scope.Thread)
+  public static class KeycloakUserPrincipalState {
+    @Param({"5", "500"})
+    public int roleCount;
+
+    final UserFilter filter = new UserFilter(KeycloakUserPrincipal.FACTORY);
+    final CapturingFilterChain chain = new CapturingFilterChain();
+    HttpServletRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+      var session = new FakeHttpSession("session");
+      session.setAttribute(
+          Fixtures.SESSION_INFO_ATTRIBUTE_NAME,
+          Fixtures.sessionInfo(new SessionID("sid"), Fixtures.keycloakUserInfo(roleCount, ROLE)));
+      request = new FakeHttpServletRequest(session);
+    }
+  }
+
+  /**
+   * A request authenticated with a {@link KeycloakUserPrincipal}, cached in the session by a {@link
+   * CachingUserPrincipalFactory}.
+   */
+  @State(Scope.Thread)
+  public static class CachingUserPrincipalFactoryState {
+    @Param({"5", "500"})
+    public int roleCount;
+
+    final UserFilter filter =
+        new UserFilter(new CachingUserPrincipalFactory(KeycloakUserPrincipal.FACTORY));
+    final CapturingFilterChain chain = new CapturingFilterChain();
+    HttpServletRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+      var session = new FakeHttpSession("session");
+      session.setAttribute(
+          Fixtures.SESSION_INFO_ATTRIBUTE_NAME,
+          Fixtures.sessionInfo(new SessionID("sid"), Fixtures.keycloakUserInfo(roleCount, ROLE)));
+      request = new FakeHttpServletRequest(session);
+    }
+  }
+
+  /**
+   * A request authenticated with a {@link SimpleUserPrincipal}, checked against a populated {@link
+   * InMemoryLoggedOutSessionStore}.
+   */
+  @State(Scope.Thread)
+  public static class LoggedOutSessionStoreState {
+    @Param({"1000", "100000"})
+    public int sessionCount;
+
+    final CapturingFilterChain chain = new CapturingFilterChain();
+    UserFilter filter;
+    HttpServletRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+      var loggedOutSessionStore = new InMemoryLoggedOutSessionStore();
+      for (int i = 0; i < sessionCount; i++) {
+        loggedOutSessionStore.acquire(new SessionID("sid-" + i), "session-" + i);
+      }
+      filter = new UserFilter(SimpleUserPrincipal.FACTORY, loggedOutSessionStore);
+      var session = new FakeHttpSession("session-" + (sessionCount / 2));
+      session.setAttribute(
+          Fixtures.SESSION_INFO_ATTRIBUTE_NAME,
+          Fixtures.sessionInfo(new SessionID("sid-" + (sessionCount / 2)), Fixtures.userInfo()));
+      request = new FakeHttpServletRequest(session);
+    }
+  }
+
+  @Benchmark
+  public boolean anonymous(AnonymousState state) throws Exception {
+    return doFilter(state.filter, state.request, state.chain);
+  }
+
+  @Benchmark
+  public boolean simpleUserPrincipal(SimpleUserPrincipalState state) throws Exception {
+    return doFilter(state.filter, state.request, state.chain);
+  }
+
+  @Benchmark
+  public boolean keycloakUserPrincipal(KeycloakUserPrincipalState state) throws Exception {
+    return doFilter(state.filter, state.request, state.chain);
+  }
+
+  @Benchmark
+  public boolean cachingUserPrincipalFactory(CachingUserPrincipalFactoryState state)
+      throws Exception {
+    return doFilter(state.filter, state.request, state.chain);
+  }
+
+  @Benchmark
+  public boolean loggedOutSessionStore(LoggedOutSessionStoreState state) throws Exception {
+    return doFilter(state.filter, state.request, state.chain);
+  }
+
+  static boolean doFilter(UserFilter filter, HttpServletRequest request, CapturingFilterChain chain)
+      throws Exception {
+    filter.doFilter(request, RESPONSE, chain);
+    return chain.takeRequest().isUserInRole(ROLE);
+  }
+
+  /** A filter chain that records the request it's been called with. */
+  static final class CapturingFilterChain implements FilterChain {
+    private @Nullable HttpServletRequest request;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response) {
+      this.request = (HttpServletRequest) request;
+    }
+
+    HttpServletRequest takeRequest() {
+      var request = this.request;
+      if (request == null) {
+        throw new IllegalStateException("Filter didn't pass the request down the chain");
+      }
+      this.request = null;
+      return request;
+    }
+  }
+}
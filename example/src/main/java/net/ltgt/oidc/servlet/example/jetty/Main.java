@@ -47,6 +47,7 @@ import net.ltgt.oidc.servlet.LogoutCallbackServlet;
 import net.ltgt.oidc.servlet.LogoutServlet;
 import net.ltgt.oidc.servlet.UserFilter;
 import net.ltgt.oidc.servlet.UserPrincipalFactory;
+import net.ltgt.oidc.servlet.Utils;
 import org.eclipse.jetty.ee10.apache.jsp.JettyJasperInitializer;
 import org.eclipse.jetty.ee10.jsp.JettyJspServlet;
 import org.eclipse.jetty.ee10.servlet.DefaultServlet;
@@ -84,6 +85,8 @@ public class Main {
         AuthenticationRedirector.CONTEXT_ATTRIBUTE_NAME,
         new AuthenticationRedirector(configuration, CALLBACK_PATH, dpopSupport));
     contextHandler.setAttribute(DPoPSupport.CONTEXT_ATTRIBUTE_NAME, dpopSupport);
+    contextHandler.setAttribute(
+        Utils.EXECUTOR_CONTEXT_ATTRIBUTE_NAME, Utils.virtualThreadExecutor());
     contextHandler.setAttribute(
         UserPrincipalFactory.CONTEXT_ATTRIBUTE_NAME, KeycloakUserPrincipal.FACTORY);
     contextHandler.setAttribute(
@@ -0,0 +1,299 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.GenericServlet;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Guards the request and response of an asynchronous processing, so that only one of the task and
+ * the timeout (or error) handling uses them, and the asynchronous context is completed only once.
+ *
+ * <p>The task acquires them when it first uses them, and keeps them until it completes the
+ * asynchronous context; after a timeout, the task can no longer acquire them, and its calls throw
+ * an {@link IllegalStateException}.
+ */
+final class AsyncExchange implements AsyncListener {
+  /** The processing of the request, using the guarded request and response. */
+  @FunctionalInterface
+  interface Task {
+    void process(HttpServletRequest req, HttpServletResponse resp)
+        throws IOException, ServletException;
+  }
+
+  /** Sends an error response, e.g. {@link CallbackServlet#sendError}. */
+  @FunctionalInterface
+  interface ErrorSender {
+    void sendError(
+        HttpServletResponse resp, int statusCode, String message, @Nullable Throwable cause)
+        throws IOException, ServletException;
+  }
+
+  private final GenericServlet servlet;
+  private final ErrorSender errorSender;
+  private final AsyncContext asyncContext;
+  private final HttpServletRequest req;
+  private final HttpServletResponse resp;
+  private final ReentrantLock lock = new ReentrantLock();
+  // Guarded by lock
+  private boolean done;
+
+  AsyncExchange(
+      GenericServlet servlet,
+      ErrorSender errorSender,
+      AsyncContext asyncContext,
+      HttpServletRequest req,
+      HttpServletResponse resp) {
+    this.servlet = servlet;
+    this.errorSender = errorSender;
+    this.asyncContext = asyncContext;
+    this.req = req;
+    this.resp = resp;
+  }
+
+  void process(Task task) {
+    try {
+      task.process(new GuardedRequest(), new GuardedResponse());
+    } catch (IOException | ServletException | RuntimeException e) {
+      if (acquire()) {
+        if (resp.isCommitted()) {
+          servlet.log("Error processing authentication response", e);
+        } else {
+          sendErrorQuietly(
+              HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+              "Error processing authentication response",
+              e);
+        }
+      } else {
+        servlet.log(
+            "Error processing authentication response after asynchronous processing ended", e);
+      }
+    } finally {
+      complete();
+    }
+  }
+
+  void fail(int statusCode, String message, @Nullable Throwable cause) {
+    if (acquire()) {
+      try {
+        sendErrorQuietly(statusCode, message, cause);
+      } finally {
+        complete();
+      }
+    }
+  }
+
+  @Override
+  public void onTimeout(AsyncEvent event) {
+    fail(
+        HttpServletResponse.SC_GATEWAY_TIMEOUT,
+        "Timed out processing authentication response",
+        null);
+  }
+
+  @Override
+  public void onError(AsyncEvent event) {
+    var cause = event.getThrowable();
+    if (cause != null) {
+      servlet.log("Error during asynchronous processing", cause);
+    }
+    complete();
+  }
+
+  @Override
+  public void onComplete(AsyncEvent event) {
+    lock.lock();
+    try {
+      done = true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void onStartAsync(AsyncEvent event) {}
+
+  /**
+   * Acquires the request and response for the current thread, unless the asynchronous context has
+   * already been completed.
+   */
+  private boolean acquire() {
+    if (!lock.isHeldByCurrentThread()) {
+      lock.lock();
+    }
+    if (done) {
+      lock.unlock();
+      return false;
+    }
+    return true;
+  }
+
+  private void complete() {
+    if (!lock.isHeldByCurrentThread()) {
+      lock.lock();
+    }
+    try {
+      if (!done) {
+        done = true;
+        asyncContext.complete();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void sendErrorQuietly(int statusCode, String message, @Nullable Throwable cause) {
+    try {
+      errorSender.sendError(resp, statusCode, message, cause);
+    } catch (IOException | ServletException | RuntimeException e) {
+      servlet.log("Error sending error response", e);
+    }
+  }
+
+  private void enter() {
+    if (!acquire()) {
+      throw new IllegalStateException("Asynchronous processing already ended");
+    }
+  }
+
+  private final class GuardedRequest extends HttpServletRequestWrapper {
+    GuardedRequest() {
+      super(req);
+    }
+
+    @Override
+    public @Nullable HttpSession getSession(boolean create) {
+      enter();
+      return super.getSession(create);
+    }
+
+    @Override
+    public HttpSession getSession() {
+      enter();
+      return super.getSession();
+    }
+
+    @Override
+    public String changeSessionId() {
+      enter();
+      return super.changeSessionId();
+    }
+  }
+
+  private final class GuardedResponse extends HttpServletResponseWrapper {
+    GuardedResponse() {
+      super(resp);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      enter();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      enter();
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      enter();
+      super.sendRedirect(location);
+    }
+
+    @Override
+    public void setStatus(int sc) {
+      enter();
+      super.setStatus(sc);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      enter();
+      super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      enter();
+      super.addHeader(name, value);
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+      enter();
+      super.addCookie(cookie);
+    }
+
+    @Override
+    public void setContentType(String type) {
+      enter();
+      super.setContentType(type);
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+      enter();
+      super.setCharacterEncoding(charset);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      enter();
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      enter();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      enter();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+      enter();
+      super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+      enter();
+      super.reset();
+    }
+  }
+}
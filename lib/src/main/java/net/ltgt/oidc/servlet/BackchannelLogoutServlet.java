@@ -21,9 +21,10 @@ import com.google.errorprone.annotations.OverridingMethodsMustInvokeSuper;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.BadJOSEException;
-import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
 import com.nimbusds.openid.connect.sdk.claims.LogoutTokenClaimsSet;
 import com.nimbusds.openid.connect.sdk.validators.LogoutTokenValidator;
 import jakarta.servlet.ServletException;
@@ -32,15 +33,22 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.text.ParseException;
+import java.time.InstantSource;
 import java.util.Set;
 import org.jspecify.annotations.Nullable;
 
 /**
  * Implements the OpenID Connect Back-Channel Logout URI.
  *
- * <p>The OpenID Provider must support session IDs ({@code "backchannel_logout_session_supported":
- * true}). The application must have been registered to require the session ID ({@code
- * "backchannel_logout_session_required": true}).
+ * <p>Logout tokens with a session ID ({@code sid} claim) log out the sessions authenticated with
+ * that session ID. Logout tokens with only a subject log out all the sessions of that subject,
+ * which is supported by the {@link InMemoryLoggedOutSessionStore} (as the {@link
+ * BackchannelLogoutSessionListener} tracks the sessions of each subject), but not necessarily by
+ * all {@link LoggedOutSessionStore} implementations: those that don't {@linkplain
+ * LoggedOutSessionStore#logout(Issuer, Subject) support it} ignore such logout tokens. The
+ * application can thus be registered without requiring the session ID ({@code
+ * "backchannel_logout_session_required": false}), and the OpenID Provider doesn't need to support
+ * session IDs.
  *
  * <p>This servlet must not be protected by authentication or CSRF protections. A {@link
  * LoggedOutSessionStore} instance must have been added as a {@link jakarta.servlet.ServletContext
@@ -50,6 +58,10 @@ import org.jspecify.annotations.Nullable;
  * ServletContext} attribute under the name {@link Utils#JWK_SOURCE_CONTEXT_ATTRIBUTE_NAME}, it'll
  * be used to validate the logout token signature.
  *
+ * <p>Successfully processed logout tokens are remembered (by their {@code jti}) until they expire,
+ * so that duplicate deliveries (e.g. when the OpenID Provider retries after a network error) are
+ * acknowledged without being validated and applied again.
+ *
  * @see <a href="https://openid.net/specs/openid-connect-backchannel-1_0.html">OpenID Connect
  *     Back-Channel Logout 1.0</a>
  */
@@ -58,6 +70,9 @@ public class BackchannelLogoutServlet extends HttpServlet {
   private LoggedOutSessionStore loggedOutSessionStore;
   private final @Nullable JWKSource<?> jwkSource;
   private LogoutTokenValidator logoutTokenValidator;
+  private final LogoutTokenReplayCache replayCache =
+      new LogoutTokenReplayCache(
+          LogoutTokenReplayCache.DEFAULT_MAXIMUM_SIZE, InstantSource.system());
 
   public BackchannelLogoutServlet() {
     this.configuration = null;
@@ -69,8 +84,8 @@ public class BackchannelLogoutServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration and
    * logged-out session store won't be read. The JWK source will however be read from the servlet
-   * context, and a default value based on the configuration's JWKSet URI possibly be provided to
-   * the servlet context.
+   * context if present, and otherwise created for the configuration's JWKSet URI and shared with
+   * the other servlets of the servlet context.
    */
   public BackchannelLogoutServlet(
       Configuration configuration, LoggedOutSessionStore loggedOutSessionStore) {
@@ -116,12 +131,15 @@ public class BackchannelLogoutServlet extends HttpServlet {
     requireNonNull(loggedOutSessionStore, "loggedOutSessionStore");
     requireNonNull(configuration, "configuration");
     requireNonNull(jwkSource, "jwkSource");
+    // Logout tokens can only log out sessions authenticated by the same OpenID Provider
+    loggedOutSessionStore =
+        loggedOutSessionStore.forIssuer(configuration.getProviderMetadata().getIssuer());
     logoutTokenValidator =
         new LogoutTokenValidator(
             configuration.getProviderMetadata().getIssuer(),
             configuration.getClientId(),
             false, // XXX: make configurable?
-            new JWSVerificationKeySelector(
+            new CachingJWSVerificationKeySelector(
                 Set.copyOf(configuration.getProviderMetadata().getIDTokenJWSAlgs()), jwkSource),
             null);
   }
@@ -142,9 +160,14 @@ public class BackchannelLogoutServlet extends HttpServlet {
       sendError(resp, "Error parsing logout token", e);
       return;
     }
+    if (isDuplicate(logoutToken, logoutTokenParam)) {
+      // Already processed, acknowledge it again
+      sendSuccess(resp);
+      return;
+    }
     LogoutTokenClaimsSet logoutTokenClaims;
     try {
-      logoutTokenClaims = logoutTokenValidator.validate(logoutToken);
+      logoutTokenClaims = validate(logoutToken);
     } catch (BadJOSEException e) {
       sendError(resp, "Error validating logout token", e);
       return;
@@ -153,8 +176,55 @@ public class BackchannelLogoutServlet extends HttpServlet {
       return;
     }
 
-    loggedOutSessionStore.logout(logoutTokenClaims.getSessionID());
+    var sid = logoutTokenClaims.getSessionID();
+    if (sid != null) {
+      loggedOutSessionStore.logout(sid);
+    } else {
+      // The validator ensures the logout token contains at least a sid or a sub
+      loggedOutSessionStore.logout(logoutTokenClaims.getIssuer(), logoutTokenClaims.getSubject());
+    }
+
+    recordProcessed(logoutTokenClaims, logoutTokenParam);
+
+    sendSuccess(resp);
+  }
+
+  LoggedOutSessionStore getLoggedOutSessionStore() {
+    return loggedOutSessionStore;
+  }
+
+  LogoutTokenClaimsSet validate(JWT logoutToken) throws BadJOSEException, JOSEException {
+    return logoutTokenValidator.validate(logoutToken);
+  }
+
+  /** Records the logout token as processed, for duplicates to be detected. */
+  void recordProcessed(LogoutTokenClaimsSet logoutTokenClaims, String serializedLogoutToken) {
+    var jwtId = logoutTokenClaims.getJWTID();
+    if (jwtId != null) {
+      var expirationTime = logoutTokenClaims.getDateClaim("exp");
+      var issueTime = logoutTokenClaims.getIssueTime();
+      replayCache.record(
+          jwtId.getValue(),
+          serializedLogoutToken,
+          expirationTime != null ? expirationTime.toInstant() : null,
+          issueTime != null ? issueTime.toInstant() : null);
+    }
+  }
+
+  /** Returns whether the logout token has already been processed. */
+  boolean isDuplicate(JWT logoutToken, String serializedLogoutToken) {
+    String jti;
+    try {
+      // The token hasn't been validated yet, but only identical tokens are considered duplicates
+      jti = logoutToken.getJWTClaimsSet().getJWTID();
+    } catch (ParseException e) {
+      // Will fail validation
+      return false;
+    }
+    return jti != null && replayCache.isDuplicate(jti, serializedLogoutToken);
+  }
 
+  private static void sendSuccess(HttpServletResponse resp) {
     resp.setHeader("Cache-Control", "no-store");
     resp.setStatus(HttpServletResponse.SC_OK);
   }
@@ -26,8 +26,8 @@ import java.util.Objects;
 import org.jspecify.annotations.Nullable;
 
 /**
- * Removes the OpenID Connect {@code sid} from the {@link LoggedOutSessionStore} whenever a session
- * is destroyed.
+ * Notifies the {@link LoggedOutSessionStore} of the OpenID Connect {@code sid} and subject of
+ * sessions as they're authenticated, change ID, or are destroyed.
  *
  * <p>The {@code LoggedOutSessionStore} must have been added as a {@link
  * jakarta.servlet.ServletContext ServletContext} attribute under the name {@link
@@ -55,10 +55,10 @@ public final class BackchannelLogoutSessionListener
   @Override
   public void attributeAdded(HttpSessionBindingEvent event) {
     if (event.getName().equals(SessionInfo.SESSION_ATTRIBUTE_NAME)) {
-      var sid = ((SessionInfo) event.getValue()).getIDTokenClaims().getSessionID();
-      var loggedOutSessionStore = getLoggedOutSessionStore(event.getSession());
-      if (sid != null && loggedOutSessionStore != null) {
-        loggedOutSessionStore.acquire(sid, event.getSession().getId());
+      var sessionInfo = (SessionInfo) event.getValue();
+      var loggedOutSessionStore = getLoggedOutSessionStore(event.getSession(), sessionInfo);
+      if (loggedOutSessionStore != null) {
+        acquire(loggedOutSessionStore, sessionInfo, event.getSession().getId());
       }
     }
   }
@@ -66,10 +66,10 @@ public final class BackchannelLogoutSessionListener
   @Override
   public void attributeRemoved(HttpSessionBindingEvent event) {
     if (event.getName().equals(SessionInfo.SESSION_ATTRIBUTE_NAME)) {
-      var sid = ((SessionInfo) event.getValue()).getIDTokenClaims().getSessionID();
-      var loggedOutSessionStore = getLoggedOutSessionStore(event.getSession());
-      if (sid != null && loggedOutSessionStore != null) {
-        loggedOutSessionStore.release(sid, event.getSession().getId());
+      var sessionInfo = (SessionInfo) event.getValue();
+      var loggedOutSessionStore = getLoggedOutSessionStore(event.getSession(), sessionInfo);
+      if (loggedOutSessionStore != null) {
+        release(loggedOutSessionStore, sessionInfo, event.getSession().getId());
       }
     }
   }
@@ -77,22 +77,38 @@ public final class BackchannelLogoutSessionListener
   @Override
   public void attributeReplaced(HttpSessionBindingEvent event) {
     if (event.getName().equals(SessionInfo.SESSION_ATTRIBUTE_NAME)) {
-      var oldSid = ((SessionInfo) event.getValue()).getIDTokenClaims().getSessionID();
-      var newSid =
-          ((SessionInfo) event.getSession().getAttribute(SessionInfo.SESSION_ATTRIBUTE_NAME))
-              .getIDTokenClaims()
-              .getSessionID();
+      var oldSessionInfo = (SessionInfo) event.getValue();
+      var newSessionInfo =
+          (SessionInfo) event.getSession().getAttribute(SessionInfo.SESSION_ATTRIBUTE_NAME);
+      var loggedOutSessionStore = getLoggedOutSessionStore(event.getSession(), oldSessionInfo);
+      if (loggedOutSessionStore == null) {
+        return;
+      }
+      if (!oldSessionInfo.getIssuer().equals(newSessionInfo.getIssuer())) {
+        // Authenticated by another OpenID Provider, possibly with its own store
+        release(loggedOutSessionStore, oldSessionInfo, event.getSession().getId());
+        acquire(
+            requireNonNull(getLoggedOutSessionStore(event.getSession(), newSessionInfo)),
+            newSessionInfo,
+            event.getSession().getId());
+        return;
+      }
+      var oldSid = oldSessionInfo.getSessionID();
+      var newSid = newSessionInfo.getSessionID();
       if (!Objects.equals(oldSid, newSid)) {
-        var loggedOutSessionStore = getLoggedOutSessionStore(event.getSession());
-        if (loggedOutSessionStore != null) {
-          if (oldSid != null) {
-            loggedOutSessionStore.release(oldSid, event.getSession().getId());
-          }
-          if (newSid != null) {
-            loggedOutSessionStore.acquire(newSid, event.getSession().getId());
-          }
+        if (oldSid != null) {
+          loggedOutSessionStore.release(oldSid, event.getSession().getId());
+        }
+        if (newSid != null) {
+          loggedOutSessionStore.acquire(newSid, event.getSession().getId());
         }
       }
+      if (!oldSessionInfo.getSubject().equals(newSessionInfo.getSubject())) {
+        loggedOutSessionStore.release(
+            oldSessionInfo.getIssuer(), oldSessionInfo.getSubject(), event.getSession().getId());
+        loggedOutSessionStore.acquire(
+            newSessionInfo.getIssuer(), newSessionInfo.getSubject(), event.getSession().getId());
+      }
     }
   }
 
@@ -103,18 +119,50 @@ public final class BackchannelLogoutSessionListener
     if (sessionInfo == null) {
       return;
     }
-    var sid = sessionInfo.getIDTokenClaims().getSessionID();
-    var loggedOutSessionStore = getLoggedOutSessionStore(event.getSession());
-    if (sid != null && loggedOutSessionStore != null) {
-      loggedOutSessionStore.renew(sid, oldSessionId, event.getSession().getId());
+    var loggedOutSessionStore = getLoggedOutSessionStore(event.getSession(), sessionInfo);
+    if (loggedOutSessionStore != null) {
+      var sid = sessionInfo.getSessionID();
+      if (sid != null) {
+        loggedOutSessionStore.renew(sid, oldSessionId, event.getSession().getId());
+      }
+      loggedOutSessionStore.renew(
+          sessionInfo.getIssuer(),
+          sessionInfo.getSubject(),
+          oldSessionId,
+          event.getSession().getId());
+    }
+  }
+
+  private static void acquire(
+      LoggedOutSessionStore loggedOutSessionStore, SessionInfo sessionInfo, String sessionId) {
+    var sid = sessionInfo.getSessionID();
+    if (sid != null) {
+      loggedOutSessionStore.acquire(sid, sessionId);
+    }
+    loggedOutSessionStore.acquire(sessionInfo.getIssuer(), sessionInfo.getSubject(), sessionId);
+  }
+
+  private static void release(
+      LoggedOutSessionStore loggedOutSessionStore, SessionInfo sessionInfo, String sessionId) {
+    var sid = sessionInfo.getSessionID();
+    if (sid != null) {
+      loggedOutSessionStore.release(sid, sessionId);
     }
+    loggedOutSessionStore.release(sessionInfo.getIssuer(), sessionInfo.getSubject(), sessionId);
   }
 
-  private @Nullable LoggedOutSessionStore getLoggedOutSessionStore(HttpSession session) {
-    if (this.loggedOutSessionStore != null) {
-      return this.loggedOutSessionStore;
+  /** Returns the store for the OpenID Provider that authenticated the session, if any. */
+  private @Nullable LoggedOutSessionStore getLoggedOutSessionStore(
+      HttpSession session, SessionInfo sessionInfo) {
+    var loggedOutSessionStore = this.loggedOutSessionStore;
+    if (loggedOutSessionStore == null) {
+      var servletContext = session.getServletContext();
+      loggedOutSessionStore =
+          (LoggedOutSessionStore)
+              servletContext.getAttribute(LoggedOutSessionStore.CONTEXT_ATTRIBUTE_NAME);
     }
-    return (LoggedOutSessionStore)
-        session.getServletContext().getAttribute(LoggedOutSessionStore.CONTEXT_ATTRIBUTE_NAME);
+    return loggedOutSessionStore == null
+        ? null
+        : loggedOutSessionStore.forIssuer(sessionInfo.getIssuer());
   }
 }
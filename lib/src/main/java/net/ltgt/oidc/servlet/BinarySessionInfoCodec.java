@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Encodes {@link SessionInfo} in a compact, versioned, binary layout.
+ *
+ * <p>The layout starts with a format version byte and a flags byte, followed by the issuer, the
+ * subject, the session ID (if any), the ID Token and User Info, each as a 4-byte length followed by
+ * its UTF-8 bytes (a negative length denotes an absent session ID). Everything after the flags byte
+ * can optionally be compressed with DEFLATE (indicated by a flag), trading CPU for a smaller size.
+ *
+ * <p>The issuer, subject and session ID are stored separately so that the decoded {@link
+ * SessionInfo} can parse the ID Token and User Info lazily, only when they're actually needed.
+ *
+ * <p>Decoding supports all flags, whichever way the codec has been configured for encoding.
+ *
+ * <p>This can be used directly by custom session stores that don't rely on Java serialization. Java
+ * serialization of {@link SessionInfo} always uses this layout, without compression.
+ */
+public final class BinarySessionInfoCodec {
+  /** The codec used for Java serialization of {@link SessionInfo}. */
+  static final BinarySessionInfoCodec DEFAULT = new BinarySessionInfoCodec();
+
+  private static final byte VERSION = 1;
+  private static final byte FLAG_DEFLATED = 0b1;
+
+  private final boolean deflate;
+
+  /** Constructs a codec that doesn't compress data. */
+  public BinarySessionInfoCodec() {
+    this(false);
+  }
+
+  /** Constructs a codec that compresses data with DEFLATE or not. */
+  public BinarySessionInfoCodec(boolean deflate) {
+    this.deflate = deflate;
+  }
+
+  /** Encodes the given session info. */
+  public byte[] encode(SessionInfo sessionInfo) {
+    var issuer = sessionInfo.getIssuer().getValue().getBytes(UTF_8);
+    var subject = sessionInfo.getSubject().getValue().getBytes(UTF_8);
+    var sessionID = sessionInfo.getSessionID();
+    var sid = sessionID == null ? null : sessionID.getValue().getBytes(UTF_8);
+    var idToken = sessionInfo.getSerializedIDToken().getBytes(UTF_8);
+    var userInfo = sessionInfo.getSerializedUserInfo().getBytes(UTF_8);
+    var size = 2 + 5 * 4 + issuer.length + subject.length + idToken.length + userInfo.length;
+    if (sid != null) {
+      size += sid.length;
+    }
+    var bytes = new ByteArrayOutputStream(size);
+    bytes.write(VERSION);
+    bytes.write(deflate ? FLAG_DEFLATED : 0);
+    OutputStream out = deflate ? new DeflaterOutputStream(bytes) : bytes;
+    try (var data = new DataOutputStream(out)) {
+      writeBytes(data, issuer);
+      writeBytes(data, subject);
+      writeBytes(data, sid);
+      writeBytes(data, idToken);
+      writeBytes(data, userInfo);
+    } catch (IOException e) {
+      // This should never happen, as we're writing to a ByteArrayOutputStream
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a session info.
+   *
+   * @throws IOException if the bytes can't be decoded
+   */
+  public SessionInfo decode(byte[] bytes) throws IOException {
+    if (bytes.length < 2) {
+      throw new EOFException("Truncated session info");
+    }
+    if (bytes[0] != VERSION) {
+      throw new StreamCorruptedException("Unsupported session info format version: " + bytes[0]);
+    }
+    if ((bytes[1] & ~FLAG_DEFLATED) != 0) {
+      throw new StreamCorruptedException("Unsupported session info flags: " + bytes[1]);
+    }
+    InputStream in = new ByteArrayInputStream(bytes, 2, bytes.length - 2);
+    if ((bytes[1] & FLAG_DEFLATED) != 0) {
+      in = new InflaterInputStream(in);
+    }
+    try (var data = new DataInputStream(in)) {
+      var issuer = requireString(data);
+      var subject = requireString(data);
+      var sid = readString(data);
+      var idToken = requireString(data);
+      var userInfo = requireString(data);
+      return new SessionInfo(
+          idToken,
+          userInfo,
+          new Issuer(issuer),
+          sid == null ? null : new SessionID(sid),
+          new Subject(subject));
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, byte @Nullable [] bytes)
+      throws IOException {
+    if (bytes == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String requireString(DataInputStream in) throws IOException {
+    var value = readString(in);
+    if (value == null) {
+      throw new StreamCorruptedException("Unexpected absent value");
+    }
+    return value;
+  }
+
+  private static @Nullable String readString(DataInputStream in) throws IOException {
+    var length = in.readInt();
+    if (length == -1) {
+      return null;
+    }
+    if (length < 0) {
+      throw new StreamCorruptedException("Negative length: " + length);
+    }
+    // Don't allocate the whole array upfront in case the length is corrupted
+    var bytes = in.readNBytes(length);
+    if (bytes.length != length) {
+      throw new EOFException("Truncated session info");
+    }
+    return new String(bytes, UTF_8);
+  }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link LoggedOutSessionStore} decorator that keeps a Bloom filter of the logged out {@link
+ * SessionID}s, to answer {@link #isLoggedOut} without calling the underlying store for most
+ * session IDs that have not been logged out.
+ *
+ * <p>This is mostly useful when the underlying store is remote (e.g. a database), with a network
+ * round-trip on each call to {@code isLoggedOut} (called on each request by the {@link
+ * UserFilter}), whereas logouts are comparatively rare.
+ *
+ * <p>The Bloom filter only knows about session IDs that have been logged out through this
+ * decorator, so it must only be used if:
+ *
+ * <ul>
+ *   <li>all logouts go through this decorator, i.e. it's not used in a cluster where logouts
+ *       received by other nodes only update the shared underlying store; and
+ *   <li>the underlying store only considers session IDs as logged out if they have been explicitly
+ *       {@linkplain #logout(SessionID) logged out}; this is not the case of the {@link
+ *       InMemoryLoggedOutSessionStore} that considers all unknown session IDs as logged out.
+ * </ul>
+ *
+ * <p>The Bloom filter is lock-free. To bound its false positive rate over time, it is rotated
+ * every {@code retention} period, keeping the previous generation, so a logged out session ID is
+ * remembered for at least {@code retention}, and at most twice that. The retention should thus be
+ * at least the sessions' {@linkplain jakarta.servlet.http.HttpSession#getMaxInactiveInterval()
+ * maximum inactive interval}: any session still active after that time will have made a request,
+ * and been invalidated by the {@code UserFilter}.
+ *
+ * <p>As the Bloom filter starts empty, it doesn't know about the session IDs logged out before it
+ * was created (e.g. before a restart, when the underlying store is persistent). During the first
+ * {@code retention} period, all calls to {@code isLoggedOut} are thus passed to the underlying
+ * store; after that period, any session logged out before the filter was created will have either
+ * expired or been invalidated by the {@code UserFilter}.
+ *
+ * <p>When the underlying store is {@linkplain #forIssuer partitioned by issuer} (e.g. a {@link
+ * PerIssuerLoggedOutSessionStore}), this decorator is partitioned the same way: all issuers share
+ * the same Bloom filter, with session IDs recorded along with their issuer.
+ */
+public final class BloomFilterLoggedOutSessionStore implements LoggedOutSessionStore {
+  // Distinguishes session IDs from subjects in the filter
+  private static final byte SID_PREFIX = 1;
+  private static final byte SUBJECT_PREFIX = 2;
+
+  private final LoggedOutSessionStore delegate;
+  private final int bitCount;
+  private final int hashCount;
+  private final Duration retention;
+  private final InstantSource instantSource;
+  private final Instant warmUpEnd;
+  private volatile boolean warmedUp;
+  private final AtomicReference<Generations> generations;
+  private final ConcurrentMap<Issuer, LoggedOutSessionStore> issuerStores =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a decorator with a Bloom filter sized for the given number of logouts per retention
+   * period, and false positive probability.
+   */
+  public BloomFilterLoggedOutSessionStore(
+      LoggedOutSessionStore delegate,
+      int expectedLogouts,
+      double falsePositiveProbability,
+      Duration retention) {
+    this(delegate, expectedLogouts, falsePositiveProbability, retention, InstantSource.system());
+  }
+
+  BloomFilterLoggedOutSessionStore(
+      LoggedOutSessionStore delegate,
+      int expectedLogouts,
+      double falsePositiveProbability,
+      Duration retention,
+      InstantSource instantSource) {
+    this.delegate = requireNonNull(delegate);
+    this.retention = requireNonNull(retention);
+    this.instantSource = requireNonNull(instantSource);
+    if (expectedLogouts <= 0) {
+      throw new IllegalArgumentException("expectedLogouts must be positive");
+    }
+    if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+      throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+    }
+    if (retention.isNegative() || retention.isZero()) {
+      throw new IllegalArgumentException("retention must be positive");
+    }
+    var ln2 = Math.log(2);
+    var bits = Math.ceil(-expectedLogouts * Math.log(falsePositiveProbability) / (ln2 * ln2));
+    // Round up to a multiple of 64, as bits are stored in longs
+    this.bitCount = (int) Math.min((long) Math.ceil(bits / 64) * 64, Integer.MAX_VALUE - 63);
+    this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) expectedLogouts * ln2));
+    var now = instantSource.instant();
+    this.warmUpEnd = now.plus(retention);
+    this.generations =
+        new AtomicReference<>(
+            new Generations(new Bits(bitCount), new Bits(bitCount), now.plus(retention)));
+  }
+
+  @Override
+  public LoggedOutSessionStore forIssuer(Issuer issuer) {
+    return issuerStores.computeIfAbsent(
+        requireNonNull(issuer),
+        i -> {
+          var store = delegate.forIssuer(i);
+          return store == delegate ? this : new IssuerStore(i, store);
+        });
+  }
+
+  @Override
+  public void logout(SessionID sessionID) {
+    // Record in the filter first, so a concurrent isLoggedOut cannot miss it once the underlying
+    // store has been updated.
+    record(hash(SID_PREFIX, sessionID.getValue()));
+    delegate.logout(sessionID);
+  }
+
+  @Override
+  public void logoutAll(Collection<SessionID> sessionIDs) {
+    for (var sessionID : sessionIDs) {
+      record(hash(SID_PREFIX, sessionID.getValue()));
+    }
+    delegate.logoutAll(sessionIDs);
+  }
+
+  @Override
+  public boolean isLoggedOut(SessionID sessionID) {
+    if (!mightContain(hash(SID_PREFIX, sessionID.getValue()))) {
+      // Definitely not logged out
+      return false;
+    }
+    return delegate.isLoggedOut(sessionID);
+  }
+
+  @Override
+  public void acquire(SessionID sessionID, String sessionId) {
+    delegate.acquire(sessionID, sessionId);
+  }
+
+  @Override
+  public void release(SessionID sessionID, String sessionId) {
+    delegate.release(sessionID, sessionId);
+  }
+
+  @Override
+  public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
+    delegate.renew(sessionID, oldSessionId, newSessionId);
+  }
+
+  @Override
+  public void logout(Issuer issuer, Subject subject) {
+    record(hash(issuer, subject));
+    delegate.logout(issuer, subject);
+  }
+
+  @Override
+  public boolean isLoggedOut(Issuer issuer, Subject subject, String sessionId) {
+    if (!mightContain(hash(issuer, subject))) {
+      // Definitely not logged out
+      return false;
+    }
+    return delegate.isLoggedOut(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void acquire(Issuer issuer, Subject subject, String sessionId) {
+    delegate.acquire(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void release(Issuer issuer, Subject subject, String sessionId) {
+    delegate.release(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void renew(Issuer issuer, Subject subject, String oldSessionId, String newSessionId) {
+    delegate.renew(issuer, subject, oldSessionId, newSessionId);
+  }
+
+  private void record(long hash) {
+    var current = currentGenerations().current();
+    for (int i = 0; i < hashCount; i++) {
+      current.set(index(hash, i));
+    }
+  }
+
+  private boolean mightContain(long hash) {
+    if (!isWarmedUp()) {
+      // Might have been logged out before this filter was created
+      return true;
+    }
+    var generations = currentGenerations();
+    return generations.current().mightContain(hash) || generations.previous().mightContain(hash);
+  }
+
+  private boolean isWarmedUp() {
+    if (warmedUp) {
+      return true;
+    }
+    if (instantSource.instant().isBefore(warmUpEnd)) {
+      return false;
+    }
+    warmedUp = true;
+    return true;
+  }
+
+  private Generations currentGenerations() {
+    var generations = this.generations.get();
+    var now = instantSource.instant();
+    while (!now.isBefore(generations.rotateAt())) {
+      var rotated = new Generations(new Bits(bitCount), generations.current(), now.plus(retention));
+      if (this.generations.compareAndSet(generations, rotated)) {
+        return rotated;
+      }
+      // Another thread rotated concurrently
+      generations = this.generations.get();
+    }
+    return generations;
+  }
+
+  private int index(long hash, int i) {
+    // Kirsch-Mitzenmacher double hashing
+    var combined = (int) hash + i * (int) (hash >>> 32);
+    return Math.floorMod(combined, bitCount);
+  }
+
+  private static long hash(Issuer issuer, SessionID sessionID) {
+    // The NUL character cannot appear in an issuer URL
+    return hash(SID_PREFIX, issuer.getValue() + '\0' + sessionID.getValue());
+  }
+
+  private static long hash(Issuer issuer, Subject subject) {
+    // The NUL character cannot appear in an issuer URL
+    return hash(SUBJECT_PREFIX, issuer.getValue() + '\0' + subject.getValue());
+  }
+
+  private static long hash(byte prefix, String value) {
+    // 64-bit FNV-1a, followed by a SplitMix64 finalizer to spread the bits
+    var hash = 0xcbf29ce484222325L;
+    hash ^= prefix;
+    hash *= 0x100000001b3L;
+    for (var b : value.getBytes(UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+
+  /** A partition of the delegate store, sharing the Bloom filter with the other partitions. */
+  private final class IssuerStore implements LoggedOutSessionStore {
+    private final Issuer issuer;
+    private final LoggedOutSessionStore store;
+
+    IssuerStore(Issuer issuer, LoggedOutSessionStore store) {
+      this.issuer = issuer;
+      this.store = store;
+    }
+
+    @Override
+    public void logout(SessionID sessionID) {
+      record(hash(issuer, sessionID));
+      store.logout(sessionID);
+    }
+
+    @Override
+    public void logoutAll(Collection<SessionID> sessionIDs) {
+      for (var sessionID : sessionIDs) {
+        record(hash(issuer, sessionID));
+      }
+      store.logoutAll(sessionIDs);
+    }
+
+    @Override
+    public boolean isLoggedOut(SessionID sessionID) {
+      if (!mightContain(hash(issuer, sessionID))) {
+        // Definitely not logged out
+        return false;
+      }
+      return store.isLoggedOut(sessionID);
+    }
+
+    @Override
+    public void acquire(SessionID sessionID, String sessionId) {
+      store.acquire(sessionID, sessionId);
+    }
+
+    @Override
+    public void release(SessionID sessionID, String sessionId) {
+      store.release(sessionID, sessionId);
+    }
+
+    @Override
+    public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
+      store.renew(sessionID, oldSessionId, newSessionId);
+    }
+
+    @Override
+    public void logout(Issuer issuer, Subject subject) {
+      record(hash(issuer, subject));
+      store.logout(issuer, subject);
+    }
+
+    @Override
+    public boolean isLoggedOut(Issuer issuer, Subject subject, String sessionId) {
+      if (!mightContain(hash(issuer, subject))) {
+        // Definitely not logged out
+        return false;
+      }
+      return store.isLoggedOut(issuer, subject, sessionId);
+    }
+
+    @Override
+    public void acquire(Issuer issuer, Subject subject, String sessionId) {
+      store.acquire(issuer, subject, sessionId);
+    }
+
+    @Override
+    public void release(Issuer issuer, Subject subject, String sessionId) {
+      store.release(issuer, subject, sessionId);
+    }
+
+    @Override
+    public void renew(Issuer issuer, Subject subject, String oldSessionId, String newSessionId) {
+      store.renew(issuer, subject, oldSessionId, newSessionId);
+    }
+  }
+
+  private record Generations(Bits current, Bits previous, Instant rotateAt) {}
+
+  private final class Bits {
+    private final AtomicLongArray words;
+
+    Bits(int bitCount) {
+      this.words = new AtomicLongArray(bitCount / 64);
+    }
+
+    void set(int index) {
+      var mask = 1L << index;
+      var word = index >>> 6;
+      if ((words.get(word) & mask) == 0) {
+        words.getAndAccumulate(word, mask, (a, b) -> a | b);
+      }
+    }
+
+    boolean get(int index) {
+      return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    boolean mightContain(long hash) {
+      for (int i = 0; i < hashCount; i++) {
+        if (!get(index(hash, i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.google.errorprone.annotations.OverridingMethodsMustInvokeSuper;
+import com.nimbusds.common.contenttype.ContentType;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.util.JSONArrayUtils;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.openid.connect.sdk.claims.LogoutTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A variant of the {@link BackchannelLogoutServlet} that accepts many logout tokens in a single
+ * request, e.g. for an OpenID Provider to log out many sessions at once during incident response.
+ *
+ * <p>This is not part of the OpenID Connect Back-Channel Logout specification, and needs to be
+ * registered at a different URL than the {@code BackchannelLogoutServlet}. Logout tokens are either
+ * passed as multiple {@code logout_token} form parameters, or as a JSON array of strings (with a
+ * {@code application/json} content type). Requests are limited to 10,000 logout tokens, and 16 MiB
+ * for JSON requests.
+ *
+ * <p>Tokens are grouped by key ID, and a few groups are validated in parallel, using the {@link
+ * Executor} added as a {@link jakarta.servlet.ServletContext ServletContext} attribute under the
+ * name {@link Utils#EXECUTOR_CONTEXT_ATTRIBUTE_NAME} if any, or the {@linkplain
+ * Utils#virtualThreadExecutor() virtual thread executor} otherwise. Valid tokens are then applied
+ * to the {@link LoggedOutSessionStore} in a {@linkplain LoggedOutSessionStore#logoutAll batch}.
+ *
+ * <p>The response is a JSON object with a {@code results} array, with one object per logout token
+ * in the same order as in the request, with a {@code status} of {@code ok}, {@code duplicate}
+ * (already processed, or repeated in the request) or {@code error} (along with an {@code error}
+ * message).
+ */
+public class BulkBackchannelLogoutServlet extends BackchannelLogoutServlet {
+  static final int MAX_LOGOUT_TOKENS = 10_000;
+  static final int MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+  private static final int MAX_CONCURRENT_VALIDATIONS = 4;
+
+  private Executor executor;
+
+  public BulkBackchannelLogoutServlet() {}
+
+  /**
+   * Constructs a servlet with the given configuration and logged-out session store.
+   *
+   * @see BackchannelLogoutServlet#BackchannelLogoutServlet(Configuration, LoggedOutSessionStore)
+   */
+  public BulkBackchannelLogoutServlet(
+      Configuration configuration, LoggedOutSessionStore loggedOutSessionStore) {
+    super(configuration, loggedOutSessionStore);
+  }
+
+  /**
+   * Constructs a servlet with the given configuration, logged-out session store, and JWK source.
+   *
+   * @see BackchannelLogoutServlet#BackchannelLogoutServlet(Configuration, LoggedOutSessionStore,
+   *     JWKSource)
+   */
+  public BulkBackchannelLogoutServlet(
+      Configuration configuration,
+      LoggedOutSessionStore loggedOutSessionStore,
+      JWKSource<?> jwkSource) {
+    super(configuration, loggedOutSessionStore, jwkSource);
+  }
+
+  @OverridingMethodsMustInvokeSuper
+  @Override
+  public void init() throws ServletException {
+    super.init();
+    var executor =
+        (Executor) getServletContext().getAttribute(Utils.EXECUTOR_CONTEXT_ATTRIBUTE_NAME);
+    this.executor = executor != null ? executor : Utils.virtualThreadExecutor();
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    if (req.getContentLengthLong() > MAX_REQUEST_SIZE) {
+      resp.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request too large");
+      return;
+    }
+    List<String> logoutTokens;
+    try {
+      if (isJson(req.getContentType())) {
+        // Don't trust the Content-Length (that could be absent)
+        var body = req.getInputStream().readNBytes(MAX_REQUEST_SIZE + 1);
+        if (body.length > MAX_REQUEST_SIZE) {
+          resp.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request too large");
+          return;
+        }
+        logoutTokens = parseLogoutTokens(new String(body, UTF_8));
+      } else {
+        var values = req.getParameterValues("logout_token");
+        logoutTokens = values == null ? List.of() : List.of(values);
+      }
+    } catch (ParseException e) {
+      log("Error parsing request", e);
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Error parsing request");
+      return;
+    }
+    if (logoutTokens.isEmpty()) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing logout token");
+      return;
+    }
+    if (logoutTokens.size() > MAX_LOGOUT_TOKENS) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Too many logout tokens");
+      return;
+    }
+
+    var items = new ArrayList<Item>(logoutTokens.size());
+    var itemsByLogoutToken = new HashMap<String, Item>();
+    var itemsByKeyId = new LinkedHashMap<String, List<Item>>();
+    for (var logoutToken : logoutTokens) {
+      var item = new Item(logoutToken);
+      items.add(item);
+      var original = itemsByLogoutToken.putIfAbsent(logoutToken, item);
+      if (original != null) {
+        // Repeated in the request, will share the outcome of its first occurrence
+        item.original = original;
+        continue;
+      }
+      JWT parsedLogoutToken;
+      try {
+        parsedLogoutToken = JWTParser.parse(logoutToken);
+      } catch (ParseException e) {
+        item.fail("Error parsing logout token", e);
+        continue;
+      }
+      if (isDuplicate(parsedLogoutToken, logoutToken)) {
+        item.duplicate = true;
+        continue;
+      }
+      item.parsedLogoutToken = parsedLogoutToken;
+      itemsByKeyId
+          .computeIfAbsent(keyId(parsedLogoutToken), ignored -> new ArrayList<>())
+          .add(item);
+    }
+
+    validateAll(itemsByKeyId.values());
+
+    var loggedOutSessionStore = getLoggedOutSessionStore();
+    var sessionIDs = new ArrayList<SessionID>();
+    for (var item : items) {
+      var claims = item.claims;
+      if (claims == null) {
+        continue;
+      }
+      var sid = claims.getSessionID();
+      if (sid != null) {
+        sessionIDs.add(sid);
+      } else {
+        loggedOutSessionStore.logout(claims.getIssuer(), claims.getSubject());
+      }
+    }
+    if (!sessionIDs.isEmpty()) {
+      loggedOutSessionStore.logoutAll(sessionIDs);
+    }
+
+    var results = new ArrayList<Map<String, String>>(items.size());
+    var errors = 0;
+    Item firstError = null;
+    for (var item : items) {
+      var result = new LinkedHashMap<String, String>();
+      var outcome = item.original != null ? item.original : item;
+      var claims = item.claims;
+      if (claims != null) {
+        recordProcessed(claims, item.logoutToken);
+        result.put("status", "ok");
+      } else if (outcome.claims != null || outcome.duplicate) {
+        result.put("status", "duplicate");
+      } else {
+        result.put("status", "error");
+        result.put("error", requireNonNull(outcome.error));
+        if (item.original == null) {
+          errors++;
+          if (firstError == null) {
+            firstError = item;
+          }
+        }
+      }
+      results.add(result);
+    }
+    if (firstError != null) {
+      // Log a single summary rather than one stack trace per logout token
+      log(
+          "Rejected "
+              + errors
+              + " of "
+              + items.size()
+              + " logout tokens, first error: "
+              + firstError.error,
+          firstError.cause);
+    }
+
+    resp.setHeader("Cache-Control", "no-store");
+    resp.setStatus(HttpServletResponse.SC_OK);
+    resp.setContentType("application/json");
+    resp.setCharacterEncoding("UTF-8");
+    resp.getWriter().write(JSONObjectUtils.toJSONString(Map.of("results", results)));
+  }
+
+  private static boolean isJson(@Nullable String contentType) throws ParseException {
+    return contentType != null
+        && ContentType.parse(contentType).matches(ContentType.APPLICATION_JSON);
+  }
+
+  private static List<String> parseLogoutTokens(String body) throws ParseException {
+    var logoutTokens = new ArrayList<String>();
+    for (var value : JSONArrayUtils.parse(body)) {
+      if (!(value instanceof String logoutToken)) {
+        throw new ParseException("Expected an array of strings", 0);
+      }
+      logoutTokens.add(logoutToken);
+    }
+    return logoutTokens;
+  }
+
+  private static String keyId(JWT logoutToken) {
+    var keyId = logoutToken.getHeader() instanceof JWSHeader header ? header.getKeyID() : null;
+    return keyId != null ? keyId : "";
+  }
+
+  /**
+   * Validates the groups of logout tokens, with at most {@link #MAX_CONCURRENT_VALIDATIONS} groups
+   * validated concurrently, one of them on the current thread.
+   */
+  private void validateAll(Collection<List<Item>> groups) throws ServletException {
+    // Validating tokens with the same key in sequence lets the JWK source be queried only once per
+    // key, while tokens signed with different keys are validated in parallel.
+    var queue = new ConcurrentLinkedQueue<>(groups);
+    Runnable worker =
+        () -> {
+          List<Item> group;
+          while ((group = queue.poll()) != null) {
+            validateGroup(group);
+          }
+        };
+    var workers = new ArrayList<CompletableFuture<?>>();
+    try {
+      for (int i = 1; i < Math.min(groups.size(), MAX_CONCURRENT_VALIDATIONS); i++) {
+        workers.add(CompletableFuture.runAsync(worker, executor));
+      }
+    } catch (RejectedExecutionException e) {
+      // Validate the remaining groups on the current thread
+    }
+    worker.run();
+    try {
+      CompletableFuture.allOf(workers.toArray(CompletableFuture<?>[]::new)).join();
+    } catch (CompletionException e) {
+      throw new ServletException(e.getCause());
+    }
+  }
+
+  private void validateGroup(List<Item> items) {
+    for (var item : items) {
+      try {
+        item.claims = validate(requireNonNull(item.parsedLogoutToken));
+      } catch (BadJOSEException e) {
+        item.fail("Error validating logout token", e);
+      } catch (JOSEException e) {
+        item.fail("Invalid logout token", e);
+      }
+    }
+  }
+
+  private static final class Item {
+    final String logoutToken;
+    @Nullable Item original;
+    @Nullable JWT parsedLogoutToken;
+    @Nullable LogoutTokenClaimsSet claims;
+    boolean duplicate;
+    @Nullable String error;
+    @Nullable Exception cause;
+
+    Item(String logoutToken) {
+      this.logoutToken = logoutToken;
+    }
+
+    void fail(String message, Exception cause) {
+      this.error = message;
+      this.cause = cause;
+    }
+  }
+}
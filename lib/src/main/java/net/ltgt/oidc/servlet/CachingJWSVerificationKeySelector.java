@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyConverter;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.crypto.SecretKey;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link JWSVerificationKeySelector} that caches the Java keys converted from the selected JWKs,
+ * per key ID and algorithm.
+ *
+ * <p>The {@code JWSVerificationKeySelector} converts the selected JWKs to Java keys each time a JWT
+ * is validated, and constructing RSA or EC public keys is comparatively costly. This selector
+ * still asks the {@link JWKSource} for the matching JWKs each time (which is cheap with a caching
+ * source, such as the ones built by {@link com.nimbusds.jose.jwk.source.JWKSourceBuilder}), but
+ * only converts them when they're not the same JWK instances as last time. As a caching source
+ * returns the same instances until it refreshes the JWK set, a rotation of the JWK set evicts all
+ * the cached keys.
+ *
+ * <p>This is used by the {@link CallbackServlet} and {@link BackchannelLogoutServlet} to validate
+ * ID Tokens and Logout Tokens.
+ */
+public class CachingJWSVerificationKeySelector<C extends SecurityContext>
+    extends JWSVerificationKeySelector<C> {
+  private final Set<JWSAlgorithm> jwsAlgs;
+  private final ConcurrentMap<CacheKey, CachedKeys> cache = new ConcurrentHashMap<>();
+
+  /** Constructs a selector for the given accepted algorithms and JWK source. */
+  public CachingJWSVerificationKeySelector(Set<JWSAlgorithm> jwsAlgs, JWKSource<C> jwkSource) {
+    super(Set.copyOf(jwsAlgs), requireNonNull(jwkSource));
+    this.jwsAlgs = Set.copyOf(jwsAlgs);
+  }
+
+  @Override
+  public List<Key> selectJWSKeys(JWSHeader jwsHeader, @Nullable C context)
+      throws KeySourceException {
+    if (!jwsAlgs.contains(jwsHeader.getAlgorithm())) {
+      return List.of();
+    }
+    var jwkMatcher = createJWKMatcher(jwsHeader);
+    if (jwkMatcher == null) {
+      return List.of();
+    }
+    var jwks = getJWKSource().get(new JWKSelector(jwkMatcher), context);
+    if (jwks.isEmpty()) {
+      // Don't cache anything for unknown key IDs, as they're entirely under control of the sender
+      return List.of();
+    }
+    var cacheKey = new CacheKey(jwsHeader.getAlgorithm(), jwsHeader.getKeyID());
+    var cached = cache.get(cacheKey);
+    if (cached != null) {
+      if (cached.isFor(jwks)) {
+        return cached.keys();
+      }
+      // The JWK set has been refreshed, all cached keys are stale
+      cache.clear();
+    }
+    cached = new CachedKeys(List.copyOf(jwks), toVerificationKeys(jwks));
+    cache.put(cacheKey, cached);
+    return cached.keys();
+  }
+
+  private static List<Key> toVerificationKeys(List<JWK> jwks) {
+    // Same as JWSVerificationKeySelector: skip asymmetric private keys
+    return KeyConverter.toJavaKeys(jwks).stream()
+        .filter(key -> key instanceof PublicKey || key instanceof SecretKey)
+        .toList();
+  }
+
+  private record CacheKey(JWSAlgorithm jwsAlg, @Nullable String keyID) {}
+
+  private record CachedKeys(List<JWK> jwks, List<Key> keys) {
+    @SuppressWarnings("ReferenceEquality")
+    boolean isFor(List<JWK> jwks) {
+      if (this.jwks.size() != jwks.size()) {
+        return false;
+      }
+      for (int i = 0; i < jwks.size(); i++) {
+        // Compare identities, a refreshed JWK set has new instances
+        if (this.jwks.get(i) != jwks.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
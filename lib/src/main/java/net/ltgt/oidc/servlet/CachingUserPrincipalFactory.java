@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import jakarta.servlet.http.HttpSession;
+import java.io.Serial;
+import java.io.Serializable;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link UserPrincipalFactory} that caches the {@link UserPrincipal} created by another factory
+ * in the {@linkplain HttpSession session}, rather than creating a new one on each request.
+ *
+ * <p>The cached principal is reused as long as the {@link SessionInfo} instance in the session is
+ * the same that was used to create it, and the session keeps the same ID. It's otherwise created
+ * again using the wrapped factory.
+ *
+ * <p>The cached principal is only kept in memory: it won't be serialized along with the session,
+ * so it will be created again after the session has been passivated or replicated.
+ *
+ * {@snippet lang=java :
+ * servletContext.setAttribute(
+ *     UserPrincipalFactory.CONTEXT_ATTRIBUTE_NAME,
+ *     new CachingUserPrincipalFactory(KeycloakUserPrincipal.FACTORY));
+ * }
+ */
+public final class CachingUserPrincipalFactory implements UserPrincipalFactory {
+  private final UserPrincipalFactory userPrincipalFactory;
+
+  /** Constructs a factory caching the user principals created by the given factory. */
+  public CachingUserPrincipalFactory(UserPrincipalFactory userPrincipalFactory) {
+    this.userPrincipalFactory = requireNonNull(userPrincipalFactory);
+  }
+
+  @Override
+  public UserPrincipal createUserPrincipal(SessionInfo sessionInfo, HttpSession session) {
+    requireNonNull(sessionInfo);
+    var cache =
+        (CachedUserPrincipal) session.getAttribute(CachedUserPrincipal.SESSION_ATTRIBUTE_NAME);
+    if (cache != null) {
+      var entry = cache.entry;
+      if (entry != null
+          && entry.userPrincipalFactory() == userPrincipalFactory
+          && entry.sessionInfo() == sessionInfo
+          && entry.sessionId().equals(session.getId())) {
+        return entry.userPrincipal();
+      }
+    }
+    var userPrincipal = userPrincipalFactory.createUserPrincipal(sessionInfo, session);
+    var entry = new CacheEntry(userPrincipalFactory, sessionInfo, session.getId(), userPrincipal);
+    if (cache == null) {
+      cache = new CachedUserPrincipal();
+      cache.entry = entry;
+      session.setAttribute(CachedUserPrincipal.SESSION_ATTRIBUTE_NAME, cache);
+    } else {
+      // Update in place rather than replacing the session attribute, to avoid the session being
+      // marked as dirty (and possibly written to a persistent store) for something that won't be
+      // serialized anyway.
+      cache.entry = entry;
+    }
+    return userPrincipal;
+  }
+
+  @Override
+  public void userAuthenticated(SessionInfo sessionInfo, HttpSession session) {
+    userPrincipalFactory.userAuthenticated(requireNonNull(sessionInfo), requireNonNull(session));
+  }
+
+  private record CacheEntry(
+      UserPrincipalFactory userPrincipalFactory,
+      SessionInfo sessionInfo,
+      String sessionId,
+      UserPrincipal userPrincipal) {}
+
+  private static final class CachedUserPrincipal implements Serializable {
+    static final String SESSION_ATTRIBUTE_NAME = CachedUserPrincipal.class.getName();
+
+    @Serial private static final long serialVersionUID = 0L;
+
+    private transient volatile @Nullable CacheEntry entry;
+  }
+}
@@ -22,7 +22,7 @@ import com.google.errorprone.annotations.OverridingMethodsMustInvokeSuper;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.BadJOSEException;
-import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.oauth2.sdk.AuthorizationCodeGrant;
 import com.nimbusds.oauth2.sdk.ErrorResponse;
 import com.nimbusds.oauth2.sdk.OAuth2Error;
@@ -34,6 +34,7 @@ import com.nimbusds.oauth2.sdk.TokenResponse;
 import com.nimbusds.oauth2.sdk.http.HTTPRequest;
 import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
 import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.State;
 import com.nimbusds.oauth2.sdk.token.AccessToken;
 import com.nimbusds.oauth2.sdk.util.URLUtils;
 import com.nimbusds.openid.connect.sdk.AuthenticationResponse;
@@ -52,12 +53,19 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.jspecify.annotations.Nullable;
@@ -91,17 +99,72 @@ import org.jspecify.annotations.Nullable;
  * ServletContext}, it'll be called to possibly load additional data to the session, that can later
  * be made available through the {@link UserPrincipal}.
  *
+ * <p>If a {@link UserInfoFromIDTokenPolicy} is available in the {@link
+ * jakarta.servlet.ServletContext ServletContext} (only read with the no-arg constructor; otherwise,
+ * pass it to the constructor), it'll be called to possibly read the user information from the ID
+ * Token claims rather than sending a User Info request.
+ *
+ * <p>If the {@link #PARALLEL_ID_TOKEN_VALIDATION} init parameter is set to {@code true}, the ID
+ * Token will be validated (possibly fetching the JWK set) concurrently with the User Info request,
+ * on the executor described below or in a virtual thread. If the executor hasn't started the
+ * validation by the time the User Info response is received, it'll be done in the current thread
+ * instead, and if the User Info request fails the validation will be cancelled. The tokens will
+ * still be revoked and the user won't be authenticated if either fails. This has no effect when a
+ * {@link UserInfoFromIDTokenPolicy} is used, as it needs the validated ID Token claims to decide
+ * whether to send the User Info request.
+ *
  * <p>If an {@link OAuthTokensHandler} is available in the {@link jakarta.servlet.ServletContext
  * ServletContext}, it'll be called to possibly store the OAuth tokens in the session for later use
  * to access protected resources. Otherwise, a {@link RevokingOAuthTokensHandler} will immediately
  * revoke the tokens so they're unusable in case they leak somehow.
  *
+ * <p>If an {@link Executor} instance has been added as {@link jakarta.servlet.ServletContext
+ * ServletContext} attribute under the name {@link Utils#EXECUTOR_CONTEXT_ATTRIBUTE_NAME} (only read
+ * with the no-arg constructor; otherwise, pass it to the constructor), and the servlet (and all
+ * filters in the chain) {@linkplain jakarta.servlet.ServletRegistration.Dynamic#setAsyncSupported
+ * support asynchronous operations}, the requests to the OpenID Provider (token request and User
+ * Info request) and the ID Token validation will be executed asynchronously on that executor,
+ * releasing the servlet container thread. If the executor rejects the task, a {@link
+ * HttpServletResponse#SC_SERVICE_UNAVAILABLE} error will be sent. If the processing doesn't finish
+ * within the timeout configured by the {@link #ASYNC_TIMEOUT} init parameter (60 seconds by
+ * default), a {@link HttpServletResponse#SC_GATEWAY_TIMEOUT} error will be sent, and the tokens
+ * revoked when they're eventually received. That executor will also be used to revoke tokens, by
+ * the default {@link RevokingOAuthTokensHandler} and after errors.
+ *
+ * <p>If a {@link TokenRevocationQueue} has been added as {@link jakarta.servlet.ServletContext
+ * ServletContext} attribute under the name {@link TokenRevocationQueue#CONTEXT_ATTRIBUTE_NAME}
+ * (only read with the no-arg constructor), it will be used to revoke tokens instead, by the default
+ * {@link RevokingOAuthTokensHandler} and after errors, bounding the number of pending revocations.
+ * It must have been created with the same {@link Configuration}. With the other constructors, if
+ * the OAuth tokens handler is a {@link RevokingOAuthTokensHandler} {@linkplain
+ * RevokingOAuthTokensHandler#RevokingOAuthTokensHandler(TokenRevocationQueue) queuing tokens to a
+ * revocation queue}, that queue will also be used to revoke tokens after errors.
+ *
  * @see <a href="https://openid.net/specs/openid-connect-core-1_0.html">OpenID Connect Core 1.0</a>
  */
 public class CallbackServlet extends HttpServlet {
   public static final String ERROR_NOT_A_NAVIGATION = "not_a_navigation";
   public static final String ERROR_PARSING_PARAMETERS = "error_parsing_parameters";
 
+  /**
+   * The name of the init parameter to enable validating the ID Token concurrently with the User
+   * Info request.
+   */
+  public static final String PARALLEL_ID_TOKEN_VALIDATION = "parallel-id-token-validation";
+
+  /**
+   * The name of the init parameter to configure the timeout, in seconds, of the asynchronous
+   * processing of the authentication response.
+   */
+  public static final String ASYNC_TIMEOUT = "async-timeout";
+
+  private static final Duration DEFAULT_ASYNC_TIMEOUT = Duration.ofSeconds(60);
+
+  private static final Set<String> ID_TOKEN_SPECIFIC_CLAIM_NAMES =
+      Set.of(
+          "iss", "aud", "exp", "iat", "nbf", "jti", "auth_time", "nonce", "acr", "amr", "azp",
+          "at_hash", "c_hash", "s_hash", "sid", "sub_jwk");
+
   private Configuration configuration;
   private UserPrincipalFactory userPrincipalFactory;
   private @Nullable HTTPRequestSender httpRequestSender;
@@ -112,6 +175,11 @@ public class CallbackServlet extends HttpServlet {
   private boolean dpopSupportExplicitlySet;
   private @Nullable DPoPNonceStore dpopNonceStore;
   private IDTokenValidator idTokenValidator;
+  private @Nullable Executor executor;
+  private @Nullable TokenRevocationQueue tokenRevocationQueue;
+  private @Nullable UserInfoFromIDTokenPolicy userInfoFromIDTokenPolicy;
+  private boolean parallelIDTokenValidation;
+  private long asyncTimeoutMillis;
 
   public CallbackServlet() {
     this.jwkSource = null;
@@ -123,8 +191,8 @@ public class CallbackServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration, {@link
    * UserPrincipal} factory, HTTP request sender, and OAuth tokens handler won't be read. The JWK
-   * source will however be read from the servlet context, and a default value based on the
-   * configuration's JWKSet URI possibly be provided to the servlet context.
+   * source will however be read from the servlet context if present, and otherwise created for the
+   * configuration's JWKSet URI and shared with the other servlets of the servlet context.
    *
    * <p>This is equivalent to {@code new CallbackServlet(configuration, userPrincipalFactory, new
    * RevokingOAuthTokensHandler(configuration))}.
@@ -139,8 +207,8 @@ public class CallbackServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration, {@link
    * UserPrincipal} factory, HTTP request sender, and OAuth tokens handler won't be read. The JWK
-   * source will however be read from the servlet context, and a default value based on the
-   * configuration's JWKSet URI possibly be provided to the servlet context.
+   * source will however be read from the servlet context if present, and otherwise created for the
+   * configuration's JWKSet URI and shared with the other servlets of the servlet context.
    *
    * <p>This is equivalent to {@code new CallbackServlet(configuration, userPrincipalFactory,
    * oauthTokensHandler, null)}.
@@ -158,8 +226,8 @@ public class CallbackServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration, {@link
    * UserPrincipal} factory, HTTP request sender, and OAuth tokens handler won't be read. The JWK
-   * source will however be read from the servlet context, and a default value based on the
-   * configuration's JWKSet URI possibly be provided to the servlet context.
+   * source will however be read from the servlet context if present, and otherwise created for the
+   * configuration's JWKSet URI and shared with the other servlets of the servlet context.
    *
    * <p>This is equivalent to {@code new CallbackServlet(configuration, userPrincipalFactory, new
    * RevokingOAuthTokensHandler(configuration), httpRequestSender)}.
@@ -181,8 +249,8 @@ public class CallbackServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration, {@link
    * UserPrincipal} factory, HTTP request sender, and OAuth tokens handler won't be read. The JWK
-   * source will however be read from the servlet context, and a default value based on the
-   * configuration's JWKSet URI possibly be provided to the servlet context.
+   * source will however be read from the servlet context if present, and otherwise created for the
+   * configuration's JWKSet URI and shared with the other servlets of the servlet context.
    */
   public CallbackServlet(
       Configuration configuration,
@@ -206,8 +274,8 @@ public class CallbackServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration, {@link
    * UserPrincipal} factory, HTTP request sender, and OAuth tokens handler won't be read. The JWK
-   * source will however be read from the servlet context, and a default value based on the
-   * configuration's JWKSet URI possibly be provided to the servlet context.
+   * source will however be read from the servlet context if present, and otherwise created for the
+   * configuration's JWKSet URI and shared with the other servlets of the servlet context.
    *
    * <p>This is equivalent to {@code new CallbackServlet(configuration, userPrincipalFactory, new
    * RevokingOAuthTokensHandler(configuration), dpopSupport, dpopNonceStore)}.
@@ -231,8 +299,8 @@ public class CallbackServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration, {@link
    * UserPrincipal} factory, HTTP request sender, and OAuth tokens handler won't be read. The JWK
-   * source will however be read from the servlet context, and a default value based on the
-   * configuration's JWKSet URI possibly be provided to the servlet context.
+   * source will however be read from the servlet context if present, and otherwise created for the
+   * configuration's JWKSet URI and shared with the other servlets of the servlet context.
    *
    * <p>This is equivalent to {@code new CallbackServlet(configuration, userPrincipalFactory,
    * oauthTokensHandler, null, dpopSupport, dpopNonceStore)}.
@@ -253,8 +321,8 @@ public class CallbackServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration, {@link
    * UserPrincipal} factory, HTTP request sender, and OAuth tokens handler won't be read. The JWK
-   * source will however be read from the servlet context, and a default value based on the
-   * configuration's JWKSet URI possibly be provided to the servlet context.
+   * source will however be read from the servlet context if present, and otherwise created for the
+   * configuration's JWKSet URI and shared with the other servlets of the servlet context.
    *
    * <p>This is equivalent to {@code new CallbackServlet(configuration, userPrincipalFactory, new
    * RevokingOAuthTokensHandler(configuration), httpRequestHandler, dpopSupport, dpopNonceStore)}.
@@ -280,8 +348,8 @@ public class CallbackServlet extends HttpServlet {
    *
    * <p>When this constructor is used, the servlet context attributes for the configuration, {@link
    * UserPrincipal} factory, HTTP request sender, and OAuth tokens handler won't be read. The JWK
-   * source will however be read from the servlet context, and a default value based on the
-   * configuration's JWKSet URI possibly be provided to the servlet context.
+   * source will however be read from the servlet context if present, and otherwise created for the
+   * configuration's JWKSet URI and shared with the other servlets of the servlet context.
    */
   public CallbackServlet(
       Configuration configuration,
@@ -349,11 +417,45 @@ public class CallbackServlet extends HttpServlet {
     this.dpopNonceStore = dpopNonceStore;
   }
 
+  /**
+   * Constructs a servlet with the given configuration, {@link UserPrincipal} factory, HTTP request
+   * sender, JWK source, OAuth tokens handler, optional DPoP support with optional nonce store,
+   * optional executor, and optional {@link UserInfoFromIDTokenPolicy}.
+   *
+   * <p>When this constructor is used, the servlet context attributes won't be read.
+   */
+  public CallbackServlet(
+      Configuration configuration,
+      UserPrincipalFactory userPrincipalFactory,
+      JWKSource<?> jwkSource,
+      OAuthTokensHandler oauthTokensHandler,
+      @Nullable HTTPRequestSender httpRequestSender,
+      @Nullable DPoPSupport dpopSupport,
+      @Nullable DPoPNonceStore dpopNonceStore,
+      @Nullable Executor executor,
+      @Nullable UserInfoFromIDTokenPolicy userInfoFromIDTokenPolicy) {
+    if (dpopNonceStore != null) {
+      requireNonNull(dpopSupport, "DPoP nonce store is useless without DPoP support");
+    }
+    this.configuration = requireNonNull(configuration);
+    this.userPrincipalFactory = requireNonNull(userPrincipalFactory);
+    this.jwkSource = requireNonNull(jwkSource);
+    this.oauthTokensHandler = requireNonNull(oauthTokensHandler);
+    this.httpRequestSender = httpRequestSender;
+    this.httpRequestSenderExplicitlySet = true;
+    this.dpopSupport = dpopSupport;
+    this.dpopSupportExplicitlySet = true;
+    this.dpopNonceStore = dpopNonceStore;
+    this.executor = executor;
+    this.userInfoFromIDTokenPolicy = userInfoFromIDTokenPolicy;
+  }
+
   @SuppressWarnings({"rawtypes", "unchecked"})
   @OverridingMethodsMustInvokeSuper
   @Override
   public void init() throws ServletException {
-    if (configuration == null) {
+    var configurationFromContext = configuration == null;
+    if (configurationFromContext) {
       configuration =
           (Configuration) getServletContext().getAttribute(Configuration.CONTEXT_ATTRIBUTE_NAME);
     }
@@ -377,8 +479,31 @@ public class CallbackServlet extends HttpServlet {
           (OAuthTokensHandler)
               getServletContext().getAttribute(OAuthTokensHandler.CONTEXT_ATTRIBUTE_NAME);
     }
+    if (configurationFromContext) {
+      executor =
+          (Executor) getServletContext().getAttribute(Utils.EXECUTOR_CONTEXT_ATTRIBUTE_NAME);
+    }
+    if (configurationFromContext) {
+      tokenRevocationQueue =
+          (TokenRevocationQueue)
+              getServletContext().getAttribute(TokenRevocationQueue.CONTEXT_ATTRIBUTE_NAME);
+      if (tokenRevocationQueue != null
+          && tokenRevocationQueue.getConfiguration() != configuration) {
+        throw new ServletException(
+            "The token revocation queue must be created with the same configuration");
+      }
+    } else if (oauthTokensHandler instanceof RevokingOAuthTokensHandler revoking) {
+      tokenRevocationQueue = revoking.getRevocationQueue();
+    }
     if (oauthTokensHandler == null) {
-      oauthTokensHandler = new RevokingOAuthTokensHandler(configuration, httpRequestSender);
+      if (tokenRevocationQueue != null) {
+        oauthTokensHandler = new RevokingOAuthTokensHandler(tokenRevocationQueue);
+      } else {
+        oauthTokensHandler =
+            executor != null
+                ? new RevokingOAuthTokensHandler(configuration, httpRequestSender, executor)
+                : new RevokingOAuthTokensHandler(configuration, httpRequestSender);
+      }
     }
     if (!dpopSupportExplicitlySet) {
       assert dpopSupport == null && dpopNonceStore == null;
@@ -390,6 +515,18 @@ public class CallbackServlet extends HttpServlet {
         requireNonNull(dpopSupport, "DPoP nonce store is useless without DPoP support");
       }
     }
+    if (configurationFromContext) {
+      userInfoFromIDTokenPolicy =
+          (UserInfoFromIDTokenPolicy)
+              getServletContext().getAttribute(UserInfoFromIDTokenPolicy.CONTEXT_ATTRIBUTE_NAME);
+    }
+    parallelIDTokenValidation =
+        Boolean.parseBoolean(getInitParameter(PARALLEL_ID_TOKEN_VALIDATION));
+    var asyncTimeout = getInitParameter(ASYNC_TIMEOUT);
+    asyncTimeoutMillis =
+        asyncTimeout == null
+            ? DEFAULT_ASYNC_TIMEOUT.toMillis()
+            : Duration.ofSeconds(Long.parseLong(asyncTimeout.trim())).toMillis();
     if (dpopNonceStore == null && dpopSupport != null) {
       dpopNonceStore = new PerUriDPoPNonceStore();
     }
@@ -403,7 +540,7 @@ public class CallbackServlet extends HttpServlet {
         new IDTokenValidator(
             configuration.getProviderMetadata().getIssuer(),
             configuration.getClientId(),
-            new JWSVerificationKeySelector(
+            new CachingJWSVerificationKeySelector(
                 Set.copyOf(configuration.getProviderMetadata().getIDTokenJWSAlgs()), jwkSource),
             null);
   }
@@ -472,6 +609,41 @@ public class CallbackServlet extends HttpServlet {
                     URI.create(req.getRequestURL().toString()),
                     authenticationState == null ? null : authenticationState.codeVerifier()))
             .build();
+    var responseState = response.getState();
+    if (executor != null && req.isAsyncSupported()) {
+      var asyncContext = req.startAsync();
+      asyncContext.setTimeout(asyncTimeoutMillis);
+      var exchange = new AsyncExchange(this, this::sendError, asyncContext, req, resp);
+      asyncContext.addListener(exchange);
+      try {
+        executor.execute(
+            () ->
+                exchange.process(
+                    (guardedReq, guardedResp) ->
+                        processTokenRequest(
+                            guardedReq,
+                            guardedResp,
+                            session,
+                            tokenRequest,
+                            responseState,
+                            authenticationState)));
+      } catch (RejectedExecutionException e) {
+        exchange.fail(
+            HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many concurrent authentications", e);
+      }
+    } else {
+      processTokenRequest(req, resp, session, tokenRequest, responseState, authenticationState);
+    }
+  }
+
+  private void processTokenRequest(
+      HttpServletRequest req,
+      HttpServletResponse resp,
+      @Nullable HttpSession session,
+      TokenRequest tokenRequest,
+      @Nullable State responseState,
+      @Nullable AuthenticationState authenticationState)
+      throws IOException, ServletException {
     TokenResponse tokenResponse;
     try {
       tokenResponse = send(session, tokenRequest);
@@ -489,7 +661,7 @@ public class CallbackServlet extends HttpServlet {
           null);
       return;
     }
-    if (!Objects.equals(response.getState(), authenticationState.state())) {
+    if (!Objects.equals(responseState, authenticationState.state())) {
       maybeRevokeTokens(tokenResponse);
       sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "State mismatch", null);
       return;
@@ -503,23 +675,133 @@ public class CallbackServlet extends HttpServlet {
       return;
     }
     var successResponse = (OIDCTokenResponse) tokenResponse.toSuccessResponse();
-    assert session != null;
+    // The authentication state came from the session, so the session cannot be null
+    requireNonNull(session);
 
     IDTokenClaimsSet idTokenClaims;
-    try {
-      idTokenClaims =
-          idTokenValidator.validate(
-              successResponse.getOIDCTokens().getIDToken(), authenticationState.nonce());
-    } catch (BadJOSEException e) {
+    UserInfo userInfo;
+    if (parallelIDTokenValidation && userInfoFromIDTokenPolicy == null) {
+      // Validate the ID Token (possibly fetching the JWK set) while sending the User Info request
+      var idTokenValidation = validateIDTokenAsync(successResponse, authenticationState);
+      userInfo = fetchUserInfo(resp, session, successResponse);
+      if (userInfo == null) {
+        // error already sent
+        idTokenValidation.cancel(true);
+        return;
+      }
+      // Validate in the current thread if the executor hasn't started it yet (no-op otherwise)
+      idTokenValidation.run();
+      try {
+        idTokenClaims = idTokenValidation.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        revokeTokens(successResponse);
+        sendError(
+            resp,
+            HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+            "Interrupted while validating ID Token",
+            e);
+        return;
+      } catch (ExecutionException e) {
+        sendIDTokenValidationError(resp, successResponse, e.getCause());
+        return;
+      }
+    } else {
+      try {
+        idTokenClaims =
+            idTokenValidator.validate(
+                successResponse.getOIDCTokens().getIDToken(), authenticationState.nonce());
+      } catch (BadJOSEException | JOSEException e) {
+        sendIDTokenValidationError(resp, successResponse, e);
+        return;
+      }
+
+      if (userInfoFromIDTokenPolicy != null
+          && userInfoFromIDTokenPolicy.canUseIDTokenClaims(idTokenClaims)) {
+        try {
+          userInfo = toUserInfo(idTokenClaims);
+        } catch (ParseException e) {
+          revokeTokens(successResponse);
+          sendError(
+              resp,
+              HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+              "Error parsing ID Token claims",
+              e);
+          return;
+        }
+      } else {
+        userInfo = fetchUserInfo(resp, session, successResponse);
+        if (userInfo == null) {
+          // error already sent
+          return;
+        }
+      }
+    }
+    // https://openid.net/specs/openid-connect-core-1_0.html#UserInfoResponse
+    if (!idTokenClaims.getSubject().equals(userInfo.getSubject())) {
       revokeTokens(successResponse);
-      sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error validating ID Token", e);
+      sendError(
+          resp,
+          HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+          "User Info subject doesn't match ID Token subject",
+          null);
       return;
-    } catch (JOSEException e) {
+    }
+    try {
+      req.changeSessionId();
+    } catch (IllegalStateException e) {
+      // The request can no longer be used, e.g. the asynchronous processing timed out
       revokeTokens(successResponse);
-      sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Invalid ID Token", e);
-      return;
+      throw e;
     }
+    var sessionInfo =
+        new SessionInfo(successResponse.getOIDCTokens().getIDToken(), idTokenClaims, userInfo);
+    session.setAttribute(SessionInfo.SESSION_ATTRIBUTE_NAME, sessionInfo);
+    userPrincipalFactory.userAuthenticated(sessionInfo, session);
+    oauthTokensHandler.tokensAcquired(successResponse, session);
+    Utils.sendRedirect(resp, authenticationState.requestUri());
+  }
 
+  private RunnableFuture<IDTokenClaimsSet> validateIDTokenAsync(
+      OIDCTokenResponse successResponse, AuthenticationState authenticationState) {
+    var future =
+        new FutureTask<>(
+            () ->
+                idTokenValidator.validate(
+                    successResponse.getOIDCTokens().getIDToken(), authenticationState.nonce()));
+    try {
+      (executor != null ? executor : Utils.virtualThreadExecutor()).execute(future);
+    } catch (RejectedExecutionException e) {
+      // The validation will be done in the current thread after the User Info request
+    }
+    return future;
+  }
+
+  private void sendIDTokenValidationError(
+      HttpServletResponse resp, OIDCTokenResponse successResponse, @Nullable Throwable cause)
+      throws IOException, ServletException {
+    revokeTokens(successResponse);
+    if (cause instanceof BadJOSEException) {
+      sendError(
+          resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error validating ID Token", cause);
+    } else if (cause instanceof JOSEException) {
+      sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Invalid ID Token", cause);
+    } else if (cause instanceof RuntimeException e) {
+      throw e;
+    } else if (cause instanceof Error e) {
+      throw e;
+    } else {
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /**
+   * Sends the User Info request and returns the user information, or sends an error and returns
+   * {@code null}.
+   */
+  private @Nullable UserInfo fetchUserInfo(
+      HttpServletResponse resp, HttpSession session, OIDCTokenResponse successResponse)
+      throws IOException, ServletException {
     var userInfoRequest =
         new UserInfoRequest(
             configuration.getProviderMetadata().getUserInfoEndpointURI(),
@@ -531,7 +813,7 @@ public class CallbackServlet extends HttpServlet {
       revokeTokens(successResponse);
       sendError(
           resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in User Info request", e);
-      return;
+      return null;
     }
     if (!userInfoResponse.indicatesSuccess()) {
       // Error might be because the token is wrong for some reason, but better be safe than sorry
@@ -542,7 +824,7 @@ public class CallbackServlet extends HttpServlet {
           "User Info request returned error: "
               + userInfoResponse.toErrorResponse().getErrorObject().getCode(),
           null);
-      return;
+      return null;
     }
 
     var userInfo = userInfoResponse.toSuccessResponse().getUserInfo();
@@ -554,16 +836,24 @@ public class CallbackServlet extends HttpServlet {
         revokeTokens(successResponse);
         sendError(
             resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error parsing ID Token claims", e);
-        return;
+        return null;
       }
     }
-    req.changeSessionId();
-    var sessionInfo =
-        new SessionInfo(successResponse.getOIDCTokens().getIDToken(), idTokenClaims, userInfo);
-    session.setAttribute(SessionInfo.SESSION_ATTRIBUTE_NAME, sessionInfo);
-    userPrincipalFactory.userAuthenticated(sessionInfo, session);
-    oauthTokensHandler.tokensAcquired(successResponse, session);
-    Utils.sendRedirect(resp, authenticationState.requestUri());
+    return userInfo;
+  }
+
+  private static UserInfo toUserInfo(IDTokenClaimsSet idTokenClaims) throws ParseException {
+    var claims = new JWTClaimsSet.Builder();
+    idTokenClaims
+        .toJWTClaimsSet()
+        .getClaims()
+        .forEach(
+            (name, value) -> {
+              if (!ID_TOKEN_SPECIFIC_CLAIM_NAMES.contains(name)) {
+                claims.claim(name, value);
+              }
+            });
+    return new UserInfo(claims.build());
   }
 
   private TokenResponse send(@Nullable HttpSession session, TokenRequest tokenRequest)
@@ -646,7 +936,14 @@ public class CallbackServlet extends HttpServlet {
   }
 
   private void revokeTokens(OIDCTokenResponse response) {
-    new RevokingOAuthTokensHandler(configuration, httpRequestSender) {
+    if (tokenRevocationQueue != null) {
+      tokenRevocationQueue.revoke(response.getTokens().getAccessToken());
+      return;
+    }
+    new RevokingOAuthTokensHandler(
+        configuration,
+        httpRequestSender,
+        executor != null ? executor : ForkJoinPool.commonPool()) {
       @Override
       protected void handleError(Exception e) {
         log("Error revoking the access token after an error", e);
@@ -73,7 +73,7 @@ import com.nimbusds.openid.connect.sdk.op.ReadOnlyOIDCProviderMetadata;
 public final class Configuration {
   public static final String CONTEXT_ATTRIBUTE_NAME = Configuration.class.getName();
 
-  private final ReadOnlyOIDCProviderMetadata providerMetadata;
+  private final ProviderMetadataSupplier providerMetadataSupplier;
   private final ClientID clientId;
   private final ClientAuthenticationSupplier clientAuthenticationSupplier;
 
@@ -89,13 +89,50 @@ public final class Configuration {
       ReadOnlyOIDCProviderMetadata providerMetadata,
       ClientID clientId,
       ClientAuthenticationSupplier clientAuthenticationSupplier) {
-    this.providerMetadata = requireNonNull(providerMetadata);
+    requireNonNull(providerMetadata);
+    this.providerMetadataSupplier = () -> providerMetadata;
+    this.clientId = requireNonNull(clientId);
+    this.clientAuthenticationSupplier = requireNonNull(clientAuthenticationSupplier);
+  }
+
+  /**
+   * Constructs a configuration whose provider metadata can change over time, e.g. with a {@link
+   * RefreshingProviderMetadataSupplier}.
+   *
+   * <p>The provider metadata is read each time it's needed, with the exception of the issuer, JWK
+   * set URI, and ID Token signing algorithms that are only read when the {@link CallbackServlet}
+   * and {@link BackchannelLogoutServlet} are initialized.
+   */
+  public Configuration(
+      ProviderMetadataSupplier providerMetadataSupplier,
+      ClientAuthentication clientAuthentication) {
+    this(
+        providerMetadataSupplier,
+        requireNonNull(clientAuthentication).getClientID(),
+        () -> clientAuthentication);
+  }
+
+  /**
+   * Constructs a configuration whose provider metadata can change over time, e.g. with a {@link
+   * RefreshingProviderMetadataSupplier}.
+   *
+   * @see #Configuration(ProviderMetadataSupplier, ClientAuthentication)
+   */
+  public Configuration(
+      ProviderMetadataSupplier providerMetadataSupplier,
+      ClientID clientId,
+      ClientAuthenticationSupplier clientAuthenticationSupplier) {
+    this.providerMetadataSupplier = requireNonNull(providerMetadataSupplier);
     this.clientId = requireNonNull(clientId);
     this.clientAuthenticationSupplier = requireNonNull(clientAuthenticationSupplier);
   }
 
   public ReadOnlyOIDCProviderMetadata getProviderMetadata() {
-    return providerMetadata;
+    return providerMetadataSupplier.getProviderMetadata();
+  }
+
+  ProviderMetadataSupplier getProviderMetadataSupplier() {
+    return providerMetadataSupplier;
   }
 
   public ClientID getClientId() {
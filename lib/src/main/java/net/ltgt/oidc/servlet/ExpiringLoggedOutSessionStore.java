@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An implementation of {@link LoggedOutSessionStore} that records logged out {@link SessionID}s in
+ * memory for a limited time, for the {@link UserFilter} to lazily invalidate the corresponding
+ * sessions.
+ *
+ * <p>Contrary to the {@link InMemoryLoggedOutSessionStore}, this store doesn't track sessions, so
+ * doesn't need a {@link BackchannelLogoutSessionListener}, and only considers as logged out the
+ * session IDs that have been explicitly {@linkplain #logout(SessionID) logged out}. It can thus
+ * be wrapped in a {@link BloomFilterLoggedOutSessionStore}. As it doesn't know the sessions of
+ * each subject, it ignores {@linkplain #logout(com.nimbusds.oauth2.sdk.id.Issuer,
+ * com.nimbusds.oauth2.sdk.id.Subject) logouts by subject}.
+ *
+ * <p>Memory is bounded in two ways:
+ *
+ * <ul>
+ *   <li>entries expire after the {@code retention} period, that should be at least the sessions'
+ *       {@linkplain jakarta.servlet.http.HttpSession#getMaxInactiveInterval() maximum inactive
+ *       interval} (e.g. {@code Duration.ofMinutes(servletContext.getSessionTimeout())}): any
+ *       session still active after that time will have made a request, and been invalidated by the
+ *       {@code UserFilter};
+ *   <li>the number of entries is capped, evicting the oldest entries first. Evicted session IDs are
+ *       no longer considered logged out, so the cap should be sized generously, and {@linkplain
+ *       #getEvictedCount() evictions} monitored.
+ * </ul>
+ *
+ * <p>Expiration uses a timer wheel: entries are put in one of a fixed number of buckets depending
+ * on the time they were logged out, and whole buckets are expired at once as time passes, without
+ * any background thread. Entries are thus kept for at most a few percents longer than the {@code
+ * retention}.
+ */
+public class ExpiringLoggedOutSessionStore implements LoggedOutSessionStore {
+  private static final int WHEEL_TICKS = 64;
+
+  private final int maximumSize;
+  private final InstantSource instantSource;
+  private final long tickMillis;
+  // Number of ticks an entry is retained for, after the tick it's been logged out at
+  private final long retentionTicks;
+  private final List<Queue<Entry>> wheel;
+  private final ConcurrentMap<SessionID, Long> loggedOutSessions = new ConcurrentHashMap<>();
+  private final Object lock = new Object();
+  private volatile long lastExpiredTick;
+  private final LongAdder expiredCount = new LongAdder();
+  private final LongAdder evictedCount = new LongAdder();
+
+  /**
+   * Constructs a store that retains logged out session IDs for the given period, and at most the
+   * given number of them.
+   */
+  public ExpiringLoggedOutSessionStore(Duration retention, int maximumSize) {
+    this(retention, maximumSize, InstantSource.system());
+  }
+
+  ExpiringLoggedOutSessionStore(Duration retention, int maximumSize, InstantSource instantSource) {
+    requireNonNull(retention);
+    this.instantSource = requireNonNull(instantSource);
+    if (retention.isNegative() || retention.isZero()) {
+      throw new IllegalArgumentException("retention must be positive");
+    }
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+    this.maximumSize = maximumSize;
+    var retentionMillis = Math.max(1, retention.toMillis());
+    this.tickMillis = Math.ceilDiv(retentionMillis, WHEEL_TICKS);
+    this.retentionTicks = Math.ceilDiv(retentionMillis, tickMillis);
+    // Entries logged out at tick t are live until tick t + retentionTicks (inclusive), so the wheel
+    // needs one more bucket so that live ticks never share a bucket.
+    var wheel = new ArrayList<Queue<Entry>>();
+    for (int i = 0; i < retentionTicks + 2; i++) {
+      wheel.add(new ConcurrentLinkedQueue<>());
+    }
+    this.wheel = List.copyOf(wheel);
+    this.lastExpiredTick = currentTick() - retentionTicks - 1;
+  }
+
+  @Override
+  public void logout(SessionID sessionID) {
+    var now = advance();
+    var previous = loggedOutSessions.put(sessionID, now);
+    // Repeated logouts (e.g. replicated or re-sent) within the same tick would otherwise add
+    // entries to the wheel without bound, that the cap wouldn't account for.
+    if (previous != null && previous == now) {
+      return;
+    }
+    wheel.get(bucket(now)).add(new Entry(sessionID, now));
+    if (loggedOutSessions.size() > maximumSize) {
+      evict(now);
+    }
+  }
+
+  @Override
+  public boolean isLoggedOut(SessionID sessionID) {
+    var now = advance();
+    var tick = loggedOutSessions.get(sessionID);
+    return tick != null && !isExpired(tick, now);
+  }
+
+  /** Returns the number of logged out session IDs currently retained. */
+  public int getSize() {
+    return loggedOutSessions.size();
+  }
+
+  /** Returns the number of logged out session IDs that have been removed after their retention. */
+  public long getExpiredCount() {
+    return expiredCount.sum();
+  }
+
+  /**
+   * Returns the number of logged out session IDs that have been removed before the end of their
+   * retention, to keep the number of entries under the cap.
+   */
+  public long getEvictedCount() {
+    return evictedCount.sum();
+  }
+
+  // @VisibleForTesting
+  int getWheelEntryCount() {
+    return wheel.stream().mapToInt(Queue::size).sum();
+  }
+
+  private long currentTick() {
+    return instantSource.millis() / tickMillis;
+  }
+
+  private int bucket(long tick) {
+    return (int) Math.floorMod(tick, (long) wheel.size());
+  }
+
+  private boolean isExpired(long tick, long now) {
+    return now - tick > retentionTicks;
+  }
+
+  /** Expires buckets as needed, and returns the current tick. */
+  private long advance() {
+    var now = currentTick();
+    if (now - retentionTicks - 1 <= lastExpiredTick) {
+      return now;
+    }
+    synchronized (lock) {
+      var toTick = now - retentionTicks - 1;
+      // If idle for a long time, buckets will have been reused, so only go around the wheel once
+      var fromTick = Math.max(lastExpiredTick + 1, toTick - wheel.size() + 1);
+      for (var tick = fromTick; tick <= toTick; tick++) {
+        var bucket = wheel.get(bucket(tick));
+        Entry entry;
+        while ((entry = bucket.peek()) != null && isExpired(entry.tick(), now)) {
+          bucket.remove();
+          if (loggedOutSessions.remove(entry.sessionID(), entry.tick())) {
+            expiredCount.increment();
+          }
+        }
+      }
+      if (toTick > lastExpiredTick) {
+        lastExpiredTick = toTick;
+      }
+    }
+    return now;
+  }
+
+  private void evict(long now) {
+    synchronized (lock) {
+      for (var tick = now - retentionTicks; tick <= now; tick++) {
+        var bucket = wheel.get(bucket(tick));
+        Entry entry;
+        while (loggedOutSessions.size() > maximumSize && (entry = bucket.poll()) != null) {
+          if (loggedOutSessions.remove(entry.sessionID(), entry.tick())) {
+            evictedCount.increment();
+          }
+        }
+        if (loggedOutSessions.size() <= maximumSize) {
+          return;
+        }
+      }
+    }
+  }
+
+  private record Entry(SessionID sessionID, long tick) {}
+}
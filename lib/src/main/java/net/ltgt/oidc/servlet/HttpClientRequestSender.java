@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPRequest;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPResponse;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An {@link HTTPRequestSender} backed by a {@link HttpClient}.
+ *
+ * <p>Contrary to the default {@link java.net.HttpURLConnection}-based implementation, the {@link
+ * HttpClient} negotiates HTTP/2 when possible and keeps connections to the OpenID Provider open,
+ * so that successive requests don't pay the price of a new connection and TLS handshake.
+ *
+ * <p>The {@linkplain ReadOnlyHTTPRequest#getReadTimeout() read timeout} and {@linkplain
+ * ReadOnlyHTTPRequest#getConnectTimeout() connect timeout} of the request are honored when set,
+ * taking precedence over the read timeout of the sender. As the {@link HttpClient} has no
+ * per-request connect timeout, the request's connect timeout is added to its read timeout to bound
+ * the whole exchange (up to receiving the response status and headers).
+ *
+ * <p>Redirects are handled by the {@link HttpClient}, as it has no per-request redirect policy:
+ * the {@linkplain ReadOnlyHTTPRequest#getFollowRedirects() request's} setting is ignored. The
+ * {@link HttpClient} created by the {@linkplain #HttpClientRequestSender(Duration, Duration)
+ * convenience constructor} never follows redirects, as the OpenID Provider's endpoints aren't
+ * expected to redirect, and requests to them can carry credentials.
+ *
+ * <p>A single instance should be shared by all servlets and filters, by registering it as a
+ * servlet context attribute under the name {@link Utils#HTTP_REQUEST_SENDER_CONTEXT_ATTRIBUTE_NAME}
+ * (and passing it to the constructors of the objects that won't read it from there).
+ *
+ * {@snippet lang=java :
+ * servletContext.setAttribute(
+ *     Utils.HTTP_REQUEST_SENDER_CONTEXT_ATTRIBUTE_NAME,
+ *     new HttpClientRequestSender(Duration.ofSeconds(5), Duration.ofSeconds(10)));
+ * }
+ */
+public final class HttpClientRequestSender implements HTTPRequestSender {
+  // https://docs.oracle.com/en/java/javase/21/docs/api/java.net.http/module-summary.html
+  private static final Set<String> RESTRICTED_HEADERS =
+      Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+  private final HttpClient httpClient;
+  private final @Nullable Duration readTimeout;
+
+  /**
+   * Constructs a sender with a new {@link HttpClient} preferring HTTP/2 and not following
+   * redirects, with the given connect timeout, and the given read timeout.
+   *
+   * <p>The read timeout applies to receiving the response status and headers.
+   */
+  public HttpClientRequestSender(Duration connectTimeout, Duration readTimeout) {
+    this(
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(connectTimeout)
+            .build(),
+        requireNonNull(readTimeout));
+  }
+
+  /**
+   * Constructs a sender with the given {@link HttpClient} and optional read timeout.
+   *
+   * <p>The read timeout applies to receiving the response status and headers.
+   */
+  public HttpClientRequestSender(HttpClient httpClient, @Nullable Duration readTimeout) {
+    this.httpClient = requireNonNull(httpClient);
+    this.readTimeout = readTimeout;
+  }
+
+  @Override
+  public ReadOnlyHTTPResponse send(ReadOnlyHTTPRequest httpRequest) throws IOException {
+    HttpResponse<String> response;
+    try {
+      response = httpClient.send(toHttpRequest(httpRequest), HttpResponse.BodyHandlers.ofString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      var ioe = new InterruptedIOException("Interrupted while sending request");
+      ioe.initCause(e);
+      throw ioe;
+    }
+    return toHTTPResponse(response);
+  }
+
+  /**
+   * Sends the request asynchronously.
+   *
+   * <p>I/O errors are reported as an {@link IOException} completing the returned future
+   * exceptionally (and thus the cause of the exception thrown by {@link CompletableFuture#get()}
+   * or {@link CompletableFuture#join()}).
+   */
+  public CompletableFuture<ReadOnlyHTTPResponse> sendAsync(ReadOnlyHTTPRequest httpRequest) {
+    var future = new CompletableFuture<ReadOnlyHTTPResponse>();
+    var unused =
+        httpClient
+            .sendAsync(toHttpRequest(httpRequest), HttpResponse.BodyHandlers.ofString())
+            .whenComplete(
+                (response, failure) -> {
+                  if (failure != null) {
+                    var cause = failure instanceof CompletionException ? failure.getCause() : null;
+                    future.completeExceptionally(cause != null ? cause : failure);
+                    return;
+                  }
+                  try {
+                    future.complete(toHTTPResponse(response));
+                  } catch (IOException e) {
+                    future.completeExceptionally(e);
+                  }
+                });
+    return future;
+  }
+
+  private HttpRequest toHttpRequest(ReadOnlyHTTPRequest httpRequest) {
+    var builder = HttpRequest.newBuilder(httpRequest.getURI());
+    var timeout = timeout(httpRequest);
+    if (timeout != null) {
+      builder.timeout(timeout);
+    }
+    httpRequest
+        .getHeaderMap()
+        .forEach(
+            (name, values) -> {
+              if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                for (var value : values) {
+                  builder.header(name, value);
+                }
+              }
+            });
+    var body = httpRequest.getBody();
+    builder.method(
+        httpRequest.getMethod().name(),
+        body == null
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body));
+    return builder.build();
+  }
+
+  private @Nullable Duration timeout(ReadOnlyHTTPRequest httpRequest) {
+    var timeout =
+        httpRequest.getReadTimeout() > 0
+            ? Duration.ofMillis(httpRequest.getReadTimeout())
+            : this.readTimeout;
+    if (timeout == null || httpRequest.getConnectTimeout() <= 0) {
+      // Without a read timeout, only the connect timeout of the HttpClient applies
+      return timeout;
+    }
+    return timeout.plusMillis(httpRequest.getConnectTimeout());
+  }
+
+  private static ReadOnlyHTTPResponse toHTTPResponse(HttpResponse<String> response)
+      throws IOException {
+    var httpResponse = new HTTPResponse(response.statusCode());
+    response
+        .headers()
+        .map()
+        .forEach(
+            (name, values) -> {
+              // Skip HTTP/2 pseudo-headers; Content-Type is handled below
+              if (!name.startsWith(":") && !name.equalsIgnoreCase("Content-Type")) {
+                httpResponse.setHeader(name, values.toArray(String[]::new));
+              }
+            });
+    var contentType = response.headers().firstValue("Content-Type");
+    if (contentType.isPresent()) {
+      try {
+        httpResponse.setContentType(contentType.get());
+      } catch (ParseException e) {
+        throw new IOException("Couldn't parse Content-Type header: " + e.getMessage(), e);
+      }
+    }
+    var body = response.body();
+    if (!body.isEmpty()) {
+      httpResponse.setBody(body);
+    }
+    return httpResponse;
+  }
+}
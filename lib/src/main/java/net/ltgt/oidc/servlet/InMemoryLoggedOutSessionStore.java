@@ -15,31 +15,135 @@
  */
 package net.ltgt.oidc.servlet;
 
-import static java.util.function.Predicate.not;
+import static java.util.Objects.requireNonNull;
 
 import com.google.errorprone.annotations.ForOverride;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
 import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jspecify.annotations.Nullable;
 
 /**
  * An implementation of {@link LoggedOutSessionStore} that stores session IDs in memory.
  *
- * <p>A subclass can override {@link #doLogout} to effectively invalidate sessions.
+ * <p>Session IDs are stored in a hash-based concurrent map, in small mutable containers (one per
+ * {@link SessionID}) that are only ever updated while holding the map's lock for that entry, so
+ * that updates for different {@code SessionID}s don't contend with each other.
+ *
+ * <p>Session IDs are similarly indexed by {@link Issuer} and {@link Subject}, to {@linkplain
+ * #logout(Issuer, Subject) log out} all the sessions of a user. The sessions logged out that way
+ * are recorded until they're {@linkplain #release(Issuer, Subject, String) released}, for
+ * lock-free {@linkplain #isLoggedOut(Issuer, Subject, String) lookups}; sessions that have never
+ * been {@linkplain #acquire(Issuer, Subject, String) acquired} (e.g. restored from a persistent
+ * session manager after a restart) are thus not considered logged out.
+ *
+ * <p>A subclass can override {@link #doLogout} to effectively invalidate sessions. By default,
+ * {@code doLogout} is called synchronously, from the {@link BackchannelLogoutServlet}; when
+ * invalidating sessions is costly (e.g. with a persistent session manager), or the OpenID Provider
+ * logs out many sessions at once, it can instead be called asynchronously by {@linkplain
+ * #InMemoryLoggedOutSessionStore(Executor, int) passing an executor}.
  */
 public class InMemoryLoggedOutSessionStore implements LoggedOutSessionStore {
+  private static final System.Logger logger =
+      System.getLogger(InMemoryLoggedOutSessionStore.class.getName());
+
+  private static final int MAX_BATCH_SIZE = 100;
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long INITIAL_RETRY_DELAY_MILLIS = 100;
+
+  // Invariant: a SessionIds value is never empty (entries are removed instead)
+  private final ConcurrentMap<SessionID, SessionIds> loggedInSessions = new ConcurrentHashMap<>();
+  // Same invariant; logged out sessions are only updated while holding the lock for their subject
+  private final ConcurrentMap<SubjectKey, SessionIds> subjectSessions = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, SubjectKey> loggedOutSubjectSessions =
+      new ConcurrentHashMap<>();
+
+  private final @Nullable Executor executor;
+  private final @Nullable BlockingQueue<String> invalidationQueue;
+  private final AtomicBoolean draining = new AtomicBoolean();
+
+  /** Constructs a store that synchronously calls {@link #doLogout}. */
+  public InMemoryLoggedOutSessionStore() {
+    this.executor = null;
+    this.invalidationQueue = null;
+  }
 
-  private final ConcurrentMap<SessionID, Set<String>> loggedInSessions =
-      new ConcurrentSkipListMap<>();
+  /**
+   * Constructs a store that asynchronously calls {@link #doLogout} on the given executor.
+   *
+   * <p>Session IDs to invalidate are put in a queue of the given capacity, and {@code doLogout} is
+   * called with batches of them, retrying a few times when it throws. It must thus be idempotent.
+   * Sessions that couldn't be put in the queue (when it's full), or whose invalidation failed, will
+   * still be invalidated by the {@link UserFilter} when they're next used.
+   *
+   * <p>As {@code doLogout} can be blocking, using the {@linkplain Utils#virtualThreadExecutor()
+   * virtual thread executor} is recommended.
+   */
+  public InMemoryLoggedOutSessionStore(Executor executor, int queueCapacity) {
+    this.executor = requireNonNull(executor);
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("queueCapacity must be positive");
+    }
+    this.invalidationQueue = new ArrayBlockingQueue<>(queueCapacity);
+  }
 
   @Override
   public void logout(SessionID sessionID) {
     var loggedOutSessions = loggedInSessions.remove(sessionID);
     if (loggedOutSessions != null) {
-      doLogout(loggedOutSessions);
+      // The removed container can no longer be updated concurrently
+      logoutSessions(loggedOutSessions.toSet());
+    }
+  }
+
+  @Override
+  public void logoutAll(Collection<SessionID> sessionIDs) {
+    var loggedOutSessions = new ArrayList<String>();
+    for (var sessionID : sessionIDs) {
+      var removed = loggedInSessions.remove(sessionID);
+      if (removed != null) {
+        loggedOutSessions.addAll(removed.toSet());
+      }
+    }
+    if (!loggedOutSessions.isEmpty()) {
+      logoutSessions(Set.copyOf(loggedOutSessions));
+    }
+  }
+
+  @Override
+  public void logout(Issuer issuer, Subject subject) {
+    var key = new SubjectKey(issuer, subject);
+    var loggedOutSessions = new ArrayList<String>();
+    subjectSessions.computeIfPresent(
+        key,
+        (ignored, old) -> {
+          for (var sessionId : old.toSet()) {
+            loggedOutSubjectSessions.put(sessionId, key);
+            loggedOutSessions.add(sessionId);
+          }
+          return null;
+        });
+    if (!loggedOutSessions.isEmpty()) {
+      logoutSessions(Set.copyOf(loggedOutSessions));
+    }
+  }
+
+  private void logoutSessions(Set<String> sessionIds) {
+    if (executor == null) {
+      doLogout(sessionIds);
+    } else {
+      enqueue(sessionIds);
     }
   }
 
@@ -55,54 +159,235 @@ public class InMemoryLoggedOutSessionStore implements LoggedOutSessionStore {
   @ForOverride
   protected void doLogout(Set<String> sessionIds) {}
 
+  private void enqueue(Set<String> sessionIds) {
+    var queue = requireNonNull(invalidationQueue);
+    var dropped = 0;
+    for (var sessionId : sessionIds) {
+      if (!queue.offer(sessionId)) {
+        dropped++;
+      }
+    }
+    if (dropped > 0) {
+      logger.log(
+          System.Logger.Level.WARNING,
+          "Session invalidation queue is full, {0} sessions will be invalidated when next used",
+          dropped);
+    }
+    scheduleDrain();
+  }
+
+  private void scheduleDrain() {
+    if (draining.compareAndSet(false, true)) {
+      try {
+        requireNonNull(executor).execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        draining.set(false);
+        logger.log(System.Logger.Level.WARNING, "Cannot schedule session invalidation", e);
+      }
+    }
+  }
+
+  private void drain() {
+    var queue = requireNonNull(invalidationQueue);
+    var batch = new ArrayList<String>(MAX_BATCH_SIZE);
+    try {
+      // Stop draining when interrupted (e.g. the executor is being shut down)
+      while (!Thread.currentThread().isInterrupted()) {
+        queue.drainTo(batch, MAX_BATCH_SIZE);
+        if (batch.isEmpty()) {
+          return;
+        }
+        invalidate(Set.copyOf(batch));
+        batch.clear();
+      }
+    } finally {
+      // Always reset, even if doLogout threw an Error, so later logouts are still processed
+      draining.set(false);
+      // Session IDs could have been enqueued after the last drainTo but before draining was reset,
+      // without scheduling a new drain, or left in the queue after an Error.
+      if (!queue.isEmpty() && !Thread.currentThread().isInterrupted()) {
+        scheduleDrain();
+      }
+    }
+  }
+
+  private void invalidate(Set<String> sessionIds) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        doLogout(sessionIds);
+        return;
+      } catch (RuntimeException e) {
+        if (attempt >= MAX_ATTEMPTS) {
+          logger.log(
+              System.Logger.Level.WARNING,
+              "Error invalidating sessions, they will be invalidated when next used",
+              e);
+          return;
+        }
+      }
+      try {
+        Thread.sleep(INITIAL_RETRY_DELAY_MILLIS << (attempt - 1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
   @Override
   public boolean isLoggedOut(SessionID sessionID) {
-    return loggedInSessions.getOrDefault(sessionID, Set.of()).isEmpty();
+    return !loggedInSessions.containsKey(sessionID);
   }
 
   @Override
   public void acquire(SessionID sessionID, String sessionId) {
     loggedInSessions.compute(
         sessionID,
-        (ignored, old) ->
-            old == null
-                ? Set.of(sessionId)
-                : Stream.concat(old.stream(), Stream.of(sessionId))
-                    .collect(Collectors.toUnmodifiableSet()));
+        (ignored, old) -> {
+          if (old == null) {
+            return new SessionIds(sessionId);
+          }
+          old.add(sessionId);
+          return old;
+        });
   }
 
   @Override
   public void release(SessionID sessionID, String sessionId) {
+    loggedInSessions.computeIfPresent(
+        sessionID,
+        (ignored, old) -> {
+          old.remove(sessionId);
+          return old.isEmpty() ? null : old;
+        });
+  }
+
+  @Override
+  public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
     loggedInSessions.compute(
         sessionID,
         (ignored, old) -> {
           if (old == null) {
-            return null;
+            // Strange, shouldn't have happened… treat as an acquire
+            return new SessionIds(newSessionId);
           }
-          if (!old.contains(sessionId)) {
-            return old;
+          old.remove(oldSessionId);
+          old.add(newSessionId);
+          return old;
+        });
+  }
+
+  @Override
+  public boolean isLoggedOut(Issuer issuer, Subject subject, String sessionId) {
+    return new SubjectKey(issuer, subject).equals(loggedOutSubjectSessions.get(sessionId));
+  }
+
+  @Override
+  public void acquire(Issuer issuer, Subject subject, String sessionId) {
+    var key = new SubjectKey(issuer, subject);
+    subjectSessions.compute(
+        key,
+        (ignored, old) -> {
+          loggedOutSubjectSessions.remove(sessionId, key);
+          if (old == null) {
+            return new SessionIds(sessionId);
           }
-          if (old.size() == 1) {
+          old.add(sessionId);
+          return old;
+        });
+  }
+
+  @Override
+  public void release(Issuer issuer, Subject subject, String sessionId) {
+    var key = new SubjectKey(issuer, subject);
+    subjectSessions.compute(
+        key,
+        (ignored, old) -> {
+          loggedOutSubjectSessions.remove(sessionId, key);
+          if (old == null) {
             return null;
           }
-          return old.stream()
-              .filter(not(sessionId::equals))
-              .collect(Collectors.toUnmodifiableSet());
+          old.remove(sessionId);
+          return old.isEmpty() ? null : old;
         });
   }
 
   @Override
-  public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
-    loggedInSessions.compute(
-        sessionID,
+  public void renew(Issuer issuer, Subject subject, String oldSessionId, String newSessionId) {
+    var key = new SubjectKey(issuer, subject);
+    subjectSessions.compute(
+        key,
         (ignored, old) -> {
+          // A logged out session keeps being logged out after its ID changed
+          if (loggedOutSubjectSessions.remove(oldSessionId, key)) {
+            loggedOutSubjectSessions.put(newSessionId, key);
+            return old;
+          }
           if (old == null) {
             // Strange, shouldn't have happened… treat as an acquire
-            return Set.of(newSessionId);
+            return new SessionIds(newSessionId);
           }
-          return Stream.concat(
-                  old.stream().filter(not(oldSessionId::equals)), Stream.of(newSessionId))
-              .collect(Collectors.toUnmodifiableSet());
+          old.remove(oldSessionId);
+          old.add(newSessionId);
+          return old;
         });
   }
+
+  /** A subject is only unique for a given issuer. */
+  private record SubjectKey(Issuer issuer, Subject subject) {}
+
+  /**
+   * A small set of session IDs, optimized for the very common case of a single session.
+   *
+   * <p>Not thread-safe: must only be accessed from within the map's atomic operations.
+   */
+  private static final class SessionIds {
+    private String[] ids;
+    private int size;
+
+    SessionIds(String sessionId) {
+      ids = new String[] {sessionId};
+      size = 1;
+    }
+
+    void add(String sessionId) {
+      if (indexOf(sessionId) >= 0) {
+        return;
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = sessionId;
+    }
+
+    // Slots past size are never read
+    @SuppressWarnings("NullAway")
+    void remove(String sessionId) {
+      var index = indexOf(sessionId);
+      if (index < 0) {
+        return;
+      }
+      size--;
+      ids[index] = ids[size];
+      // Don't retain the session ID past its logout
+      ids[size] = null;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    Set<String> toSet() {
+      return Set.of(Arrays.copyOf(ids, size));
+    }
+
+    private int indexOf(String sessionId) {
+      for (int i = 0; i < size; i++) {
+        if (ids[i].equals(sessionId)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link LoggedOutSessionTransport} between stores of the same JVM, mostly useful for tests.
+ *
+ * <p>Transports created with the same {@link Group} are connected together. Logouts are delivered
+ * synchronously, in the thread that {@linkplain #send sends} them.
+ */
+public final class InProcessLoggedOutSessionTransport implements LoggedOutSessionTransport {
+
+  /** A group of connected transports. */
+  public static final class Group {
+    private final List<InProcessLoggedOutSessionTransport> members = new CopyOnWriteArrayList<>();
+  }
+
+  private final Group group;
+  private volatile @Nullable Consumer<List<Logout>> receiver;
+
+  /** Constructs a transport connected to the other transports of the given group. */
+  public InProcessLoggedOutSessionTransport(Group group) {
+    this.group = requireNonNull(group);
+    group.members.add(this);
+  }
+
+  @Override
+  public void start(Consumer<List<Logout>> receiver) {
+    requireNonNull(receiver);
+    if (this.receiver != null) {
+      throw new IllegalStateException("Transport already started");
+    }
+    this.receiver = receiver;
+  }
+
+  @Override
+  public void send(List<Logout> logouts) {
+    var copy = List.copyOf(logouts);
+    for (var member : group.members) {
+      var receiver = member.receiver;
+      if (member != this && receiver != null) {
+        receiver.accept(copy);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    group.members.remove(this);
+  }
+}
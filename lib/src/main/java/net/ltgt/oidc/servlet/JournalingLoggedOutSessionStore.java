@@ -0,0 +1,434 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An implementation of {@link LoggedOutSessionStore} that records logged out {@link SessionID}s in
+ * memory and in a journal file, so they survive restarts of the application.
+ *
+ * <p>This is useful when sessions are themselves persisted (and restored at startup): without it,
+ * sessions that have been logged out at the OpenID Provider while the application was down, or
+ * before it went down but not yet invalidated, would be revived.
+ *
+ * <p>Like the {@link ExpiringLoggedOutSessionStore}, this store doesn't track sessions but only
+ * considers as logged out the session IDs that have been explicitly {@linkplain
+ * #logout(SessionID) logged out}, for the {@link UserFilter} to invalidate their sessions when
+ * they're next used (so it ignores logouts by subject). Entries are retained for the given {@code
+ * retention} period, that should be at least the sessions' {@linkplain
+ * jakarta.servlet.http.HttpSession#getMaxInactiveInterval() maximum inactive interval}.
+ *
+ * <p>Logouts are appended to a memory-mapped journal file, that is forced to disk in batches every
+ * {@code flushInterval} by a background thread; a logout can thus be lost if the machine crashes
+ * (but not if only the application crashes) before the next flush. The journal is compacted, to
+ * only keep the live entries, when it has doubled in size since the last compaction, at least once
+ * every {@code retention} period, and when the store is created (after replaying the journal).
+ * Compaction writes a new journal file without blocking logouts, and only replaces the current
+ * journal once the new one has been fully written and mapped; if it fails, the store keeps using
+ * the current journal.
+ *
+ * <p>The store must be {@linkplain #close() closed} when no longer used, e.g. from a {@link
+ * jakarta.servlet.ServletContextListener#contextDestroyed ServletContextListener}.
+ */
+public class JournalingLoggedOutSessionStore implements LoggedOutSessionStore, AutoCloseable {
+  private static final System.Logger logger =
+      System.getLogger(JournalingLoggedOutSessionStore.class.getName());
+
+  // "OIDCLOJ" followed by a version number
+  private static final long MAGIC = 0x4f4944434c4f4a01L;
+  private static final int HEADER_SIZE = Long.BYTES;
+  private static final int MIN_CAPACITY = 1 << 20;
+  private static final int MAX_SESSION_ID_LENGTH = 0xffff;
+  private static final int MAX_RECORD_SIZE = Short.BYTES + MAX_SESSION_ID_LENGTH + Long.BYTES;
+
+  private final Path file;
+  private final long retentionMillis;
+  private final InstantSource instantSource;
+  private final ConcurrentMap<SessionID, Long> loggedOutSessions = new ConcurrentHashMap<>();
+  private final @Nullable ScheduledExecutorService flusher;
+
+  // Held during the whole compaction, before the lock
+  private final Object compactionLock = new Object();
+  private final Object lock = new Object();
+  // All fields below are guarded by the lock
+  private @Nullable FileChannel channel;
+
+  // Initialized by compact() from the constructor
+  @SuppressWarnings("NullAway.Init")
+  private MappedByteBuffer journal;
+
+  private int flushedPosition;
+  private int compactedPosition;
+  private long lastCompaction;
+
+  /**
+   * Constructs a store that retains logged out session IDs for the given period, in the given
+   * journal file, flushed to disk every 100 milliseconds.
+   *
+   * <p>The journal file is created if it doesn't exist, and otherwise replayed.
+   */
+  public JournalingLoggedOutSessionStore(Path file, Duration retention) throws IOException {
+    this(file, retention, Duration.ofMillis(100));
+  }
+
+  /**
+   * Constructs a store that retains logged out session IDs for the given period, in the given
+   * journal file, flushed to disk at the given interval.
+   *
+   * <p>The journal file is created if it doesn't exist, and otherwise replayed.
+   */
+  public JournalingLoggedOutSessionStore(Path file, Duration retention, Duration flushInterval)
+      throws IOException {
+    this(file, retention, requireNonNull(flushInterval), InstantSource.system());
+  }
+
+  /**
+   * Constructs a store with the given instant source, and with no background flush when {@code
+   * flushInterval} is {@code null}.
+   */
+  JournalingLoggedOutSessionStore(
+      Path file,
+      Duration retention,
+      @Nullable Duration flushInterval,
+      InstantSource instantSource)
+      throws IOException {
+    this.file = requireNonNull(file);
+    requireNonNull(retention);
+    this.instantSource = requireNonNull(instantSource);
+    if (retention.isNegative() || retention.isZero()) {
+      throw new IllegalArgumentException("retention must be positive");
+    }
+    if (flushInterval != null && (flushInterval.isNegative() || flushInterval.isZero())) {
+      throw new IllegalArgumentException("flushInterval must be positive");
+    }
+    this.retentionMillis = retention.toMillis();
+
+    if (Files.exists(file)) {
+      replay();
+    }
+    // Always compact at startup, this drops expired entries and any torn write at the end of the
+    // journal; and this maps the journal for writing.
+    compact();
+
+    if (flushInterval == null) {
+      this.flusher = null;
+    } else {
+      var flusher =
+          Executors.newSingleThreadScheduledExecutor(
+              Thread.ofPlatform()
+                  .daemon()
+                  .name("oidc-servlets-logged-out-session-journal")
+                  .factory());
+      var millis = Math.max(1, flushInterval.toMillis());
+      flusher.scheduleWithFixedDelay(
+          this::flushInBackground, millis, millis, TimeUnit.MILLISECONDS);
+      this.flusher = flusher;
+    }
+  }
+
+  @Override
+  public void logout(SessionID sessionID) {
+    var now = instantSource.millis();
+    var bytes = sessionID.getValue().getBytes(UTF_8);
+    if (bytes.length == 0 || bytes.length > MAX_SESSION_ID_LENGTH) {
+      throw new IllegalArgumentException("Invalid session ID length: " + bytes.length);
+    }
+    synchronized (lock) {
+      if (channel == null) {
+        throw new IllegalStateException("Store is closed");
+      }
+      var recordSize = Short.BYTES + bytes.length + Long.BYTES;
+      if (journal.remaining() < recordSize) {
+        try {
+          ensureCapacity(recordSize);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      journal.putShort((short) bytes.length).put(bytes).putLong(now);
+      loggedOutSessions.put(sessionID, now);
+    }
+  }
+
+  @Override
+  public boolean isLoggedOut(SessionID sessionID) {
+    var loggedOutAt = loggedOutSessions.get(sessionID);
+    return loggedOutAt != null && !isExpired(loggedOutAt, instantSource.millis());
+  }
+
+  /** Forces the journal to disk. */
+  public void flush() throws IOException {
+    synchronized (lock) {
+      if (channel == null) {
+        return;
+      }
+      doFlush();
+    }
+  }
+
+  /**
+   * Forces the journal to disk, and closes it.
+   *
+   * <p>The store can no longer be used after being closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+    synchronized (lock) {
+      var channel = this.channel;
+      if (channel == null) {
+        return;
+      }
+      try {
+        doFlush();
+      } finally {
+        this.channel = null;
+        channel.close();
+      }
+    }
+  }
+
+  /** Compacts the journal now. */
+  void compactNow() throws IOException {
+    synchronized (lock) {
+      if (channel == null) {
+        throw new IllegalStateException("Store is closed");
+      }
+    }
+    compact();
+  }
+
+  private boolean isExpired(long loggedOutAt, long now) {
+    return now - loggedOutAt >= retentionMillis;
+  }
+
+  private void flushInBackground() {
+    try {
+      boolean needsCompaction;
+      synchronized (lock) {
+        if (channel == null) {
+          return;
+        }
+        doFlush();
+        needsCompaction =
+            journalDoubled() || instantSource.millis() - lastCompaction >= retentionMillis;
+      }
+      if (needsCompaction) {
+        compact();
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.log(System.Logger.Level.WARNING, "Error flushing logged out session journal", e);
+    }
+  }
+
+  // Must be called while holding the lock
+  private boolean journalDoubled() {
+    return journal.position() >= Math.max(2 * compactedPosition, MIN_CAPACITY / 2);
+  }
+
+  // Must be called while holding the lock
+  private void doFlush() {
+    var position = journal.position();
+    if (position > flushedPosition) {
+      journal.force(flushedPosition, position - flushedPosition);
+      flushedPosition = position;
+    }
+  }
+
+  // Must be called while holding the lock
+  private void ensureCapacity(int recordSize) throws IOException {
+    var channel = requireNonNull(this.channel);
+    // Grow the mapping, the journal will be compacted in the background
+    var position = journal.position();
+    var capacity = (long) journal.capacity() * 2;
+    if (capacity > Integer.MAX_VALUE) {
+      throw new IOException("Logged out session journal is full");
+    }
+    doFlush();
+    // The previous mapping will be unmapped when garbage collected
+    journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    journal.position(position);
+  }
+
+  // Only called from the constructor
+  private void replay() throws IOException {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var size = channel.size();
+      if (size == 0) {
+        return;
+      }
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Logged out session journal is too large: " + file);
+      }
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (size < HEADER_SIZE || buffer.getLong() != MAGIC) {
+        throw new IOException("Not a logged out session journal: " + file);
+      }
+      var now = instantSource.millis();
+      // Stop at the first empty or incomplete record, that marks the end of the journal (the
+      // mapped file is zero-filled past the last written record).
+      while (buffer.remaining() >= Short.BYTES) {
+        var length = Short.toUnsignedInt(buffer.getShort());
+        if (length == 0 || buffer.remaining() < length + Long.BYTES) {
+          break;
+        }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        var loggedOutAt = buffer.getLong();
+        if (loggedOutAt == 0) {
+          break;
+        }
+        if (!isExpired(loggedOutAt, now)) {
+          loggedOutSessions.merge(new SessionID(new String(bytes, UTF_8)), loggedOutAt, Math::max);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the live entries to a new journal file, maps it for writing, and atomically replaces the
+   * journal with it.
+   *
+   * <p>The live entries are written without holding the lock, so logouts aren't blocked; the
+   * records appended to the current journal in the meantime are then copied to the new journal
+   * while holding the lock, before switching to it. If anything fails before the switch, the new
+   * journal file is deleted and the current one is kept.
+   */
+  private void compact() throws IOException {
+    synchronized (compactionLock) {
+      var now = instantSource.millis();
+      @Nullable FileChannel oldChannel;
+      int start;
+      synchronized (lock) {
+        oldChannel = channel;
+        // When called from the constructor, there's no current journal yet
+        start = oldChannel == null ? 0 : journal.position();
+      }
+      loggedOutSessions.values().removeIf(loggedOutAt -> isExpired(loggedOutAt, now));
+
+      var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      var out =
+          FileChannel.open(
+              tmp,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      var switched = false;
+      try {
+        // Must be able to hold a record of the maximum size
+        var buffer = ByteBuffer.allocate(Math.max(64 * 1024, MAX_RECORD_SIZE));
+        buffer.putLong(MAGIC);
+        // Logouts recorded concurrently might be written twice (here and copied below), this is
+        // harmless as replaying the journal keeps the latest entry.
+        for (var entry : loggedOutSessions.entrySet()) {
+          var bytes = entry.getKey().getValue().getBytes(UTF_8);
+          if (buffer.remaining() < Short.BYTES + bytes.length + Long.BYTES) {
+            writeFully(out, buffer);
+          }
+          buffer.putShort((short) bytes.length).put(bytes).putLong(entry.getValue());
+        }
+        writeFully(out, buffer);
+        out.force(true);
+
+        synchronized (lock) {
+          if (channel != oldChannel) {
+            throw new IllegalStateException("Store is closed");
+          }
+          if (oldChannel != null) {
+            // Copy the records appended while writing the live entries
+            var tail = journal.slice(start, journal.position() - start);
+            while (tail.hasRemaining()) {
+              out.write(tail);
+            }
+            out.force(true);
+          }
+          var position = Math.toIntExact(out.size());
+          long capacity = MIN_CAPACITY;
+          while (capacity < 2L * position) {
+            capacity *= 2;
+          }
+          var mapped =
+              out.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, Integer.MAX_VALUE));
+          mapped.position(position);
+          // The mapping and channel stay valid after the file is renamed
+          Files.move(
+              tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+          switched = true;
+          channel = out;
+          journal = mapped;
+          flushedPosition = position;
+          compactedPosition = position;
+          lastCompaction = now;
+        }
+      } finally {
+        if (!switched) {
+          out.close();
+          Files.deleteIfExists(tmp);
+        }
+      }
+      if (oldChannel != null) {
+        oldChannel.close();
+      }
+      forceDirectory();
+    }
+  }
+
+  /** Forces the rename of the journal file to disk. */
+  private void forceDirectory() {
+    var dir = file.toAbsolutePath().getParent();
+    if (dir == null) {
+      return;
+    }
+    try (var channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Not supported on all platforms (e.g. Windows)
+      logger.log(System.Logger.Level.DEBUG, "Error forcing the journal directory to disk", e);
+    }
+  }
+
+  private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -17,32 +17,93 @@ package net.ltgt.oidc.servlet;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.errorprone.annotations.concurrent.LazyInit;
+import com.nimbusds.oauth2.sdk.id.ClientID;
 import java.util.Collection;
-import java.util.Optional;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
 
-/** A {@link UserPrincipal} that extracts Keycloak <i>realm</i> roles from the user information. */
+/**
+ * A {@link UserPrincipal} that extracts Keycloak <i>realm</i> roles from the user information, and
+ * optionally the <i>client</i> roles of a given client.
+ *
+ * <p>Roles are extracted once, the first time they're needed, into a set for fast lookups. Use a
+ * {@link CachingUserPrincipalFactory} to reuse the principal, and thus the extracted roles, on all
+ * the requests of a session.
+ */
 public class KeycloakUserPrincipal implements UserPrincipal {
   public static final UserPrincipalFactory FACTORY =
       (sessionInfo, unused) -> new KeycloakUserPrincipal(sessionInfo);
 
+  /** Returns a factory of principals with realm roles and client roles for the given client. */
+  public static UserPrincipalFactory factory(ClientID clientId) {
+    requireNonNull(clientId);
+    return (sessionInfo, unused) -> new KeycloakUserPrincipal(sessionInfo, clientId);
+  }
+
   private final SessionInfo sessionInfo;
+  private final @Nullable ClientID clientId;
+  @LazyInit private volatile @Nullable Set<String> roles;
 
+  /** Constructs a principal with the realm roles from the given session info. */
   public KeycloakUserPrincipal(SessionInfo sessionInfo) {
     this.sessionInfo = requireNonNull(sessionInfo);
+    this.clientId = null;
+  }
+
+  /**
+   * Constructs a principal with the realm roles, and client roles for the given client, from the
+   * given session info.
+   */
+  public KeycloakUserPrincipal(SessionInfo sessionInfo, ClientID clientId) {
+    this.sessionInfo = requireNonNull(sessionInfo);
+    this.clientId = requireNonNull(clientId);
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public boolean hasRole(String role) {
-    // Look into Keycloak-specific role properties
-    return Optional.ofNullable(sessionInfo.getUserInfo().getJSONObjectClaim("realm_access"))
-        .map(realmAccess -> (Collection<String>) realmAccess.get("roles"))
-        .map(roles -> roles.contains(role))
-        .orElse(false);
+    // Set.copyOf returns a set that throws on contains(null)
+    if (role == null) {
+      return false;
+    }
+    return getRoles().contains(role);
   }
 
   @Override
   public SessionInfo getSessionInfo() {
     return sessionInfo;
   }
+
+  private Set<String> getRoles() {
+    var roles = this.roles;
+    if (roles == null) {
+      // Look into Keycloak-specific role properties
+      var userInfo = sessionInfo.getUserInfo();
+      var allRoles = new HashSet<String>();
+      addRoles(allRoles, userInfo.getJSONObjectClaim("realm_access"));
+      if (clientId != null) {
+        var resourceAccess = userInfo.getJSONObjectClaim("resource_access");
+        if (resourceAccess != null
+            && resourceAccess.get(clientId.getValue()) instanceof Map<?, ?> clientAccess) {
+          addRoles(allRoles, clientAccess);
+        }
+      }
+      // Benign race: the set will be computed the same by all threads
+      roles = Set.copyOf(allRoles);
+      this.roles = roles;
+    }
+    return roles;
+  }
+
+  private static void addRoles(Set<String> allRoles, @Nullable Map<?, ?> access) {
+    if (access != null && access.get("roles") instanceof Collection<?> roles) {
+      for (var role : roles) {
+        if (role instanceof String name) {
+          allRoles.add(name);
+        }
+      }
+    }
+  }
 }
@@ -15,7 +15,10 @@
  */
 package net.ltgt.oidc.servlet;
 
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
 import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.util.Collection;
 
 /**
  * Tracks {@link SessionID} values of sessions logged out with the OpenID Connect Back-Channel
@@ -31,6 +34,17 @@ import com.nimbusds.openid.connect.sdk.claims.SessionID;
  * the {@code BackchannelLogoutSessionListener} might not be necessary depending on the
  * implementation.
  *
+ * <p>Logout tokens without a session ID log out all the sessions of a given {@link Subject}, that
+ * is only unique for a given {@link Issuer} (so both are always passed together). Implementations
+ * supporting them also need to track the sessions of each subject (the {@code
+ * BackchannelLogoutSessionListener} notifies the store of the subjects too), otherwise such logout
+ * tokens are ignored.
+ *
+ * <p>Session IDs are only unique for a given OpenID Provider too. When sessions can be
+ * authenticated by several OpenID Providers (e.g. with a {@link TenantRegistry}), the store needs
+ * to be {@linkplain #forIssuer partitioned by issuer}, so that an OpenID Provider cannot log out
+ * the sessions of another one; see {@link PerIssuerLoggedOutSessionStore}.
+ *
  * @see InMemoryLoggedOutSessionStore
  * @see UserFilter
  * @see BackchannelLogoutServlet
@@ -41,6 +55,20 @@ import com.nimbusds.openid.connect.sdk.claims.SessionID;
 public interface LoggedOutSessionStore {
   String CONTEXT_ATTRIBUTE_NAME = LoggedOutSessionStore.class.getName();
 
+  /**
+   * Returns the store for the sessions authenticated by the given OpenID Provider.
+   *
+   * <p>The {@link BackchannelLogoutServlet}, {@link BackchannelLogoutSessionListener}, and {@link
+   * UserFilter} only ever call the other methods on the store returned by this method. The default
+   * implementation returns this store, shared by all OpenID Providers, which is only appropriate
+   * when there's a single one.
+   *
+   * @see PerIssuerLoggedOutSessionStore
+   */
+  default LoggedOutSessionStore forIssuer(Issuer issuer) {
+    return this;
+  }
+
   /**
    * Records the given session ID as having been logged out at the OpenID Provider.
    *
@@ -54,12 +82,25 @@ public interface LoggedOutSessionStore {
   void logout(SessionID sessionID);
 
   /**
-   * Returns whether the given session ID has been {@linkplain #logout logged out}.
+   * Records all the given session IDs as having been logged out at the OpenID Provider.
+   *
+   * <p>This is called by the {@link BulkBackchannelLogoutServlet}. The default implementation calls
+   * {@link #logout(SessionID)} for each session ID; implementations can override it to process the
+   * session IDs in a batch.
+   */
+  default void logoutAll(Collection<SessionID> sessionIDs) {
+    for (var sessionID : sessionIDs) {
+      logout(sessionID);
+    }
+  }
+
+  /**
+   * Returns whether the given session ID has been {@linkplain #logout(SessionID) logged out}.
    *
    * <p>Called by {@link UserFilter} to possibly invalidate sessions as they're being tentatively
    * used.
    *
-   * @see #logout
+   * @see #logout(SessionID)
    * @see UserFilter
    */
   default boolean isLoggedOut(SessionID sessionID) {
@@ -85,4 +126,53 @@ public interface LoggedOutSessionStore {
    * session ID, has changed ID.
    */
   default void renew(SessionID sessionID, String oldSessionId, String newSessionId) {}
+
+  /**
+   * Records all the sessions of the given subject, at the given issuer, as having been logged out
+   * at the OpenID Provider.
+   *
+   * <p>This is called for logout tokens without a session ID. The default implementation does
+   * nothing.
+   *
+   * @see BackchannelLogoutServlet
+   */
+  default void logout(Issuer issuer, Subject subject) {}
+
+  /**
+   * Returns whether the given application's HTTP session has been logged out through its
+   * {@linkplain #logout(Issuer, Subject) subject}.
+   *
+   * <p>Only sessions that had been {@linkplain #acquire(Issuer, Subject, String) acquired} before
+   * their subject was logged out must be reported as logged out; sessions unknown to the store
+   * (e.g. restored after a restart, or replicated from another node) must not.
+   *
+   * <p>Called by {@link UserFilter} to possibly invalidate sessions as they're being tentatively
+   * used. The default implementation returns {@code false}.
+   *
+   * @see #logout(Issuer, Subject)
+   * @see UserFilter
+   */
+  default boolean isLoggedOut(Issuer issuer, Subject subject, String sessionId) {
+    return false;
+  }
+
+  /**
+   * Associates the subject, at the given issuer, with a new application's HTTP session.
+   *
+   * @see BackchannelLogoutSessionListener
+   */
+  default void acquire(Issuer issuer, Subject subject, String sessionId) {}
+
+  /**
+   * Dissociates the subject, at the given issuer, from an application's HTTP session.
+   *
+   * @see BackchannelLogoutSessionListener
+   */
+  default void release(Issuer issuer, Subject subject, String sessionId) {}
+
+  /**
+   * Notifies the store that the application's HTTP session, associated with a given subject at the
+   * given issuer, has changed ID.
+   */
+  default void renew(Issuer issuer, Subject subject, String oldSessionId, String newSessionId) {}
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Broadcasts {@linkplain Logout logouts} to, and receives them from, the other nodes of a cluster.
+ *
+ * @see ReplicatingLoggedOutSessionStore
+ * @see MulticastLoggedOutSessionTransport
+ * @see InProcessLoggedOutSessionTransport
+ */
+public interface LoggedOutSessionTransport extends AutoCloseable {
+  /** A logout to replicate: either of a session ID, or of all the sessions of a subject. */
+  sealed interface Logout {}
+
+  /**
+   * The logout of a session ID, with the issuer of the {@linkplain
+   * LoggedOutSessionStore#forIssuer(Issuer) store partition} it's been logged out from, if any.
+   *
+   * @see LoggedOutSessionStore#logout(SessionID)
+   */
+  record SessionLogout(@Nullable Issuer issuer, SessionID sessionID) implements Logout {
+    public SessionLogout {
+      requireNonNull(sessionID);
+    }
+
+    /** Constructs the logout of a session ID from a store that isn't partitioned by issuer. */
+    public SessionLogout(SessionID sessionID) {
+      this(null, sessionID);
+    }
+  }
+
+  /**
+   * The logout of all the sessions of a subject, for logout tokens without a session ID.
+   *
+   * @see LoggedOutSessionStore#logout(Issuer, Subject)
+   */
+  record SubjectLogout(Issuer issuer, Subject subject) implements Logout {
+    public SubjectLogout {
+      requireNonNull(issuer);
+      requireNonNull(subject);
+    }
+  }
+
+  /**
+   * Starts receiving logouts from the other nodes, passing them to the given receiver.
+   *
+   * <p>This is called once by the {@link ReplicatingLoggedOutSessionStore}. The receiver must not
+   * be called with logouts sent by this node.
+   */
+  void start(Consumer<List<Logout>> receiver) throws IOException;
+
+  /** Sends the given logouts to the other nodes. */
+  void send(List<Logout> logouts) throws IOException;
+
+  /** Stops receiving logouts from the other nodes, and releases any resource. */
+  @Override
+  void close() throws IOException;
+}
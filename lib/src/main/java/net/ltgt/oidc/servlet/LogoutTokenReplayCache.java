@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Remembers the logout tokens that have been successfully processed by the {@link
+ * BackchannelLogoutServlet}, keyed by their {@code jti}, to answer duplicate deliveries without
+ * validating them again.
+ *
+ * <p>A token is only considered a duplicate if it's identical to an already processed token with
+ * the same {@code jti}; tokens are only recorded after they've been validated, so an invalid token
+ * cannot prevent a later valid one from being processed.
+ *
+ * <p>Entries expire with the token (after its {@code exp}, plus some clock skew, or a fixed time
+ * after its {@code iat} if it has no {@code exp}), as it would then fail validation anyway. The
+ * number of entries is bounded: when full, new tokens are not recorded until entries expire.
+ */
+final class LogoutTokenReplayCache {
+  static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  // LogoutTokenValidator's default maximum clock skew
+  private static final Duration CLOCK_SKEW = Duration.ofSeconds(60);
+  // Logout tokens without exp are expected to be short-lived
+  private static final Duration DEFAULT_LIFETIME = Duration.ofMinutes(5);
+  private static final Duration PURGE_INTERVAL = Duration.ofSeconds(1);
+
+  private final int maximumSize;
+  private final InstantSource instantSource;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private volatile Instant nextPurge = Instant.MIN;
+
+  LogoutTokenReplayCache(int maximumSize, InstantSource instantSource) {
+    this.maximumSize = maximumSize;
+    this.instantSource = requireNonNull(instantSource);
+  }
+
+  /** Returns whether the given token has already been processed. */
+  boolean isDuplicate(String jti, String logoutToken) {
+    var entry = entries.get(jti);
+    return entry != null
+        && entry.logoutToken().equals(logoutToken)
+        && instantSource.instant().isBefore(entry.expiresAt());
+  }
+
+  /** Records the given token as processed. */
+  void record(
+      String jti,
+      String logoutToken,
+      @Nullable Instant expirationTime,
+      @Nullable Instant issueTime) {
+    var now = instantSource.instant();
+    Instant expiresAt;
+    if (expirationTime != null) {
+      expiresAt = expirationTime.plus(CLOCK_SKEW);
+    } else {
+      expiresAt = (issueTime != null ? issueTime : now).plus(DEFAULT_LIFETIME).plus(CLOCK_SKEW);
+    }
+    if (!now.isBefore(expiresAt)) {
+      return;
+    }
+    if (entries.size() >= maximumSize && !purge(now)) {
+      return;
+    }
+    entries.put(jti, new Entry(logoutToken, expiresAt));
+  }
+
+  /** Removes expired entries, at most once per second, and returns whether there's now room. */
+  private boolean purge(Instant now) {
+    if (now.isBefore(nextPurge)) {
+      return false;
+    }
+    nextPurge = now.plus(PURGE_INTERVAL);
+    entries.values().removeIf(entry -> !now.isBefore(entry.expiresAt()));
+    return entries.size() < maximumSize;
+  }
+
+  private record Entry(String logoutToken, Instant expiresAt) {}
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link LoggedOutSessionTransport} using UDP multicast.
+ *
+ * <p>Logouts are sent in datagrams small enough to avoid IP fragmentation; session IDs and subjects
+ * too long to fit in a datagram are skipped (they're still logged out in the sending node). All
+ * nodes must use the same version of this library, as datagrams with another format version are
+ * ignored.
+ *
+ * <p>Datagrams are authenticated with an HMAC-SHA256 using a secret key shared by all the nodes of
+ * the cluster, timestamped, and numbered: datagrams whose HMAC doesn't match, that have been sent
+ * more than a minute ago, or that have already been received (i.e. replayed), are ignored. The
+ * clocks of the nodes must thus be synchronized. Datagrams aren't encrypted though, so session IDs
+ * and subjects can be seen by any host on the network.
+ *
+ * <p>UDP doesn't guarantee delivery, so this transport should only be used on a reliable network
+ * (e.g. a private network between the nodes of the cluster).
+ */
+public final class MulticastLoggedOutSessionTransport implements LoggedOutSessionTransport {
+  private static final System.Logger logger =
+      System.getLogger(MulticastLoggedOutSessionTransport.class.getName());
+
+  // "OLO" followed by a version number
+  private static final int MAGIC = 0x4f4c4f01;
+  private static final byte SESSION_LOGOUT = 1;
+  private static final byte SUBJECT_LOGOUT = 2;
+  private static final byte ISSUER_SESSION_LOGOUT = 3;
+  private static final int HEADER_SIZE = Integer.BYTES + 4 * Long.BYTES + Short.BYTES;
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+  private static final int MAC_SIZE = 32;
+  private static final int MAX_DATAGRAM_SIZE = 1400;
+  private static final long MAX_AGE_MILLIS = Duration.ofMinutes(1).toMillis();
+  // Senders are forgotten once their datagrams would be too old to be accepted anyway
+  private static final long SENDER_EXPIRY_MILLIS = 2 * MAX_AGE_MILLIS;
+
+  private final InetSocketAddress group;
+  private final SecretKey key;
+  private final UUID nodeId = UUID.randomUUID();
+  private final AtomicLong sequence = new AtomicLong();
+  private final DatagramChannel channel;
+  private @Nullable Thread receiverThread;
+  // Only accessed by the receiver thread
+  private final Map<UUID, ReplayWindow> senders = new HashMap<>();
+  private long lastSendersExpiry = System.currentTimeMillis();
+
+  /**
+   * Constructs a transport that joins the given multicast group on the given network interface, and
+   * authenticates datagrams with the given key.
+   *
+   * <p>All nodes of the cluster must use the same group address and port, and the same key, of at
+   * least 256 bits.
+   */
+  public MulticastLoggedOutSessionTransport(
+      InetSocketAddress group, NetworkInterface networkInterface, SecretKey key)
+      throws IOException {
+    this.group = requireNonNull(group);
+    requireNonNull(networkInterface);
+    this.key = requireNonNull(key);
+    if (!group.getAddress().isMulticastAddress()) {
+      throw new IllegalArgumentException("Not a multicast address: " + group);
+    }
+    var encodedKey = key.getEncoded();
+    if (encodedKey != null && encodedKey.length < MAC_SIZE) {
+      throw new IllegalArgumentException("Key must be at least 256 bits");
+    }
+    // Fail early if the key cannot be used
+    newMac(key);
+    var family =
+        group.getAddress() instanceof Inet6Address
+            ? StandardProtocolFamily.INET6
+            : StandardProtocolFamily.INET;
+    var channel = DatagramChannel.open(family);
+    try {
+      channel
+          .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+          .bind(new InetSocketAddress(group.getPort()))
+          .setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+      channel.join(group.getAddress(), networkInterface);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    this.channel = channel;
+  }
+
+  @Override
+  public synchronized void start(Consumer<List<Logout>> receiver) {
+    requireNonNull(receiver);
+    if (receiverThread != null) {
+      throw new IllegalStateException("Transport already started");
+    }
+    receiverThread =
+        Thread.ofPlatform()
+            .daemon()
+            .name("oidc-servlets-logged-out-session-multicast")
+            .start(() -> receive(receiver));
+  }
+
+  @Override
+  public void send(List<Logout> logouts) throws IOException {
+    var mac = newMac(key);
+    var buffer = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+    var count = 0;
+    var skipped = 0;
+    // Leave room for the header and the HMAC
+    buffer.position(HEADER_SIZE).limit(MAX_DATAGRAM_SIZE - MAC_SIZE);
+    for (var logout : logouts) {
+      var encoded =
+          switch (logout) {
+            case SessionLogout(var issuer, var sessionID) ->
+                issuer == null
+                    ? encode(SESSION_LOGOUT, sessionID.getValue())
+                    : encode(ISSUER_SESSION_LOGOUT, issuer.getValue(), sessionID.getValue());
+            case SubjectLogout(var issuer, var subject) ->
+                encode(SUBJECT_LOGOUT, issuer.getValue(), subject.getValue());
+          };
+      if (encoded == null) {
+        skipped++;
+        continue;
+      }
+      if (buffer.remaining() < encoded.length) {
+        sendDatagram(mac, buffer, count);
+        count = 0;
+      }
+      buffer.put(encoded);
+      count++;
+    }
+    if (count > 0) {
+      sendDatagram(mac, buffer, count);
+    }
+    if (skipped > 0) {
+      logger.log(
+          System.Logger.Level.WARNING,
+          "Skipped {0} logouts too long to be sent in a datagram",
+          skipped);
+    }
+  }
+
+  /**
+   * Encodes a record as its type followed by each value's length and UTF-8 bytes, or returns {@code
+   * null} if it's too long to fit in a datagram.
+   */
+  private static byte @Nullable [] encode(byte type, String... values) {
+    var encodedValues = new byte[values.length][];
+    var size = Byte.BYTES;
+    for (int i = 0; i < values.length; i++) {
+      encodedValues[i] = values[i].getBytes(UTF_8);
+      size += Short.BYTES + encodedValues[i].length;
+    }
+    if (size > MAX_DATAGRAM_SIZE - HEADER_SIZE - MAC_SIZE) {
+      return null;
+    }
+    var buffer = ByteBuffer.allocate(size).put(type);
+    for (var encodedValue : encodedValues) {
+      buffer.putShort((short) encodedValue.length).put(encodedValue);
+    }
+    return buffer.array();
+  }
+
+  private void sendDatagram(Mac mac, ByteBuffer buffer, int count) throws IOException {
+    buffer
+        .flip()
+        .putInt(MAGIC)
+        .putLong(nodeId.getMostSignificantBits())
+        .putLong(nodeId.getLeastSignificantBits())
+        .putLong(System.currentTimeMillis())
+        .putLong(sequence.incrementAndGet())
+        .putShort((short) count)
+        .rewind();
+    mac.update(buffer);
+    buffer.limit(buffer.limit() + MAC_SIZE);
+    buffer.put(mac.doFinal()).flip();
+    channel.send(buffer, group);
+    buffer.clear().position(HEADER_SIZE).limit(MAX_DATAGRAM_SIZE - MAC_SIZE);
+  }
+
+  private void receive(Consumer<List<Logout>> receiver) {
+    var mac = newMac(key);
+    var buffer = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+    while (true) {
+      buffer.clear();
+      try {
+        channel.receive(buffer);
+      } catch (ClosedChannelException e) {
+        // Transport has been closed
+        return;
+      } catch (IOException e) {
+        if (!channel.isOpen()) {
+          return;
+        }
+        logger.log(System.Logger.Level.WARNING, "Error receiving logouts", e);
+        continue;
+      }
+      buffer.flip();
+      if (!verify(mac, buffer)) {
+        logger.log(System.Logger.Level.DEBUG, "Ignored unauthenticated datagram");
+        continue;
+      }
+      List<Logout> logouts;
+      try {
+        logouts = parse(buffer);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        // Truncated or invalid datagram
+        continue;
+      }
+      if (logouts.isEmpty()) {
+        continue;
+      }
+      try {
+        receiver.accept(logouts);
+      } catch (RuntimeException e) {
+        logger.log(System.Logger.Level.WARNING, "Error processing logouts", e);
+      }
+    }
+  }
+
+  private List<Logout> parse(ByteBuffer buffer) {
+    if (buffer.getInt() != MAGIC) {
+      // Unknown datagram
+      return List.of();
+    }
+    var sender = new UUID(buffer.getLong(), buffer.getLong());
+    if (sender.equals(nodeId)) {
+      // Multicast datagrams are looped back to the sending node
+      return List.of();
+    }
+    var sentAt = buffer.getLong();
+    var now = System.currentTimeMillis();
+    if (Math.abs(now - sentAt) > MAX_AGE_MILLIS) {
+      logger.log(System.Logger.Level.DEBUG, "Ignored outdated datagram");
+      return List.of();
+    }
+    var window = senders.computeIfAbsent(sender, ignored -> new ReplayWindow());
+    if (!window.accept(buffer.getLong(), now)) {
+      logger.log(System.Logger.Level.DEBUG, "Ignored replayed datagram");
+      return List.of();
+    }
+    expireSenders(now);
+    var count = Short.toUnsignedInt(buffer.getShort());
+    var logouts = new ArrayList<Logout>(count);
+    for (int i = 0; i < count; i++) {
+      switch (buffer.get()) {
+        case SESSION_LOGOUT -> logouts.add(new SessionLogout(new SessionID(getString(buffer))));
+        case ISSUER_SESSION_LOGOUT ->
+            logouts.add(
+                new SessionLogout(new Issuer(getString(buffer)), new SessionID(getString(buffer))));
+        case SUBJECT_LOGOUT ->
+            logouts.add(
+                new SubjectLogout(new Issuer(getString(buffer)), new Subject(getString(buffer))));
+        default -> {
+          // Unknown record type, whose length is unknown
+          return logouts;
+        }
+      }
+    }
+    return logouts;
+  }
+
+  /**
+   * Checks the HMAC at the end of the datagram, and excludes it from the buffer's remaining bytes.
+   */
+  private static boolean verify(Mac mac, ByteBuffer buffer) {
+    var length = buffer.remaining() - MAC_SIZE;
+    if (length < HEADER_SIZE) {
+      return false;
+    }
+    var expected = new byte[MAC_SIZE];
+    buffer.get(length, expected);
+    mac.update(buffer.slice(0, length));
+    if (!MessageDigest.isEqual(mac.doFinal(), expected)) {
+      return false;
+    }
+    buffer.limit(length);
+    return true;
+  }
+
+  private static Mac newMac(SecretKey key) {
+    try {
+      var mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(key);
+      return mac;
+    } catch (NoSuchAlgorithmException e) {
+      // HmacSHA256 is supported by all Java implementations
+      throw new AssertionError(e);
+    } catch (InvalidKeyException e) {
+      throw new IllegalArgumentException("Invalid key", e);
+    }
+  }
+
+  private void expireSenders(long now) {
+    if (now - lastSendersExpiry < MAX_AGE_MILLIS) {
+      return;
+    }
+    senders.values().removeIf(window -> now - window.lastAccepted > SENDER_EXPIRY_MILLIS);
+    lastSendersExpiry = now;
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    var bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    // This unblocks the receiver thread
+    channel.close();
+  }
+
+  /**
+   * Tracks the sequence numbers received from a sender: the highest one, and which of the 63
+   * previous ones have been received, so datagrams reordered by the network are still accepted.
+   */
+  // @VisibleForTesting
+  static final class ReplayWindow {
+    private long highest;
+    // Bit n is set if highest - n has been received
+    private long received;
+    long lastAccepted;
+
+    /** Records the sequence number, and returns whether it hadn't been received before. */
+    boolean accept(long sequence, long now) {
+      if (sequence > highest) {
+        var shift = sequence - highest;
+        received = shift < Long.SIZE ? (received << shift) | 1 : 1;
+        highest = sequence;
+      } else {
+        var offset = highest - sequence;
+        if (offset >= Long.SIZE || (received & (1L << offset)) != 0) {
+          // Too old to tell, or already received
+          return false;
+        }
+        received |= 1L << offset;
+      }
+      lastAccepted = now;
+      return true;
+    }
+  }
+}
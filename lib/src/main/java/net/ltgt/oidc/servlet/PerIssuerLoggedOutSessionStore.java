@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link LoggedOutSessionStore} partitioned by OpenID Provider, for applications where sessions
+ * can be authenticated by several of them (e.g. with a {@link TenantRegistry}).
+ *
+ * <p>Each issuer gets its own store, created by the given factory the first time it's needed, so
+ * that an OpenID Provider cannot log out the sessions of another one (session IDs and subjects are
+ * only unique for a given OpenID Provider). Stores are kept for as long as this object, even when
+ * the corresponding tenant is evicted from the {@code TenantRegistry}, as they track the ongoing
+ * sessions.
+ *
+ * <p>The factory should only create lightweight stores (e.g. an {@link
+ * InMemoryLoggedOutSessionStore}, possibly wrapped in a {@link BloomFilterLoggedOutSessionStore}),
+ * as there might be many issuers. Stores owning threads or other resources shouldn't be created for
+ * each issuer: a {@link ReplicatingLoggedOutSessionStore} should rather wrap this store, to share
+ * its transport and background thread between all issuers. A {@link
+ * JournalingLoggedOutSessionStore} uses a journal file and a background thread for each issuer, so
+ * it should only be created by the factory for a small number of issuers.
+ *
+ * <p>The {@link BackchannelLogoutServlet}, {@link BackchannelLogoutSessionListener}, and {@link
+ * UserFilter} only use the {@linkplain #forIssuer per-issuer stores}. Calls made directly on this
+ * object are passed to the per-issuer store when they're given an issuer, and otherwise to a store
+ * shared by all issuers, as if the store wasn't partitioned (e.g. when this object is wrapped in a
+ * decorator that doesn't override {@code forIssuer}). The store must be {@linkplain #close()
+ * closed} when no longer used (e.g. from a {@link
+ * jakarta.servlet.ServletContextListener#contextDestroyed ServletContextListener}) if the factory
+ * creates, or the shared store is, {@link AutoCloseable}.
+ */
+public final class PerIssuerLoggedOutSessionStore implements LoggedOutSessionStore, AutoCloseable {
+  private final Function<? super Issuer, ? extends LoggedOutSessionStore> storeFactory;
+  private final LoggedOutSessionStore sharedStore;
+  private final ConcurrentMap<Issuer, LoggedOutSessionStore> stores = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a store that creates a store for each issuer with the given factory, e.g. {@code
+   * issuer -> new InMemoryLoggedOutSessionStore()}, and uses an {@link
+   * InMemoryLoggedOutSessionStore} for the calls that aren't made on a per-issuer store.
+   */
+  public PerIssuerLoggedOutSessionStore(
+      Function<? super Issuer, ? extends LoggedOutSessionStore> storeFactory) {
+    this(storeFactory, new InMemoryLoggedOutSessionStore());
+  }
+
+  /**
+   * Constructs a store that creates a store for each issuer with the given factory, and uses the
+   * given store for the calls that aren't made on a per-issuer store.
+   */
+  public PerIssuerLoggedOutSessionStore(
+      Function<? super Issuer, ? extends LoggedOutSessionStore> storeFactory,
+      LoggedOutSessionStore sharedStore) {
+    this.storeFactory = requireNonNull(storeFactory);
+    this.sharedStore = requireNonNull(sharedStore);
+  }
+
+  @Override
+  public LoggedOutSessionStore forIssuer(Issuer issuer) {
+    return stores.computeIfAbsent(requireNonNull(issuer), storeFactory);
+  }
+
+  @Override
+  public void logout(SessionID sessionID) {
+    sharedStore.logout(sessionID);
+  }
+
+  @Override
+  public void logoutAll(Collection<SessionID> sessionIDs) {
+    sharedStore.logoutAll(sessionIDs);
+  }
+
+  @Override
+  public boolean isLoggedOut(SessionID sessionID) {
+    return sharedStore.isLoggedOut(sessionID);
+  }
+
+  @Override
+  public void acquire(SessionID sessionID, String sessionId) {
+    sharedStore.acquire(sessionID, sessionId);
+  }
+
+  @Override
+  public void release(SessionID sessionID, String sessionId) {
+    sharedStore.release(sessionID, sessionId);
+  }
+
+  @Override
+  public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
+    sharedStore.renew(sessionID, oldSessionId, newSessionId);
+  }
+
+  @Override
+  public void logout(Issuer issuer, Subject subject) {
+    forIssuer(issuer).logout(issuer, subject);
+  }
+
+  @Override
+  public boolean isLoggedOut(Issuer issuer, Subject subject, String sessionId) {
+    return forIssuer(issuer).isLoggedOut(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void acquire(Issuer issuer, Subject subject, String sessionId) {
+    forIssuer(issuer).acquire(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void release(Issuer issuer, Subject subject, String sessionId) {
+    forIssuer(issuer).release(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void renew(Issuer issuer, Subject subject, String oldSessionId, String newSessionId) {
+    forIssuer(issuer).renew(issuer, subject, oldSessionId, newSessionId);
+  }
+
+  /**
+   * Closes the per-issuer stores, and the shared store, that are {@link AutoCloseable}.
+   *
+   * <p>All the stores are closed even if some fail to; the first failure is then thrown (wrapped in
+   * an {@link IOException} if needed), with the other ones {@linkplain Throwable#addSuppressed
+   * suppressed}.
+   */
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    var stores = new ArrayList<LoggedOutSessionStore>(this.stores.values());
+    stores.add(sharedStore);
+    for (var store : stores) {
+      if (!(store instanceof AutoCloseable closeable)) {
+        continue;
+      }
+      try {
+        closeable.close();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failure = addFailure(failure, e);
+      } catch (Exception e) {
+        failure = addFailure(failure, e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static IOException addFailure(@Nullable IOException failure, Exception e) {
+    if (failure == null) {
+      return e instanceof IOException ioe ? ioe : new IOException(e);
+    }
+    failure.addSuppressed(e);
+    return failure;
+  }
+}
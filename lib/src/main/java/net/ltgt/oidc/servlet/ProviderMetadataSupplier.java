@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import com.nimbusds.openid.connect.sdk.op.ReadOnlyOIDCProviderMetadata;
+
+/**
+ * Returns the OpenID Provider metadata to be used by the {@link Configuration}.
+ *
+ * @see RefreshingProviderMetadataSupplier
+ */
+@FunctionalInterface
+public interface ProviderMetadataSupplier {
+  /**
+   * Called each time the provider metadata is needed, e.g. on each request to the OpenID Provider,
+   * so implementations should return a cached value.
+   *
+   * <p>The returned value can be always the same <i>static</i> value, or change over time, e.g.
+   * when the OpenID Provider's endpoints change.
+   */
+  ReadOnlyOIDCProviderMetadata getProviderMetadata();
+}
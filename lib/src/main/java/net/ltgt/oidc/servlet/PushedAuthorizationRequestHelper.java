@@ -50,6 +50,10 @@ import org.jspecify.annotations.Nullable;
  *     });
  * }
  *
+ * <p>The pushed authorization request is sent synchronously from the calling thread, as the
+ * redirect depends on its response. To avoid blocking platform threads, configure the servlet
+ * container to use virtual threads.
+ *
  * @see <a href="https://datatracker.ietf.org/doc/html/rfc9126">OAuth 2.0 Pushed Authorization
  *     Requests</a>
  */
@@ -0,0 +1,405 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link JWKSource} that fetches the OpenID Provider's JWK set ahead of time, refreshes it
+ * periodically in the background, and optionally persists it to a local file.
+ *
+ * <p>Contrary to the default {@link JWKSource} (created with {@link
+ * com.nimbusds.jose.jwk.source.JWKSourceBuilder}), requests don't have to wait for the JWK set to
+ * be fetched, other than for the very first one if there's no snapshot file, or when a JWT is
+ * signed with an unknown key (after a key rotation; such refreshes are rate-limited to one every
+ * 30 seconds). The JWK set is fetched as soon as the source is constructed, so it should be
+ * constructed and registered as a servlet context attribute under the name {@link
+ * Utils#JWK_SOURCE_CONTEXT_ATTRIBUTE_NAME} at application startup.
+ *
+ * <p>The last successfully fetched JWK set is kept in use when the OpenID Provider cannot be
+ * reached, up to a maximum staleness (1 day by default), after which it's no longer trusted and
+ * requests fail until the JWK set can be fetched again. Whenever there's no usable JWK set, fetches
+ * are rate-limited the same as after a key rotation, and requests fail fast with the last error in
+ * between. When a snapshot file is given, the JWK set is written to it after each successful fetch
+ * that changed it (otherwise the file is only touched), and read at construction, so that a
+ * restarted node can validate tokens immediately, even if the OpenID Provider is briefly
+ * unreachable.
+ *
+ * <p>The source must be {@linkplain #close() closed} when no longer used, e.g. from a {@link
+ * jakarta.servlet.ServletContextListener#contextDestroyed ServletContextListener}, to stop the
+ * background refreshes.
+ */
+public class RefreshingJWKSource implements JWKSource<SecurityContext>, AutoCloseable {
+  private static final System.Logger logger =
+      System.getLogger(RefreshingJWKSource.class.getName());
+
+  /** The default interval between two background refreshes: 5 minutes. */
+  public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(5);
+
+  /** The default maximum staleness of the JWK set, after which it's no longer used: 1 day. */
+  public static final Duration DEFAULT_MAX_STALENESS = Duration.ofDays(1);
+
+  private static final Duration MIN_REFRESH_ON_MISS_INTERVAL = Duration.ofSeconds(30);
+  private static final int TIMEOUT_MILLIS = 5_000;
+
+  private final URI jwkSetUri;
+  private final @Nullable Path snapshotFile;
+  private final Duration maxStaleness;
+  private final @Nullable HTTPRequestSender httpRequestSender;
+  private final InstantSource instantSource;
+  private final @Nullable ScheduledExecutorService scheduler;
+  private final Object lock = new Object();
+  private volatile @Nullable JWKSet jwkSet;
+  private volatile @Nullable Instant lastFetched;
+  private volatile @Nullable Instant lastRefreshAttempt;
+  private volatile @Nullable Duration lastRefreshDuration;
+  private volatile @Nullable KeySourceException lastRefreshFailure;
+  private final LongAdder refreshCount = new LongAdder();
+  private final LongAdder refreshFailureCount = new LongAdder();
+
+  /**
+   * Constructs a source for the given JWK set URI, refreshed every 5 minutes, used for at most a
+   * day without being successfully refreshed, and persisted to the given snapshot file (if not
+   * null).
+   */
+  public RefreshingJWKSource(URI jwkSetUri, @Nullable Path snapshotFile) {
+    this(jwkSetUri, snapshotFile, DEFAULT_REFRESH_INTERVAL, null);
+  }
+
+  /**
+   * Constructs a source for the given JWK set URI, refreshed at the given interval, used for at
+   * most a day without being successfully refreshed, and persisted to the given snapshot file (if
+   * not null).
+   *
+   * <p>Requests to the OpenID Provider are sent with the given {@link HTTPRequestSender}, or
+   * Nimbus' default {@code HttpURLConnection}-based implementation if {@code null}.
+   */
+  public RefreshingJWKSource(
+      URI jwkSetUri,
+      @Nullable Path snapshotFile,
+      Duration refreshInterval,
+      @Nullable HTTPRequestSender httpRequestSender) {
+    this(jwkSetUri, snapshotFile, refreshInterval, DEFAULT_MAX_STALENESS, httpRequestSender);
+  }
+
+  /**
+   * Constructs a source for the given JWK set URI, refreshed at the given interval, used for at
+   * most the given maximum staleness without being successfully refreshed, and persisted to the
+   * given snapshot file (if not null).
+   *
+   * <p>Requests to the OpenID Provider are sent with the given {@link HTTPRequestSender}, or
+   * Nimbus' default {@code HttpURLConnection}-based implementation if {@code null}.
+   */
+  public RefreshingJWKSource(
+      URI jwkSetUri,
+      @Nullable Path snapshotFile,
+      Duration refreshInterval,
+      Duration maxStaleness,
+      @Nullable HTTPRequestSender httpRequestSender) {
+    this(
+        jwkSetUri,
+        snapshotFile,
+        refreshInterval,
+        maxStaleness,
+        httpRequestSender,
+        InstantSource.system(),
+        true);
+  }
+
+  /** When not {@code scheduled}, the JWK set is neither prefetched nor refreshed in background. */
+  RefreshingJWKSource(
+      URI jwkSetUri,
+      @Nullable Path snapshotFile,
+      Duration refreshInterval,
+      Duration maxStaleness,
+      @Nullable HTTPRequestSender httpRequestSender,
+      InstantSource instantSource,
+      boolean scheduled) {
+    this.jwkSetUri = requireNonNull(jwkSetUri);
+    requireNonNull(refreshInterval);
+    this.maxStaleness = requireNonNull(maxStaleness);
+    this.instantSource = requireNonNull(instantSource);
+    if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+      throw new IllegalArgumentException("refreshInterval must be positive");
+    }
+    if (maxStaleness.compareTo(refreshInterval) <= 0) {
+      throw new IllegalArgumentException("maxStaleness must be greater than refreshInterval");
+    }
+    this.snapshotFile = snapshotFile;
+    this.httpRequestSender = httpRequestSender;
+    if (snapshotFile != null) {
+      loadSnapshot(snapshotFile);
+    }
+    if (scheduled) {
+      scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              Thread.ofPlatform().daemon().name("oidc-servlets-jwks-refresh").factory());
+      // Prefetch right away, then refresh ahead of time
+      var unused =
+          scheduler.scheduleWithFixedDelay(
+              this::refreshInBackground, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    } else {
+      scheduler = null;
+    }
+  }
+
+  @Override
+  public List<JWK> get(JWKSelector jwkSelector, @Nullable SecurityContext context)
+      throws KeySourceException {
+    var jwkSet = this.jwkSet;
+    if (jwkSet == null || isTooStale()) {
+      jwkSet = refreshMissingOrStale();
+    }
+    var jwks = jwkSelector.select(jwkSet);
+    if (jwks.isEmpty() && canRefreshOnMiss()) {
+      // Possibly a new key, after a key rotation
+      try {
+        jwkSet = refreshIfUnchanged(jwkSet);
+      } catch (KeySourceException e) {
+        // Already logged, the key is just unknown
+        return jwks;
+      }
+      jwks = jwkSelector.select(jwkSet);
+    }
+    return jwks;
+  }
+
+  /**
+   * Returns how long ago the JWK set in use has been fetched from the OpenID Provider, or {@code
+   * null} if the JWK set has never been fetched.
+   *
+   * <p>When the JWK set has been read from the snapshot file, this is based on the file's last
+   * modification time.
+   */
+  public @Nullable Duration getStaleness() {
+    var lastFetched = this.lastFetched;
+    return lastFetched == null ? null : Duration.between(lastFetched, instantSource.instant());
+  }
+
+  /** Returns the duration of the last refresh (successful or not), or {@code null} if none. */
+  public @Nullable Duration getLastRefreshDuration() {
+    return lastRefreshDuration;
+  }
+
+  /** Returns the number of times the JWK set has been fetched (successfully or not). */
+  public long getRefreshCount() {
+    return refreshCount.sum();
+  }
+
+  /** Returns the number of times the JWK set couldn't be fetched. */
+  public long getRefreshFailureCount() {
+    return refreshFailureCount.sum();
+  }
+
+  /** Stops the background refreshes. */
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /** Refreshes the JWK set synchronously. */
+  void refreshNow() throws KeySourceException {
+    synchronized (lock) {
+      refresh();
+    }
+  }
+
+  private boolean canRefreshOnMiss() {
+    var lastRefreshAttempt = this.lastRefreshAttempt;
+    return lastRefreshAttempt == null
+        || !instantSource
+            .instant()
+            .isBefore(lastRefreshAttempt.plus(MIN_REFRESH_ON_MISS_INTERVAL));
+  }
+
+  private boolean isTooStale() {
+    var lastFetched = this.lastFetched;
+    return lastFetched != null && instantSource.instant().isAfter(lastFetched.plus(maxStaleness));
+  }
+
+  private JWKSet refreshMissingOrStale() throws KeySourceException {
+    // Fail fast, without contending for the lock, while the OpenID Provider is unreachable
+    checkCanRefreshAfterFailure();
+    synchronized (lock) {
+      var current = this.jwkSet;
+      if (current != null && !isTooStale()) {
+        // Refreshed concurrently
+        return current;
+      }
+      checkCanRefreshAfterFailure();
+      return refresh();
+    }
+  }
+
+  private void checkCanRefreshAfterFailure() throws KeySourceException {
+    var lastRefreshFailure = this.lastRefreshFailure;
+    if (lastRefreshFailure != null && !canRefreshOnMiss()) {
+      throw new KeySourceException(
+          "No usable JWK set: " + lastRefreshFailure.getMessage(), lastRefreshFailure);
+    }
+  }
+
+  @SuppressWarnings("ReferenceEquality")
+  private JWKSet refreshIfUnchanged(@Nullable JWKSet expected) throws KeySourceException {
+    synchronized (lock) {
+      var current = this.jwkSet;
+      if (current != null && current != expected) {
+        // Refreshed concurrently
+        return current;
+      }
+      return refresh();
+    }
+  }
+
+  private void refreshInBackground() {
+    try {
+      synchronized (lock) {
+        refresh();
+      }
+    } catch (KeySourceException e) {
+      // Already logged
+    } catch (RuntimeException e) {
+      // Don't let an unexpected exception cancel the next refreshes
+      logger.log(System.Logger.Level.WARNING, "Error fetching JWK set from " + jwkSetUri, e);
+    }
+  }
+
+  // Must be called while holding the lock
+  private JWKSet refresh() throws KeySourceException {
+    var start = System.nanoTime();
+    lastRefreshAttempt = instantSource.instant();
+    refreshCount.increment();
+    JWKSet fetched;
+    try {
+      fetched = fetch();
+    } catch (IOException | ParseException e) {
+      refreshFailureCount.increment();
+      logger.log(System.Logger.Level.WARNING, "Error fetching JWK set from " + jwkSetUri, e);
+      var failure = new KeySourceException("Couldn't retrieve JWK set: " + e.getMessage(), e);
+      lastRefreshFailure = failure;
+      throw failure;
+    } finally {
+      lastRefreshDuration = Duration.ofNanos(System.nanoTime() - start);
+    }
+    var lastFetched = instantSource.instant();
+    this.lastFetched = lastFetched;
+    lastRefreshFailure = null;
+    var current = this.jwkSet;
+    if (current != null && current.toJSONObject(false).equals(fetched.toJSONObject(false))) {
+      // Keep the same JWK instances, for the CachingJWSVerificationKeySelector
+      if (snapshotFile != null) {
+        touchSnapshot(snapshotFile, current, lastFetched);
+      }
+      return current;
+    }
+    this.jwkSet = fetched;
+    if (snapshotFile != null) {
+      writeSnapshot(snapshotFile, fetched);
+    }
+    return fetched;
+  }
+
+  private JWKSet fetch() throws IOException, ParseException {
+    var request = new HTTPRequest(HTTPRequest.Method.GET, jwkSetUri);
+    request.setAccept("application/jwk-set+json, application/json");
+    request.setConnectTimeout(TIMEOUT_MILLIS);
+    request.setReadTimeout(TIMEOUT_MILLIS);
+    HTTPResponse response;
+    if (httpRequestSender != null) {
+      response = request.send(httpRequestSender);
+    } else {
+      response = request.send();
+    }
+    if (response.getStatusCode() != HTTPResponse.SC_OK) {
+      throw new IOException("Unexpected HTTP status code " + response.getStatusCode());
+    }
+    var body = response.getBody();
+    if (body == null) {
+      throw new IOException("Empty response");
+    }
+    return JWKSet.parse(body);
+  }
+
+  private void loadSnapshot(Path snapshotFile) {
+    if (!Files.exists(snapshotFile)) {
+      return;
+    }
+    try {
+      jwkSet = JWKSet.parse(Files.readString(snapshotFile, UTF_8));
+      lastFetched = Files.getLastModifiedTime(snapshotFile).toInstant();
+    } catch (IOException | ParseException e) {
+      logger.log(
+          System.Logger.Level.WARNING, "Error reading JWK set snapshot " + snapshotFile, e);
+    }
+  }
+
+  private void touchSnapshot(Path snapshotFile, JWKSet jwkSet, Instant lastFetched) {
+    // The last modified time tells a restarted node how stale the snapshot is
+    try {
+      Files.setLastModifiedTime(snapshotFile, FileTime.from(lastFetched));
+    } catch (NoSuchFileException e) {
+      writeSnapshot(snapshotFile, jwkSet);
+    } catch (IOException e) {
+      logger.log(
+          System.Logger.Level.WARNING, "Error touching JWK set snapshot " + snapshotFile, e);
+    }
+  }
+
+  private void writeSnapshot(Path snapshotFile, JWKSet jwkSet) {
+    var tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    try {
+      Files.writeString(tmpFile, jwkSet.toString(true), UTF_8);
+      Files.move(
+          tmpFile,
+          snapshotFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.log(
+          System.Logger.Level.WARNING, "Error writing JWK set snapshot " + snapshotFile, e);
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderConfigurationRequest;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import com.nimbusds.openid.connect.sdk.op.ReadOnlyOIDCProviderMetadata;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link ProviderMetadataSupplier} that discovers the OpenID Provider metadata from its issuer,
+ * re-discovers it periodically in the background, and optionally persists it to a local file.
+ *
+ * <p>Re-discovery uses conditional requests (with {@code If-None-Match}) when the OpenID Provider
+ * returns an {@code ETag}, so unchanged metadata is neither transferred nor parsed again. Changed
+ * metadata is swapped atomically, so each request sees either the old or the new metadata in its
+ * entirety. When the OpenID Provider cannot be reached, the last discovered metadata is kept in
+ * use.
+ *
+ * <p>When a snapshot file is given, the metadata is written to it after each change, and read at
+ * construction, so that the application can start without waiting for (or even reaching) the
+ * OpenID Provider; the metadata is then re-discovered right away in the background. Without a
+ * snapshot file (or if it cannot be read), the metadata is discovered synchronously at
+ * construction.
+ *
+ * <p>The supplier must be {@linkplain #close() closed} when no longer used, e.g. from a {@link
+ * jakarta.servlet.ServletContextListener#contextDestroyed ServletContextListener}, to stop the
+ * background re-discoveries.
+ *
+ * @see Configuration
+ */
+public class RefreshingProviderMetadataSupplier implements ProviderMetadataSupplier, AutoCloseable {
+  private static final System.Logger logger =
+      System.getLogger(RefreshingProviderMetadataSupplier.class.getName());
+
+  /** The default interval between two background re-discoveries: 1 hour. */
+  public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofHours(1);
+
+  private static final int SC_NOT_MODIFIED = 304;
+  private static final int TIMEOUT_MILLIS = 5_000;
+
+  private final Issuer issuer;
+  private final @Nullable Path snapshotFile;
+  private final @Nullable HTTPRequestSender httpRequestSender;
+  private final @Nullable ScheduledExecutorService scheduler;
+  private final Object lock = new Object();
+  private volatile ReadOnlyOIDCProviderMetadata providerMetadata;
+  private @Nullable String etag;
+
+  /**
+   * Constructs a supplier for the given issuer, re-discovered every hour, and persisted to the
+   * given snapshot file (if not null).
+   *
+   * @throws IOException if there's no snapshot file and the metadata couldn't be discovered
+   */
+  public RefreshingProviderMetadataSupplier(Issuer issuer, @Nullable Path snapshotFile)
+      throws IOException {
+    this(issuer, snapshotFile, DEFAULT_REFRESH_INTERVAL, null);
+  }
+
+  /**
+   * Constructs a supplier for the given issuer, re-discovered at the given interval, and persisted
+   * to the given snapshot file (if not null).
+   *
+   * <p>Requests to the OpenID Provider are sent with the given {@link HTTPRequestSender}, or
+   * Nimbus' default {@code HttpURLConnection}-based implementation if {@code null}.
+   *
+   * @throws IOException if there's no snapshot file and the metadata couldn't be discovered
+   */
+  public RefreshingProviderMetadataSupplier(
+      Issuer issuer,
+      @Nullable Path snapshotFile,
+      Duration refreshInterval,
+      @Nullable HTTPRequestSender httpRequestSender)
+      throws IOException {
+    this(issuer, snapshotFile, refreshInterval, httpRequestSender, true);
+  }
+
+  /** When not {@code scheduled}, the metadata is never re-discovered in background. */
+  RefreshingProviderMetadataSupplier(
+      Issuer issuer,
+      @Nullable Path snapshotFile,
+      Duration refreshInterval,
+      @Nullable HTTPRequestSender httpRequestSender,
+      boolean scheduled)
+      throws IOException {
+    this.issuer = requireNonNull(issuer);
+    requireNonNull(refreshInterval);
+    if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+      throw new IllegalArgumentException("refreshInterval must be positive");
+    }
+    this.snapshotFile = snapshotFile;
+    this.httpRequestSender = httpRequestSender;
+    var providerMetadata = snapshotFile == null ? null : loadSnapshot(snapshotFile);
+    var loadedFromSnapshot = providerMetadata != null;
+    if (providerMetadata == null) {
+      providerMetadata = fetch();
+      if (providerMetadata == null) {
+        // Only returned for conditional requests
+        throw new IOException("Unexpected 304 Not Modified response");
+      }
+      if (snapshotFile != null) {
+        writeSnapshot(snapshotFile, providerMetadata);
+      }
+    }
+    this.providerMetadata = providerMetadata;
+    if (scheduled) {
+      scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              Thread.ofPlatform()
+                  .daemon()
+                  .name("oidc-servlets-provider-metadata-refresh")
+                  .factory());
+      var refreshIntervalMillis = refreshInterval.toMillis();
+      var unused =
+          scheduler.scheduleWithFixedDelay(
+              this::refreshInBackground,
+              loadedFromSnapshot ? 0 : refreshIntervalMillis,
+              refreshIntervalMillis,
+              TimeUnit.MILLISECONDS);
+    } else {
+      scheduler = null;
+    }
+  }
+
+  @Override
+  public ReadOnlyOIDCProviderMetadata getProviderMetadata() {
+    return providerMetadata;
+  }
+
+  /** Stops the background re-discoveries. */
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /** Re-discovers the metadata synchronously. */
+  void refreshNow() throws IOException {
+    synchronized (lock) {
+      var fetched = fetch();
+      if (fetched == null) {
+        // Not modified
+        return;
+      }
+      providerMetadata = fetched;
+      if (snapshotFile != null) {
+        writeSnapshot(snapshotFile, fetched);
+      }
+    }
+  }
+
+  private void refreshInBackground() {
+    try {
+      refreshNow();
+    } catch (IOException | RuntimeException e) {
+      logger.log(
+          System.Logger.Level.WARNING,
+          "Error discovering OpenID Provider metadata for " + issuer,
+          e);
+    }
+  }
+
+  /** Returns the fetched metadata, or {@code null} if it's not been modified. */
+  private @Nullable OIDCProviderMetadata fetch() throws IOException {
+    var request = new OIDCProviderConfigurationRequest(issuer).toHTTPRequest();
+    request.setConnectTimeout(TIMEOUT_MILLIS);
+    request.setReadTimeout(TIMEOUT_MILLIS);
+    var etag = this.etag;
+    if (etag != null) {
+      request.setHeader("If-None-Match", etag);
+    }
+    HTTPResponse response;
+    if (httpRequestSender != null) {
+      response = request.send(httpRequestSender);
+    } else {
+      response = request.send();
+    }
+    if (etag != null && response.getStatusCode() == SC_NOT_MODIFIED) {
+      return null;
+    }
+    OIDCProviderMetadata providerMetadata;
+    try {
+      response.ensureStatusCode(HTTPResponse.SC_OK);
+      providerMetadata = OIDCProviderMetadata.parse(response.getBodyAsJSONObject());
+    } catch (ParseException e) {
+      throw new IOException("Couldn't parse OpenID Provider metadata: " + e.getMessage(), e);
+    }
+    if (!issuer.equals(providerMetadata.getIssuer())) {
+      throw new IOException(
+          "Issuer mismatch: expected " + issuer + ", got " + providerMetadata.getIssuer());
+    }
+    this.etag = response.getHeaderValue("ETag");
+    return providerMetadata;
+  }
+
+  private @Nullable OIDCProviderMetadata loadSnapshot(Path snapshotFile) {
+    if (!Files.exists(snapshotFile)) {
+      return null;
+    }
+    try {
+      var providerMetadata = OIDCProviderMetadata.parse(Files.readString(snapshotFile, UTF_8));
+      if (issuer.equals(providerMetadata.getIssuer())) {
+        return providerMetadata;
+      }
+      logger.log(
+          System.Logger.Level.WARNING,
+          "Ignoring OpenID Provider metadata snapshot " + snapshotFile + " for another issuer");
+    } catch (IOException | ParseException e) {
+      logger.log(
+          System.Logger.Level.WARNING,
+          "Error reading OpenID Provider metadata snapshot " + snapshotFile,
+          e);
+    }
+    return null;
+  }
+
+  private void writeSnapshot(Path snapshotFile, OIDCProviderMetadata providerMetadata) {
+    var tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    try {
+      Files.writeString(
+          tmpFile, JSONObjectUtils.toJSONString(providerMetadata.toJSONObject()), UTF_8);
+      Files.move(
+          tmpFile,
+          snapshotFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.log(
+          System.Logger.Level.WARNING,
+          "Error writing OpenID Provider metadata snapshot " + snapshotFile,
+          e);
+    }
+  }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.ltgt.oidc.servlet.LoggedOutSessionTransport.Logout;
+import net.ltgt.oidc.servlet.LoggedOutSessionTransport.SessionLogout;
+import net.ltgt.oidc.servlet.LoggedOutSessionTransport.SubjectLogout;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link LoggedOutSessionStore} decorator that replicates logouts, {@linkplain
+ * #logout(SessionID) by session ID} and {@linkplain #logout(Issuer, Subject) by subject}, to the
+ * other nodes of a cluster.
+ *
+ * <p>The OpenID Provider sends back-channel logout requests to any one node of the cluster (e.g.
+ * behind a load balancer), while the sessions to invalidate might be used on other nodes (e.g.
+ * when sessions are not replicated, or with an {@link InMemoryLoggedOutSessionStore} that only
+ * knows about the sessions that have been {@linkplain #acquire acquired} on each node).
+ *
+ * <p>Logouts are applied to the local store, then queued and sent in batches, by a background
+ * thread, to the other nodes through the {@link LoggedOutSessionTransport}; the logouts received
+ * from the other nodes are applied to the local store (without being replicated again). Logouts are
+ * sent after at most the {@code batchDelay}, so that logouts received in bursts (e.g. when the
+ * OpenID Provider logs out all sessions of a user) use as few messages as possible. At most {@code
+ * capacity} logouts are queued; when the queue is full (e.g. the transport is slower than the
+ * logouts), logouts are only applied to the local store and {@linkplain #getDroppedCount() counted
+ * as dropped}.
+ *
+ * <p>When the store wraps a store {@linkplain #forIssuer partitioned by issuer} (e.g. a {@link
+ * PerIssuerLoggedOutSessionStore}), logouts are replicated with their issuer, to be applied to the
+ * same partition of the store on the other nodes; this way, a single transport and background
+ * thread are shared by all issuers. Logouts received for an issuer that this node hasn't
+ * {@linkplain #forIssuer used} yet are ignored, as it cannot have sessions for that issuer that it
+ * knows of.
+ *
+ * <p>The store must be {@linkplain #close() closed} when no longer used, e.g. from a {@link
+ * jakarta.servlet.ServletContextListener#contextDestroyed ServletContextListener}; this sends the
+ * queued logouts, and closes the transport.
+ */
+public class ReplicatingLoggedOutSessionStore implements LoggedOutSessionStore, AutoCloseable {
+  private static final System.Logger logger =
+      System.getLogger(ReplicatingLoggedOutSessionStore.class.getName());
+
+  private static final int MAX_BATCH_SIZE = 1000;
+  private static final int DEFAULT_CAPACITY = 10_000;
+
+  private final LoggedOutSessionStore delegate;
+  private final LoggedOutSessionTransport transport;
+  private final long batchDelayNanos;
+  private final BlockingQueue<Logout> pending;
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final ConcurrentMap<Issuer, LoggedOutSessionStore> issuerStores =
+      new ConcurrentHashMap<>();
+  private final Thread sender;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a store that replicates logouts through the given transport, with a batch delay of
+   * 5 milliseconds.
+   */
+  public ReplicatingLoggedOutSessionStore(
+      LoggedOutSessionStore delegate, LoggedOutSessionTransport transport) throws IOException {
+    this(delegate, transport, Duration.ofMillis(5));
+  }
+
+  /**
+   * Constructs a store that replicates logouts through the given transport, with the given batch
+   * delay, and queuing at most 10000 logouts.
+   */
+  public ReplicatingLoggedOutSessionStore(
+      LoggedOutSessionStore delegate, LoggedOutSessionTransport transport, Duration batchDelay)
+      throws IOException {
+    this(delegate, transport, batchDelay, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a store that replicates logouts through the given transport, with the given batch
+   * delay, and queuing at most {@code capacity} logouts.
+   */
+  public ReplicatingLoggedOutSessionStore(
+      LoggedOutSessionStore delegate,
+      LoggedOutSessionTransport transport,
+      Duration batchDelay,
+      int capacity)
+      throws IOException {
+    this.delegate = requireNonNull(delegate);
+    this.transport = requireNonNull(transport);
+    if (batchDelay.isNegative()) {
+      throw new IllegalArgumentException("batchDelay must not be negative");
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.batchDelayNanos = batchDelay.toNanos();
+    this.pending = new LinkedBlockingQueue<>(capacity);
+    transport.start(this::received);
+    this.sender =
+        Thread.ofPlatform()
+            .daemon()
+            .name("oidc-servlets-logged-out-session-replication")
+            .start(this::sendLoop);
+  }
+
+  @Override
+  public LoggedOutSessionStore forIssuer(Issuer issuer) {
+    return issuerStores.computeIfAbsent(
+        requireNonNull(issuer),
+        i -> {
+          var store = delegate.forIssuer(i);
+          return store == delegate ? this : new IssuerStore(i, store);
+        });
+  }
+
+  @Override
+  public void logout(SessionID sessionID) {
+    delegate.logout(sessionID);
+    if (!closed) {
+      enqueue(new SessionLogout(sessionID));
+    }
+  }
+
+  @Override
+  public void logoutAll(Collection<SessionID> sessionIDs) {
+    delegate.logoutAll(sessionIDs);
+    if (!closed) {
+      for (var sessionID : sessionIDs) {
+        enqueue(new SessionLogout(sessionID));
+      }
+    }
+  }
+
+  @Override
+  public boolean isLoggedOut(SessionID sessionID) {
+    return delegate.isLoggedOut(sessionID);
+  }
+
+  @Override
+  public void acquire(SessionID sessionID, String sessionId) {
+    delegate.acquire(sessionID, sessionId);
+  }
+
+  @Override
+  public void release(SessionID sessionID, String sessionId) {
+    delegate.release(sessionID, sessionId);
+  }
+
+  @Override
+  public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
+    delegate.renew(sessionID, oldSessionId, newSessionId);
+  }
+
+  @Override
+  public void logout(Issuer issuer, Subject subject) {
+    delegate.logout(issuer, subject);
+    if (!closed) {
+      enqueue(new SubjectLogout(issuer, subject));
+    }
+  }
+
+  @Override
+  public boolean isLoggedOut(Issuer issuer, Subject subject, String sessionId) {
+    return delegate.isLoggedOut(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void acquire(Issuer issuer, Subject subject, String sessionId) {
+    delegate.acquire(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void release(Issuer issuer, Subject subject, String sessionId) {
+    delegate.release(issuer, subject, sessionId);
+  }
+
+  @Override
+  public void renew(Issuer issuer, Subject subject, String oldSessionId, String newSessionId) {
+    delegate.renew(issuer, subject, oldSessionId, newSessionId);
+  }
+
+  /** Returns the number of logouts that couldn't be replicated because the queue was full. */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /** Sends the queued logouts, stops replicating logouts, and closes the transport. */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    sender.interrupt();
+    try {
+      sender.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    transport.close();
+  }
+
+  private void enqueue(Logout logout) {
+    if (!pending.offer(logout)) {
+      droppedCount.incrementAndGet();
+    }
+  }
+
+  private void received(List<Logout> logouts) {
+    var sessionIDs = new ArrayList<SessionID>(logouts.size());
+    var sessionIDsByIssuer = new HashMap<Issuer, List<SessionID>>();
+    var ignored = 0;
+    for (var logout : logouts) {
+      switch (logout) {
+        case SessionLogout(var issuer, var sessionID) -> {
+          if (issuer == null) {
+            sessionIDs.add(sessionID);
+          } else {
+            sessionIDsByIssuer.computeIfAbsent(issuer, unused -> new ArrayList<>()).add(sessionID);
+          }
+        }
+        case SubjectLogout(var issuer, var subject) -> {
+          var store = knownIssuerStore(issuer);
+          if (store == null) {
+            ignored++;
+          } else {
+            store.logout(issuer, subject);
+          }
+        }
+      }
+    }
+    if (!sessionIDs.isEmpty()) {
+      delegate.logoutAll(sessionIDs);
+    }
+    for (var entry : sessionIDsByIssuer.entrySet()) {
+      var store = knownIssuerStore(entry.getKey());
+      if (store == null) {
+        ignored += entry.getValue().size();
+      } else {
+        store.logoutAll(entry.getValue());
+      }
+    }
+    if (ignored > 0) {
+      logger.log(
+          System.Logger.Level.DEBUG,
+          "Ignored {0} replicated logouts for issuers unknown to this node",
+          ignored);
+    }
+  }
+
+  /**
+   * Returns the partition of the delegate store for the given issuer, or {@code null} if this node
+   * doesn't know about the issuer.
+   *
+   * <p>Only the issuers this store has been {@linkplain #forIssuer asked for} are known, so that
+   * logouts received from the other nodes don't create partitions of the delegate store for issuers
+   * this node has never used (and thus has no session for).
+   */
+  private @Nullable LoggedOutSessionStore knownIssuerStore(Issuer issuer) {
+    var store = issuerStores.get(issuer);
+    if (store == null) {
+      return null;
+    }
+    // Apply the logouts to the delegate store, without replicating them again
+    return store instanceof IssuerStore issuerStore ? issuerStore.store : delegate;
+  }
+
+  private void sendLoop() {
+    var batch = new ArrayList<Logout>();
+    var interrupted = false;
+    long reportedDroppedCount = 0;
+    while (!interrupted) {
+      try {
+        batch.add(pending.take());
+        // Wait for more logouts, up to the batch delay
+        var deadline = System.nanoTime() + batchDelayNanos;
+        while (batch.size() < MAX_BATCH_SIZE) {
+          var next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        // The store is being closed
+        interrupted = true;
+        pending.drainTo(batch);
+      }
+      if (!batch.isEmpty()) {
+        send(batch);
+        batch.clear();
+      }
+      var droppedCount = this.droppedCount.get();
+      if (droppedCount > reportedDroppedCount) {
+        logger.log(
+            System.Logger.Level.WARNING,
+            "Replication queue full, dropped {0} logouts",
+            droppedCount - reportedDroppedCount);
+        reportedDroppedCount = droppedCount;
+      }
+    }
+  }
+
+  private void send(List<Logout> batch) {
+    try {
+      transport.send(batch);
+    } catch (IOException | RuntimeException e) {
+      logger.log(
+          System.Logger.Level.WARNING, () -> "Error replicating " + batch.size() + " logouts", e);
+    }
+  }
+
+  /** A partition of the delegate store, whose logouts are replicated with their issuer. */
+  private final class IssuerStore implements LoggedOutSessionStore {
+    private final Issuer issuer;
+    private final LoggedOutSessionStore store;
+
+    IssuerStore(Issuer issuer, LoggedOutSessionStore store) {
+      this.issuer = issuer;
+      this.store = store;
+    }
+
+    @Override
+    public void logout(SessionID sessionID) {
+      store.logout(sessionID);
+      if (!closed) {
+        enqueue(new SessionLogout(issuer, sessionID));
+      }
+    }
+
+    @Override
+    public void logoutAll(Collection<SessionID> sessionIDs) {
+      store.logoutAll(sessionIDs);
+      if (!closed) {
+        for (var sessionID : sessionIDs) {
+          enqueue(new SessionLogout(issuer, sessionID));
+        }
+      }
+    }
+
+    @Override
+    public boolean isLoggedOut(SessionID sessionID) {
+      return store.isLoggedOut(sessionID);
+    }
+
+    @Override
+    public void acquire(SessionID sessionID, String sessionId) {
+      store.acquire(sessionID, sessionId);
+    }
+
+    @Override
+    public void release(SessionID sessionID, String sessionId) {
+      store.release(sessionID, sessionId);
+    }
+
+    @Override
+    public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
+      store.renew(sessionID, oldSessionId, newSessionId);
+    }
+
+    @Override
+    public void logout(Issuer issuer, Subject subject) {
+      store.logout(issuer, subject);
+      if (!closed) {
+        enqueue(new SubjectLogout(issuer, subject));
+      }
+    }
+
+    @Override
+    public boolean isLoggedOut(Issuer issuer, Subject subject, String sessionId) {
+      return store.isLoggedOut(issuer, subject, sessionId);
+    }
+
+    @Override
+    public void acquire(Issuer issuer, Subject subject, String sessionId) {
+      store.acquire(issuer, subject, sessionId);
+    }
+
+    @Override
+    public void release(Issuer issuer, Subject subject, String sessionId) {
+      store.release(issuer, subject, sessionId);
+    }
+
+    @Override
+    public void renew(Issuer issuer, Subject subject, String oldSessionId, String newSessionId) {
+      store.renew(issuer, subject, oldSessionId, newSessionId);
+    }
+  }
+}
@@ -35,14 +35,24 @@ import org.jspecify.annotations.Nullable;
  *
  * <p>This is the default handler used by the {@link CallbackServlet} when no specific handler has
  * been configured, using the {@linkplain Utils#HTTP_REQUEST_SENDER_CONTEXT_ATTRIBUTE_NAME globally
- * configured} HTTP request sender.
+ * configured} HTTP request sender and {@linkplain Utils#EXECUTOR_CONTEXT_ATTRIBUTE_NAME executor}.
+ *
+ * <p>Revocation requests are blocking network calls; to avoid starving the {@link
+ * ForkJoinPool#commonPool()} they'd be executed in by default, pass an {@link Executor} such as
+ * the {@linkplain Utils#virtualThreadExecutor() virtual thread executor}.
+ *
+ * <p>Each revocation is submitted as a separate task to the executor, so pending revocations can
+ * accumulate without bounds if the OpenID Provider is slow. Alternatively, pass a {@link
+ * TokenRevocationQueue}, which bounds the pending revocations and retries failed ones; the {@code
+ * handleError} methods are then not called, the queue logs the revocation errors itself.
  *
  * @see <a href="https://datatracker.ietf.org/doc/html/rfc7009">OAuth 2.0 Token Revocation</a>
  */
 public class RevokingOAuthTokensHandler implements OAuthTokensHandler {
   private final Configuration configuration;
   private final @Nullable HTTPRequestSender httpRequestSender;
-  private final Executor executor;
+  private final @Nullable Executor executor;
+  private final @Nullable TokenRevocationQueue revocationQueue;
 
   /**
    * Constructs a revoking token handler with the given configuration.
@@ -82,6 +92,19 @@ public class RevokingOAuthTokensHandler implements OAuthTokensHandler {
     this.configuration = requireNonNull(configuration);
     this.httpRequestSender = httpRequestSender;
     this.executor = requireNonNull(executor);
+    this.revocationQueue = null;
+  }
+
+  /** Constructs a revoking token handler that queues tokens to the given revocation queue. */
+  public RevokingOAuthTokensHandler(TokenRevocationQueue revocationQueue) {
+    this.configuration = revocationQueue.getConfiguration();
+    this.httpRequestSender = null;
+    this.executor = null;
+    this.revocationQueue = revocationQueue;
+  }
+
+  @Nullable TokenRevocationQueue getRevocationQueue() {
+    return revocationQueue;
   }
 
   @Override
@@ -90,7 +113,11 @@ public class RevokingOAuthTokensHandler implements OAuthTokensHandler {
   }
 
   void revokeAsync(Token token) {
-    executor.execute(
+    if (revocationQueue != null) {
+      revocationQueue.revoke(token);
+      return;
+    }
+    requireNonNull(executor).execute(
         () -> {
           try {
             revoke(token);
@@ -17,57 +17,209 @@ package net.ltgt.oidc.servlet;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.errorprone.annotations.concurrent.LazyInit;
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
 import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
 import com.nimbusds.openid.connect.sdk.claims.UserInfo;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serial;
 import java.io.Serializable;
+import org.jspecify.annotations.Nullable;
 
+/**
+ * Information about the authenticated user, stored in the session.
+ *
+ * <p>When deserialized, the ID Token and User Info are only parsed when first accessed, so that
+ * requests that only need the {@linkplain #getIssuer() issuer} and {@linkplain #getSessionID()
+ * session ID} (to check whether the session has been logged out) or the {@linkplain #getSubject()
+ * subject} (the {@linkplain UserPrincipal#getName() user name}) don't pay the price of parsing
+ * them.
+ */
 public final class SessionInfo implements Serializable {
   static final String SESSION_ATTRIBUTE_NAME = SessionInfo.class.getName();
 
-  private final JWT idToken;
-  private final IDTokenClaimsSet idTokenClaims;
-  private final UserInfo userInfo;
+  private final Issuer issuer;
+  private final @Nullable SessionID sessionID;
+  private final Subject subject;
+
+  // Either the serialized form or the parsed objects are non-null; serialized forms are cleared
+  // once parsed.
+  private @Nullable String serializedIdToken;
+  private @Nullable String serializedUserInfo;
+  @LazyInit private volatile @Nullable JWT idToken;
+  @LazyInit private volatile @Nullable IDTokenClaimsSet idTokenClaims;
+  @LazyInit private volatile @Nullable UserInfo userInfo;
 
   public SessionInfo(
       JWT idToken, //
       IDTokenClaimsSet idTokenClaims, //
       UserInfo userInfo //
       ) {
-    this.idToken = idToken;
+    this.idToken = requireNonNull(idToken);
     this.idTokenClaims = requireNonNull(idTokenClaims);
     this.userInfo = requireNonNull(userInfo);
+    this.issuer = idTokenClaims.getIssuer();
+    this.sessionID = idTokenClaims.getSessionID();
+    this.subject = idTokenClaims.getSubject();
+  }
+
+  /**
+   * Constructs a session info from the serialized ID Token and User Info, that will only be parsed
+   * when first accessed.
+   */
+  SessionInfo(
+      String serializedIdToken,
+      String serializedUserInfo,
+      Issuer issuer,
+      @Nullable SessionID sessionID,
+      Subject subject) {
+    this.serializedIdToken = requireNonNull(serializedIdToken);
+    this.serializedUserInfo = requireNonNull(serializedUserInfo);
+    this.issuer = requireNonNull(issuer);
+    this.sessionID = sessionID;
+    this.subject = requireNonNull(subject);
   }
 
   public JWT getIDToken() {
+    var idToken = this.idToken;
+    if (idToken == null) {
+      parseIDToken();
+      idToken = requireNonNull(this.idToken);
+    }
     return idToken;
   }
 
   public IDTokenClaimsSet getIDTokenClaims() {
+    var idTokenClaims = this.idTokenClaims;
+    if (idTokenClaims == null) {
+      parseIDToken();
+      idTokenClaims = requireNonNull(this.idTokenClaims);
+    }
     return idTokenClaims;
   }
 
   public UserInfo getUserInfo() {
+    var userInfo = this.userInfo;
+    if (userInfo == null) {
+      synchronized (this) {
+        userInfo = this.userInfo;
+        if (userInfo == null) {
+          try {
+            userInfo = UserInfo.parse(requireNonNull(serializedUserInfo));
+          } catch (ParseException e) {
+            throw new RuntimeException(e);
+          }
+          this.userInfo = userInfo;
+          serializedUserInfo = null;
+        }
+      }
+    }
     return userInfo;
   }
 
+  /**
+   * Returns the issuer of the ID Token, i.e. the OpenID Provider that authenticated the user.
+   *
+   * <p>This is equivalent to {@code getIDTokenClaims().getIssuer()} but doesn't need to parse the
+   * ID Token.
+   */
+  public Issuer getIssuer() {
+    return issuer;
+  }
+
+  /**
+   * Returns the OpenID Provider session ID ({@code sid}) from the ID Token, if any.
+   *
+   * <p>This is equivalent to {@code getIDTokenClaims().getSessionID()} but doesn't need to parse
+   * the ID Token.
+   */
+  public @Nullable SessionID getSessionID() {
+    return sessionID;
+  }
+
+  /**
+   * Returns the subject from the ID Token.
+   *
+   * <p>This is equivalent to {@code getIDTokenClaims().getSubject()} but doesn't need to parse the
+   * ID Token.
+   */
+  public Subject getSubject() {
+    return subject;
+  }
+
+  private synchronized void parseIDToken() {
+    if (idToken != null) {
+      return;
+    }
+    try {
+      var parsedIdToken = JWTParser.parse(requireNonNull(serializedIdToken));
+      idTokenClaims = new IDTokenClaimsSet(parsedIdToken.getJWTClaimsSet());
+      idToken = parsedIdToken;
+    } catch (ParseException | java.text.ParseException e) {
+      throw new RuntimeException(e);
+    }
+    serializedIdToken = null;
+  }
+
+  /** Returns the serialized ID Token, without parsing it if not already done. */
+  synchronized String getSerializedIDToken() {
+    return serializedIdToken != null ? serializedIdToken : requireNonNull(idToken).serialize();
+  }
+
+  /** Returns the serialized User Info, without parsing it if not already done. */
+  synchronized String getSerializedUserInfo() {
+    return serializedUserInfo != null
+        ? serializedUserInfo
+        : requireNonNull(userInfo).toJSONString();
+  }
+
   @Serial
   private Object writeReplace() {
-    return new SerializableSessionInfo(idToken.serialize(), userInfo.toJSONString());
+    return new SerializedSessionInfo(BinarySessionInfoCodec.DEFAULT.encode(this));
+  }
+
+  /** Parses a session info from its serialized ID Token and User Info. */
+  static SessionInfo parse(String idToken, String serializedUserInfo)
+      throws ParseException, java.text.ParseException {
+    var parsedIdToken = JWTParser.parse(idToken);
+    var idTokenClaims = new IDTokenClaimsSet(parsedIdToken.getJWTClaimsSet());
+    var userInfo = UserInfo.parse(serializedUserInfo);
+    return new SessionInfo(parsedIdToken, idTokenClaims, userInfo);
+  }
+
+  private static final class SerializedSessionInfo implements Serializable {
+    @Serial private static final long serialVersionUID = 0L;
+
+    private final byte[] bytes;
+
+    SerializedSessionInfo(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Serial
+    private Object readResolve() throws ObjectStreamException {
+      try {
+        return BinarySessionInfoCodec.DEFAULT.decode(bytes);
+      } catch (IOException e) {
+        throw new InvalidObjectException("Error decoding session info", e);
+      }
+    }
   }
 
+  /** Serialized form used by previous versions, kept to read sessions serialized by them. */
   private record SerializableSessionInfo(String idToken, String serializedUserInfo)
       implements Serializable {
     @Serial
     Object readResolve() {
       try {
-        var parsedIdToken = JWTParser.parse(idToken());
-        var idTokenClaims = new IDTokenClaimsSet(parsedIdToken.getJWTClaimsSet());
-        var userInfo = UserInfo.parse(serializedUserInfo());
-        return new SessionInfo(parsedIdToken, idTokenClaims, userInfo);
+        return parse(idToken(), serializedUserInfo());
       } catch (ParseException | java.text.ParseException e) {
         throw new RuntimeException(e);
       }
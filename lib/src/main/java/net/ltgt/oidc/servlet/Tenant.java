@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.SecurityContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A tenant of a {@link TenantRegistry}, with its configuration and JWK source, and the servlets
+ * and filters created for it by the {@link TenantServlet}s and {@link TenantFilter}s.
+ */
+public final class Tenant {
+  private static final System.Logger logger = System.getLogger(Tenant.class.getName());
+
+  private final String id;
+  private final Configuration configuration;
+  private final JWKSource<SecurityContext> jwkSource;
+  // Keyed by TenantServlet or TenantFilter
+  private final ConcurrentMap<Object, Object> components = new ConcurrentHashMap<>();
+  // The requests being processed, plus one for the registry until the tenant is evicted
+  private final AtomicInteger references = new AtomicInteger(1);
+
+  Tenant(String id, Configuration configuration) throws IOException {
+    this.id = id;
+    this.configuration = configuration;
+    try {
+      // Closed when the tenant is evicted, stopping the refresh-ahead thread
+      this.jwkSource =
+          JWKSourceBuilder.create(configuration.getProviderMetadata().getJWKSetURI().toURL())
+              .build();
+    } catch (IllegalArgumentException e) {
+      var mue = new MalformedURLException(e.getMessage());
+      mue.initCause(e);
+      throw mue;
+    }
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public Configuration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Returns the JWK source for the tenant's JWKSet URI, to be passed to the servlets' constructors.
+   *
+   * <p>Contrary to the JWK source that the servlets would otherwise create and share through the
+   * servlet context, this one is closed when the tenant is evicted from the {@link TenantRegistry}.
+   */
+  public JWKSource<SecurityContext> getJWKSource() {
+    return jwkSource;
+  }
+
+  /**
+   * Invalidates the request's session if it's been authenticated by another tenant's OpenID
+   * Provider, so that it can't be used for this tenant (e.g. if the session cookie is shared
+   * between tenants).
+   */
+  void checkSession(HttpServletRequest req) {
+    var session = req.getSession(false);
+    if (session == null) {
+      return;
+    }
+    var sessionInfo = (SessionInfo) session.getAttribute(SessionInfo.SESSION_ATTRIBUTE_NAME);
+    if (sessionInfo != null
+        && !sessionInfo.getIssuer().equals(configuration.getProviderMetadata().getIssuer())) {
+      try {
+        session.invalidate();
+      } catch (IllegalStateException e) {
+        // Invalidated concurrently
+      }
+    }
+  }
+
+  Servlet getServlet(
+      TenantServlet key, Function<? super Tenant, ? extends Servlet> factory, ServletConfig config)
+      throws ServletException {
+    var servlet = (Servlet) components.get(key);
+    if (servlet == null) {
+      servlet = factory.apply(this);
+      servlet.init(config);
+      var existing = (Servlet) components.putIfAbsent(key, servlet);
+      if (existing != null) {
+        // Created concurrently
+        servlet.destroy();
+        return existing;
+      }
+    }
+    return servlet;
+  }
+
+  Filter getFilter(
+      TenantFilter key, Function<? super Tenant, ? extends Filter> factory, FilterConfig config)
+      throws ServletException {
+    var filter = (Filter) components.get(key);
+    if (filter == null) {
+      filter = factory.apply(this);
+      filter.init(config);
+      var existing = (Filter) components.putIfAbsent(key, filter);
+      if (existing != null) {
+        // Created concurrently
+        filter.destroy();
+        return existing;
+      }
+    }
+    return filter;
+  }
+
+  /**
+   * Acquires the tenant for a request, or returns {@code false} if it's been evicted from the
+   * registry and its servlets and filters destroyed.
+   *
+   * <p>The servlets and filters must only be created and used while the tenant is acquired, and it
+   * must then be {@linkplain #release(HttpServletRequest) released}.
+   */
+  boolean acquire() {
+    for (var count = references.get(); count > 0; count = references.get()) {
+      if (references.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Releases the tenant acquired for the request, once its asynchronous processing completes if
+   * it's been started.
+   */
+  void release(HttpServletRequest req) {
+    if (req.isAsyncStarted()) {
+      req.getAsyncContext().addListener(new ReleasingListener());
+    } else {
+      release();
+    }
+  }
+
+  /**
+   * Called when evicted from the registry: destroys the servlets and filters, and closes the JWK
+   * source and provider metadata supplier (stopping their background refreshes), once they're no
+   * longer used by any request.
+   */
+  void close() {
+    release();
+  }
+
+  private void release() {
+    if (references.decrementAndGet() == 0) {
+      destroyComponents();
+      closeResource(jwkSource);
+      closeResource(configuration.getProviderMetadataSupplier());
+    }
+  }
+
+  private void destroyComponents() {
+    for (var key : components.keySet()) {
+      var component = components.remove(key);
+      if (component instanceof Servlet servlet) {
+        servlet.destroy();
+      } else if (component instanceof Filter filter) {
+        filter.destroy();
+      }
+    }
+  }
+
+  private void closeResource(Object resource) {
+    if (!(resource instanceof AutoCloseable closeable)) {
+      return;
+    }
+    try {
+      closeable.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(System.Logger.Level.WARNING, "Interrupted while closing tenant {0}", id);
+    } catch (Exception e) {
+      logger.log(System.Logger.Level.WARNING, () -> "Error closing resources of tenant " + id, e);
+    }
+  }
+
+  private final class ReleasingListener implements AsyncListener {
+    @Override
+    public void onComplete(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {}
+
+    @Override
+    public void onError(AsyncEvent event) {}
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // Listeners are removed when the asynchronous processing is restarted
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
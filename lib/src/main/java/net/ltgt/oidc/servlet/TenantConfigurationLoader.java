@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import java.io.IOException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Loads the configuration of a tenant, for the {@link TenantRegistry}.
+ *
+ * <p>This is called whenever a tenant's configuration is needed and not already in the registry,
+ * so it can be called several times for the same tenant if it's been evicted from the registry in
+ * between. Unknown tenants are only remembered for a minute, and not at all when many of them are
+ * requested, so determining that a tenant doesn't exist should be cheap.
+ */
+@FunctionalInterface
+public interface TenantConfigurationLoader {
+  /**
+   * Returns the configuration of the given tenant, with its provider metadata and client
+   * credentials, or {@code null} if there's no such tenant.
+   */
+  @Nullable Configuration loadConfiguration(String tenantId) throws IOException;
+}
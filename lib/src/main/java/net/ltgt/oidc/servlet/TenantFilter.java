@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.errorprone.annotations.OverridingMethodsMustInvokeSuper;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Dispatches requests to a filter instance per {@linkplain TenantRegistry tenant}.
+ *
+ * <p>The filter for a tenant is created by the given factory the first time a request for that
+ * tenant comes in, and initialized with this filter's configuration; it is destroyed when the
+ * tenant is evicted from the registry, once the requests using it (including their asynchronous
+ * processing) have completed. The factory should pass the tenant-specific objects to the filter's
+ * constructor, e.g. {@code tenant -> new IsAuthenticatedFilter(new
+ * AuthenticationRedirector(tenant.getConfiguration(), callbackPath))}.
+ *
+ * <p>Requests with no tenant, or for an unknown tenant, are responded with a {@code 404 Not
+ * Found}. Sessions authenticated by another tenant's OpenID Provider are invalidated before the
+ * request is dispatched, so they can't be used for this tenant.
+ *
+ * @see TenantServlet
+ */
+public class TenantFilter extends HttpFilter {
+  private TenantRegistry tenantRegistry;
+  private final Function<? super Tenant, ? extends Filter> filterFactory;
+
+  /**
+   * Constructs a filter with the given factory.
+   *
+   * <p>The tenant registry will be read from the {@linkplain TenantRegistry#CONTEXT_ATTRIBUTE_NAME
+   * servlet context attribute}.
+   */
+  public TenantFilter(Function<? super Tenant, ? extends Filter> filterFactory) {
+    this.filterFactory = requireNonNull(filterFactory);
+  }
+
+  /**
+   * Constructs a filter with the given tenant registry and factory.
+   *
+   * <p>When this constructor is used, the {@linkplain TenantRegistry#CONTEXT_ATTRIBUTE_NAME servlet
+   * context attribute} won't be read.
+   */
+  public TenantFilter(
+      TenantRegistry tenantRegistry, Function<? super Tenant, ? extends Filter> filterFactory) {
+    this.tenantRegistry = requireNonNull(tenantRegistry);
+    this.filterFactory = requireNonNull(filterFactory);
+  }
+
+  @OverridingMethodsMustInvokeSuper
+  @Override
+  public void init() throws ServletException {
+    if (tenantRegistry == null) {
+      tenantRegistry =
+          (TenantRegistry) getServletContext().getAttribute(TenantRegistry.CONTEXT_ATTRIBUTE_NAME);
+    }
+    requireNonNull(tenantRegistry, "tenantRegistry");
+  }
+
+  @Override
+  protected void doFilter(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+      throws IOException, ServletException {
+    var tenant = tenantRegistry.acquireTenant(req);
+    if (tenant == null) {
+      res.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    try {
+      tenant.checkSession(req);
+      tenant.getFilter(this, filterFactory, getFilterConfig()).doFilter(req, res, chain);
+    } finally {
+      tenant.release(req);
+    }
+  }
+}
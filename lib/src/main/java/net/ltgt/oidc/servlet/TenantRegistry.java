@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Resolves the {@link Tenant} of each request, for applications serving several tenants, each with
+ * its own OpenID Provider and client credentials.
+ *
+ * <p>Tenants are loaded lazily, the first time a request for them comes in, and the least recently
+ * used tenants are evicted when the registry is full, so that only the active tenants stay in
+ * memory, along with their JWK source, and the servlets and filters created for them by the {@link
+ * TenantServlet}s and {@link TenantFilter}s. Requests for the same tenant wait for it to be loaded
+ * once, while other tenants are looked up or loaded without waiting. Lookups of loaded tenants
+ * don't lock, so recency is only approximately tracked.
+ *
+ * <p>Unknown tenants are remembered for a minute, so that requests for them don't each call the
+ * {@link TenantConfigurationLoader}; they're kept apart from the known tenants, so they can't evict
+ * them. A tenant created in the meantime will thus only be found after that delay.
+ *
+ * <p>An instance of this class needs to be registered as a {@link jakarta.servlet.ServletContext
+ * ServletContext} attribute under the name {@link #CONTEXT_ATTRIBUTE_NAME}, or passed to the
+ * {@code TenantServlet}s and {@code TenantFilter}s constructors.
+ *
+ * <p>When tenants are resolved by path (e.g. with {@link TenantResolver#byFirstPathSegment()}),
+ * their sessions must be isolated from each other, e.g. with a session cookie per path. The {@link
+ * LoggedOutSessionStore} must also be partitioned by OpenID Provider, e.g. with a {@link
+ * PerIssuerLoggedOutSessionStore}.
+ */
+public class TenantRegistry {
+  public static final String CONTEXT_ATTRIBUTE_NAME = TenantRegistry.class.getName();
+
+  private static final Duration UNKNOWN_TENANT_TTL = Duration.ofMinutes(1);
+
+  private final TenantResolver tenantResolver;
+  private final TenantConfigurationLoader configurationLoader;
+  private final int maximumSize;
+  private final InstantSource instantSource;
+  private final ConcurrentMap<String, Entry> tenants = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Instant> unknownTenants = new ConcurrentHashMap<>();
+  private final Lock evictionLock = new ReentrantLock();
+  private final LongAdder loadCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  /** Constructs a registry that keeps at most the given number of tenants in memory. */
+  public TenantRegistry(
+      TenantResolver tenantResolver,
+      TenantConfigurationLoader configurationLoader,
+      int maximumSize) {
+    this(tenantResolver, configurationLoader, maximumSize, InstantSource.system());
+  }
+
+  TenantRegistry(
+      TenantResolver tenantResolver,
+      TenantConfigurationLoader configurationLoader,
+      int maximumSize,
+      InstantSource instantSource) {
+    this.tenantResolver = requireNonNull(tenantResolver);
+    this.configurationLoader = requireNonNull(configurationLoader);
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+    this.maximumSize = maximumSize;
+    this.instantSource = requireNonNull(instantSource);
+  }
+
+  /**
+   * Returns the tenant of the given request, loading it if needed, or {@code null} if the request
+   * has no tenant, or it doesn't exist.
+   */
+  public @Nullable Tenant getTenant(HttpServletRequest req) throws IOException {
+    var tenantId = tenantResolver.resolveTenant(requireNonNull(req));
+    return tenantId == null ? null : getTenant(tenantId);
+  }
+
+  /**
+   * Returns the tenant with the given ID, loading it if needed, or {@code null} if it doesn't
+   * exist.
+   */
+  public @Nullable Tenant getTenant(String tenantId) throws IOException {
+    requireNonNull(tenantId);
+    var entry = tenants.get(tenantId);
+    if (entry == null) {
+      if (isKnownToBeUnknown(tenantId)) {
+        return null;
+      }
+      var newEntry = new Entry();
+      entry = tenants.putIfAbsent(tenantId, newEntry);
+      if (entry == null) {
+        return load(tenantId, newEntry);
+      }
+    }
+    entry.lastAccess = System.nanoTime();
+    try {
+      return entry.future.join().orElse(null);
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof IOException ioe) {
+        throw new IOException(ioe.getMessage(), ioe);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the {@linkplain Tenant#acquire() acquired} tenant of the given request, loading it if
+   * needed, or {@code null} if the request has no tenant, or it doesn't exist.
+   */
+  @Nullable Tenant acquireTenant(HttpServletRequest req) throws IOException {
+    while (true) {
+      var tenant = getTenant(req);
+      if (tenant == null || tenant.acquire()) {
+        return tenant;
+      }
+      // Evicted concurrently, and thus removed from the registry
+    }
+  }
+
+  /** Returns the number of tenants currently in the registry. */
+  public int getSize() {
+    return tenants.size();
+  }
+
+  /** Returns the number of times a tenant's configuration has been loaded. */
+  public long getLoadCount() {
+    return loadCount.sum();
+  }
+
+  /** Returns the number of tenants that have been evicted to make room for other tenants. */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  private boolean isKnownToBeUnknown(String tenantId) {
+    var expiry = unknownTenants.get(tenantId);
+    if (expiry == null) {
+      return false;
+    }
+    if (instantSource.instant().isBefore(expiry)) {
+      return true;
+    }
+    unknownTenants.remove(tenantId, expiry);
+    return false;
+  }
+
+  private void rememberUnknown(String tenantId) {
+    var now = instantSource.instant();
+    if (unknownTenants.size() >= maximumSize) {
+      unknownTenants.values().removeIf(expiry -> !now.isBefore(expiry));
+      if (unknownTenants.size() >= maximumSize) {
+        // Bound the memory used by requests for random tenant IDs
+        return;
+      }
+    }
+    unknownTenants.put(tenantId, now.plus(UNKNOWN_TENANT_TTL));
+  }
+
+  private @Nullable Tenant load(String tenantId, Entry entry) throws IOException {
+    loadCount.increment();
+    Optional<Tenant> tenant;
+    try {
+      var configuration = configurationLoader.loadConfiguration(tenantId);
+      tenant =
+          configuration == null
+              ? Optional.empty()
+              : Optional.of(new Tenant(tenantId, configuration));
+    } catch (IOException | RuntimeException e) {
+      // Don't cache errors
+      tenants.remove(tenantId, entry);
+      entry.future.completeExceptionally(e);
+      throw e;
+    }
+    if (tenant.isEmpty()) {
+      // Don't keep unknown tenants along known ones, so they can't evict them
+      rememberUnknown(tenantId);
+      tenants.remove(tenantId, entry);
+    }
+    entry.future.complete(tenant);
+    if (tenant.isPresent() && tenants.size() > maximumSize) {
+      evict(entry);
+    }
+    return tenant.orElse(null);
+  }
+
+  /** Evicts the least recently used tenants, other than the one just loaded. */
+  private void evict(Entry loaded) {
+    var evicted = new ArrayList<Entry>();
+    evictionLock.lock();
+    try {
+      while (tenants.size() > maximumSize) {
+        Map.Entry<String, Entry> eldest = null;
+        for (var candidate : tenants.entrySet()) {
+          var value = candidate.getValue();
+          // Tenants being loaded are being used
+          if (value != loaded
+              && value.future.isDone()
+              && (eldest == null || value.lastAccess - eldest.getValue().lastAccess < 0)) {
+            eldest = candidate;
+          }
+        }
+        if (eldest == null) {
+          break;
+        }
+        if (tenants.remove(eldest.getKey(), eldest.getValue())) {
+          evicted.add(eldest.getValue());
+          evictionCount.increment();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+    for (var entry : evicted) {
+      entry.future.join().ifPresent(Tenant::close);
+    }
+  }
+
+  private static final class Entry {
+    final CompletableFuture<Optional<Tenant>> future = new CompletableFuture<>();
+    // Only approximately ordered, as it's updated without locking
+    volatile long lastAccess = System.nanoTime();
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Determines the tenant of a request, for the {@link TenantRegistry}.
+ *
+ * @see #byServerName()
+ * @see #byFirstPathSegment()
+ */
+@FunctionalInterface
+public interface TenantResolver {
+  /**
+   * Returns a tenant resolver that uses the {@linkplain HttpServletRequest#getServerName() server
+   * name} (i.e. the host name) as the tenant ID.
+   */
+  static TenantResolver byServerName() {
+    return HttpServletRequest::getServerName;
+  }
+
+  /**
+   * Returns a tenant resolver that uses the first segment of the path within the servlet context
+   * as the tenant ID, e.g. {@code acme} for {@code /acme/callback}.
+   *
+   * <p>The path is the {@linkplain HttpServletRequest#getServletPath() servlet path} followed by
+   * the {@linkplain HttpServletRequest#getPathInfo() path info}, i.e. decoded and normalized by the
+   * servlet container, rather than the raw {@linkplain HttpServletRequest#getRequestURI() request
+   * URI}.
+   */
+  static TenantResolver byFirstPathSegment() {
+    return req -> {
+      var pathInfo = req.getPathInfo();
+      var path = pathInfo == null ? req.getServletPath() : req.getServletPath() + pathInfo;
+      if (!path.startsWith("/")) {
+        return null;
+      }
+      var end = path.indexOf('/', 1);
+      var segment = end < 0 ? path.substring(1) : path.substring(1, end);
+      return segment.isEmpty() ? null : segment;
+    };
+  }
+
+  /** Returns the ID of the request's tenant, or {@code null} if the request has no tenant. */
+  @Nullable String resolveTenant(HttpServletRequest req);
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.errorprone.annotations.OverridingMethodsMustInvokeSuper;
+import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Dispatches requests to a servlet instance per {@linkplain TenantRegistry tenant}.
+ *
+ * <p>The servlet for a tenant is created by the given factory the first time a request for that
+ * tenant comes in, and initialized with this servlet's configuration; it is destroyed when the
+ * tenant is evicted from the registry, once the requests using it (including their asynchronous
+ * processing) have completed. The factory should pass the tenant's {@linkplain
+ * Tenant#getConfiguration() configuration} (and {@linkplain Tenant#getJWKSource() JWK source}) to
+ * the servlet's constructor, e.g. {@code tenant -> new BackchannelLogoutServlet(
+ * tenant.getConfiguration(), loggedOutSessionStore, tenant.getJWKSource())}, where the {@code
+ * loggedOutSessionStore} is a {@link PerIssuerLoggedOutSessionStore} so that tenants can't log out
+ * each other's sessions.
+ *
+ * <p>Requests with no tenant, or for an unknown tenant, are responded with a {@code 404 Not
+ * Found}. Sessions authenticated by another tenant's OpenID Provider are invalidated before the
+ * request is dispatched, so they can't be used for this tenant.
+ *
+ * @see TenantFilter
+ */
+public class TenantServlet extends HttpServlet {
+  private TenantRegistry tenantRegistry;
+  private final Function<? super Tenant, ? extends Servlet> servletFactory;
+
+  /**
+   * Constructs a servlet with the given factory.
+   *
+   * <p>The tenant registry will be read from the {@linkplain TenantRegistry#CONTEXT_ATTRIBUTE_NAME
+   * servlet context attribute}.
+   */
+  public TenantServlet(Function<? super Tenant, ? extends Servlet> servletFactory) {
+    this.servletFactory = requireNonNull(servletFactory);
+  }
+
+  /**
+   * Constructs a servlet with the given tenant registry and factory.
+   *
+   * <p>When this constructor is used, the {@linkplain TenantRegistry#CONTEXT_ATTRIBUTE_NAME servlet
+   * context attribute} won't be read.
+   */
+  public TenantServlet(
+      TenantRegistry tenantRegistry, Function<? super Tenant, ? extends Servlet> servletFactory) {
+    this.tenantRegistry = requireNonNull(tenantRegistry);
+    this.servletFactory = requireNonNull(servletFactory);
+  }
+
+  @OverridingMethodsMustInvokeSuper
+  @Override
+  public void init() throws ServletException {
+    if (tenantRegistry == null) {
+      tenantRegistry =
+          (TenantRegistry) getServletContext().getAttribute(TenantRegistry.CONTEXT_ATTRIBUTE_NAME);
+    }
+    requireNonNull(tenantRegistry, "tenantRegistry");
+  }
+
+  @Override
+  protected void service(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    var tenant = tenantRegistry.acquireTenant(req);
+    if (tenant == null) {
+      resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    try {
+      tenant.checkSession(req);
+      tenant.getServlet(this, servletFactory, getServletConfig()).service(req, resp);
+    } finally {
+      tenant.release(req);
+    }
+  }
+}
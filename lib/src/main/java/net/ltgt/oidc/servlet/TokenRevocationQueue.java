@@ -0,0 +1,392 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.oauth2.sdk.TokenRevocationRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.token.Token;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Revokes tokens in the background, from a bounded queue, with a bounded number of concurrent
+ * revocation requests to the OpenID Provider.
+ *
+ * <p>Contrary to submitting a task per token to an {@link java.util.concurrent.Executor}, this
+ * bounds the memory used by pending revocations when the OpenID Provider is slow or unreachable:
+ * when the queue is full, the {@link OverflowPolicy} decides which token is dropped, or whether
+ * the caller waits for the revocation. Dropped tokens are not revoked and will only expire, so
+ * the {@linkplain #getDroppedCount() number of dropped tokens} should be monitored.
+ *
+ * <p>Tokens are revoked one after the other by each of the {@code concurrency} background threads,
+ * so that the {@link HTTPRequestSender} can reuse its connections to the revocation endpoint (e.g.
+ * with the {@link HttpClientRequestSender}). Revocations that fail with a network error, a {@code
+ * 429 Too Many Requests} or a server error, are retried after an exponential backoff with jitter,
+ * or the delay requested by the OpenID Provider in a {@code Retry-After} header. Revocations that
+ * still fail are logged.
+ *
+ * <p>An instance of this class can be registered as a {@link jakarta.servlet.ServletContext
+ * ServletContext} attribute under the name {@link #CONTEXT_ATTRIBUTE_NAME}, to be used by the
+ * {@link CallbackServlet} to revoke tokens, or passed to a {@link RevokingOAuthTokensHandler}. It
+ * must be {@linkplain #close() closed} when no longer used, e.g. from a {@link
+ * jakarta.servlet.ServletContextListener#contextDestroyed ServletContextListener}.
+ *
+ * @see <a href="https://datatracker.ietf.org/doc/html/rfc7009">OAuth 2.0 Token Revocation</a>
+ */
+public class TokenRevocationQueue implements AutoCloseable {
+  public static final String CONTEXT_ATTRIBUTE_NAME = TokenRevocationQueue.class.getName();
+
+  /** What to do when a token is to be revoked while the queue is full. */
+  public enum OverflowPolicy {
+    /** Drops the token to be revoked. */
+    DROP_NEWEST,
+    /** Drops the oldest token in the queue, to make room for the token to be revoked. */
+    DROP_OLDEST,
+    /**
+     * Revokes the token synchronously in the calling thread, without retrying, slowing down the
+     * callers until the queue has room again.
+     */
+    CALLER_RUNS,
+  }
+
+  private static final System.Logger logger =
+      System.getLogger(TokenRevocationQueue.class.getName());
+
+  private static final int DEFAULT_CAPACITY = 10_000;
+  private static final int DEFAULT_CONCURRENCY = 4;
+  private static final int MAX_ATTEMPTS = 3;
+  private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+  private static final long MAX_BACKOFF_MILLIS = Duration.ofSeconds(30).toMillis();
+  private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+  private static final int TIMEOUT_MILLIS = 5_000;
+
+  private final Configuration configuration;
+  private final @Nullable HTTPRequestSender httpRequestSender;
+  private final OverflowPolicy overflowPolicy;
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private final long closeTimeoutNanos;
+  private final BlockingQueue<Token> queue;
+  private final List<Thread> workers;
+  private volatile boolean closed;
+  private volatile long closeDeadline;
+  private final LongAdder revokedCount = new LongAdder();
+  private final LongAdder retryCount = new LongAdder();
+  private final LongAdder failedCount = new LongAdder();
+  private final LongAdder droppedCount = new LongAdder();
+
+  /**
+   * Constructs a queue revoking tokens with the given configuration and HTTP request sender, with
+   * room for 10000 tokens, 4 concurrent revocation requests, and dropping the oldest tokens when
+   * full.
+   */
+  public TokenRevocationQueue(
+      Configuration configuration, @Nullable HTTPRequestSender httpRequestSender) {
+    this(
+        configuration,
+        httpRequestSender,
+        DEFAULT_CAPACITY,
+        DEFAULT_CONCURRENCY,
+        OverflowPolicy.DROP_OLDEST);
+  }
+
+  /**
+   * Constructs a queue revoking tokens with the given configuration and HTTP request sender, with
+   * room for {@code capacity} tokens, {@code concurrency} concurrent revocation requests, and the
+   * given overflow policy.
+   */
+  public TokenRevocationQueue(
+      Configuration configuration,
+      @Nullable HTTPRequestSender httpRequestSender,
+      int capacity,
+      int concurrency,
+      OverflowPolicy overflowPolicy) {
+    this(
+        configuration,
+        httpRequestSender,
+        capacity,
+        concurrency,
+        overflowPolicy,
+        MAX_ATTEMPTS,
+        INITIAL_BACKOFF,
+        CLOSE_TIMEOUT);
+  }
+
+  TokenRevocationQueue(
+      Configuration configuration,
+      @Nullable HTTPRequestSender httpRequestSender,
+      int capacity,
+      int concurrency,
+      OverflowPolicy overflowPolicy,
+      int maxAttempts,
+      Duration initialBackoff,
+      Duration closeTimeout) {
+    this.configuration = requireNonNull(configuration);
+    this.httpRequestSender = httpRequestSender;
+    this.overflowPolicy = requireNonNull(overflowPolicy);
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    if (concurrency <= 0) {
+      throw new IllegalArgumentException("concurrency must be positive");
+    }
+    if (maxAttempts <= 0) {
+      throw new IllegalArgumentException("maxAttempts must be positive");
+    }
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffMillis = initialBackoff.toMillis();
+    this.closeTimeoutNanos = closeTimeout.toNanos();
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    var workers = new ArrayList<Thread>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      workers.add(
+          Thread.ofPlatform()
+              .daemon()
+              .name("oidc-servlets-token-revocation-" + i)
+              .start(this::work));
+    }
+    this.workers = List.copyOf(workers);
+  }
+
+  Configuration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Queues the given token for revocation.
+   *
+   * <p>If the queue is full, the token is dropped, another token is dropped, or the token is
+   * revoked synchronously, depending on the {@link OverflowPolicy}.
+   */
+  public void revoke(Token token) {
+    requireNonNull(token);
+    if (closed) {
+      droppedCount.increment();
+      return;
+    }
+    if (!queue.offer(token)) {
+      switch (overflowPolicy) {
+        case DROP_NEWEST -> {
+          droppedCount.increment();
+          return;
+        }
+        case DROP_OLDEST -> {
+          while (!queue.offer(token)) {
+            if (queue.poll() != null) {
+              droppedCount.increment();
+            }
+          }
+        }
+        case CALLER_RUNS -> {
+          revoke(token, 1);
+          return;
+        }
+      }
+    }
+    // If closed concurrently, the workers and close() might have stopped polling the queue before
+    // the token was added; otherwise they'll see it.
+    if (closed && queue.remove(token)) {
+      droppedCount.increment();
+    }
+  }
+
+  /** Returns the number of tokens waiting to be revoked. */
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  /** Returns the number of tokens that have been successfully revoked. */
+  public long getRevokedCount() {
+    return revokedCount.sum();
+  }
+
+  /** Returns the number of revocation requests that have been retried. */
+  public long getRetryCount() {
+    return retryCount.sum();
+  }
+
+  /** Returns the number of tokens that couldn't be revoked, even after retrying. */
+  public long getFailedCount() {
+    return failedCount.sum();
+  }
+
+  /** Returns the number of tokens that have been dropped without being revoked. */
+  public long getDroppedCount() {
+    return droppedCount.sum();
+  }
+
+  /**
+   * Stops accepting tokens, and waits at most 30 seconds for the queued tokens to be revoked
+   * (without retrying them). Tokens still queued after that delay are dropped.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closeDeadline = System.nanoTime() + closeTimeoutNanos;
+    closed = true;
+    for (var worker : workers) {
+      worker.interrupt();
+    }
+    try {
+      for (var worker : workers) {
+        var remaining = closeDeadline - System.nanoTime();
+        if (remaining <= 0 || !worker.join(Duration.ofNanos(remaining))) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Workers stop taking tokens past the deadline
+    int dropped = 0;
+    while (queue.poll() != null) {
+      dropped++;
+    }
+    if (dropped > 0) {
+      droppedCount.add(dropped);
+      logger.log(
+          System.Logger.Level.WARNING,
+          "Dropped {0} tokens still queued for revocation when closing",
+          dropped);
+    }
+  }
+
+  private void work() {
+    while (!closed) {
+      Token token;
+      try {
+        token = queue.take();
+      } catch (InterruptedException e) {
+        // The queue is being closed
+        break;
+      }
+      revokeSafely(token, maxAttempts);
+    }
+    // Clear the interrupt status, possibly restored by the HTTP request sender or the backoff, so
+    // that the remaining tokens can still be revoked
+    Thread.interrupted();
+    Token token;
+    while (System.nanoTime() - closeDeadline < 0 && (token = queue.poll()) != null) {
+      revokeSafely(token, 1);
+    }
+  }
+
+  /** Revokes the token, never throwing so that the worker keeps processing the queue. */
+  private void revokeSafely(Token token, int maxAttempts) {
+    try {
+      revoke(token, maxAttempts);
+    } catch (Throwable t) {
+      failedCount.increment();
+      logger.log(System.Logger.Level.ERROR, "Unexpected error revoking token", t);
+    }
+  }
+
+  private void revoke(Token token, int maxAttempts) {
+    for (int attempt = 1; ; attempt++) {
+      HTTPResponse response = null;
+      IOException error = null;
+      try {
+        response = send(token);
+        if (response.indicatesSuccess()) {
+          revokedCount.increment();
+          return;
+        }
+        if (!isRetryable(response)) {
+          fail(response, null);
+          return;
+        }
+      } catch (IOException e) {
+        error = e;
+      } catch (RuntimeException e) {
+        fail(null, e);
+        return;
+      }
+      if (attempt >= maxAttempts || closed) {
+        fail(response, error);
+        return;
+      }
+      retryCount.increment();
+      try {
+        Thread.sleep(backoffMillis(attempt, response));
+      } catch (InterruptedException e) {
+        // The queue is being closed
+        Thread.currentThread().interrupt();
+        fail(response, error);
+        return;
+      }
+    }
+  }
+
+  private HTTPResponse send(Token token) throws IOException {
+    var request =
+        new TokenRevocationRequest(
+            configuration.getProviderMetadata().getRevocationEndpointURI(),
+            configuration.getClientAuthenticationSupplier().getClientAuthentication(),
+            token);
+    var httpRequest = request.toHTTPRequest();
+    httpRequest.setConnectTimeout(TIMEOUT_MILLIS);
+    httpRequest.setReadTimeout(TIMEOUT_MILLIS);
+    if (httpRequestSender != null) {
+      return httpRequest.send(httpRequestSender);
+    } else {
+      return httpRequest.send();
+    }
+  }
+
+  private static boolean isRetryable(HTTPResponse response) {
+    return response.getStatusCode() == 429 || response.getStatusCode() >= 500;
+  }
+
+  private long backoffMillis(int attempt, @Nullable HTTPResponse response) {
+    // Exponential backoff with "full jitter"
+    var cap = Math.min(MAX_BACKOFF_MILLIS, initialBackoffMillis << Math.min(attempt - 1, 20));
+    var backoff = ThreadLocalRandom.current().nextLong(cap + 1);
+    var retryAfter = response == null ? null : response.getHeaderValue("Retry-After");
+    if (retryAfter != null) {
+      try {
+        var retryAfterMillis = Duration.ofSeconds(Long.parseLong(retryAfter.trim())).toMillis();
+        backoff = Math.max(backoff, Math.min(retryAfterMillis, MAX_BACKOFF_MILLIS));
+      } catch (NumberFormatException | ArithmeticException e) {
+        // Ignore HTTP-dates, and invalid values
+      }
+    }
+    return backoff;
+  }
+
+  private void fail(@Nullable HTTPResponse response, @Nullable Exception error) {
+    failedCount.increment();
+    if (error != null) {
+      logger.log(System.Logger.Level.WARNING, "Error revoking token", error);
+    } else if (response != null) {
+      logger.log(
+          System.Logger.Level.WARNING,
+          "Error revoking token: HTTP status {0}",
+          response.getStatusCode());
+    }
+  }
+}
@@ -103,8 +103,11 @@ public class UserFilter extends HttpFilter {
     if (req.getUserPrincipal() == null && session != null) {
       var sessionInfo = (SessionInfo) session.getAttribute(SessionInfo.SESSION_ATTRIBUTE_NAME);
       if (sessionInfo != null) {
-        if (sessionInfo.getIDTokenClaims().getSessionID() != null
-            && loggedOutSessionStore.isLoggedOut(sessionInfo.getIDTokenClaims().getSessionID())) {
+        var loggedOutSessionStore = this.loggedOutSessionStore.forIssuer(sessionInfo.getIssuer());
+        var sid = sessionInfo.getSessionID();
+        if ((sid != null && loggedOutSessionStore.isLoggedOut(sid))
+            || loggedOutSessionStore.isLoggedOut(
+                sessionInfo.getIssuer(), sessionInfo.getSubject(), session.getId())) {
           session.invalidate();
         } else {
           var userPrincipal = userPrincipalFactory.createUserPrincipal(sessionInfo, session);
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import java.util.Set;
+
+/**
+ * Determines whether the user information can be read from the ID Token claims, skipping the User
+ * Info request.
+ *
+ * <p>This is useful when the OpenID Provider is configured to put all the needed claims into the
+ * ID Token, saving a network round-trip on each authentication. The User Info will then contain
+ * all the ID Token claims except the ones specific to the ID Token (issuer, audience, expiration
+ * time, nonce, etc.)
+ *
+ * <p>An instance of this interface can be added as a {@link jakarta.servlet.ServletContext
+ * ServletContext} attribute under the name {@link #CONTEXT_ATTRIBUTE_NAME} for the {@link
+ * CallbackServlet} to use it.
+ */
+@FunctionalInterface
+public interface UserInfoFromIDTokenPolicy {
+  String CONTEXT_ATTRIBUTE_NAME = UserInfoFromIDTokenPolicy.class.getName();
+
+  /** A policy that always reads the user information from the ID Token claims. */
+  UserInfoFromIDTokenPolicy ALWAYS = idTokenClaims -> true;
+
+  /**
+   * Returns a policy that reads the user information from the ID Token claims whenever they
+   * contain all the given claims.
+   */
+  static UserInfoFromIDTokenPolicy requiringClaims(String... claimNames) {
+    var requiredClaimNames = Set.of(claimNames);
+    return idTokenClaims ->
+        requiredClaimNames.stream().allMatch(name -> idTokenClaims.getClaim(name) != null);
+  }
+
+  /**
+   * Called by the {@link CallbackServlet} once the ID Token has been validated, to determine
+   * whether the user information can be read from its claims rather than sending a User Info
+   * request.
+   */
+  boolean canUseIDTokenClaims(IDTokenClaimsSet idTokenClaims);
+}
@@ -27,7 +27,7 @@ public interface UserPrincipal extends Principal {
    */
   @Override
   default String getName() {
-    return getSessionInfo().getUserInfo().getSubject().getValue();
+    return getSessionInfo().getSubject().getValue();
   }
 
   /**
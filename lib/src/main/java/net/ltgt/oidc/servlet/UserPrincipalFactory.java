@@ -33,6 +33,9 @@ public interface UserPrincipalFactory {
    *
    * <p>This method can use data put in the session by {@link #userAuthenticated} to expose in a
    * custom {@link UserPrincipal} implementation.
+   *
+   * <p>Wrap the factory in a {@link CachingUserPrincipalFactory} to only create the principal once
+   * per session.
    */
   UserPrincipal createUserPrincipal(SessionInfo sessionInfo, HttpSession session);
 
@@ -30,7 +30,12 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /** Utility constants and methods. */
 public class Utils {
@@ -43,6 +48,21 @@ public class Utils {
   public static final String HTTP_REQUEST_SENDER_CONTEXT_ATTRIBUTE_NAME =
       Utils.class.getName() + "#" + HTTPRequestSender.class.getName();
 
+  /**
+   * The name of the {@linkplain jakarta.servlet.ServletContext#setAttribute servlet context
+   * attribute} to register an {@link Executor} to be used to send requests to the OpenID Provider
+   * asynchronously, releasing the servlet container thread.
+   *
+   * <p>This executor is also used by the {@link CallbackServlet} to revoke tokens (with the default
+   * {@link RevokingOAuthTokensHandler}, or after an error), rather than the {@link
+   * java.util.concurrent.ForkJoinPool#commonPool() common pool}. Using the {@linkplain
+   * #virtualThreadExecutor() virtual thread executor} is recommended.
+   *
+   * @see CallbackServlet
+   */
+  public static final String EXECUTOR_CONTEXT_ATTRIBUTE_NAME =
+      Utils.class.getName() + "#" + Executor.class.getName();
+
   /**
    * The name of the {@linkplain jakarta.servlet.ServletContext#setAttribute servlet context
    * attribute} to register a {@link JWKSource} to be used to validate JWT signatures.
@@ -62,10 +82,33 @@ public class Utils {
    */
   public static final String RETURN_TO_PARAMETER_NAME = "return-to";
 
+  private static final String JWK_SOURCE_REGISTRY_CONTEXT_ATTRIBUTE_NAME =
+      Utils.class.getName() + "#jwkSourceRegistry";
+  private static final Object JWK_SOURCE_REGISTRY_LOCK = new Object();
+
   private Utils() {
     // non-instantiable
   }
 
+  /**
+   * Returns an {@link Executor} that runs each task in a new virtual thread.
+   *
+   * <p>This is well suited to the blocking I/O of requests to the OpenID Provider, without starving
+   * the {@link java.util.concurrent.ForkJoinPool#commonPool() common pool} (used by parallel
+   * streams and {@link java.util.concurrent.CompletableFuture}) or a platform thread pool. It can
+   * be registered as a servlet context attribute under the name {@link
+   * #EXECUTOR_CONTEXT_ATTRIBUTE_NAME}, or passed to a {@link RevokingOAuthTokensHandler}.
+   */
+  public static Executor virtualThreadExecutor() {
+    return VirtualThreadExecutorHolder.INSTANCE;
+  }
+
+  private static final class VirtualThreadExecutorHolder {
+    static final Executor INSTANCE =
+        Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("oidc-servlets-virtual-", 0).factory());
+  }
+
   /**
    * Similar to {@link HttpServletResponse#sendRedirect(String)} but uses {@link
    * HttpServletResponse#SC_SEE_OTHER} rather than {@link HttpServletResponse#SC_FOUND}.
@@ -152,24 +195,51 @@ public class Utils {
 
   /**
    * Returns the {@link #JWK_SOURCE_CONTEXT_ATTRIBUTE_NAME} servlet context attribute if it exists,
-   * and otherwise create a {@link JWKSource} from the JWKSet URI and stores it in the servlet
-   * context (so it can be shared between servlets).
+   * and otherwise the {@link JWKSource} for the JWKSet URI, creating it if needed, from a registry
+   * stored in the servlet context (so it can be shared between servlets).
+   *
+   * <p>The registry is keyed by the JWKSet URI, so servlets configured for different OpenID
+   * Providers each get their own {@code JWKSource}. Lookups don't lock, and creations only lock
+   * the registry's entry for the JWKSet URI, so servlet contexts, and servlets for different
+   * OpenID Providers, can be initialized concurrently.
    */
-  static synchronized JWKSource<?> getJWKSource(ServletContext servletContext, URI jwkSetUri)
+  static JWKSource<?> getJWKSource(ServletContext servletContext, URI jwkSetUri)
       throws ServletException {
-    // XXX: don't synchronize on read and instead use double-checked locking?
-    // There shouldn't be much contention so this is probably not worth it.
     JWKSource<?> jwkSource =
         (JWKSource<?>) servletContext.getAttribute(Utils.JWK_SOURCE_CONTEXT_ATTRIBUTE_NAME);
-    if (jwkSource == null) {
-      try {
-        jwkSource = JWKSourceBuilder.create(jwkSetUri.toURL()).build();
-        servletContext.setAttribute(Utils.JWK_SOURCE_CONTEXT_ATTRIBUTE_NAME, jwkSource);
-      } catch (MalformedURLException e) {
-        throw new ServletException(e);
+    if (jwkSource != null) {
+      return jwkSource;
+    }
+    URL jwkSetUrl;
+    try {
+      jwkSetUrl = jwkSetUri.toURL();
+    } catch (MalformedURLException | IllegalArgumentException e) {
+      throw new ServletException(e);
+    }
+    return getJWKSourceRegistry(servletContext)
+        .computeIfAbsent(jwkSetUri, ignored -> JWKSourceBuilder.create(jwkSetUrl).build());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ConcurrentMap<URI, JWKSource<?>> getJWKSourceRegistry(
+      ServletContext servletContext) {
+    var registry =
+        (ConcurrentMap<URI, JWKSource<?>>)
+            servletContext.getAttribute(JWK_SOURCE_REGISTRY_CONTEXT_ATTRIBUTE_NAME);
+    if (registry == null) {
+      // Only taken until the servlet context's registry has been created; not locking on the
+      // servlet context itself, that containers or applications could also lock on.
+      synchronized (JWK_SOURCE_REGISTRY_LOCK) {
+        registry =
+            (ConcurrentMap<URI, JWKSource<?>>)
+                servletContext.getAttribute(JWK_SOURCE_REGISTRY_CONTEXT_ATTRIBUTE_NAME);
+        if (registry == null) {
+          registry = new ConcurrentHashMap<>();
+          servletContext.setAttribute(JWK_SOURCE_REGISTRY_CONTEXT_ATTRIBUTE_NAME, registry);
+        }
       }
     }
-    return jwkSource;
+    return registry;
   }
 
   /**
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.claims.LogoutTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import jakarta.servlet.http.HttpServletResponse;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BackchannelLogoutServletTest {
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+  private static final ClientID CLIENT_ID = new ClientID("app");
+
+  private final ECKey key;
+  private final FakeServletContext servletContext = new FakeServletContext();
+  private final RecordingLoggedOutSessionStore loggedOutSessionStore =
+      new RecordingLoggedOutSessionStore();
+  private final AtomicInteger validations = new AtomicInteger();
+  private final BackchannelLogoutServlet sut;
+
+  BackchannelLogoutServletTest() throws JOSEException {
+    key = new ECKeyGenerator(Curve.P_256).keyID("key").generate();
+    var providerMetadata =
+        new OIDCProviderMetadata(
+            ISSUER, List.of(SubjectType.PUBLIC), URI.create("https://op.example.com/jwks"));
+    providerMetadata.setIDTokenJWSAlgs(List.of(JWSAlgorithm.ES256));
+    sut =
+        new BackchannelLogoutServlet(
+            new Configuration(providerMetadata, new ClientSecretBasic(CLIENT_ID, new Secret())),
+            loggedOutSessionStore,
+            new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK()))) {
+          @Override
+          LogoutTokenClaimsSet validate(JWT logoutToken) throws BadJOSEException, JOSEException {
+            validations.incrementAndGet();
+            return super.validate(logoutToken);
+          }
+        };
+  }
+
+  @BeforeEach
+  void setUp() throws Exception {
+    sut.init(servletContext.servletConfig());
+  }
+
+  @Test
+  void logout() throws Exception {
+    var resp = post(logoutToken(key, "jti", "sid"));
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(resp.headers).containsEntry("Cache-Control", "no-store");
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs).containsExactly(new SessionID("sid"));
+  }
+
+  @Test
+  void replayedLogoutToken() throws Exception {
+    var logoutToken = logoutToken(key, "jti", "sid");
+
+    var resp = post(logoutToken);
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(validations.get()).isEqualTo(1);
+
+    // The replay cache acknowledges it again, without validating nor applying it
+    resp = post(logoutToken);
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(resp.headers).containsEntry("Cache-Control", "no-store");
+    assertThat(validations.get()).isEqualTo(1);
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs).containsExactly(new SessionID("sid"));
+  }
+
+  @Test
+  void sameJwtIdDifferentToken() throws Exception {
+    var otherKey = new ECKeyGenerator(Curve.P_256).keyID("key").generate();
+
+    var resp = post(logoutToken(key, "jti", "sid"));
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_OK);
+
+    // Not a duplicate, so it's validated (and rejected) rather than acknowledged
+    resp = post(logoutToken(otherKey, "jti", "other-sid"));
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+    assertThat(validations.get()).isEqualTo(2);
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs).containsExactly(new SessionID("sid"));
+  }
+
+  @Test
+  void invalidLogoutTokenIsNotRecorded() throws Exception {
+    var otherKey = new ECKeyGenerator(Curve.P_256).keyID("key").generate();
+    var invalidLogoutToken = logoutToken(otherKey, "jti", "sid");
+
+    var resp = post(invalidLogoutToken);
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+
+    resp = post(invalidLogoutToken);
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+    assertThat(validations.get()).isEqualTo(2);
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs).isEmpty();
+  }
+
+  private FakeHttpServletResponse post(String logoutToken) throws Exception {
+    var req =
+        new FakeHttpServletRequest(servletContext, "POST", "https://rp.example.com/logout")
+            .withParameter("logout_token", logoutToken);
+    var resp = new FakeHttpServletResponse();
+    sut.doPost(req.get(), resp.get());
+    return resp;
+  }
+
+  private static String logoutToken(ECKey key, String jti, String sid) throws JOSEException {
+    var now = Instant.now();
+    var claims =
+        new JWTClaimsSet.Builder()
+            .issuer(ISSUER.getValue())
+            .audience(CLIENT_ID.getValue())
+            .issueTime(Date.from(now))
+            .expirationTime(Date.from(now.plusSeconds(60)))
+            .jwtID(jti)
+            .claim("events", Map.of("http://schemas.openid.net/event/backchannel-logout", Map.of()))
+            .claim("sid", sid)
+            .build();
+    var jwt =
+        new SignedJWT(
+            new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(key.getKeyID()).build(), claims);
+    jwt.sign(new ECDSASigner(key));
+    return jwt.serialize();
+  }
+
+  private static class RecordingLoggedOutSessionStore implements LoggedOutSessionStore {
+    final List<SessionID> loggedOutSessionIDs = new ArrayList<>();
+
+    @Override
+    public void logout(SessionID sessionID) {
+      loggedOutSessionIDs.add(sessionID);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.id.Audience;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import com.nimbusds.openid.connect.sdk.claims.UserInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Date;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BinarySessionInfoCodecTest {
+  private final SessionInfo sessionInfo = createSessionInfo();
+
+  private static SessionInfo createSessionInfo() {
+    var idTokenClaims =
+        new IDTokenClaimsSet(
+            new Issuer("issuer"),
+            new Subject("sub"),
+            List.of(new Audience("audience")),
+            Date.from(Instant.now().plus(10, ChronoUnit.MINUTES)),
+            Date.from(Instant.now().minus(5, ChronoUnit.MINUTES)));
+    idTokenClaims.setSessionID(new SessionID("sid"));
+    PlainJWT idToken;
+    try {
+      idToken = new PlainJWT(idTokenClaims.toJWTClaimsSet());
+    } catch (ParseException e) {
+      throw new AssertionError(e);
+    }
+    var userInfo = new UserInfo(new Subject("sub"));
+    userInfo.setName("Some User");
+    return new SessionInfo(idToken, idTokenClaims, userInfo);
+  }
+
+  @Test
+  void roundTrip() throws Exception {
+    var sut = new BinarySessionInfoCodec();
+
+    var copy = sut.decode(sut.encode(sessionInfo));
+
+    assertThat(copy.getIssuer()).isEqualTo(sessionInfo.getIssuer());
+    assertThat(copy.getSessionID()).isEqualTo(sessionInfo.getSessionID());
+    assertThat(copy.getSubject()).isEqualTo(sessionInfo.getSubject());
+    assertThat(copy.getIDToken().serialize()).isEqualTo(sessionInfo.getIDToken().serialize());
+    assertThat(copy.getIDTokenClaims().toJSONObject())
+        .isEqualTo(sessionInfo.getIDTokenClaims().toJSONObject());
+    assertThat(copy.getUserInfo()).isEqualTo(sessionInfo.getUserInfo());
+  }
+
+  @Test
+  void roundTrip_deflate() throws Exception {
+    var sut = new BinarySessionInfoCodec(true);
+
+    var copy = sut.decode(sut.encode(sessionInfo));
+
+    assertThat(copy.getIDToken().serialize()).isEqualTo(sessionInfo.getIDToken().serialize());
+    assertThat(copy.getIDTokenClaims().toJSONObject())
+        .isEqualTo(sessionInfo.getIDTokenClaims().toJSONObject());
+    assertThat(copy.getUserInfo()).isEqualTo(sessionInfo.getUserInfo());
+  }
+
+  @Test
+  void decodesRegardlessOfConfiguration() throws Exception {
+    var deflated = new BinarySessionInfoCodec(true).encode(sessionInfo);
+
+    var copy = new BinarySessionInfoCodec(false).decode(deflated);
+
+    assertThat(copy.getUserInfo()).isEqualTo(sessionInfo.getUserInfo());
+  }
+
+  @Test
+  void parsesLazily() throws Exception {
+    var sut = new BinarySessionInfoCodec();
+    var bytes = new ByteArrayOutputStream();
+    try (var data = new DataOutputStream(bytes)) {
+      data.writeByte(1); // version
+      data.writeByte(0); // flags
+      writeString(data, "https://issuer.example.com");
+      writeString(data, "sub");
+      writeString(data, "sid");
+      writeString(data, "invalid ID Token");
+      writeString(data, "invalid User Info");
+    }
+
+    var copy = sut.decode(bytes.toByteArray());
+
+    assertThat(copy.getIssuer()).isEqualTo(new Issuer("https://issuer.example.com"));
+    assertThat(copy.getSessionID()).isEqualTo(new SessionID("sid"));
+    assertThat(copy.getSubject()).isEqualTo(new Subject("sub"));
+    assertThrows(RuntimeException.class, copy::getIDToken);
+    assertThrows(RuntimeException.class, copy::getUserInfo);
+  }
+
+  private static void writeString(DataOutputStream data, String value) throws IOException {
+    var bytes = value.getBytes(UTF_8);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+  }
+
+  @Test
+  void unsupportedVersion() {
+    var sut = new BinarySessionInfoCodec();
+    var bytes = sut.encode(sessionInfo);
+    bytes[0] = 42;
+
+    assertThrows(IOException.class, () -> sut.decode(bytes));
+  }
+
+  @Test
+  void truncated() {
+    var sut = new BinarySessionInfoCodec();
+    var bytes = sut.encode(sessionInfo);
+
+    assertThrows(IOException.class, () -> sut.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+    assertThrows(IOException.class, () -> sut.decode(new byte[0]));
+  }
+}
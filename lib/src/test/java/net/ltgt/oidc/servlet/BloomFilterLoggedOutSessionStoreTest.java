@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BloomFilterLoggedOutSessionStoreTest {
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+
+  private final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+  private final RecordingLoggedOutSessionStore delegate = new RecordingLoggedOutSessionStore();
+  private final BloomFilterLoggedOutSessionStore sut =
+      new BloomFilterLoggedOutSessionStore(delegate, 1000, 0.001, Duration.ofMinutes(30), now::get);
+
+  @BeforeEach
+  void warmUp() {
+    now.set(now.get().plus(Duration.ofMinutes(30)));
+  }
+
+  @Test
+  void notLoggedOut_doesNotCallDelegate() {
+    for (int i = 0; i < 100; i++) {
+      assertThat(sut.isLoggedOut(new SessionID("sid-" + i))).isFalse();
+    }
+    assertThat(delegate.isLoggedOutCalls).isEmpty();
+  }
+
+  @Test
+  void loggedOut() {
+    sut.logout(new SessionID("sid"));
+
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(delegate.isLoggedOutCalls).containsExactly(new SessionID("sid"));
+  }
+
+  @Test
+  void subjectLoggedOut() {
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "1")).isFalse();
+    // A session ID with the same value is not mistaken for the subject
+    sut.logout(new SessionID("sub"));
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "1")).isFalse();
+    assertThat(delegate.calls).isEmpty();
+
+    sut.logout(ISSUER, new Subject("sub"));
+
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "1")).isTrue();
+    assertThat(delegate.calls).containsExactly("isLoggedOut https://op.example.com sub 1");
+  }
+
+  @Test
+  void subjectLoggedOut_otherIssuer() {
+    sut.logout(ISSUER, new Subject("sub"));
+
+    assertThat(sut.isLoggedOut(new Issuer("https://other-op.example.com"), new Subject("sub"), "1"))
+        .isFalse();
+    assertThat(delegate.calls).isEmpty();
+  }
+
+  @Test
+  void loggedOut_keptForRetentionPeriod() {
+    sut.logout(new SessionID("sid"));
+
+    now.set(now.get().plus(Duration.ofMinutes(45)));
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+
+    now.set(now.get().plus(Duration.ofMinutes(30)));
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+  }
+
+  @Test
+  void loggedOutBeforeCreation_callsDelegateDuringWarmUp() {
+    // e.g. a persistent store, after a restart
+    delegate.logout(new SessionID("sid"));
+    delegate.logout(ISSUER, new Subject("sub"));
+    var sut =
+        new BloomFilterLoggedOutSessionStore(
+            delegate, 1000, 0.001, Duration.ofMinutes(30), now::get);
+
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(sut.isLoggedOut(new SessionID("other"))).isFalse();
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "1")).isTrue();
+    assertThat(delegate.isLoggedOutCalls)
+        .containsExactly(new SessionID("sid"), new SessionID("other"))
+        .inOrder();
+    assertThat(delegate.calls).containsExactly("isLoggedOut https://op.example.com sub 1");
+
+    now.set(now.get().plus(Duration.ofMinutes(30)));
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "1")).isFalse();
+    assertThat(delegate.isLoggedOutCalls).hasSize(2);
+  }
+
+  @Test
+  void notPartitioned() {
+    assertThat(sut.forIssuer(ISSUER)).isSameInstanceAs(sut);
+  }
+
+  @Test
+  void partitionedByIssuer() {
+    var otherIssuer = new Issuer("https://other-op.example.com");
+    var delegate =
+        new PerIssuerLoggedOutSessionStore(
+            issuer -> new ExpiringLoggedOutSessionStore(Duration.ofMinutes(30), 100));
+    var sut =
+        new BloomFilterLoggedOutSessionStore(
+            delegate, 1000, 0.001, Duration.ofMinutes(30), now::get);
+    var store = sut.forIssuer(ISSUER);
+    assertThat(sut.forIssuer(new Issuer(ISSUER.getValue()))).isSameInstanceAs(store);
+
+    store.logout(new SessionID("sid"));
+    now.set(now.get().plus(Duration.ofMinutes(30)));
+
+    assertThat(delegate.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(store.isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(sut.forIssuer(otherIssuer).isLoggedOut(new SessionID("sid"))).isFalse();
+    // Recorded in the filter along with its issuer
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+  }
+
+  @Test
+  void delegatesSessionTracking() {
+    sut.acquire(new SessionID("sid"), "1");
+    sut.renew(new SessionID("sid"), "1", "2");
+    sut.release(new SessionID("sid"), "2");
+
+    assertThat(delegate.calls).containsExactly("acquire sid 1", "renew sid 1 2", "release sid 2");
+  }
+
+  private static class RecordingLoggedOutSessionStore implements LoggedOutSessionStore {
+    final Set<SessionID> loggedOut = new HashSet<>();
+    final Set<String> loggedOutSubjects = new HashSet<>();
+    final List<SessionID> isLoggedOutCalls = new ArrayList<>();
+    final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void logout(SessionID sessionID) {
+      loggedOut.add(sessionID);
+    }
+
+    @Override
+    public boolean isLoggedOut(SessionID sessionID) {
+      isLoggedOutCalls.add(sessionID);
+      return loggedOut.contains(sessionID);
+    }
+
+    @Override
+    public void acquire(SessionID sessionID, String sessionId) {
+      calls.add("acquire " + sessionID + " " + sessionId);
+    }
+
+    @Override
+    public void release(SessionID sessionID, String sessionId) {
+      calls.add("release " + sessionID + " " + sessionId);
+    }
+
+    @Override
+    public void renew(SessionID sessionID, String oldSessionId, String newSessionId) {
+      calls.add("renew " + sessionID + " " + oldSessionId + " " + newSessionId);
+    }
+
+    @Override
+    public void logout(Issuer issuer, Subject subject) {
+      loggedOutSubjects.add(issuer + " " + subject);
+    }
+
+    @Override
+    public boolean isLoggedOut(Issuer issuer, Subject subject, String sessionId) {
+      calls.add("isLoggedOut " + issuer + " " + subject + " " + sessionId);
+      return loggedOutSubjects.contains(issuer + " " + subject);
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.util.JSONArrayUtils;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import jakarta.servlet.http.HttpServletResponse;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkBackchannelLogoutServletTest {
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+  private static final ClientID CLIENT_ID = new ClientID("app");
+
+  private final ECKey key;
+  private final FakeServletContext servletContext = new FakeServletContext();
+  private final RecordingLoggedOutSessionStore loggedOutSessionStore =
+      new RecordingLoggedOutSessionStore();
+  private final BulkBackchannelLogoutServlet sut;
+
+  BulkBackchannelLogoutServletTest() throws JOSEException {
+    key = new ECKeyGenerator(Curve.P_256).keyID("key").generate();
+    var providerMetadata =
+        new OIDCProviderMetadata(
+            ISSUER, List.of(SubjectType.PUBLIC), URI.create("https://op.example.com/jwks"));
+    providerMetadata.setIDTokenJWSAlgs(List.of(JWSAlgorithm.ES256));
+    sut =
+        new BulkBackchannelLogoutServlet(
+            new Configuration(providerMetadata, new ClientSecretBasic(CLIENT_ID, new Secret())),
+            loggedOutSessionStore,
+            new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK())));
+  }
+
+  @BeforeEach
+  void setUp() throws Exception {
+    sut.init(servletContext.servletConfig());
+  }
+
+  @Test
+  void mixedSidAndSub() throws Exception {
+    var resp =
+        post(
+            logoutToken(key, "sid-1", null),
+            logoutToken(key, null, "user"),
+            logoutToken(key, "sid-2", "other"));
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(statuses(resp)).containsExactly("ok", "ok", "ok").inOrder();
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs)
+        .containsExactly(List.of(new SessionID("sid-1"), new SessionID("sid-2")));
+    assertThat(loggedOutSessionStore.loggedOutSubjects).containsExactly(ISSUER + " user");
+  }
+
+  @Test
+  void duplicates() throws Exception {
+    var logoutToken = logoutToken(key, "sid", null);
+
+    var resp = post(logoutToken, logoutToken);
+
+    assertThat(statuses(resp)).containsExactly("ok", "duplicate").inOrder();
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs)
+        .containsExactly(List.of(new SessionID("sid")));
+
+    // Already processed
+    resp = post(logoutToken, logoutToken(key, "other-sid", null));
+
+    assertThat(statuses(resp)).containsExactly("duplicate", "ok").inOrder();
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs)
+        .containsExactly(List.of(new SessionID("sid")), List.of(new SessionID("other-sid")))
+        .inOrder();
+  }
+
+  @Test
+  void errors() throws Exception {
+    var otherKey = new ECKeyGenerator(Curve.P_256).keyID("other").generate();
+    var invalidLogoutToken = logoutToken(otherKey, "other-sid", null);
+
+    var resp =
+        post("garbage", logoutToken(key, "sid", null), invalidLogoutToken, invalidLogoutToken);
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(statuses(resp)).containsExactly("error", "ok", "error", "error").inOrder();
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs)
+        .containsExactly(List.of(new SessionID("sid")));
+    // A single summary is logged
+    assertThat(servletContext.logs).hasSize(1);
+    assertThat(servletContext.logs.peek()).contains("Rejected 2 of 4 logout tokens");
+  }
+
+  @Test
+  void parsesMediaType() throws Exception {
+    var req =
+        new FakeHttpServletRequest(servletContext, "POST", "https://rp.example.com/logout")
+            .withBody(
+                "Application/JSON; charset=UTF-8",
+                JSONArrayUtils.toJSONString(List.of(logoutToken(key, "sid", null)))
+                    .getBytes(UTF_8));
+    var resp = new FakeHttpServletResponse();
+
+    sut.doPost(req.get(), resp.get());
+
+    assertThat(statuses(resp)).containsExactly("ok");
+  }
+
+  @Test
+  void formParameters() throws Exception {
+    var req =
+        new FakeHttpServletRequest(servletContext, "POST", "https://rp.example.com/logout")
+            .withParameter(
+                "logout_token", logoutToken(key, "sid-1", null), logoutToken(key, "sid-2", null));
+    var resp = new FakeHttpServletResponse();
+
+    sut.doPost(req.get(), resp.get());
+
+    assertThat(statuses(resp)).containsExactly("ok", "ok");
+  }
+
+  @Test
+  void tooManyLogoutTokens() throws Exception {
+    var resp =
+        post(
+            Collections.nCopies(BulkBackchannelLogoutServlet.MAX_LOGOUT_TOKENS + 1, "garbage")
+                .toArray(String[]::new));
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs).isEmpty();
+  }
+
+  @Test
+  void contentLengthTooLarge() throws Exception {
+    var req = jsonRequest(logoutToken(key, "sid", null));
+    req.contentLength = BulkBackchannelLogoutServlet.MAX_REQUEST_SIZE + 1L;
+    var resp = new FakeHttpServletResponse();
+
+    sut.doPost(req.get(), resp.get());
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+    assertThat(loggedOutSessionStore.loggedOutSessionIDs).isEmpty();
+  }
+
+  @Test
+  void bodyTooLarge() throws Exception {
+    var req = jsonRequest();
+    // e.g. chunked encoding, without a Content-Length
+    req.body = new byte[BulkBackchannelLogoutServlet.MAX_REQUEST_SIZE + 1];
+    req.contentLength = null;
+    var resp = new FakeHttpServletResponse();
+
+    sut.doPost(req.get(), resp.get());
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+  }
+
+  private FakeHttpServletRequest jsonRequest(String... logoutTokens) {
+    return new FakeHttpServletRequest(servletContext, "POST", "https://rp.example.com/logout")
+        .withBody(
+            "application/json", JSONArrayUtils.toJSONString(List.of(logoutTokens)).getBytes(UTF_8));
+  }
+
+  private FakeHttpServletResponse post(String... logoutTokens) throws Exception {
+    var resp = new FakeHttpServletResponse();
+    sut.doPost(jsonRequest(logoutTokens).get(), resp.get());
+    return resp;
+  }
+
+  private static List<String> statuses(FakeHttpServletResponse resp) throws Exception {
+    var results =
+        JSONObjectUtils.getJSONArray(JSONObjectUtils.parse(resp.body.toString()), "results");
+    var statuses = new ArrayList<String>();
+    for (var result : results) {
+      statuses.add((String) ((Map<?, ?>) result).get("status"));
+    }
+    return statuses;
+  }
+
+  private static String logoutToken(ECKey key, @Nullable String sid, @Nullable String sub)
+      throws JOSEException {
+    var now = Instant.now();
+    var claims =
+        new JWTClaimsSet.Builder()
+            .issuer(ISSUER.getValue())
+            .audience(CLIENT_ID.getValue())
+            .issueTime(Date.from(now))
+            .expirationTime(Date.from(now.plusSeconds(60)))
+            .jwtID(UUID.randomUUID().toString())
+            .claim(
+                "events", Map.of("http://schemas.openid.net/event/backchannel-logout", Map.of()));
+    if (sid != null) {
+      claims.claim("sid", sid);
+    }
+    if (sub != null) {
+      claims.subject(sub);
+    }
+    var jwt =
+        new SignedJWT(
+            new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(key.getKeyID()).build(),
+            claims.build());
+    jwt.sign(new ECDSASigner(key));
+    return jwt.serialize();
+  }
+
+  private static class RecordingLoggedOutSessionStore implements LoggedOutSessionStore {
+    final List<List<SessionID>> loggedOutSessionIDs = new ArrayList<>();
+    final List<String> loggedOutSubjects = new ArrayList<>();
+
+    @Override
+    public void logout(SessionID sessionID) {
+      logoutAll(List.of(sessionID));
+    }
+
+    @Override
+    public void logoutAll(Collection<SessionID> sessionIDs) {
+      loggedOutSessionIDs.add(List.copyOf(sessionIDs));
+    }
+
+    @Override
+    public void logout(Issuer issuer, Subject subject) {
+      loggedOutSubjects.add(issuer + " " + subject);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CachingJWSVerificationKeySelectorTest {
+  private static final JWSHeader HEADER =
+      new JWSHeader.Builder(JWSAlgorithm.ES256).keyID("key1").build();
+
+  private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>();
+  private final JWKSource<SecurityContext> jwkSource =
+      (jwkSelector, context) -> jwkSelector.select(jwkSet.get());
+
+  @BeforeEach
+  void setUp() throws Exception {
+    jwkSet.set(
+        new JWKSet(
+            List.<JWK>of(
+                new ECKeyGenerator(Curve.P_256).keyID("key1").generate().toPublicJWK(),
+                new ECKeyGenerator(Curve.P_256).keyID("key2").generate().toPublicJWK())));
+  }
+
+  @Test
+  void selectsSameKeysAsJWSVerificationKeySelector() throws Exception {
+    var sut = new CachingJWSVerificationKeySelector<>(Set.of(JWSAlgorithm.ES256), jwkSource);
+    var expected = new JWSVerificationKeySelector<>(Set.of(JWSAlgorithm.ES256), jwkSource);
+
+    assertThat(sut.selectJWSKeys(HEADER, null))
+        .containsExactlyElementsIn(expected.selectJWSKeys(HEADER, null));
+  }
+
+  @Test
+  void cachesKeys() throws Exception {
+    var sut = new CachingJWSVerificationKeySelector<>(Set.of(JWSAlgorithm.ES256), jwkSource);
+
+    var keys = sut.selectJWSKeys(HEADER, null);
+    assertThat(keys).hasSize(1);
+    assertThat(sut.selectJWSKeys(HEADER, null).get(0)).isSameInstanceAs(keys.get(0));
+  }
+
+  @Test
+  void evictsOnRotation() throws Exception {
+    var sut = new CachingJWSVerificationKeySelector<>(Set.of(JWSAlgorithm.ES256), jwkSource);
+    var keys = sut.selectJWSKeys(HEADER, null);
+
+    // Same keys, but new instances, as when a caching JWK source refreshes the JWK set
+    jwkSet.set(JWKSet.parse(jwkSet.get().toString()));
+
+    var refreshed = sut.selectJWSKeys(HEADER, null);
+    assertThat(refreshed).isEqualTo(keys);
+    assertThat(refreshed.get(0)).isNotSameInstanceAs(keys.get(0));
+
+    // Key removed
+    jwkSet.set(new JWKSet(jwkSet.get().getKeyByKeyId("key2")));
+
+    assertThat(sut.selectJWSKeys(HEADER, null)).isEmpty();
+  }
+
+  @Test
+  void rejectsUnexpectedAlgorithm() throws Exception {
+    var sut = new CachingJWSVerificationKeySelector<>(Set.of(JWSAlgorithm.ES256), jwkSource);
+
+    var header = new JWSHeader.Builder(JWSAlgorithm.ES384).keyID("key1").build();
+    assertThat(sut.selectJWSKeys(header, null)).isEmpty();
+  }
+
+  @Test
+  void unknownKeyID() throws Exception {
+    var sut = new CachingJWSVerificationKeySelector<>(Set.of(JWSAlgorithm.ES256), jwkSource);
+
+    var header = new JWSHeader.Builder(JWSAlgorithm.ES256).keyID("other").build();
+    assertThat(sut.selectJWSKeys(header, null)).isEmpty();
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.UserInfo;
+import jakarta.servlet.http.HttpSession;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CachingUserPrincipalFactoryTest {
+  private final Map<String, Object> sessionAttributes = new HashMap<>();
+  private String sessionId = "session";
+  private final HttpSession session =
+      (HttpSession)
+          Proxy.newProxyInstance(
+              HttpSession.class.getClassLoader(),
+              new Class<?>[] {HttpSession.class},
+              (proxy, method, args) ->
+                  switch (method.getName()) {
+                    case "getId" -> sessionId;
+                    case "getAttribute" -> sessionAttributes.get((String) args[0]);
+                    case "setAttribute" -> {
+                      sessionAttributes.put((String) args[0], args[1]);
+                      yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                  });
+  private final CountingUserPrincipalFactory delegate = new CountingUserPrincipalFactory();
+  private final CachingUserPrincipalFactory sut = new CachingUserPrincipalFactory(delegate);
+
+  @Test
+  void reusesPrincipalWithinSameSession() throws Exception {
+    var sessionInfo = sessionInfo();
+
+    var userPrincipal = sut.createUserPrincipal(sessionInfo, session);
+
+    assertThat(sut.createUserPrincipal(sessionInfo, session)).isSameInstanceAs(userPrincipal);
+    assertThat(delegate.count).isEqualTo(1);
+  }
+
+  @Test
+  void createsPrincipalAgainWhenSessionInfoIsReplaced() throws Exception {
+    var userPrincipal = sut.createUserPrincipal(sessionInfo(), session);
+    var newSessionInfo = sessionInfo();
+
+    var newUserPrincipal = sut.createUserPrincipal(newSessionInfo, session);
+
+    assertThat(newUserPrincipal).isNotSameInstanceAs(userPrincipal);
+    assertThat(newUserPrincipal.getSessionInfo()).isSameInstanceAs(newSessionInfo);
+    assertThat(delegate.count).isEqualTo(2);
+    assertThat(sut.createUserPrincipal(newSessionInfo, session)).isSameInstanceAs(newUserPrincipal);
+  }
+
+  @Test
+  void createsPrincipalAgainWhenSessionIdChanges() throws Exception {
+    var sessionInfo = sessionInfo();
+    var userPrincipal = sut.createUserPrincipal(sessionInfo, session);
+
+    sessionId = "new-session";
+
+    var newUserPrincipal = sut.createUserPrincipal(sessionInfo, session);
+    assertThat(newUserPrincipal).isNotSameInstanceAs(userPrincipal);
+    assertThat(delegate.count).isEqualTo(2);
+    assertThat(sut.createUserPrincipal(sessionInfo, session)).isSameInstanceAs(newUserPrincipal);
+  }
+
+  @Test
+  void doesNotReusePrincipalCreatedByAnotherFactory() throws Exception {
+    var sessionInfo = sessionInfo();
+    var otherDelegate = new CountingUserPrincipalFactory();
+    var other = new CachingUserPrincipalFactory(otherDelegate);
+    var userPrincipal = sut.createUserPrincipal(sessionInfo, session);
+
+    var otherUserPrincipal = other.createUserPrincipal(sessionInfo, session);
+
+    assertThat(otherUserPrincipal).isNotSameInstanceAs(userPrincipal);
+    assertThat(delegate.count).isEqualTo(1);
+    assertThat(otherDelegate.count).isEqualTo(1);
+  }
+
+  private static SessionInfo sessionInfo() throws Exception {
+    var now = Instant.now();
+    var claims =
+        new JWTClaimsSet.Builder()
+            .issuer("https://op.example.com")
+            .subject("sub")
+            .audience("app")
+            .issueTime(Date.from(now))
+            .expirationTime(Date.from(now.plusSeconds(60)))
+            .build();
+    return new SessionInfo(
+        new PlainJWT(claims), new IDTokenClaimsSet(claims), new UserInfo(new Subject("sub")));
+  }
+
+  private static class CountingUserPrincipalFactory implements UserPrincipalFactory {
+    int count;
+
+    @Override
+    public UserPrincipal createUserPrincipal(SessionInfo sessionInfo, HttpSession session) {
+      count++;
+      return new SimpleUserPrincipal(sessionInfo);
+    }
+  }
+}
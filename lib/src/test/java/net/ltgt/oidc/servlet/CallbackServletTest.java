@@ -0,0 +1,621 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.common.contenttype.ContentType;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.AccessTokenResponse;
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPRequest;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
+import com.nimbusds.oauth2.sdk.util.URLUtils;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class CallbackServletTest {
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+  private static final ClientID CLIENT_ID = new ClientID("app");
+  private static final URI TOKEN_ENDPOINT = URI.create("https://op.example.com/token");
+  private static final URI USER_INFO_ENDPOINT = URI.create("https://op.example.com/userinfo");
+  private static final URI REVOCATION_ENDPOINT = URI.create("https://op.example.com/revoke");
+  private static final String ACCESS_TOKEN = "access-token";
+
+  private final ECKey key;
+  private final Configuration configuration;
+  private final FakeServletContext servletContext = new FakeServletContext();
+  private final FakeProvider provider = new FakeProvider();
+  private final Queue<AccessTokenResponse> acquiredTokens = new ConcurrentLinkedQueue<>();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private volatile @Nullable RuntimeException tokensHandlerFailure;
+  private @Nullable Executor servletExecutor;
+  private @Nullable UserInfoFromIDTokenPolicy userInfoFromIDTokenPolicy;
+
+  private final State state = new State();
+  private final Nonce nonce = new Nonce();
+  private final FakeHttpSession session = new FakeHttpSession(servletContext);
+
+  CallbackServletTest() throws JOSEException {
+    key = new ECKeyGenerator(Curve.P_256).keyID("key").generate();
+    var providerMetadata =
+        new OIDCProviderMetadata(
+            ISSUER, List.of(SubjectType.PUBLIC), URI.create("https://op.example.com/jwks"));
+    providerMetadata.setTokenEndpointURI(TOKEN_ENDPOINT);
+    providerMetadata.setUserInfoEndpointURI(USER_INFO_ENDPOINT);
+    providerMetadata.setRevocationEndpointURI(REVOCATION_ENDPOINT);
+    providerMetadata.setIDTokenJWSAlgs(List.of(JWSAlgorithm.ES256));
+    configuration =
+        new Configuration(providerMetadata, new ClientSecretBasic(CLIENT_ID, new Secret()));
+    session.attributes.put(
+        AuthenticationState.SESSION_ATTRIBUTE_NAME,
+        new AuthenticationState(state, nonce, new CodeVerifier(), "/return"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    provider.release.countDown();
+    executor.shutdownNow();
+  }
+
+  private CallbackServlet createServlet(Map<String, String> initParameters)
+      throws ServletException {
+    var servlet =
+        new CallbackServlet(
+            configuration,
+            SimpleUserPrincipal.FACTORY,
+            new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK())),
+            (tokenResponse, unused) -> {
+              var failure = tokensHandlerFailure;
+              if (failure != null) {
+                throw failure;
+              }
+              acquiredTokens.add(tokenResponse);
+            },
+            provider,
+            null,
+            null,
+            servletExecutor,
+            userInfoFromIDTokenPolicy);
+    servlet.init(servletContext.servletConfig(initParameters));
+    return servlet;
+  }
+
+  private CallbackServlet createServletFromContext() throws ServletException {
+    servletContext.attributes.put(Configuration.CONTEXT_ATTRIBUTE_NAME, configuration);
+    servletContext.attributes.put(
+        Utils.JWK_SOURCE_CONTEXT_ATTRIBUTE_NAME,
+        new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK())));
+    servletContext.attributes.put(Utils.HTTP_REQUEST_SENDER_CONTEXT_ATTRIBUTE_NAME, provider);
+    var servlet = new CallbackServlet();
+    servlet.init(servletContext.servletConfig());
+    return servlet;
+  }
+
+  private FakeHttpServletRequest callbackRequest() {
+    return new FakeHttpServletRequest(servletContext, "GET", "https://rp.example.com/callback")
+        .withParameter("code", "code")
+        .withParameter("state", state.getValue())
+        .withSession(session);
+  }
+
+  private void useExecutor() {
+    servletExecutor = executor;
+  }
+
+  @Test
+  void authenticatesSynchronously() throws Exception {
+    var servlet = createServlet(Map.of());
+    var req = callbackRequest();
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(req.get(), resp.get());
+
+    assertAuthenticated(resp);
+  }
+
+  @Test
+  void authenticatesAsynchronously() throws Exception {
+    useExecutor();
+    var servlet = createServlet(Map.of(CallbackServlet.ASYNC_TIMEOUT, "5"));
+    var resp = new FakeHttpServletResponse();
+    var req = callbackRequest().withAsyncSupported(resp);
+
+    servlet.doGet(req.get(), resp.get());
+    var asyncContext = requireNonNull(req.asyncContext);
+    assertThat(asyncContext.timeout).isEqualTo(5_000L);
+    asyncContext.awaitCompletion();
+
+    assertAuthenticated(resp);
+    assertThat(asyncContext.completedByContainer).isFalse();
+  }
+
+  @Test
+  void sendsErrorOnAsyncTimeout() throws Exception {
+    useExecutor();
+    provider.blockTokenRequest = true;
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+    var req = callbackRequest().withAsyncSupported(resp);
+    var sessionId = session.id;
+
+    servlet.doGet(req.get(), resp.get());
+    var asyncContext = requireNonNull(req.asyncContext);
+    assertThat(asyncContext.timeout).isEqualTo(60_000L);
+    provider.started.await();
+    asyncContext.fireTimeout();
+
+    assertThat(asyncContext.isCompleted()).isTrue();
+    assertThat(asyncContext.completedByContainer).isFalse();
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+
+    // The tokens eventually received are revoked, and the session left untouched
+    provider.release.countDown();
+    await(() -> provider.revokedTokens.contains(ACCESS_TOKEN));
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+    assertThat(session.id).isEqualTo(sessionId);
+    assertThat(session.attributes).doesNotContainKey(SessionInfo.SESSION_ATTRIBUTE_NAME);
+    assertThat(acquiredTokens).isEmpty();
+  }
+
+  @Test
+  void sendsErrorOnAsyncFailure() throws Exception {
+    useExecutor();
+    tokensHandlerFailure = new IllegalStateException("failure");
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+    var req = callbackRequest().withAsyncSupported(resp);
+
+    servlet.doGet(req.get(), resp.get());
+    var asyncContext = requireNonNull(req.asyncContext);
+    asyncContext.awaitCompletion();
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    assertThat(resp.errorMessage).isEqualTo("Error processing authentication response");
+    assertThat(asyncContext.completedByContainer).isFalse();
+    // A timeout after completion is a no-op
+    asyncContext.fireTimeout();
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+  }
+
+  @Test
+  void sendsErrorWhenExecutorRejectsTask() throws Exception {
+    servletExecutor =
+        command -> {
+          throw new RejectedExecutionException();
+        };
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+    var req = callbackRequest().withAsyncSupported(resp);
+
+    servlet.doGet(req.get(), resp.get());
+
+    var asyncContext = requireNonNull(req.asyncContext);
+    assertThat(asyncContext.isCompleted()).isTrue();
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    assertThat(provider.tokenRequests.get()).isEqualTo(0);
+  }
+
+  @Test
+  void ignoresExecutorFromContextWhenConstructedWithArguments() throws Exception {
+    servletContext.attributes.put(
+        Utils.EXECUTOR_CONTEXT_ATTRIBUTE_NAME,
+        (Executor)
+            command -> {
+              throw new RejectedExecutionException();
+            });
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+    var req = callbackRequest().withAsyncSupported(resp);
+
+    servlet.doGet(req.get(), resp.get());
+
+    assertThat(req.asyncContext).isNull();
+    assertAuthenticated(resp);
+  }
+
+  @Test
+  void readsExecutorFromContextWhenConstructedWithoutArguments() throws Exception {
+    servletContext.attributes.put(
+        Utils.EXECUTOR_CONTEXT_ATTRIBUTE_NAME,
+        (Executor)
+            command -> {
+              throw new RejectedExecutionException();
+            });
+    var servlet = createServletFromContext();
+    var resp = new FakeHttpServletResponse();
+    var req = callbackRequest().withAsyncSupported(resp);
+
+    servlet.doGet(req.get(), resp.get());
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+  }
+
+  @Test
+  void readsUserInfoFromIDTokenClaims() throws Exception {
+    userInfoFromIDTokenPolicy = UserInfoFromIDTokenPolicy.ALWAYS;
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertAuthenticated(resp);
+    assertThat(provider.userInfoRequests.get()).isEqualTo(0);
+    var userInfo = sessionInfo().getUserInfo();
+    assertThat(userInfo.getSubject().getValue()).isEqualTo("user");
+    assertThat(userInfo.getName()).isEqualTo("From ID Token");
+    assertThat(userInfo.toJSONObject()).doesNotContainKey("nonce");
+    assertThat(userInfo.toJSONObject()).doesNotContainKey("aud");
+    assertThat(userInfo.toJSONObject()).doesNotContainKey("exp");
+  }
+
+  @Test
+  void ignoresUserInfoFromIDTokenPolicyFromContextWhenConstructedWithArguments() throws Exception {
+    servletContext.attributes.put(
+        UserInfoFromIDTokenPolicy.CONTEXT_ATTRIBUTE_NAME, UserInfoFromIDTokenPolicy.ALWAYS);
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertAuthenticated(resp);
+    assertThat(provider.userInfoRequests.get()).isEqualTo(1);
+    assertThat(sessionInfo().getUserInfo().getName()).isEqualTo("From User Info");
+  }
+
+  @Test
+  void sendsUserInfoRequestWhenIDTokenLacksRequiredClaims() throws Exception {
+    userInfoFromIDTokenPolicy = UserInfoFromIDTokenPolicy.requiringClaims("name", "email");
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertAuthenticated(resp);
+    assertThat(provider.userInfoRequests.get()).isEqualTo(1);
+    assertThat(sessionInfo().getUserInfo().getName()).isEqualTo("From User Info");
+  }
+
+  @Test
+  void readsUserInfoFromIDTokenClaimsWhenRequiredClaimsArePresent() throws Exception {
+    userInfoFromIDTokenPolicy = UserInfoFromIDTokenPolicy.requiringClaims("name");
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertAuthenticated(resp);
+    assertThat(provider.userInfoRequests.get()).isEqualTo(0);
+    assertThat(sessionInfo().getUserInfo().getName()).isEqualTo("From ID Token");
+  }
+
+  @Test
+  void validatesIDTokenOnConfiguredExecutor() throws Exception {
+    var executions = new AtomicInteger();
+    servletExecutor =
+        command -> {
+          executions.incrementAndGet();
+          executor.execute(command);
+        };
+    var servlet = createServlet(Map.of(CallbackServlet.PARALLEL_ID_TOKEN_VALIDATION, "true"));
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertAuthenticated(resp);
+    assertThat(executions.get()).isEqualTo(1);
+    assertThat(provider.userInfoRequests.get()).isEqualTo(1);
+  }
+
+  @Test
+  void validatesIDTokenInCurrentThreadWhenExecutorDoesNotRunIt() throws Exception {
+    var pendingTasks = new ConcurrentLinkedQueue<Runnable>();
+    servletExecutor = pendingTasks::add;
+    var servlet = createServlet(Map.of(CallbackServlet.PARALLEL_ID_TOKEN_VALIDATION, "true"));
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertAuthenticated(resp);
+    assertThat(pendingTasks).hasSize(1);
+    assertThat(((Future<?>) pendingTasks.remove()).isDone()).isTrue();
+  }
+
+  @Test
+  void cancelsIDTokenValidationWhenUserInfoRequestFails() throws Exception {
+    var pendingTasks = new ConcurrentLinkedQueue<Runnable>();
+    servletExecutor = pendingTasks::add;
+    provider.failUserInfoRequest = true;
+    var servlet = createServlet(Map.of(CallbackServlet.PARALLEL_ID_TOKEN_VALIDATION, "true"));
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    assertThat(session.attributes).doesNotContainKey(SessionInfo.SESSION_ATTRIBUTE_NAME);
+    // The ID Token validation, then the token revocation
+    assertThat(pendingTasks).hasSize(2);
+    assertThat(((Future<?>) pendingTasks.remove()).isCancelled()).isTrue();
+    pendingTasks.remove().run();
+    assertThat(provider.revokedTokens).containsExactly(ACCESS_TOKEN);
+  }
+
+  @Test
+  void revokesTokensWhenIDTokenValidationFailsInParallel() throws Exception {
+    servletExecutor = Runnable::run;
+    // The ID Token will contain another nonce
+    session.attributes.put(
+        AuthenticationState.SESSION_ATTRIBUTE_NAME,
+        new AuthenticationState(state, new Nonce(), new CodeVerifier(), "/return"));
+    var servlet = createServlet(Map.of(CallbackServlet.PARALLEL_ID_TOKEN_VALIDATION, "true"));
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    assertThat(resp.errorMessage).isEqualTo("Error validating ID Token");
+    assertThat(session.attributes).doesNotContainKey(SessionInfo.SESSION_ATTRIBUTE_NAME);
+    assertThat(provider.revokedTokens).containsExactly(ACCESS_TOKEN);
+  }
+
+  @Test
+  void rejectsUserInfoOfAnotherSubject() throws Exception {
+    provider.userInfoSubject = "other-user";
+    var servlet = createServlet(Map.of());
+    var resp = new FakeHttpServletResponse();
+
+    servlet.doGet(callbackRequest().get(), resp.get());
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    assertThat(resp.errorMessage).isEqualTo("User Info subject doesn't match ID Token subject");
+    assertThat(session.attributes).doesNotContainKey(SessionInfo.SESSION_ATTRIBUTE_NAME);
+    assertThat(acquiredTokens).isEmpty();
+    await(() -> !provider.revokedTokens.isEmpty());
+    assertThat(provider.revokedTokens).containsExactly(ACCESS_TOKEN);
+  }
+
+  @Test
+  void usesTokenRevocationQueueFromContext() throws Exception {
+    var queue = new TokenRevocationQueue(configuration, provider);
+    try {
+      servletContext.attributes.put(TokenRevocationQueue.CONTEXT_ATTRIBUTE_NAME, queue);
+      // The ID Token will contain another nonce
+      session.attributes.put(
+          AuthenticationState.SESSION_ATTRIBUTE_NAME,
+          new AuthenticationState(state, new Nonce(), new CodeVerifier(), "/return"));
+      var servlet = createServletFromContext();
+      var resp = new FakeHttpServletResponse();
+
+      servlet.doGet(callbackRequest().get(), resp.get());
+
+      assertThat(resp.status).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      await(() -> queue.getRevokedCount() == 1);
+      assertThat(provider.revokedTokens).containsExactly(ACCESS_TOKEN);
+    } finally {
+      queue.close();
+    }
+  }
+
+  @Test
+  void failsWithTokenRevocationQueueForOtherConfigurationFromContext() throws Exception {
+    var queue = new TokenRevocationQueue(otherConfiguration(), provider);
+    try {
+      servletContext.attributes.put(TokenRevocationQueue.CONTEXT_ATTRIBUTE_NAME, queue);
+
+      assertThrows(ServletException.class, this::createServletFromContext);
+    } finally {
+      queue.close();
+    }
+  }
+
+  @Test
+  void usesTokenRevocationQueueOfOAuthTokensHandler() throws Exception {
+    var queue = new TokenRevocationQueue(configuration, provider);
+    try {
+      // The ID Token will contain another nonce
+      session.attributes.put(
+          AuthenticationState.SESSION_ATTRIBUTE_NAME,
+          new AuthenticationState(state, new Nonce(), new CodeVerifier(), "/return"));
+      var servlet =
+          new CallbackServlet(
+              configuration,
+              SimpleUserPrincipal.FACTORY,
+              new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK())),
+              new RevokingOAuthTokensHandler(queue),
+              provider);
+      servlet.init(servletContext.servletConfig());
+      var resp = new FakeHttpServletResponse();
+
+      servlet.doGet(callbackRequest().get(), resp.get());
+
+      assertThat(resp.status).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      await(() -> queue.getRevokedCount() == 1);
+      assertThat(provider.revokedTokens).containsExactly(ACCESS_TOKEN);
+    } finally {
+      queue.close();
+    }
+  }
+
+  @Test
+  void ignoresTokenRevocationQueueFromContextWhenConstructedWithArguments() throws Exception {
+    // e.g. when the servlet is created by a TenantServlet
+    var queue = new TokenRevocationQueue(configuration, provider);
+    try {
+      servletContext.attributes.put(TokenRevocationQueue.CONTEXT_ATTRIBUTE_NAME, queue);
+      // The ID Token will contain another nonce
+      session.attributes.put(
+          AuthenticationState.SESSION_ATTRIBUTE_NAME,
+          new AuthenticationState(state, new Nonce(), new CodeVerifier(), "/return"));
+      var servlet = createServlet(Map.of());
+      var resp = new FakeHttpServletResponse();
+
+      servlet.doGet(callbackRequest().get(), resp.get());
+
+      assertThat(resp.status).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      await(() -> !provider.revokedTokens.isEmpty());
+      assertThat(provider.revokedTokens).containsExactly(ACCESS_TOKEN);
+    } finally {
+      queue.close();
+    }
+    assertThat(queue.getRevokedCount()).isEqualTo(0);
+  }
+
+  private Configuration otherConfiguration() {
+    return new Configuration(
+        configuration.getProviderMetadata(),
+        new ClientSecretBasic(new ClientID("other-app"), new Secret()));
+  }
+
+  private SessionInfo sessionInfo() {
+    return (SessionInfo) requireNonNull(session.attributes.get(SessionInfo.SESSION_ATTRIBUTE_NAME));
+  }
+
+  private void assertAuthenticated(FakeHttpServletResponse resp) {
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_SEE_OTHER);
+    assertThat(resp.headers).containsEntry("Location", "/return");
+    assertThat(session.attributes).containsKey(SessionInfo.SESSION_ATTRIBUTE_NAME);
+    assertThat(session.attributes).doesNotContainKey(AuthenticationState.SESSION_ATTRIBUTE_NAME);
+    assertThat(acquiredTokens).hasSize(1);
+    assertThat(provider.revokedTokens).isEmpty();
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(condition.getAsBoolean()).isTrue();
+  }
+
+  private String idToken() throws JOSEException {
+    var now = Instant.now();
+    var jwt =
+        new SignedJWT(
+            new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(key.getKeyID()).build(),
+            new JWTClaimsSet.Builder()
+                .issuer(ISSUER.getValue())
+                .subject("user")
+                .audience(CLIENT_ID.getValue())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(60)))
+                .claim("nonce", nonce.getValue())
+                .claim("name", "From ID Token")
+                .build());
+    jwt.sign(new ECDSASigner(key));
+    return jwt.serialize();
+  }
+
+  private static HTTPResponse jsonResponse(Map<String, ?> json) {
+    var response = new HTTPResponse(HTTPResponse.SC_OK);
+    response.setEntityContentType(ContentType.APPLICATION_JSON);
+    response.setBody(JSONObjectUtils.toJSONString(json));
+    return response;
+  }
+
+  private class FakeProvider implements HTTPRequestSender {
+    final Queue<String> revokedTokens = new ConcurrentLinkedQueue<>();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    volatile boolean blockTokenRequest;
+    final AtomicInteger tokenRequests = new AtomicInteger();
+    final AtomicInteger userInfoRequests = new AtomicInteger();
+    volatile boolean failUserInfoRequest;
+    volatile String userInfoSubject = "user";
+
+    @Override
+    public ReadOnlyHTTPResponse send(ReadOnlyHTTPRequest httpRequest) throws IOException {
+      if (httpRequest.getURI().equals(TOKEN_ENDPOINT)) {
+        tokenRequests.incrementAndGet();
+        if (blockTokenRequest) {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+          }
+        }
+        try {
+          return jsonResponse(
+              Map.of(
+                  "access_token", ACCESS_TOKEN,
+                  "token_type", "Bearer",
+                  "expires_in", 3600,
+                  "id_token", idToken()));
+        } catch (JOSEException e) {
+          throw new IOException(e);
+        }
+      }
+      if (httpRequest.getURI().equals(USER_INFO_ENDPOINT)) {
+        userInfoRequests.incrementAndGet();
+        if (failUserInfoRequest) {
+          var response = new HTTPResponse(HTTPResponse.SC_UNAUTHORIZED);
+          response.setWWWAuthenticate("Bearer error=\"invalid_token\"");
+          return response;
+        }
+        return jsonResponse(Map.of("sub", userInfoSubject, "name", "From User Info"));
+      }
+      if (httpRequest.getURI().equals(REVOCATION_ENDPOINT)) {
+        revokedTokens.add(URLUtils.parseParameters(httpRequest.getBody()).get("token").getFirst());
+        return new HTTPResponse(HTTPResponse.SC_OK);
+      }
+      throw new AssertionError("Unexpected request to " + httpRequest.getURI());
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class ExpiringLoggedOutSessionStoreTest {
+  private final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+
+  private void advance(Duration duration) {
+    now.set(now.get().plus(duration));
+  }
+
+  @Test
+  void loggedOut() {
+    var sut = new ExpiringLoggedOutSessionStore(Duration.ofMinutes(30), 100, now::get);
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+
+    sut.logout(new SessionID("sid"));
+
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(sut.isLoggedOut(new SessionID("other"))).isFalse();
+    assertThat(sut.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  void expiresAfterRetention() {
+    var sut = new ExpiringLoggedOutSessionStore(Duration.ofMinutes(30), 100, now::get);
+    sut.logout(new SessionID("sid"));
+
+    advance(Duration.ofMinutes(29));
+    sut.logout(new SessionID("other"));
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+
+    advance(Duration.ofMinutes(2));
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+    assertThat(sut.isLoggedOut(new SessionID("other"))).isTrue();
+    assertThat(sut.getSize()).isEqualTo(1);
+    assertThat(sut.getExpiredCount()).isEqualTo(1);
+    assertThat(sut.getEvictedCount()).isEqualTo(0);
+  }
+
+  @Test
+  void expiresAfterLongIdlePeriod() {
+    var sut = new ExpiringLoggedOutSessionStore(Duration.ofMinutes(30), 100, now::get);
+    sut.logout(new SessionID("sid"));
+
+    advance(Duration.ofDays(7));
+
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+    assertThat(sut.getSize()).isEqualTo(0);
+    assertThat(sut.getExpiredCount()).isEqualTo(1);
+  }
+
+  @Test
+  void logoutAgainExtendsRetention() {
+    var sut = new ExpiringLoggedOutSessionStore(Duration.ofMinutes(30), 100, now::get);
+    sut.logout(new SessionID("sid"));
+
+    advance(Duration.ofMinutes(20));
+    sut.logout(new SessionID("sid"));
+
+    advance(Duration.ofMinutes(20));
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(sut.getExpiredCount()).isEqualTo(0);
+  }
+
+  @Test
+  void evictsOldestWhenFull() {
+    var sut = new ExpiringLoggedOutSessionStore(Duration.ofMinutes(30), 2, now::get);
+    sut.logout(new SessionID("first"));
+    advance(Duration.ofMinutes(1));
+    sut.logout(new SessionID("second"));
+    advance(Duration.ofMinutes(1));
+    sut.logout(new SessionID("third"));
+
+    assertThat(sut.getSize()).isEqualTo(2);
+    assertThat(sut.getEvictedCount()).isEqualTo(1);
+    assertThat(sut.isLoggedOut(new SessionID("first"))).isFalse();
+    assertThat(sut.isLoggedOut(new SessionID("second"))).isTrue();
+    assertThat(sut.isLoggedOut(new SessionID("third"))).isTrue();
+  }
+
+  @Test
+  void repeatedLogoutDoesNotGrowWheel() {
+    var sut = new ExpiringLoggedOutSessionStore(Duration.ofMinutes(30), 2, now::get);
+    for (int i = 0; i < 1000; i++) {
+      sut.logout(new SessionID("sid"));
+    }
+
+    assertThat(sut.getSize()).isEqualTo(1);
+    assertThat(sut.getWheelEntryCount()).isEqualTo(1);
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A fake {@link AsyncContext}, whose timeout is {@linkplain #fireTimeout() triggered by tests}.
+ */
+final class FakeAsyncContext extends FakeProxy<AsyncContext> {
+  private final ServletRequest request;
+  private final ServletResponse response;
+  private final List<AsyncListener> listeners = new CopyOnWriteArrayList<>();
+  private final CountDownLatch completed = new CountDownLatch(1);
+  volatile long timeout = 30_000;
+  /** Whether the container had to complete the asynchronous processing after a timeout. */
+  volatile boolean completedByContainer;
+
+  FakeAsyncContext(ServletRequest request, ServletResponse response) {
+    super(AsyncContext.class);
+    this.request = request;
+    this.response = response;
+  }
+
+  boolean isCompleted() {
+    return completed.getCount() == 0;
+  }
+
+  /** Waits for the asynchronous processing to be completed. */
+  void awaitCompletion() throws InterruptedException {
+    completed.await();
+  }
+
+  /** Simulates a timeout, as the container would do. */
+  void fireTimeout() throws IOException {
+    var event = new AsyncEvent(get(), request, response);
+    for (var listener : listeners) {
+      listener.onTimeout(event);
+    }
+    synchronized (this) {
+      if (!isCompleted()) {
+        // The container would dispatch to an error page
+        completedByContainer = true;
+        doComplete();
+      }
+    }
+  }
+
+  @Override
+  synchronized @Nullable Object handle(String method, Object[] args) throws IOException {
+    return switch (method) {
+      case "getRequest" -> request;
+      case "getResponse" -> response;
+      case "hasOriginalRequestAndResponse" -> true;
+      case "setTimeout" -> {
+        timeout = (long) args[0];
+        yield null;
+      }
+      case "getTimeout" -> timeout;
+      case "addListener" -> {
+        listeners.add((AsyncListener) args[0]);
+        yield null;
+      }
+      case "complete" -> {
+        if (isCompleted()) {
+          throw new IllegalStateException("Already completed");
+        }
+        doComplete();
+        yield null;
+      }
+      default -> throw new UnsupportedOperationException(method);
+    };
+  }
+
+  private void doComplete() throws IOException {
+    completed.countDown();
+    var event = new AsyncEvent(get(), request, response);
+    for (var listener : listeners) {
+      listener.onComplete(event);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+
+/** A fake {@link HttpServletRequest}. */
+final class FakeHttpServletRequest extends FakeProxy<HttpServletRequest> {
+  private final FakeServletContext servletContext;
+  final String method;
+  final URI requestUrl;
+  final Map<String, String> headers = new HashMap<>();
+  final Map<String, String[]> parameters = new LinkedHashMap<>();
+  final Map<String, Object> attributes = new ConcurrentHashMap<>();
+  @Nullable String contentType;
+  byte[] body = new byte[0];
+  @Nullable Long contentLength;
+  @Nullable FakeHttpSession session;
+  boolean asyncSupported;
+  @Nullable FakeAsyncContext asyncContext;
+  @Nullable FakeHttpServletResponse response;
+
+  FakeHttpServletRequest(FakeServletContext servletContext, String method, String requestUrl) {
+    super(HttpServletRequest.class);
+    this.servletContext = servletContext;
+    this.method = method;
+    this.requestUrl = URI.create(requestUrl);
+  }
+
+  FakeHttpServletRequest withParameter(String name, String... values) {
+    parameters.put(name, values);
+    return this;
+  }
+
+  FakeHttpServletRequest withSession(FakeHttpSession session) {
+    this.session = session;
+    return this;
+  }
+
+  FakeHttpServletRequest withBody(String contentType, byte[] body) {
+    this.contentType = contentType;
+    this.body = body;
+    this.contentLength = (long) body.length;
+    return this;
+  }
+
+  /** Allows {@link HttpServletRequest#startAsync()}, using the given response. */
+  FakeHttpServletRequest withAsyncSupported(FakeHttpServletResponse response) {
+    this.asyncSupported = true;
+    this.response = response;
+    return this;
+  }
+
+  @Override
+  @Nullable Object handle(String method, Object[] args) {
+    return switch (method) {
+      case "getMethod" -> this.method;
+      case "getRequestURL" -> new StringBuffer(requestUrl.toString());
+      case "getRequestURI" -> requestUrl.getRawPath();
+      case "getServerName" -> requestUrl.getHost();
+      case "getContextPath", "getServletPath" -> "";
+      case "getPathInfo" -> requestUrl.getPath();
+      case "getHeader" -> headers.get((String) args[0]);
+      case "getParameter" -> {
+        var values = parameters.get((String) args[0]);
+        yield values == null ? null : values[0];
+      }
+      case "getParameterValues" -> parameters.get((String) args[0]);
+      case "getParameterMap" -> Map.copyOf(parameters);
+      case "getContentType" -> contentType;
+      case "getContentLength" ->
+          contentLength == null ? -1 : (int) Math.min(contentLength, Integer.MAX_VALUE);
+      case "getContentLengthLong" -> contentLength == null ? -1L : contentLength;
+      case "getCharacterEncoding" -> null;
+      case "getInputStream" -> inputStream();
+      case "getAttribute" -> attributes.get((String) args[0]);
+      case "setAttribute" -> attributes.put((String) args[0], args[1]);
+      case "removeAttribute" -> attributes.remove((String) args[0]);
+      case "getServletContext" -> servletContext.get();
+      case "getDispatcherType" -> DispatcherType.REQUEST;
+      case "getUserPrincipal", "getRemoteUser" -> null;
+      case "getSession" -> getSession(args.length == 0 || (boolean) args[0]);
+      case "changeSessionId" -> {
+        if (session == null) {
+          throw new IllegalStateException("No session");
+        }
+        session.changeId();
+        yield session.id;
+      }
+      case "isAsyncSupported" -> asyncSupported;
+      case "isAsyncStarted" -> asyncContext != null && !asyncContext.isCompleted();
+      case "startAsync" -> {
+        if (!asyncSupported || response == null) {
+          throw new IllegalStateException("Async not supported");
+        }
+        asyncContext = new FakeAsyncContext(get(), response.get());
+        yield asyncContext.get();
+      }
+      case "getAsyncContext" -> {
+        if (asyncContext == null) {
+          throw new IllegalStateException("Async not started");
+        }
+        yield asyncContext.get();
+      }
+      default -> throw new UnsupportedOperationException(method);
+    };
+  }
+
+  private @Nullable Object getSession(boolean create) {
+    if (session != null && session.invalidated) {
+      session = null;
+    }
+    if (session == null && create) {
+      session = new FakeHttpSession(servletContext);
+    }
+    return session == null ? null : session.get();
+  }
+
+  private ServletInputStream inputStream() {
+    var in = new ByteArrayInputStream(body);
+    return new ServletInputStream() {
+      @Override
+      public int read() {
+        return in.read();
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        return in.read(b, off, len);
+      }
+
+      @Override
+      public boolean isFinished() {
+        return in.available() == 0;
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setReadListener(ReadListener readListener) {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jspecify.annotations.Nullable;
+
+/** A fake {@link HttpServletResponse}. */
+final class FakeHttpServletResponse extends FakeProxy<HttpServletResponse> {
+  final Map<String, String> headers = new ConcurrentHashMap<>();
+  final List<Cookie> cookies = new CopyOnWriteArrayList<>();
+  final StringWriter body = new StringWriter();
+  volatile int status = HttpServletResponse.SC_OK;
+  volatile @Nullable String errorMessage;
+  volatile boolean committed;
+
+  FakeHttpServletResponse() {
+    super(HttpServletResponse.class);
+  }
+
+  @Override
+  synchronized @Nullable Object handle(String method, Object[] args) {
+    return switch (method) {
+      case "sendError" -> {
+        checkNotCommitted();
+        status = (int) args[0];
+        errorMessage = args.length > 1 ? (String) args[1] : null;
+        committed = true;
+        yield null;
+      }
+      case "sendRedirect" -> {
+        checkNotCommitted();
+        status = HttpServletResponse.SC_FOUND;
+        headers.put("Location", (String) args[0]);
+        committed = true;
+        yield null;
+      }
+      case "setStatus" -> {
+        if (!committed) {
+          status = (int) args[0];
+        }
+        yield null;
+      }
+      case "getStatus" -> status;
+      case "setHeader", "addHeader" -> {
+        if (!committed) {
+          headers.put((String) args[0], (String) args[1]);
+        }
+        yield null;
+      }
+      case "getHeader" -> headers.get((String) args[0]);
+      case "containsHeader" -> headers.containsKey((String) args[0]);
+      case "addCookie" -> {
+        if (!committed) {
+          cookies.add((Cookie) args[0]);
+        }
+        yield null;
+      }
+      case "setContentType", "setCharacterEncoding", "setContentLength" -> null;
+      case "getWriter" -> new PrintWriter(body, true);
+      case "isCommitted" -> committed;
+      case "flushBuffer" -> {
+        committed = true;
+        yield null;
+      }
+      case "reset", "resetBuffer" -> {
+        checkNotCommitted();
+        body.getBuffer().setLength(0);
+        yield null;
+      }
+      default -> throw new UnsupportedOperationException(method);
+    };
+  }
+
+  private void checkNotCommitted() {
+    if (committed) {
+      throw new IllegalStateException("Response already committed");
+    }
+  }
+}
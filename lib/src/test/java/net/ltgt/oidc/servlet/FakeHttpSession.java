@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionAttributeListener;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionIdListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A fake {@link HttpSession}, notifying the {@linkplain FakeServletContext#listeners session
+ * listeners} of the servlet context.
+ */
+final class FakeHttpSession extends FakeProxy<HttpSession> {
+  private static final AtomicInteger nextId = new AtomicInteger();
+
+  private final FakeServletContext servletContext;
+  final Map<String, Object> attributes = new ConcurrentHashMap<>();
+  volatile String id = newId();
+  volatile boolean invalidated;
+
+  FakeHttpSession(FakeServletContext servletContext) {
+    super(HttpSession.class);
+    this.servletContext = servletContext;
+  }
+
+  private static String newId() {
+    return "session-" + nextId.incrementAndGet();
+  }
+
+  /** Changes the session ID, and returns the old one. */
+  String changeId() {
+    var oldId = id;
+    id = newId();
+    var event = new HttpSessionEvent(get());
+    for (var listener : servletContext.listeners) {
+      if (listener instanceof HttpSessionIdListener idListener) {
+        idListener.sessionIdChanged(event, oldId);
+      }
+    }
+    return oldId;
+  }
+
+  @Override
+  @Nullable Object handle(String method, Object[] args) {
+    return switch (method) {
+      case "getId" -> id;
+      case "getServletContext" -> servletContext.get();
+      case "getAttribute" -> attributes.get((String) args[0]);
+      case "setAttribute" -> {
+        setAttribute((String) args[0], args[1]);
+        yield null;
+      }
+      case "removeAttribute" -> {
+        removeAttribute((String) args[0]);
+        yield null;
+      }
+      case "invalidate" -> {
+        checkValid();
+        for (var name : attributes.keySet()) {
+          removeAttribute(name);
+        }
+        invalidated = true;
+        yield null;
+      }
+      case "isNew" -> false;
+      default -> throw new UnsupportedOperationException(method);
+    };
+  }
+
+  private void setAttribute(String name, @Nullable Object value) {
+    checkValid();
+    if (value == null) {
+      removeAttribute(name);
+      return;
+    }
+    var old = attributes.put(name, value);
+    for (var listener : servletContext.listeners) {
+      if (listener instanceof HttpSessionAttributeListener attributeListener) {
+        if (old == null) {
+          attributeListener.attributeAdded(new HttpSessionBindingEvent(get(), name, value));
+        } else {
+          attributeListener.attributeReplaced(new HttpSessionBindingEvent(get(), name, old));
+        }
+      }
+    }
+  }
+
+  private void removeAttribute(String name) {
+    checkValid();
+    var old = attributes.remove(name);
+    if (old == null) {
+      return;
+    }
+    for (var listener : servletContext.listeners) {
+      if (listener instanceof HttpSessionAttributeListener attributeListener) {
+        attributeListener.attributeRemoved(new HttpSessionBindingEvent(get(), name, old));
+      }
+    }
+  }
+
+  private void checkValid() {
+    if (invalidated) {
+      throw new IllegalStateException("Session already invalidated");
+    }
+  }
+}
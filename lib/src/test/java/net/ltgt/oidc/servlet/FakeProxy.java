@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Base class for fakes of (large) interfaces, implemented as dynamic proxies.
+ *
+ * <p>Subclasses only implement the methods they need, dispatching on the method name (and number
+ * of arguments for overloads), and throw {@link UnsupportedOperationException} for the others.
+ */
+abstract class FakeProxy<T> implements InvocationHandler {
+  private static final Object[] NO_ARGS = new Object[0];
+
+  private final Class<T> iface;
+  private final Class<?>[] otherInterfaces;
+  private @Nullable T proxy;
+
+  FakeProxy(Class<T> iface, Class<?>... otherInterfaces) {
+    this.iface = iface;
+    this.otherInterfaces = otherInterfaces;
+  }
+
+  /** Returns the proxy, implementing the interfaces and backed by this fake. */
+  final synchronized T get() {
+    if (proxy == null) {
+      var interfaces = new Class<?>[otherInterfaces.length + 1];
+      interfaces[0] = iface;
+      System.arraycopy(otherInterfaces, 0, interfaces, 1, otherInterfaces.length);
+      proxy = iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), interfaces, this));
+    }
+    return proxy;
+  }
+
+  @Override
+  public final @Nullable Object invoke(Object proxy, Method method, Object @Nullable [] args)
+      throws Throwable {
+    return switch (method.getName()) {
+      case "hashCode" -> System.identityHashCode(proxy);
+      case "equals" -> proxy == args[0];
+      case "toString" -> getClass().getSimpleName();
+      default -> handle(method.getName(), args == null ? NO_ARGS : args);
+    };
+  }
+
+  /** Handles a call to the given method; unsupported by default. */
+  @Nullable Object handle(String method, Object[] args) throws Throwable {
+    throw new UnsupportedOperationException(method);
+  }
+}
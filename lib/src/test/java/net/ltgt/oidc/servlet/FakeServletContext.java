@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import java.util.Collections;
+import java.util.EventListener;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A fake {@link ServletContext} supporting attributes, logging, and session listeners; it also
+ * provides {@link ServletConfig}s and {@link FilterConfig}s.
+ */
+final class FakeServletContext extends FakeProxy<ServletContext> {
+  final Map<String, Object> attributes = new ConcurrentHashMap<>();
+  final List<EventListener> listeners = new CopyOnWriteArrayList<>();
+  final Queue<String> logs = new ConcurrentLinkedQueue<>();
+
+  FakeServletContext() {
+    super(ServletContext.class);
+  }
+
+  /** Returns a config for a servlet or filter, with the given init parameters. */
+  Object config(Map<String, String> initParameters) {
+    return new FakeProxy<>(ServletConfig.class, FilterConfig.class) {
+      @Override
+      @Nullable Object handle(String method, Object[] args) {
+        return switch (method) {
+          case "getServletContext" -> FakeServletContext.this.get();
+          case "getServletName", "getFilterName" -> "test";
+          case "getInitParameter" -> initParameters.get((String) args[0]);
+          case "getInitParameterNames" -> Collections.enumeration(initParameters.keySet());
+          default -> throw new UnsupportedOperationException(method);
+        };
+      }
+    }.get();
+  }
+
+  ServletConfig servletConfig(Map<String, String> initParameters) {
+    return (ServletConfig) config(initParameters);
+  }
+
+  ServletConfig servletConfig() {
+    return servletConfig(Map.of());
+  }
+
+  FilterConfig filterConfig() {
+    return (FilterConfig) config(Map.of());
+  }
+
+  @Override
+  @Nullable Object handle(String method, Object[] args) {
+    return switch (method) {
+      case "getAttribute" -> attributes.get((String) args[0]);
+      case "setAttribute" -> attributes.put((String) args[0], args[1]);
+      case "removeAttribute" -> attributes.remove((String) args[0]);
+      case "getInitParameter" -> null;
+      case "getContextPath" -> "";
+      case "log" -> {
+        logs.add(
+            args.length > 1 && args[1] instanceof Throwable t
+                ? args[0] + ": " + t
+                : String.valueOf(args[0]));
+        yield null;
+      }
+      default -> throw new UnsupportedOperationException(method);
+    };
+  }
+}
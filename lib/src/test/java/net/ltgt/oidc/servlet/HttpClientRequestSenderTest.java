@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.common.contenttype.ContentType;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HttpClientRequestSenderTest {
+  private final AtomicReference<String> receivedRequest = new AtomicReference<>();
+  private HttpServer server;
+  private URI uri;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/token",
+        exchange -> {
+          receivedRequest.set(
+              exchange.getRequestMethod()
+                  + " "
+                  + exchange.getRequestHeaders().getFirst("Content-Type")
+                  + " "
+                  + exchange.getRequestHeaders().getFirst("Authorization")
+                  + " "
+                  + new String(exchange.getRequestBody().readAllBytes(), UTF_8));
+          var body = "{\"error\":\"invalid_grant\"}".getBytes(UTF_8);
+          exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+          exchange.getResponseHeaders().set("DPoP-Nonce", "nonce");
+          exchange.sendResponseHeaders(400, body.length);
+          try (var os = exchange.getResponseBody()) {
+            os.write(body);
+          }
+        });
+    server.createContext(
+        "/slow",
+        exchange -> {
+          try {
+            Thread.sleep(1_000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          exchange.sendResponseHeaders(204, -1);
+          exchange.close();
+        });
+    server.createContext(
+        "/redirect",
+        exchange -> {
+          exchange.getResponseHeaders().set("Location", "/token");
+          exchange.sendResponseHeaders(302, -1);
+          exchange.close();
+        });
+    server.start();
+    uri =
+        URI.create(
+            "http://"
+                + server.getAddress().getHostString()
+                + ":"
+                + server.getAddress().getPort()
+                + "/token");
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  private HTTPRequest createRequest() {
+    var request = new HTTPRequest(HTTPRequest.Method.POST, uri);
+    request.setEntityContentType(ContentType.APPLICATION_URLENCODED);
+    request.setAuthorization("Basic dXNlcjpwYXNz");
+    request.setBody("grant_type=authorization_code&code=1234");
+    return request;
+  }
+
+  private void assertResponse(HTTPResponse response) throws Exception {
+    assertThat(receivedRequest.get()).startsWith("POST application/x-www-form-urlencoded");
+    assertThat(receivedRequest.get())
+        .endsWith(" Basic dXNlcjpwYXNz grant_type=authorization_code&code=1234");
+    assertThat(response.getStatusCode()).isEqualTo(400);
+    assertThat(response.getEntityContentType().matches(ContentType.APPLICATION_JSON)).isTrue();
+    assertThat(response.getDPoPNonce().getValue()).isEqualTo("nonce");
+    assertThat(response.getBodyAsJSONObject()).containsEntry("error", "invalid_grant");
+  }
+
+  @Test
+  void send() throws Exception {
+    var sut = new HttpClientRequestSender(Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+    var response = createRequest().send(sut);
+
+    assertResponse(response);
+  }
+
+  @Test
+  void sendAsync() throws Exception {
+    var sut = new HttpClientRequestSender(Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+    var response = (HTTPResponse) sut.sendAsync(createRequest()).get();
+
+    assertResponse(response);
+  }
+
+  @Test
+  void sendAsyncFailsWithIOException() {
+    var sut = new HttpClientRequestSender(Duration.ofSeconds(5), Duration.ofSeconds(5));
+    var request = new HTTPRequest(HTTPRequest.Method.GET, uri.resolve("/slow"));
+    request.setReadTimeout(100);
+
+    var e = assertThrows(ExecutionException.class, () -> sut.sendAsync(request).get());
+
+    assertThat(e).hasCauseThat().isInstanceOf(HttpTimeoutException.class);
+  }
+
+  @Test
+  void doesNotFollowRedirects() throws Exception {
+    var sut = new HttpClientRequestSender(Duration.ofSeconds(5), Duration.ofSeconds(5));
+    var request = new HTTPRequest(HTTPRequest.Method.GET, uri.resolve("/redirect"));
+
+    var response = request.send(sut);
+
+    assertThat(response.getStatusCode()).isEqualTo(302);
+    assertThat(receivedRequest.get()).isNull();
+  }
+
+  @Test
+  void honorsRequestReadTimeout() {
+    var sut = new HttpClientRequestSender(Duration.ofSeconds(5), Duration.ofSeconds(5));
+    var request = new HTTPRequest(HTTPRequest.Method.GET, uri.resolve("/slow"));
+    request.setReadTimeout(100);
+
+    assertThrows(HttpTimeoutException.class, () -> request.send(sut));
+  }
+}
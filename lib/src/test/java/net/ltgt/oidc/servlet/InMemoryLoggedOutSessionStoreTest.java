@@ -16,11 +16,21 @@
 package net.ltgt.oidc.servlet;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
 import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 class InMemoryLoggedOutSessionStoreTest {
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+  private static final Issuer OTHER_ISSUER = new Issuer("https://other-op.example.com");
+
   @Test
   public void loginThenLogout() {
     var sut = new InMemoryLoggedOutSessionStore();
@@ -163,4 +173,259 @@ class InMemoryLoggedOutSessionStoreTest {
     sut.logout(new SessionID("sid"));
     assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
   }
+
+  @Test
+  public void acquireTwiceThenRelease() {
+    var sut = new InMemoryLoggedOutSessionStore();
+
+    sut.acquire(new SessionID("sid"), "1");
+    sut.acquire(new SessionID("sid"), "1");
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+
+    sut.release(new SessionID("sid"), "1");
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+  }
+
+  @Test
+  public void doLogoutReceivesAllSessions() {
+    var loggedOutSessions = new ArrayList<Set<String>>();
+    var sut =
+        new InMemoryLoggedOutSessionStore() {
+          @Override
+          protected void doLogout(Set<String> sessionIds) {
+            loggedOutSessions.add(sessionIds);
+          }
+        };
+
+    sut.acquire(new SessionID("sid"), "1");
+    sut.acquire(new SessionID("sid"), "2");
+    sut.acquire(new SessionID("sid"), "3");
+    sut.release(new SessionID("sid"), "1");
+    sut.renew(new SessionID("sid"), "2", "4");
+    sut.logout(new SessionID("sid"));
+
+    assertThat(loggedOutSessions).containsExactly(Set.of("3", "4"));
+  }
+
+  @Test
+  public void asyncDoLogoutIsBatched() {
+    var tasks = new ArrayList<Runnable>();
+    var loggedOutSessions = new ArrayList<Set<String>>();
+    var sut =
+        new InMemoryLoggedOutSessionStore(tasks::add, 10) {
+          @Override
+          protected void doLogout(Set<String> sessionIds) {
+            loggedOutSessions.add(sessionIds);
+          }
+        };
+
+    sut.acquire(new SessionID("a"), "1");
+    sut.acquire(new SessionID("a"), "2");
+    sut.acquire(new SessionID("b"), "3");
+    sut.logout(new SessionID("a"));
+    sut.logout(new SessionID("b"));
+
+    assertThat(sut.isLoggedOut(new SessionID("a"))).isTrue();
+    assertThat(sut.isLoggedOut(new SessionID("b"))).isTrue();
+    assertThat(loggedOutSessions).isEmpty();
+    assertThat(tasks).hasSize(1);
+
+    tasks.getFirst().run();
+    assertThat(loggedOutSessions).containsExactly(Set.of("1", "2", "3"));
+
+    // A new task is scheduled for later logouts
+    sut.acquire(new SessionID("c"), "4");
+    sut.logout(new SessionID("c"));
+    assertThat(tasks).hasSize(2);
+    tasks.getLast().run();
+    assertThat(loggedOutSessions).containsExactly(Set.of("1", "2", "3"), Set.of("4")).inOrder();
+  }
+
+  @Test
+  public void asyncDoLogoutIsRetried() {
+    var tasks = new ArrayList<Runnable>();
+    var attempts = new ArrayList<Set<String>>();
+    var sut =
+        new InMemoryLoggedOutSessionStore(tasks::add, 10) {
+          @Override
+          protected void doLogout(Set<String> sessionIds) {
+            attempts.add(sessionIds);
+            if (attempts.size() == 1) {
+              throw new IllegalStateException("Session store unavailable");
+            }
+          }
+        };
+
+    sut.acquire(new SessionID("sid"), "1");
+    sut.logout(new SessionID("sid"));
+    tasks.getFirst().run();
+
+    assertThat(attempts).containsExactly(Set.of("1"), Set.of("1"));
+  }
+
+  @Test
+  public void asyncDoLogoutThrowingError() {
+    var tasks = new ArrayList<Runnable>();
+    var loggedOutSessions = new ArrayList<Set<String>>();
+    var sut =
+        new InMemoryLoggedOutSessionStore(tasks::add, 10) {
+          @Override
+          protected void doLogout(Set<String> sessionIds) {
+            loggedOutSessions.add(sessionIds);
+            if (loggedOutSessions.size() == 1) {
+              throw new Error("Unexpected error");
+            }
+          }
+        };
+
+    sut.acquire(new SessionID("a"), "1");
+    sut.logout(new SessionID("a"));
+    assertThrows(Error.class, () -> tasks.getFirst().run());
+
+    // A new task is scheduled for later logouts
+    sut.acquire(new SessionID("b"), "2");
+    sut.logout(new SessionID("b"));
+    assertThat(tasks).hasSize(2);
+    tasks.getLast().run();
+    assertThat(loggedOutSessions).containsExactly(Set.of("1"), Set.of("2")).inOrder();
+  }
+
+  @Test
+  public void asyncDoLogoutStopsWhenInterrupted() {
+    var tasks = new ArrayList<Runnable>();
+    var attempts = new ArrayList<Set<String>>();
+    var sut =
+        new InMemoryLoggedOutSessionStore(tasks::add, 10) {
+          @Override
+          protected void doLogout(Set<String> sessionIds) {
+            attempts.add(sessionIds);
+            // Interrupt the retry delay
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Session store unavailable");
+          }
+        };
+
+    sut.acquire(new SessionID("a"), "1");
+    sut.logout(new SessionID("a"));
+    try {
+      tasks.getFirst().run();
+      assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    } finally {
+      Thread.interrupted();
+    }
+
+    // Not retried, and the interrupted drain didn't prevent later ones
+    assertThat(attempts).containsExactly(Set.of("1"));
+    sut.acquire(new SessionID("b"), "2");
+    sut.logout(new SessionID("b"));
+    assertThat(tasks).hasSize(2);
+  }
+
+  @Test
+  public void asyncDoLogoutWithFullQueue() {
+    var tasks = new ArrayList<Runnable>();
+    var loggedOutSessions = new HashSet<String>();
+    var sut =
+        new InMemoryLoggedOutSessionStore(tasks::add, 2) {
+          @Override
+          protected void doLogout(Set<String> sessionIds) {
+            loggedOutSessions.addAll(sessionIds);
+          }
+        };
+
+    sut.acquire(new SessionID("sid"), "1");
+    sut.acquire(new SessionID("sid"), "2");
+    sut.acquire(new SessionID("sid"), "3");
+    sut.logout(new SessionID("sid"));
+    tasks.getFirst().run();
+
+    // Sessions that didn't fit in the queue will be invalidated by the UserFilter
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(loggedOutSessions).hasSize(2);
+  }
+
+  @Test
+  public void subjectLoginThenLogout() {
+    var sut = new InMemoryLoggedOutSessionStore();
+
+    // Unknown sessions (e.g. restored after a restart) are not logged out
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "1")).isFalse();
+
+    sut.acquire(ISSUER, new Subject("sub"), "1");
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "1")).isFalse();
+
+    sut.renew(ISSUER, new Subject("sub"), "1", "2");
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "2")).isFalse();
+
+    sut.logout(ISSUER, new Subject("sub"));
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "2")).isTrue();
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("other"), "2")).isFalse();
+    assertThat(sut.isLoggedOut(OTHER_ISSUER, new Subject("sub"), "2")).isFalse();
+
+    // A logged out session stays logged out when its ID changes
+    sut.renew(ISSUER, new Subject("sub"), "2", "3");
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "2")).isFalse();
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "3")).isTrue();
+
+    sut.release(ISSUER, new Subject("sub"), "3");
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), "3")).isFalse();
+  }
+
+  @Test
+  public void subjectBackChannelLogout() {
+    var loggedOutSessions = new ArrayList<Set<String>>();
+    var sut =
+        new InMemoryLoggedOutSessionStore() {
+          @Override
+          protected void doLogout(Set<String> sessionIds) {
+            loggedOutSessions.add(sessionIds);
+          }
+        };
+
+    sut.acquire(ISSUER, new Subject("a"), "1");
+    sut.acquire(ISSUER, new Subject("a"), "2");
+    sut.acquire(ISSUER, new Subject("b"), "3");
+    sut.acquire(OTHER_ISSUER, new Subject("a"), "4");
+
+    sut.logout(ISSUER, new Subject("a"));
+    assertThat(loggedOutSessions).containsExactly(Set.of("1", "2"));
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("a"), "1")).isTrue();
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("a"), "2")).isTrue();
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("b"), "3")).isFalse();
+    // Same subject at another issuer is another user
+    assertThat(sut.isLoggedOut(OTHER_ISSUER, new Subject("a"), "4")).isFalse();
+
+    // Would be called by BackchannelLogoutSessionListener, shouldn't fail or have side-effects
+    sut.release(ISSUER, new Subject("a"), "1");
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("a"), "2")).isTrue();
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("b"), "3")).isFalse();
+
+    // Logging out again doesn't log out the sessions again
+    sut.logout(ISSUER, new Subject("a"));
+    assertThat(loggedOutSessions).containsExactly(Set.of("1", "2"));
+  }
+
+  @Test
+  public void logoutAllInOneBatch() {
+    var loggedOutSessions = new ArrayList<Set<String>>();
+    var sut =
+        new InMemoryLoggedOutSessionStore() {
+          @Override
+          protected void doLogout(Set<String> sessionIds) {
+            loggedOutSessions.add(sessionIds);
+          }
+        };
+
+    sut.acquire(new SessionID("a"), "1");
+    sut.acquire(new SessionID("a"), "2");
+    sut.acquire(new SessionID("b"), "3");
+    sut.acquire(new SessionID("c"), "4");
+
+    sut.logoutAll(List.of(new SessionID("a"), new SessionID("b"), new SessionID("unknown")));
+
+    assertThat(loggedOutSessions).containsExactly(Set.of("1", "2", "3"));
+    assertThat(sut.isLoggedOut(new SessionID("a"))).isTrue();
+    assertThat(sut.isLoggedOut(new SessionID("b"))).isTrue();
+    assertThat(sut.isLoggedOut(new SessionID("c"))).isFalse();
+  }
 }
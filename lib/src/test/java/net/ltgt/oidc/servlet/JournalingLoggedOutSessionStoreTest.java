@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalingLoggedOutSessionStoreTest {
+  private static final Duration RETENTION = Duration.ofMinutes(30);
+
+  @TempDir Path tempDir;
+
+  private final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+
+  private JournalingLoggedOutSessionStore open(Path file) throws IOException {
+    return new JournalingLoggedOutSessionStore(file, RETENTION, null, now::get);
+  }
+
+  @Test
+  void loggedOut() throws Exception {
+    try (var sut = open(tempDir.resolve("journal"))) {
+      assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+
+      sut.logout(new SessionID("sid"));
+
+      assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(sut.isLoggedOut(new SessionID("other"))).isFalse();
+    }
+  }
+
+  @Test
+  void replaysJournal() throws Exception {
+    var file = tempDir.resolve("journal");
+    try (var sut = open(file)) {
+      sut.logout(new SessionID("sid"));
+      sut.logout(new SessionID("sid2"));
+    }
+
+    try (var sut = open(file)) {
+      assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(sut.isLoggedOut(new SessionID("sid2"))).isTrue();
+      assertThat(sut.isLoggedOut(new SessionID("other"))).isFalse();
+    }
+  }
+
+  @Test
+  void replaysLargeJournalWellUnderASecond() throws Exception {
+    var file = tempDir.resolve("journal");
+    var sids = new SessionID[100_000];
+    try (var sut = open(file)) {
+      for (int i = 0; i < sids.length; i++) {
+        sids[i] = new SessionID(UUID.randomUUID().toString());
+        sut.logout(sids[i]);
+      }
+    }
+
+    // A cold JVM replays and compacts this journal in a few hundred milliseconds (tens once
+    // warmed up); a regression to e.g. per-record I/O would take seconds.
+    var start = System.nanoTime();
+    try (var sut = open(file)) {
+      var elapsed = Duration.ofNanos(System.nanoTime() - start);
+      assertThat(elapsed).isLessThan(Duration.ofSeconds(1));
+
+      for (var sid : sids) {
+        assertThat(sut.isLoggedOut(sid)).isTrue();
+      }
+    }
+  }
+
+  @Test
+  void expiresAfterRetention() throws Exception {
+    var file = tempDir.resolve("journal");
+    try (var sut = open(file)) {
+      sut.logout(new SessionID("sid"));
+      now.set(now.get().plus(Duration.ofMinutes(20)));
+      sut.logout(new SessionID("sid2"));
+
+      now.set(now.get().plus(Duration.ofMinutes(20)));
+      assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+      assertThat(sut.isLoggedOut(new SessionID("sid2"))).isTrue();
+    }
+
+    // Expired entries are not replayed
+    try (var sut = open(file)) {
+      assertThat(sut.isLoggedOut(new SessionID("sid"))).isFalse();
+      assertThat(sut.isLoggedOut(new SessionID("sid2"))).isTrue();
+    }
+  }
+
+  @Test
+  void compaction() throws Exception {
+    var file = tempDir.resolve("journal");
+    try (var sut = open(file)) {
+      for (int i = 0; i < 100_000; i++) {
+        sut.logout(new SessionID("sid-" + (i % 1000)));
+      }
+      sut.compactNow();
+      sut.logout(new SessionID("after-compaction"));
+
+      for (int i = 0; i < 1000; i++) {
+        assertThat(sut.isLoggedOut(new SessionID("sid-" + i))).isTrue();
+      }
+    }
+
+    try (var sut = open(file)) {
+      for (int i = 0; i < 1000; i++) {
+        assertThat(sut.isLoggedOut(new SessionID("sid-" + i))).isTrue();
+      }
+      assertThat(sut.isLoggedOut(new SessionID("after-compaction"))).isTrue();
+    }
+  }
+
+  @Test
+  void compactsMaximumLengthSessionID() throws Exception {
+    var file = tempDir.resolve("journal");
+    var longSid = new SessionID("x".repeat(0xffff));
+    try (var sut = open(file)) {
+      sut.logout(new SessionID("sid"));
+      sut.logout(longSid);
+      sut.compactNow();
+      sut.compactNow();
+
+      assertThat(sut.isLoggedOut(longSid)).isTrue();
+    }
+
+    try (var sut = open(file)) {
+      assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(sut.isLoggedOut(longSid)).isTrue();
+    }
+  }
+
+  @Test
+  void keepsJournalWhenCompactionFails() throws Exception {
+    var file = tempDir.resolve("journal");
+    try (var sut = open(file)) {
+      sut.logout(new SessionID("before"));
+      // The new journal file cannot be created
+      var tmp = Files.createDirectory(tempDir.resolve("journal.tmp"));
+
+      assertThrows(IOException.class, sut::compactNow);
+
+      sut.logout(new SessionID("after"));
+      assertThat(sut.isLoggedOut(new SessionID("before"))).isTrue();
+      assertThat(sut.isLoggedOut(new SessionID("after"))).isTrue();
+      Files.delete(tmp);
+    }
+
+    try (var sut = open(file)) {
+      assertThat(sut.isLoggedOut(new SessionID("before"))).isTrue();
+      assertThat(sut.isLoggedOut(new SessionID("after"))).isTrue();
+    }
+  }
+
+  @Test
+  void rejectsUnknownFile() throws Exception {
+    var file = tempDir.resolve("journal");
+    Files.writeString(file, "not a journal");
+
+    assertThrows(IOException.class, () -> open(file));
+  }
+
+  @Test
+  void closed() throws Exception {
+    var sut = open(tempDir.resolve("journal"));
+    sut.close();
+
+    assertThrows(IllegalStateException.class, () -> sut.logout(new SessionID("sid")));
+  }
+}
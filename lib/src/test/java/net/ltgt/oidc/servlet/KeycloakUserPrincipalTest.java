@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.oauth2.sdk.id.Audience;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.UserInfo;
+import java.sql.Date;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class KeycloakUserPrincipalTest {
+  private static SessionInfo sessionInfo(String userInfo) throws Exception {
+    var idTokenClaims =
+        new IDTokenClaimsSet(
+            new Issuer("issuer"),
+            new Subject("sub"),
+            List.of(new Audience("app")),
+            Date.from(Instant.now().plus(10, ChronoUnit.MINUTES)),
+            Date.from(Instant.now().minus(5, ChronoUnit.MINUTES)));
+    var idToken = new PlainJWT(idTokenClaims.toJWTClaimsSet());
+    return new SessionInfo(idToken, idTokenClaims, UserInfo.parse(userInfo));
+  }
+
+  @Test
+  void realmRoles() throws Exception {
+    var sut =
+        new KeycloakUserPrincipal(
+            sessionInfo(
+                """
+                {
+                  "sub": "sub",
+                  "realm_access": { "roles": ["user", "admin"] },
+                  "resource_access": { "app": { "roles": ["app-role"] } }
+                }
+                """));
+
+    assertThat(sut.hasRole("user")).isTrue();
+    assertThat(sut.hasRole("admin")).isTrue();
+    assertThat(sut.hasRole("app-role")).isFalse();
+    assertThat(sut.hasRole("other")).isFalse();
+  }
+
+  @Test
+  void clientRoles() throws Exception {
+    var sut =
+        new KeycloakUserPrincipal(
+            sessionInfo(
+                """
+                {
+                  "sub": "sub",
+                  "realm_access": { "roles": ["user"] },
+                  "resource_access": {
+                    "app": { "roles": ["app-role"] },
+                    "other-app": { "roles": ["other-app-role"] }
+                  }
+                }
+                """),
+            new ClientID("app"));
+
+    assertThat(sut.hasRole("user")).isTrue();
+    assertThat(sut.hasRole("app-role")).isTrue();
+    assertThat(sut.hasRole("other-app-role")).isFalse();
+  }
+
+  @Test
+  void noRoles() throws Exception {
+    var sut = new KeycloakUserPrincipal(sessionInfo("{\"sub\": \"sub\"}"), new ClientID("app"));
+
+    assertThat(sut.hasRole("user")).isFalse();
+  }
+
+  @Test
+  void nullRole() throws Exception {
+    var sut =
+        new KeycloakUserPrincipal(
+            sessionInfo(
+                """
+                {
+                  "sub": "sub",
+                  "realm_access": { "roles": ["user"] },
+                  "resource_access": { "app": { "roles": ["app-role"] } }
+                }
+                """),
+            new ClientID("app"));
+
+    assertThat(sut.hasRole(null)).isFalse();
+  }
+}
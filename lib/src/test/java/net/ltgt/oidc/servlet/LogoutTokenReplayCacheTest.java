@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class LogoutTokenReplayCacheTest {
+  private final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+
+  @Test
+  void duplicate() {
+    var sut = new LogoutTokenReplayCache(10, now::get);
+    assertThat(sut.isDuplicate("jti", "token")).isFalse();
+
+    sut.record("jti", "token", now.get().plusSeconds(120), now.get());
+
+    assertThat(sut.isDuplicate("jti", "token")).isTrue();
+    assertThat(sut.isDuplicate("other", "token")).isFalse();
+    // Same jti, different token
+    assertThat(sut.isDuplicate("jti", "forged")).isFalse();
+  }
+
+  @Test
+  void expiresWithToken() {
+    var sut = new LogoutTokenReplayCache(10, now::get);
+    sut.record("jti", "token", now.get().plusSeconds(120), now.get());
+
+    now.set(now.get().plusSeconds(150));
+    assertThat(sut.isDuplicate("jti", "token")).isTrue();
+
+    now.set(now.get().plusSeconds(60));
+    assertThat(sut.isDuplicate("jti", "token")).isFalse();
+  }
+
+  @Test
+  void expiresWithoutExp() {
+    var sut = new LogoutTokenReplayCache(10, now::get);
+    sut.record("jti", "token", null, now.get());
+
+    now.set(now.get().plus(Duration.ofMinutes(5)));
+    assertThat(sut.isDuplicate("jti", "token")).isTrue();
+
+    now.set(now.get().plus(Duration.ofMinutes(2)));
+    assertThat(sut.isDuplicate("jti", "token")).isFalse();
+  }
+
+  @Test
+  void bounded() {
+    var sut = new LogoutTokenReplayCache(2, now::get);
+    sut.record("jti1", "token1", now.get().plusSeconds(60), now.get());
+    sut.record("jti2", "token2", now.get().plusSeconds(120), now.get());
+    sut.record("jti3", "token3", now.get().plusSeconds(120), now.get());
+
+    // Full, new tokens are not recorded
+    assertThat(sut.isDuplicate("jti3", "token3")).isFalse();
+
+    now.set(now.get().plusSeconds(150));
+    sut.record("jti4", "token4", now.get().plusSeconds(120), now.get());
+
+    // jti1 expired, making room for jti4
+    assertThat(sut.isDuplicate("jti2", "token2")).isTrue();
+    assertThat(sut.isDuplicate("jti4", "token4")).isTrue();
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import net.ltgt.oidc.servlet.MulticastLoggedOutSessionTransport.ReplayWindow;
+import org.junit.jupiter.api.Test;
+
+class MulticastLoggedOutSessionTransportTest {
+  @Test
+  void replayWindowRejectsReplays() {
+    var sut = new ReplayWindow();
+
+    assertThat(sut.accept(1, 0)).isTrue();
+    assertThat(sut.accept(2, 0)).isTrue();
+    assertThat(sut.accept(1, 0)).isFalse();
+    assertThat(sut.accept(2, 0)).isFalse();
+  }
+
+  @Test
+  void replayWindowAcceptsReorderedSequences() {
+    var sut = new ReplayWindow();
+
+    assertThat(sut.accept(3, 0)).isTrue();
+    assertThat(sut.accept(1, 0)).isTrue();
+    assertThat(sut.accept(2, 0)).isTrue();
+    assertThat(sut.accept(3, 0)).isFalse();
+    assertThat(sut.accept(1, 0)).isFalse();
+    assertThat(sut.accept(2, 0)).isFalse();
+  }
+
+  @Test
+  void replayWindowRejectsSequencesTooOldToTell() {
+    var sut = new ReplayWindow();
+
+    assertThat(sut.accept(100, 0)).isTrue();
+
+    assertThat(sut.accept(37, 0)).isTrue();
+    assertThat(sut.accept(36, 0)).isFalse();
+    // Shifted out of the window
+    assertThat(sut.accept(200, 0)).isTrue();
+    assertThat(sut.accept(100, 0)).isFalse();
+  }
+
+  @Test
+  void replayWindowRecordsLastAccepted() {
+    var sut = new ReplayWindow();
+
+    sut.accept(1, 10);
+    sut.accept(1, 20);
+
+    assertThat(sut.lastAccepted).isEqualTo(10);
+  }
+}
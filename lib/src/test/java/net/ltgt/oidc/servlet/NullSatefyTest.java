@@ -49,13 +49,17 @@ import com.nimbusds.openid.connect.sdk.Nonce;
 import com.nimbusds.openid.connect.sdk.OIDCScopeValue;
 import com.nimbusds.openid.connect.sdk.SubjectType;
 import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
 import com.nimbusds.openid.connect.sdk.claims.UserInfo;
 import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
 import com.nimbusds.openid.connect.sdk.op.ReadOnlyOIDCProviderMetadata;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
 import java.sql.Date;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -85,9 +89,14 @@ public class NullSatefyTest {
     var tester =
         new NullPointerTester()
             .setDefault(ReadOnlyOIDCProviderMetadata.class, oidcProviderMetadata)
-            .setDefault(ClientAuthentication.class, clientAuthentication);
+            .setDefault(ProviderMetadataSupplier.class, () -> oidcProviderMetadata)
+            .setDefault(ClientAuthentication.class, clientAuthentication)
+            .setDefault(Issuer.class, new Issuer("https://example.com"))
+            .setDefault(Duration.class, Duration.ofHours(1));
     testPublicApi(
         tester, Configuration.class, new Configuration(oidcProviderMetadata, clientAuthentication));
+    testPublicApi(tester, ProviderMetadataSupplier.class, null);
+    testPublicApi(tester, RefreshingProviderMetadataSupplier.class, null);
     // XXX: put in its own test method? It's just an interface for now
     testPublicApi(tester, ClientAuthenticationSupplier.class, null);
   }
@@ -164,6 +173,26 @@ public class NullSatefyTest {
     testPublicApi(tester, UserPrincipal.class, null);
     testPublicApi(tester, SimpleUserPrincipal.class, new SimpleUserPrincipal(sessionInfo));
     testPublicApi(tester, KeycloakUserPrincipal.class, new KeycloakUserPrincipal(sessionInfo));
+    testPublicApi(
+        tester,
+        KeycloakUserPrincipal.class,
+        new KeycloakUserPrincipal(sessionInfo, new ClientID("app")));
+    testPublicApi(
+        tester,
+        CachingUserPrincipalFactory.class,
+        new CachingUserPrincipalFactory(SimpleUserPrincipal.FACTORY));
+  }
+
+  @Test
+  void testUserInfoFromIDTokenPolicy() {
+    var tester = new NullPointerTester();
+    testPublicApi(tester, UserInfoFromIDTokenPolicy.class, null);
+  }
+
+  @Test
+  void testBinarySessionInfoCodec() {
+    var tester = new NullPointerTester();
+    testPublicApi(tester, BinarySessionInfoCodec.class, new BinarySessionInfoCodec());
   }
 
   @Test
@@ -180,6 +209,7 @@ public class NullSatefyTest {
                 Configuration.class, new Configuration(oidcProviderMetadata, clientAuthentication));
     testPublicApi(tester, OAuthTokensHandler.class, null);
     testPublicApi(tester, RevokingOAuthTokensHandler.class, null);
+    testPublicApi(tester, TokenRevocationQueue.class, null);
   }
 
   @Test
@@ -201,6 +231,7 @@ public class NullSatefyTest {
     testPublicApi(tester, CallbackServlet.class, null);
     testPublicApi(tester, LogoutCallbackServlet.class, null);
     testPublicApi(tester, BackchannelLogoutServlet.class, null);
+    testPublicApi(tester, BulkBackchannelLogoutServlet.class, null);
     testPublicApi(tester, AbstractAuthorizationFilter.class, null);
     testPublicApi(tester, IsAuthenticatedFilter.class, null);
     testPublicApi(tester, HasRoleFilter.class, null);
@@ -214,10 +245,31 @@ public class NullSatefyTest {
 
   @Test
   void testLoggedOutSessionStore() {
-    var tester = new NullPointerTester();
+    var tester =
+        new NullPointerTester()
+            .setDefault(Duration.class, Duration.ofMinutes(30))
+            .setDefault(Path.class, Path.of("journal"))
+            .setDefault(SessionID.class, new SessionID("sid"))
+            .setDefault(Issuer.class, new Issuer("https://example.com"))
+            .setDefault(Subject.class, new Subject("sub"))
+            .setDefault(
+                InProcessLoggedOutSessionTransport.Group.class,
+                new InProcessLoggedOutSessionTransport.Group());
     testPublicApi(tester, LoggedOutSessionStore.class, null);
     testPublicApi(tester, NullLoggedOutSessionStore.class, null);
     testPublicApi(tester, InMemoryLoggedOutSessionStore.class, null);
+    testPublicApi(tester, BloomFilterLoggedOutSessionStore.class, null);
+    testPublicApi(tester, ExpiringLoggedOutSessionStore.class, null);
+    testPublicApi(tester, JournalingLoggedOutSessionStore.class, null);
+    testPublicApi(tester, ReplicatingLoggedOutSessionStore.class, null);
+    testPublicApi(tester, PerIssuerLoggedOutSessionStore.class, null);
+    testPublicApi(tester, LoggedOutSessionTransport.class, null);
+    testPublicApi(tester, LoggedOutSessionTransport.SessionLogout.class, null);
+    testPublicApi(tester, LoggedOutSessionTransport.SubjectLogout.class, null);
+    testPublicApi(
+        tester,
+        InProcessLoggedOutSessionTransport.class,
+        new InProcessLoggedOutSessionTransport(new InProcessLoggedOutSessionTransport.Group()));
   }
 
   @Test
@@ -226,6 +278,48 @@ public class NullSatefyTest {
     testPublicApi(tester, Utils.class, null);
   }
 
+  @Test
+  void testTenants() {
+    var tester = new NullPointerTester();
+    testPublicApi(tester, TenantResolver.class, null);
+    testPublicApi(tester, TenantConfigurationLoader.class, null);
+    testPublicApi(
+        tester,
+        TenantRegistry.class,
+        new TenantRegistry(TenantResolver.byServerName(), tenantId -> null, 10));
+    testPublicApi(tester, Tenant.class, null);
+    testPublicApi(tester, TenantServlet.class, null);
+    testPublicApi(tester, TenantFilter.class, null);
+  }
+
+  @Test
+  void testCachingJWSVerificationKeySelector() {
+    var tester = new NullPointerTester();
+    // Instance methods are mostly inherited from Nimbus, that don't throw NullPointerExceptions
+    testPublicApi(tester, CachingJWSVerificationKeySelector.class, null);
+  }
+
+  @Test
+  void testRefreshingJWKSource() {
+    var tester =
+        new NullPointerTester()
+            .setDefault(URI.class, URI.create("https://example.com/jwks"))
+            .setDefault(Duration.class, Duration.ofMinutes(5));
+    testPublicApi(tester, RefreshingJWKSource.class, null);
+  }
+
+  @Test
+  void testHttpClientRequestSender() {
+    var tester =
+        new NullPointerTester()
+            .setDefault(Duration.class, Duration.ofSeconds(1))
+            .setDefault(HttpClient.class, HttpClient.newHttpClient());
+    testPublicApi(
+        tester,
+        HttpClientRequestSender.class,
+        new HttpClientRequestSender(Duration.ofSeconds(1), Duration.ofSeconds(1)));
+  }
+
   @Test
   void testJWTAuthorizationRequestHelper() throws Exception {
     var keyGenerator = new ECKeyGenerator(Curve.P_256);
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.io.IOException;
+import java.util.ArrayList;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+class PerIssuerLoggedOutSessionStoreTest {
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+  private static final Issuer OTHER_ISSUER = new Issuer("https://other-op.example.com");
+
+  private final PerIssuerLoggedOutSessionStore sut =
+      new PerIssuerLoggedOutSessionStore(issuer -> new InMemoryLoggedOutSessionStore());
+
+  @Test
+  void createsOneStorePerIssuer() {
+    var store = sut.forIssuer(ISSUER);
+
+    assertThat(sut.forIssuer(new Issuer(ISSUER.getValue()))).isSameInstanceAs(store);
+    assertThat(sut.forIssuer(OTHER_ISSUER)).isNotSameInstanceAs(store);
+  }
+
+  @Test
+  void otherIssuerCannotLogoutSessions() {
+    var servletContext = new FakeServletContext();
+    servletContext.listeners.add(new BackchannelLogoutSessionListener(sut));
+    var withSid = login(servletContext, new SessionID("sid"));
+    var withoutSid = login(servletContext, null);
+
+    sut.forIssuer(OTHER_ISSUER).logout(new SessionID("sid"));
+    sut.forIssuer(OTHER_ISSUER).logout(ISSUER, new Subject("sub"));
+
+    assertThat(sut.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isFalse();
+    assertThat(sut.forIssuer(ISSUER).isLoggedOut(ISSUER, new Subject("sub"), withoutSid.id))
+        .isFalse();
+
+    sut.forIssuer(ISSUER).logout(new SessionID("sid"));
+    sut.forIssuer(ISSUER).logout(ISSUER, new Subject("sub"));
+
+    assertThat(sut.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(sut.forIssuer(ISSUER).isLoggedOut(ISSUER, new Subject("sub"), withSid.id))
+        .isTrue();
+    assertThat(sut.forIssuer(ISSUER).isLoggedOut(ISSUER, new Subject("sub"), withoutSid.id))
+        .isTrue();
+  }
+
+  @Test
+  void callsWithIssuerArePassedToIssuerStore() {
+    var servletContext = new FakeServletContext();
+    servletContext.listeners.add(new BackchannelLogoutSessionListener(sut));
+    var session = login(servletContext, null);
+
+    sut.logout(ISSUER, new Subject("sub"));
+
+    assertThat(sut.isLoggedOut(ISSUER, new Subject("sub"), session.id)).isTrue();
+    assertThat(sut.forIssuer(ISSUER).isLoggedOut(ISSUER, new Subject("sub"), session.id)).isTrue();
+  }
+
+  @Test
+  void callsWithoutIssuerArePassedToSharedStore() {
+    var sharedStore = new InMemoryLoggedOutSessionStore();
+    var sut =
+        new PerIssuerLoggedOutSessionStore(
+            issuer -> new InMemoryLoggedOutSessionStore(), sharedStore);
+    sut.acquire(new SessionID("sid"), "session");
+    sut.forIssuer(ISSUER).acquire(new SessionID("sid"), "other-session");
+
+    sut.logout(new SessionID("sid"));
+
+    assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(sharedStore.isLoggedOut(new SessionID("sid"))).isTrue();
+    assertThat(sut.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isFalse();
+  }
+
+  @Test
+  void closesAutoCloseableStores() {
+    var closed = new ArrayList<Issuer>();
+    class CloseableStore implements LoggedOutSessionStore, AutoCloseable {
+      private final Issuer issuer;
+
+      CloseableStore(Issuer issuer) {
+        this.issuer = issuer;
+      }
+
+      @Override
+      public void close() throws IOException {
+        closed.add(issuer);
+        throw new IOException(issuer.getValue());
+      }
+    }
+    var sut = new PerIssuerLoggedOutSessionStore(CloseableStore::new);
+    sut.forIssuer(ISSUER);
+    sut.forIssuer(OTHER_ISSUER);
+
+    var e = assertThrows(IOException.class, sut::close);
+
+    assertThat(closed).containsExactly(ISSUER, OTHER_ISSUER);
+    assertThat(e.getSuppressed()).hasLength(1);
+  }
+
+  private static FakeHttpSession login(
+      FakeServletContext servletContext, @Nullable SessionID sid) {
+    var session = new FakeHttpSession(servletContext);
+    session
+        .get()
+        .setAttribute(
+            SessionInfo.SESSION_ATTRIBUTE_NAME,
+            // The ID Token and User Info are never parsed by the listener
+            new SessionInfo("id-token", "{}", ISSUER, sid, new Subject("sub")));
+    return session;
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPRequest;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RefreshingJWKSourceTest {
+  private static final URI JWK_SET_URI = URI.create("https://op.example.com/jwks");
+  private static final JWKSelector KEY1 =
+      new JWKSelector(new JWKMatcher.Builder().keyID("key1").build());
+  private static final JWKSelector KEY2 =
+      new JWKSelector(new JWKMatcher.Builder().keyID("key2").build());
+
+  @TempDir Path tempDir;
+
+  private final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+  private final FakeHTTPRequestSender sender = new FakeHTTPRequestSender();
+  private JWKSet key1;
+  private JWKSet key2;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    key1 = new JWKSet(new ECKeyGenerator(Curve.P_256).keyID("key1").generate().toPublicJWK());
+    key2 = new JWKSet(new ECKeyGenerator(Curve.P_256).keyID("key2").generate().toPublicJWK());
+  }
+
+  private RefreshingJWKSource createSource(@Nullable Path snapshotFile) {
+    return new RefreshingJWKSource(
+        JWK_SET_URI,
+        snapshotFile,
+        Duration.ofMinutes(5),
+        Duration.ofHours(1),
+        sender,
+        now::get,
+        false);
+  }
+
+  @Test
+  void fetchesOnFirstUse() throws Exception {
+    sender.jwkSet = key1;
+    var sut = createSource(null);
+    assertThat(sut.getStaleness()).isNull();
+
+    assertThat(sut.get(KEY1, null)).containsExactlyElementsIn(key1.getKeys());
+    assertThat(sut.getRefreshCount()).isEqualTo(1);
+    assertThat(sut.getStaleness()).isEqualTo(Duration.ZERO);
+    assertThat(sut.getLastRefreshDuration()).isNotNull();
+
+    // Cached
+    assertThat(sut.get(KEY1, null)).containsExactlyElementsIn(key1.getKeys());
+    assertThat(sut.getRefreshCount()).isEqualTo(1);
+  }
+
+  @Test
+  void failsWithoutJWKSet() {
+    sender.jwkSet = null;
+    var sut = createSource(null);
+
+    assertThrows(KeySourceException.class, () -> sut.get(KEY1, null));
+    assertThat(sut.getRefreshFailureCount()).isEqualTo(1);
+  }
+
+  @Test
+  void failsFastWithoutJWKSet() throws Exception {
+    sender.jwkSet = null;
+    var sut = createSource(null);
+    var failure = assertThrows(KeySourceException.class, () -> sut.get(KEY1, null));
+
+    // Rate-limited, fails with the last error
+    var e = assertThrows(KeySourceException.class, () -> sut.get(KEY1, null));
+    assertThat(e).hasCauseThat().isSameInstanceAs(failure);
+    assertThat(sut.getRefreshCount()).isEqualTo(1);
+
+    sender.jwkSet = key1;
+    now.set(now.get().plusSeconds(30));
+    assertThat(sut.get(KEY1, null)).containsExactlyElementsIn(key1.getKeys());
+    assertThat(sut.getRefreshCount()).isEqualTo(2);
+  }
+
+  @Test
+  void keepsLastJWKSetOnFailure() throws Exception {
+    sender.jwkSet = key1;
+    var sut = createSource(null);
+    sut.refreshNow();
+
+    sender.jwkSet = null;
+    now.set(now.get().plus(Duration.ofMinutes(5)));
+    assertThrows(KeySourceException.class, sut::refreshNow);
+
+    assertThat(sut.get(KEY1, null)).containsExactlyElementsIn(key1.getKeys());
+    assertThat(sut.getStaleness()).isEqualTo(Duration.ofMinutes(5));
+    assertThat(sut.getRefreshCount()).isEqualTo(2);
+    assertThat(sut.getRefreshFailureCount()).isEqualTo(1);
+  }
+
+  @Test
+  void stopsUsingTooStaleJWKSet() throws Exception {
+    sender.jwkSet = key1;
+    var sut = createSource(null);
+    sut.refreshNow();
+
+    sender.jwkSet = null;
+    now.set(now.get().plus(Duration.ofMinutes(59)));
+    assertThat(sut.get(KEY1, null)).containsExactlyElementsIn(key1.getKeys());
+    assertThat(sut.getRefreshCount()).isEqualTo(1);
+
+    now.set(now.get().plus(Duration.ofMinutes(2)));
+    assertThrows(KeySourceException.class, () -> sut.get(KEY1, null));
+    assertThat(sut.getRefreshCount()).isEqualTo(2);
+
+    sender.jwkSet = key1;
+    now.set(now.get().plusSeconds(30));
+    assertThat(sut.get(KEY1, null)).containsExactlyElementsIn(key1.getKeys());
+    assertThat(sut.getStaleness()).isEqualTo(Duration.ZERO);
+  }
+
+  @Test
+  void keepsSameInstancesWhenUnchanged() throws Exception {
+    sender.jwkSet = key1;
+    var sut = createSource(null);
+    var jwks = sut.get(KEY1, null);
+
+    sender.jwkSet = JWKSet.parse(key1.toString());
+    sut.refreshNow();
+
+    assertThat(sut.get(KEY1, null).get(0)).isSameInstanceAs(jwks.get(0));
+  }
+
+  @Test
+  void refreshesOnUnknownKey() throws Exception {
+    sender.jwkSet = key1;
+    var sut = createSource(null);
+    sut.refreshNow();
+
+    sender.jwkSet = key2;
+    // Rate-limited
+    assertThat(sut.get(KEY2, null)).isEmpty();
+    assertThat(sut.getRefreshCount()).isEqualTo(1);
+
+    now.set(now.get().plusSeconds(30));
+    assertThat(sut.get(KEY2, null)).containsExactlyElementsIn(key2.getKeys());
+    assertThat(sut.getRefreshCount()).isEqualTo(2);
+  }
+
+  @Test
+  void snapshot() throws Exception {
+    var snapshotFile = tempDir.resolve("jwks.json");
+    sender.jwkSet = key1;
+    var sut = createSource(snapshotFile);
+    sut.refreshNow();
+    assertThat(JWKSet.parse(Files.readString(snapshotFile, UTF_8)).getKeys())
+        .containsExactlyElementsIn(key1.getKeys());
+
+    // Unchanged JWK set: the snapshot is only touched
+    var written = Files.readString(snapshotFile, UTF_8);
+    Files.writeString(snapshotFile, written + "\n", UTF_8);
+    // Truncated for file systems with a coarse modification time resolution
+    now.set(now.get().plus(Duration.ofMinutes(5)).truncatedTo(ChronoUnit.SECONDS));
+    sut.refreshNow();
+    assertThat(Files.readString(snapshotFile, UTF_8)).isEqualTo(written + "\n");
+    assertThat(Files.getLastModifiedTime(snapshotFile).toInstant()).isEqualTo(now.get());
+
+    // OpenID Provider unreachable after restart
+    sender.jwkSet = null;
+    var restarted = createSource(snapshotFile);
+
+    assertThat(restarted.get(KEY1, null)).containsExactlyElementsIn(key1.getKeys());
+    assertThat(restarted.getRefreshCount()).isEqualTo(0);
+    assertThat(restarted.getStaleness()).isNotNull();
+  }
+
+  private static class FakeHTTPRequestSender implements HTTPRequestSender {
+    @Nullable JWKSet jwkSet;
+
+    @Override
+    public ReadOnlyHTTPResponse send(ReadOnlyHTTPRequest httpRequest) throws IOException {
+      assertThat(httpRequest.getURI()).isEqualTo(JWK_SET_URI);
+      var jwkSet = this.jwkSet;
+      if (jwkSet == null) {
+        return new HTTPResponse(HTTPResponse.SC_SERVER_ERROR);
+      }
+      var response = new HTTPResponse(HTTPResponse.SC_OK);
+      response.setBody(jwkSet.toString());
+      return response;
+    }
+  }
+}
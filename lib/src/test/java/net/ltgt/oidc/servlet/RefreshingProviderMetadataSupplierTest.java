@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.common.contenttype.ContentType;
+import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPRequest;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RefreshingProviderMetadataSupplierTest {
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+
+  @TempDir Path tempDir;
+
+  private final FakeHTTPRequestSender sender = new FakeHTTPRequestSender();
+
+  private RefreshingProviderMetadataSupplier createSupplier(@Nullable Path snapshotFile)
+      throws IOException {
+    return new RefreshingProviderMetadataSupplier(
+        ISSUER, snapshotFile, Duration.ofHours(1), sender, false);
+  }
+
+  @Test
+  void discoversAtConstruction() throws Exception {
+    sender.setMetadata("https://op.example.com/authorize", "v1");
+
+    var sut = createSupplier(null);
+
+    assertThat(sut.getProviderMetadata().getAuthorizationEndpointURI())
+        .isEqualTo(URI.create("https://op.example.com/authorize"));
+    assertThat(sender.requestCount).isEqualTo(1);
+  }
+
+  @Test
+  void failsWithoutSnapshot() {
+    sender.body = null;
+
+    assertThrows(IOException.class, () -> createSupplier(null));
+  }
+
+  @Test
+  void conditionalRefresh() throws Exception {
+    sender.setMetadata("https://op.example.com/authorize", "v1");
+    var sut = createSupplier(null);
+    var providerMetadata = sut.getProviderMetadata();
+
+    sut.refreshNow();
+
+    assertThat(sender.lastIfNoneMatch).isEqualTo("v1");
+    assertThat(sut.getProviderMetadata()).isSameInstanceAs(providerMetadata);
+
+    sender.setMetadata("https://op.example.com/v2/authorize", "v2");
+    sut.refreshNow();
+
+    assertThat(sut.getProviderMetadata().getAuthorizationEndpointURI())
+        .isEqualTo(URI.create("https://op.example.com/v2/authorize"));
+  }
+
+  @Test
+  void keepsMetadataOnFailure() throws Exception {
+    sender.setMetadata("https://op.example.com/authorize", "v1");
+    var sut = createSupplier(null);
+    var providerMetadata = sut.getProviderMetadata();
+
+    sender.body = null;
+    assertThrows(IOException.class, sut::refreshNow);
+
+    assertThat(sut.getProviderMetadata()).isSameInstanceAs(providerMetadata);
+  }
+
+  @Test
+  void rejectsIssuerMismatch() {
+    sender.setMetadata("https://op.example.com/authorize", null);
+    sender.body = sender.body.replace(ISSUER.getValue(), "https://evil.example.com");
+
+    assertThrows(IOException.class, () -> createSupplier(null));
+  }
+
+  @Test
+  void snapshot() throws Exception {
+    var snapshotFile = tempDir.resolve("openid-configuration.json");
+    sender.setMetadata("https://op.example.com/authorize", "v1");
+    createSupplier(snapshotFile).close();
+
+    // OpenID Provider unreachable after restart
+    sender.body = null;
+    sender.requestCount = 0;
+    var restarted = createSupplier(snapshotFile);
+
+    assertThat(restarted.getProviderMetadata().getAuthorizationEndpointURI())
+        .isEqualTo(URI.create("https://op.example.com/authorize"));
+    assertThat(sender.requestCount).isEqualTo(0);
+  }
+
+  private static class FakeHTTPRequestSender implements HTTPRequestSender {
+    @Nullable String body;
+    @Nullable String etag;
+    @Nullable String lastIfNoneMatch;
+    int requestCount;
+
+    void setMetadata(String authorizationEndpoint, @Nullable String etag) {
+      this.body =
+          """
+          {
+            "issuer": "%s",
+            "authorization_endpoint": "%s",
+            "jwks_uri": "https://op.example.com/jwks",
+            "response_types_supported": ["code"],
+            "subject_types_supported": ["public"],
+            "id_token_signing_alg_values_supported": ["RS256"]
+          }
+          """
+              .formatted(ISSUER, authorizationEndpoint);
+      this.etag = etag;
+    }
+
+    @Override
+    public ReadOnlyHTTPResponse send(ReadOnlyHTTPRequest httpRequest) throws IOException {
+      assertThat(httpRequest.getURI())
+          .isEqualTo(URI.create("https://op.example.com/.well-known/openid-configuration"));
+      requestCount++;
+      lastIfNoneMatch = httpRequest.getHeaderValue("If-None-Match");
+      var body = this.body;
+      if (body == null) {
+        return new HTTPResponse(HTTPResponse.SC_SERVER_ERROR);
+      }
+      if (etag != null && etag.equals(lastIfNoneMatch)) {
+        return new HTTPResponse(304);
+      }
+      var response = new HTTPResponse(HTTPResponse.SC_OK);
+      response.setContentType(ContentType.APPLICATION_JSON);
+      response.setBody(body);
+      if (etag != null) {
+        response.setHeader("ETag", etag);
+      }
+      return response;
+    }
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import net.ltgt.oidc.servlet.LoggedOutSessionTransport.Logout;
+import net.ltgt.oidc.servlet.LoggedOutSessionTransport.SessionLogout;
+import net.ltgt.oidc.servlet.LoggedOutSessionTransport.SubjectLogout;
+import org.junit.jupiter.api.Test;
+
+class ReplicatingLoggedOutSessionStoreTest {
+  private static final Duration RETENTION = Duration.ofMinutes(30);
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+  private static final Issuer OTHER_ISSUER = new Issuer("https://other-op.example.com");
+
+  @Test
+  void replicatesLogouts() throws Exception {
+    var group = new InProcessLoggedOutSessionTransport.Group();
+    var local1 = new ExpiringLoggedOutSessionStore(RETENTION, 100);
+    var local2 = new ExpiringLoggedOutSessionStore(RETENTION, 100);
+    var local3 = new ExpiringLoggedOutSessionStore(RETENTION, 100);
+    try (var node2 =
+            new ReplicatingLoggedOutSessionStore(
+                local2, new InProcessLoggedOutSessionTransport(group));
+        var node3 =
+            new ReplicatingLoggedOutSessionStore(
+                local3, new InProcessLoggedOutSessionTransport(group))) {
+      try (var node1 =
+          new ReplicatingLoggedOutSessionStore(
+              local1, new InProcessLoggedOutSessionTransport(group))) {
+        node1.logout(new SessionID("sid"));
+        assertThat(node1.isLoggedOut(new SessionID("sid"))).isTrue();
+        // closing flushes the queued session IDs
+      }
+
+      assertThat(node2.isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(node3.isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(node2.isLoggedOut(new SessionID("other"))).isFalse();
+    }
+  }
+
+  @Test
+  void replicatesSubjectLogouts() throws Exception {
+    var group = new InProcessLoggedOutSessionTransport.Group();
+    var local1 = new InMemoryLoggedOutSessionStore();
+    var local2 = new InMemoryLoggedOutSessionStore();
+    try (var node2 =
+        new ReplicatingLoggedOutSessionStore(
+            local2, new InProcessLoggedOutSessionTransport(group))) {
+      node2.forIssuer(ISSUER).acquire(ISSUER, new Subject("sub"), "session");
+      try (var node1 =
+          new ReplicatingLoggedOutSessionStore(
+              local1, new InProcessLoggedOutSessionTransport(group))) {
+        node1.logout(ISSUER, new Subject("sub"));
+        // closing flushes the queued logouts
+      }
+
+      assertThat(node2.isLoggedOut(ISSUER, new Subject("sub"), "session")).isTrue();
+    }
+  }
+
+  @Test
+  void replicatesLogoutsPerIssuer() throws Exception {
+    var group = new InProcessLoggedOutSessionTransport.Group();
+    var local1 =
+        new PerIssuerLoggedOutSessionStore(
+            issuer -> new ExpiringLoggedOutSessionStore(RETENTION, 100));
+    var local2 =
+        new PerIssuerLoggedOutSessionStore(
+            issuer -> new ExpiringLoggedOutSessionStore(RETENTION, 100));
+    try (var node2 =
+        new ReplicatingLoggedOutSessionStore(
+            local2, new InProcessLoggedOutSessionTransport(group))) {
+      // Issuers known to node2
+      node2.forIssuer(ISSUER);
+      node2.forIssuer(OTHER_ISSUER);
+      try (var node1 =
+          new ReplicatingLoggedOutSessionStore(
+              local1, new InProcessLoggedOutSessionTransport(group))) {
+        node1.forIssuer(ISSUER).logout(new SessionID("sid"));
+        assertThat(node1.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+        // closing flushes the queued logouts
+      }
+
+      assertThat(node2.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(node2.forIssuer(OTHER_ISSUER).isLoggedOut(new SessionID("sid"))).isFalse();
+    }
+  }
+
+  @Test
+  void batchesLogouts() throws Exception {
+    var transport = new RecordingTransport();
+    try (var sut =
+        new ReplicatingLoggedOutSessionStore(
+            new ExpiringLoggedOutSessionStore(RETENTION, 100), transport, Duration.ofHours(1))) {
+      sut.logout(new SessionID("sid1"));
+      sut.logout(new SessionID("sid2"));
+      sut.logout(ISSUER, new Subject("sub"));
+      sut.logout(new SessionID("sid3"));
+    }
+
+    assertThat(transport.sent)
+        .containsExactly(
+            List.of(
+                logout("sid1"),
+                logout("sid2"),
+                new SubjectLogout(ISSUER, new Subject("sub")),
+                logout("sid3")));
+    assertThat(transport.closed).isTrue();
+  }
+
+  @Test
+  void sendsIssuerOfPartitionedStore() throws Exception {
+    var transport = new RecordingTransport();
+    try (var sut =
+        new ReplicatingLoggedOutSessionStore(
+            new PerIssuerLoggedOutSessionStore(
+                issuer -> new ExpiringLoggedOutSessionStore(RETENTION, 100)),
+            transport,
+            Duration.ofHours(1))) {
+      sut.forIssuer(ISSUER).logout(new SessionID("sid1"));
+      sut.forIssuer(OTHER_ISSUER).logoutAll(List.of(new SessionID("sid2")));
+      sut.forIssuer(ISSUER).logout(ISSUER, new Subject("sub"));
+    }
+
+    assertThat(transport.sent)
+        .containsExactly(
+            List.of(
+                new SessionLogout(ISSUER, new SessionID("sid1")),
+                new SessionLogout(OTHER_ISSUER, new SessionID("sid2")),
+                new SubjectLogout(ISSUER, new Subject("sub"))));
+  }
+
+  @Test
+  void cachesIssuerStores() throws Exception {
+    var transport = new RecordingTransport();
+    var local =
+        new BloomFilterLoggedOutSessionStore(
+            new PerIssuerLoggedOutSessionStore(
+                issuer -> new ExpiringLoggedOutSessionStore(RETENTION, 100)),
+            1000,
+            0.001,
+            RETENTION);
+    try (var sut = new ReplicatingLoggedOutSessionStore(local, transport, Duration.ofHours(1))) {
+      var store = sut.forIssuer(ISSUER);
+      assertThat(sut.forIssuer(new Issuer(ISSUER.getValue()))).isSameInstanceAs(store);
+
+      store.logout(new SessionID("sid"));
+
+      assertThat(sut.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(local.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(sut.forIssuer(OTHER_ISSUER).isLoggedOut(new SessionID("sid"))).isFalse();
+    }
+
+    assertThat(transport.sent)
+        .containsExactly(List.of(new SessionLogout(ISSUER, new SessionID("sid"))));
+  }
+
+  @Test
+  void receivedLogoutsAreAppliedToIssuerPartition() throws Exception {
+    var transport = new RecordingTransport();
+    var local =
+        new PerIssuerLoggedOutSessionStore(
+            issuer -> new ExpiringLoggedOutSessionStore(RETENTION, 100));
+    try (var sut = new ReplicatingLoggedOutSessionStore(local, transport)) {
+      sut.forIssuer(ISSUER);
+      sut.forIssuer(OTHER_ISSUER);
+      transport.receive(List.of(new SessionLogout(ISSUER, new SessionID("sid"))));
+
+      assertThat(local.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(local.forIssuer(OTHER_ISSUER).isLoggedOut(new SessionID("sid"))).isFalse();
+      assertThat(sut.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+    }
+
+    assertThat(transport.sent).isEmpty();
+  }
+
+  @Test
+  void receivedLogoutsForUnknownIssuersAreIgnored() throws Exception {
+    var transport = new RecordingTransport();
+    var createdStores = new ArrayList<Issuer>();
+    var local =
+        new PerIssuerLoggedOutSessionStore(
+            issuer -> {
+              createdStores.add(issuer);
+              return new ExpiringLoggedOutSessionStore(RETENTION, 100);
+            });
+    try (var sut = new ReplicatingLoggedOutSessionStore(local, transport)) {
+      sut.forIssuer(ISSUER);
+      transport.receive(
+          List.of(
+              new SessionLogout(ISSUER, new SessionID("sid")),
+              new SessionLogout(OTHER_ISSUER, new SessionID("sid")),
+              new SubjectLogout(OTHER_ISSUER, new Subject("sub"))));
+
+      assertThat(createdStores).containsExactly(ISSUER);
+      assertThat(sut.forIssuer(ISSUER).isLoggedOut(new SessionID("sid"))).isTrue();
+    }
+  }
+
+  @Test
+  void receivedLogoutsAreNotReplicated() throws Exception {
+    var transport = new RecordingTransport();
+    var local = new ExpiringLoggedOutSessionStore(RETENTION, 100);
+    try (var sut = new ReplicatingLoggedOutSessionStore(local, transport)) {
+      transport.receive(List.of(logout("sid")));
+
+      assertThat(local.isLoggedOut(new SessionID("sid"))).isTrue();
+      assertThat(sut.isLoggedOut(new SessionID("sid"))).isTrue();
+    }
+
+    assertThat(transport.sent).isEmpty();
+  }
+
+  @Test
+  void dropsLogoutsWhenQueueIsFull() throws Exception {
+    var transport = new RecordingTransport();
+    transport.release = new CountDownLatch(1);
+    var local = new ExpiringLoggedOutSessionStore(RETENTION, 100);
+    try (var sut = new ReplicatingLoggedOutSessionStore(local, transport, Duration.ZERO, 1)) {
+      sut.logout(new SessionID("sid1"));
+      transport.started.await();
+
+      sut.logoutAll(List.of(new SessionID("sid2"), new SessionID("sid3")));
+
+      assertThat(sut.getDroppedCount()).isEqualTo(1);
+      // Dropped logouts are still applied locally
+      assertThat(sut.isLoggedOut(new SessionID("sid3"))).isTrue();
+      transport.release.countDown();
+    }
+
+    assertThat(transport.sent)
+        .containsExactly(List.of(logout("sid1")), List.of(logout("sid2")))
+        .inOrder();
+  }
+
+  @Test
+  void receivedLogoutsAreAppliedAtOnce() throws Exception {
+    var transport = new RecordingTransport();
+    var received = new ArrayList<Object>();
+    var local =
+        new LoggedOutSessionStore() {
+          @Override
+          public void logout(SessionID sessionID) {
+            received.add(List.of(sessionID));
+          }
+
+          @Override
+          public void logoutAll(Collection<SessionID> sessionIDs) {
+            received.add(List.copyOf(sessionIDs));
+          }
+
+          @Override
+          public void logout(Issuer issuer, Subject subject) {
+            received.add(issuer + " " + subject);
+          }
+        };
+    try (var sut = new ReplicatingLoggedOutSessionStore(local, transport)) {
+      sut.forIssuer(ISSUER);
+      transport.receive(
+          List.of(
+              logout("sid1"), new SubjectLogout(ISSUER, new Subject("sub")), logout("sid2")));
+    }
+
+    assertThat(received)
+        .containsExactly(
+            "https://op.example.com sub", List.of(new SessionID("sid1"), new SessionID("sid2")))
+        .inOrder();
+  }
+
+  private static Logout logout(String sid) {
+    return new SessionLogout(new SessionID(sid));
+  }
+
+  private static class RecordingTransport implements LoggedOutSessionTransport {
+    final List<List<Logout>> sent = new ArrayList<>();
+    final CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(0);
+    Consumer<List<Logout>> receiver;
+    boolean closed;
+
+    @Override
+    public void start(Consumer<List<Logout>> receiver) {
+      this.receiver = receiver;
+    }
+
+    void receive(List<Logout> logouts) {
+      receiver.accept(logouts);
+    }
+
+    @Override
+    public synchronized void send(List<Logout> logouts) {
+      sent.add(List.copyOf(logouts));
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Objects.requireNonNull;
+
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+class TenantFilterTest {
+  private final FakeServletContext servletContext = new FakeServletContext();
+  private final TenantRegistry tenantRegistry =
+      new TenantRegistry(TenantResolver.byServerName(), TenantFilterTest::loadConfiguration, 10);
+  private final List<RecordingFilter> filters = new ArrayList<>();
+  private final List<String> chainedTenants = new ArrayList<>();
+
+  private static @Nullable Configuration loadConfiguration(String tenantId) {
+    if (tenantId.equals("unknown")) {
+      return null;
+    }
+    var issuer = "https://" + tenantId + ".example.com";
+    return new Configuration(
+        new OIDCProviderMetadata(
+            new Issuer(issuer), List.of(SubjectType.PUBLIC), URI.create(issuer + "/jwks")),
+        new ClientSecretBasic(new ClientID("app"), new Secret()));
+  }
+
+  private RecordingFilter createTenantFilter(Tenant tenant) {
+    var filter = new RecordingFilter(tenant.getId());
+    filters.add(filter);
+    return filter;
+  }
+
+  private TenantFilter createFilter() throws Exception {
+    var filter = new TenantFilter(tenantRegistry, this::createTenantFilter);
+    filter.init(servletContext.filterConfig());
+    return filter;
+  }
+
+  private FakeHttpServletResponse doFilter(TenantFilter filter, FakeHttpServletRequest req)
+      throws Exception {
+    var resp = new FakeHttpServletResponse();
+    filter.doFilter(
+        req.get(),
+        resp.get(),
+        (request, response) ->
+            chainedTenants.add(
+                (String) requireNonNull(request.getAttribute(RecordingFilter.TENANT_ATTRIBUTE))));
+    return resp;
+  }
+
+  private FakeHttpServletRequest request(String tenantId) {
+    return new FakeHttpServletRequest(
+        servletContext, "GET", "https://" + tenantId + ".example.com/");
+  }
+
+  @Test
+  void dispatchesToFilterOfTenant() throws Exception {
+    var sut = createFilter();
+
+    doFilter(sut, request("acme"));
+    doFilter(sut, request("initech"));
+    doFilter(sut, request("acme"));
+
+    assertThat(filters).hasSize(2);
+    var acme = filters.get(0);
+    var initech = filters.get(1);
+    assertThat(acme.tenantId).isEqualTo("acme");
+    assertThat(acme.initialized).isTrue();
+    assertThat(initech.tenantId).isEqualTo("initech");
+    assertThat(initech.initialized).isTrue();
+    // Each tenant's filter continues the chain
+    assertThat(chainedTenants).containsExactly("acme", "initech", "acme").inOrder();
+  }
+
+  @Test
+  void respondsNotFoundForUnknownTenant() throws Exception {
+    var sut = createFilter();
+
+    var resp = doFilter(sut, request("unknown"));
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+    assertThat(filters).isEmpty();
+    assertThat(chainedTenants).isEmpty();
+  }
+
+  @Test
+  void invalidatesSessionOfOtherTenant() throws Exception {
+    var sut = createFilter();
+    var session = new FakeHttpSession(servletContext);
+    session.attributes.put(
+        SessionInfo.SESSION_ATTRIBUTE_NAME,
+        // The ID Token and User Info are never parsed when checking sessions
+        new SessionInfo(
+            "id-token", "{}", new Issuer("https://initech.example.com"), null, new Subject("sub")));
+
+    doFilter(sut, request("acme").withSession(session));
+
+    assertThat(session.invalidated).isTrue();
+    assertThat(chainedTenants).containsExactly("acme");
+  }
+
+  @Test
+  void destroysFilterOfEvictedTenant() throws Exception {
+    var registry =
+        new TenantRegistry(TenantResolver.byServerName(), TenantFilterTest::loadConfiguration, 1);
+    var sut = new TenantFilter(registry, this::createTenantFilter);
+    sut.init(servletContext.filterConfig());
+
+    doFilter(sut, request("acme"));
+    doFilter(sut, request("initech"));
+
+    assertThat(filters).hasSize(2);
+    assertThat(filters.get(0).destroyed).isTrue();
+    assertThat(filters.get(1).destroyed).isFalse();
+  }
+
+  @SuppressWarnings("serial")
+  private static class RecordingFilter extends HttpFilter {
+    static final String TENANT_ATTRIBUTE = "tenant";
+
+    final String tenantId;
+    boolean initialized;
+    boolean destroyed;
+
+    RecordingFilter(String tenantId) {
+      this.tenantId = tenantId;
+    }
+
+    @Override
+    public void init() {
+      initialized = true;
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+        throws IOException, ServletException {
+      req.setAttribute(TENANT_ATTRIBUTE, tenantId);
+      chain.doFilter(req, res);
+    }
+
+    @Override
+    public void destroy() {
+      destroyed = true;
+    }
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import com.nimbusds.openid.connect.sdk.op.ReadOnlyOIDCProviderMetadata;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class TenantRegistryTest {
+  private final List<String> loaded = new ArrayList<>();
+
+  private Configuration loadConfiguration(String tenantId) throws IOException {
+    loaded.add(tenantId);
+    return switch (tenantId) {
+      case "unknown" -> null;
+      case "failing" -> throw new IOException("failing");
+      default -> {
+        var issuer = "https://" + tenantId + ".example.com";
+        yield new Configuration(
+            new OIDCProviderMetadata(
+                new Issuer(issuer), List.of(SubjectType.PUBLIC), URI.create(issuer + "/jwks")),
+            new ClientSecretBasic(new ClientID("app"), new Secret()));
+      }
+    };
+  }
+
+  private TenantRegistry createRegistry(int maximumSize) {
+    return new TenantRegistry(TenantResolver.byServerName(), this::loadConfiguration, maximumSize);
+  }
+
+  @Test
+  void loadsOnce() throws Exception {
+    var sut = createRegistry(10);
+
+    var tenant = sut.getTenant("acme");
+    assertThat(tenant).isNotNull();
+    assertThat(tenant.getId()).isEqualTo("acme");
+    assertThat(tenant.getConfiguration().getProviderMetadata().getIssuer())
+        .isEqualTo(new Issuer("https://acme.example.com"));
+
+    assertThat(sut.getTenant("acme")).isSameInstanceAs(tenant);
+    assertThat(loaded).containsExactly("acme");
+    assertThat(sut.getLoadCount()).isEqualTo(1);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() throws Exception {
+    var sut = createRegistry(2);
+    var acme = sut.getTenant("acme");
+    var initech = sut.getTenant("initech");
+    // Use acme, so initech is the least recently used
+    assertThat(sut.getTenant("acme")).isSameInstanceAs(acme);
+
+    var servlet = new RecordingServlet();
+    acme.getServlet(new TenantServlet(sut, tenant -> servlet), tenant -> servlet, null);
+    var initechServlet = new RecordingServlet();
+    initech.getServlet(
+        new TenantServlet(sut, tenant -> initechServlet), tenant -> initechServlet, null);
+
+    sut.getTenant("umbrella");
+
+    assertThat(sut.getSize()).isEqualTo(2);
+    assertThat(sut.getEvictionCount()).isEqualTo(1);
+    assertThat(sut.getTenant("acme")).isSameInstanceAs(acme);
+    assertThat(servlet.destroyed).isFalse();
+    assertThat(initechServlet.destroyed).isTrue();
+
+    assertThat(sut.getTenant("initech")).isNotSameInstanceAs(initech);
+    assertThat(loaded).containsExactly("acme", "initech", "umbrella", "initech").inOrder();
+  }
+
+  @Test
+  void closesProviderMetadataSupplierOnEviction() throws Exception {
+    var supplier = new ClosingProviderMetadataSupplier(loadConfiguration("acme"));
+    var configuration =
+        new Configuration(supplier, new ClientSecretBasic(new ClientID("app"), new Secret()));
+    var sut =
+        new TenantRegistry(
+            TenantResolver.byServerName(),
+            tenantId -> tenantId.equals("acme") ? configuration : loadConfiguration(tenantId),
+            1);
+    var servletContext = new FakeServletContext();
+    var req = new FakeHttpServletRequest(servletContext, "GET", "https://acme.example.com/");
+    var acme = sut.acquireTenant(req.get());
+
+    // Evicts acme, while it's still used by the request
+    sut.getTenant("initech");
+
+    assertThat(supplier.closed).isFalse();
+
+    acme.release(req.get());
+
+    assertThat(supplier.closed).isTrue();
+  }
+
+  @Test
+  void cachesUnknownTenantsBriefly() throws Exception {
+    var now = new AtomicReference<>(Instant.parse("2026-01-01T00:00:00Z"));
+    var sut =
+        new TenantRegistry(TenantResolver.byServerName(), this::loadConfiguration, 1, now::get);
+    var acme = sut.getTenant("acme");
+
+    assertThat(sut.getTenant("unknown")).isNull();
+    assertThat(sut.getTenant("unknown")).isNull();
+
+    assertThat(sut.getSize()).isEqualTo(1);
+    assertThat(sut.getTenant("acme")).isSameInstanceAs(acme);
+    assertThat(loaded).containsExactly("acme", "unknown").inOrder();
+
+    now.set(now.get().plus(Duration.ofMinutes(1)));
+    assertThat(sut.getTenant("unknown")).isNull();
+    assertThat(loaded).containsExactly("acme", "unknown", "unknown").inOrder();
+  }
+
+  @Test
+  void invalidatesSessionsOfOtherTenants() throws Exception {
+    var sut = createRegistry(10);
+    var acme = sut.getTenant("acme");
+    var servletContext = new FakeServletContext();
+    var acmeSession = login(servletContext, "https://acme.example.com");
+    var initechSession = login(servletContext, "https://initech.example.com");
+
+    acme.checkSession(
+        new FakeHttpServletRequest(servletContext, "GET", "https://acme.example.com/")
+            .withSession(acmeSession)
+            .get());
+    acme.checkSession(
+        new FakeHttpServletRequest(servletContext, "GET", "https://acme.example.com/")
+            .withSession(initechSession)
+            .get());
+
+    assertThat(acmeSession.invalidated).isFalse();
+    assertThat(initechSession.invalidated).isTrue();
+  }
+
+  @Test
+  void resolvesTenantByFirstPathSegment() throws Exception {
+    var sut =
+        new TenantRegistry(TenantResolver.byFirstPathSegment(), this::loadConfiguration, 10);
+    var servletContext = new FakeServletContext();
+
+    var acme =
+        sut.getTenant(
+            new FakeHttpServletRequest(servletContext, "GET", "https://rp.example.com/acme/cb")
+                .get());
+    // The path is decoded
+    var encoded =
+        sut.getTenant(
+            new FakeHttpServletRequest(servletContext, "GET", "https://rp.example.com/%61cme/cb")
+                .get());
+    var none =
+        sut.getTenant(
+            new FakeHttpServletRequest(servletContext, "GET", "https://rp.example.com/").get());
+
+    assertThat(acme).isNotNull();
+    assertThat(acme.getId()).isEqualTo("acme");
+    assertThat(encoded).isSameInstanceAs(acme);
+    assertThat(none).isNull();
+    assertThat(loaded).containsExactly("acme");
+  }
+
+  @Test
+  void doesNotCacheErrors() throws Exception {
+    var sut = createRegistry(10);
+
+    assertThrows(IOException.class, () -> sut.getTenant("failing"));
+    assertThrows(IOException.class, () -> sut.getTenant("failing"));
+
+    assertThat(sut.getSize()).isEqualTo(0);
+    assertThat(loaded).containsExactly("failing", "failing");
+  }
+
+  @Test
+  void createsServletOncePerTenant() throws Exception {
+    var sut = createRegistry(10);
+    var tenantServlet = new TenantServlet(sut, tenant -> new RecordingServlet());
+    var tenant = sut.getTenant("acme");
+
+    var servlet = tenant.getServlet(tenantServlet, ignored -> new RecordingServlet(), null);
+
+    assertThat(tenant.getServlet(tenantServlet, ignored -> new RecordingServlet(), null))
+        .isSameInstanceAs(servlet);
+    assertThat(((RecordingServlet) servlet).initialized).isTrue();
+  }
+
+  @Test
+  void destroysComponentsOnceReleased() throws Exception {
+    var sut = createRegistry(1);
+    var servletContext = new FakeServletContext();
+    var req = new FakeHttpServletRequest(servletContext, "GET", "https://acme.example.com/");
+    var acme = sut.acquireTenant(req.get());
+    var servlet = new RecordingServlet();
+    acme.getServlet(new TenantServlet(sut, tenant -> servlet), tenant -> servlet, null);
+
+    // Evicts acme, while it's still used by the request
+    sut.getTenant("initech");
+
+    assertThat(sut.getEvictionCount()).isEqualTo(1);
+    assertThat(servlet.destroyed).isFalse();
+
+    acme.release(req.get());
+
+    assertThat(servlet.destroyed).isTrue();
+    assertThat(acme.acquire()).isFalse();
+  }
+
+  @Test
+  void destroysComponentsOnceAsyncProcessingCompletes() throws Exception {
+    var sut = createRegistry(1);
+    var servletContext = new FakeServletContext();
+    var servlet = new RecordingServlet();
+    servlet.startAsync = true;
+    var tenantServlet = new TenantServlet(sut, tenant -> servlet);
+    tenantServlet.init(servletContext.servletConfig());
+    var resp = new FakeHttpServletResponse();
+    var req =
+        new FakeHttpServletRequest(servletContext, "GET", "https://acme.example.com/")
+            .withAsyncSupported(resp);
+
+    tenantServlet.service(req.get(), resp.get());
+    // Evicts acme, while its asynchronous processing is still ongoing
+    sut.getTenant("initech");
+
+    assertThat(sut.getEvictionCount()).isEqualTo(1);
+    assertThat(servlet.destroyed).isFalse();
+
+    requireNonNull(req.asyncContext).get().complete();
+
+    assertThat(servlet.destroyed).isTrue();
+  }
+
+  private static class ClosingProviderMetadataSupplier
+      implements ProviderMetadataSupplier, AutoCloseable {
+    private final ReadOnlyOIDCProviderMetadata providerMetadata;
+    volatile boolean closed;
+
+    ClosingProviderMetadataSupplier(Configuration configuration) {
+      this.providerMetadata = configuration.getProviderMetadata();
+    }
+
+    @Override
+    public ReadOnlyOIDCProviderMetadata getProviderMetadata() {
+      return providerMetadata;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  @SuppressWarnings("serial")
+  private static class RecordingServlet extends HttpServlet {
+    boolean initialized;
+    boolean destroyed;
+    boolean startAsync;
+
+    @Override
+    public void init() {
+      initialized = true;
+    }
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) {
+      if (startAsync) {
+        req.startAsync();
+      }
+    }
+
+    @Override
+    public void destroy() {
+      destroyed = true;
+    }
+  }
+
+  private static FakeHttpSession login(FakeServletContext servletContext, String issuer) {
+    var session = new FakeHttpSession(servletContext);
+    session.attributes.put(
+        SessionInfo.SESSION_ATTRIBUTE_NAME,
+        // The ID Token and User Info are never parsed when checking sessions
+        new SessionInfo("id-token", "{}", new Issuer(issuer), null, new Subject("sub")));
+    return session;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+class TenantServletTest {
+  private final FakeServletContext servletContext = new FakeServletContext();
+  private final TenantRegistry tenantRegistry =
+      new TenantRegistry(TenantResolver.byServerName(), TenantServletTest::loadConfiguration, 10);
+  private final List<RecordingServlet> servlets = new ArrayList<>();
+
+  private static @Nullable Configuration loadConfiguration(String tenantId) {
+    if (tenantId.equals("unknown")) {
+      return null;
+    }
+    var issuer = "https://" + tenantId + ".example.com";
+    return new Configuration(
+        new OIDCProviderMetadata(
+            new Issuer(issuer), List.of(SubjectType.PUBLIC), URI.create(issuer + "/jwks")),
+        new ClientSecretBasic(new ClientID("app"), new Secret()));
+  }
+
+  private RecordingServlet createTenantServlet(Tenant tenant) {
+    var servlet = new RecordingServlet(tenant.getId());
+    servlets.add(servlet);
+    return servlet;
+  }
+
+  private TenantServlet createServlet() throws Exception {
+    var servlet = new TenantServlet(tenantRegistry, this::createTenantServlet);
+    servlet.init(servletContext.servletConfig());
+    return servlet;
+  }
+
+  private FakeHttpServletResponse service(TenantServlet servlet, FakeHttpServletRequest req)
+      throws Exception {
+    var resp = new FakeHttpServletResponse();
+    servlet.service(req.get(), resp.get());
+    return resp;
+  }
+
+  private FakeHttpServletRequest request(String tenantId) {
+    return new FakeHttpServletRequest(
+        servletContext, "GET", "https://" + tenantId + ".example.com/");
+  }
+
+  @Test
+  void dispatchesToServletOfTenant() throws Exception {
+    var sut = createServlet();
+
+    service(sut, request("acme"));
+    service(sut, request("initech"));
+    service(sut, request("acme"));
+
+    assertThat(servlets).hasSize(2);
+    var acme = servlets.get(0);
+    var initech = servlets.get(1);
+    assertThat(acme.tenantId).isEqualTo("acme");
+    assertThat(acme.initialized).isTrue();
+    assertThat(acme.requests).isEqualTo(2);
+    assertThat(initech.tenantId).isEqualTo("initech");
+    assertThat(initech.initialized).isTrue();
+    assertThat(initech.requests).isEqualTo(1);
+  }
+
+  @Test
+  void respondsNotFoundForUnknownTenant() throws Exception {
+    var sut = createServlet();
+
+    var resp = service(sut, request("unknown"));
+
+    assertThat(resp.status).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+    assertThat(servlets).isEmpty();
+  }
+
+  @Test
+  void invalidatesSessionOfOtherTenant() throws Exception {
+    var sut = createServlet();
+    var session = new FakeHttpSession(servletContext);
+    session.attributes.put(
+        SessionInfo.SESSION_ATTRIBUTE_NAME,
+        // The ID Token and User Info are never parsed when checking sessions
+        new SessionInfo(
+            "id-token", "{}", new Issuer("https://initech.example.com"), null, new Subject("sub")));
+
+    service(sut, request("acme").withSession(session));
+
+    assertThat(session.invalidated).isTrue();
+    assertThat(servlets).hasSize(1);
+    assertThat(servlets.get(0).requests).isEqualTo(1);
+  }
+
+  @Test
+  void readsTenantRegistryFromServletContext() throws Exception {
+    servletContext.attributes.put(TenantRegistry.CONTEXT_ATTRIBUTE_NAME, tenantRegistry);
+    var sut = new TenantServlet(this::createTenantServlet);
+    sut.init(servletContext.servletConfig());
+
+    service(sut, request("acme"));
+
+    assertThat(tenantRegistry.getLoadCount()).isEqualTo(1);
+    assertThat(servlets).hasSize(1);
+    assertThat(servlets.get(0).requests).isEqualTo(1);
+  }
+
+  @SuppressWarnings("serial")
+  private static class RecordingServlet extends HttpServlet {
+    final String tenantId;
+    boolean initialized;
+    int requests;
+
+    RecordingServlet(String tenantId) {
+      this.tenantId = tenantId;
+    }
+
+    @Override
+    public void init() {
+      initialized = true;
+    }
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) {
+      requests++;
+    }
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPRequestSender;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPRequest;
+import com.nimbusds.oauth2.sdk.http.ReadOnlyHTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.util.URLUtils;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TokenRevocationQueueTest {
+  private static final URI REVOCATION_ENDPOINT = URI.create("https://example.com/revoke");
+
+  private final Configuration configuration;
+  private final FakeHTTPRequestSender sender = new FakeHTTPRequestSender();
+  private @Nullable TokenRevocationQueue queue;
+
+  TokenRevocationQueueTest() {
+    var providerMetadata =
+        new OIDCProviderMetadata(
+            new Issuer("https://example.com"),
+            List.of(SubjectType.PUBLIC),
+            URI.create("https://example.com/jwks"));
+    providerMetadata.setRevocationEndpointURI(REVOCATION_ENDPOINT);
+    configuration =
+        new Configuration(
+            providerMetadata, new ClientSecretBasic(new ClientID("app"), new Secret()));
+  }
+
+  @AfterEach
+  void tearDown() {
+    sender.release.countDown();
+    if (queue != null) {
+      queue.close();
+    }
+  }
+
+  private TokenRevocationQueue createQueue(
+      int capacity, TokenRevocationQueue.OverflowPolicy overflowPolicy) {
+    return createQueue(capacity, overflowPolicy, Duration.ofSeconds(5));
+  }
+
+  private TokenRevocationQueue createQueue(
+      int capacity, TokenRevocationQueue.OverflowPolicy overflowPolicy, Duration closeTimeout) {
+    queue =
+        new TokenRevocationQueue(
+            configuration,
+            sender,
+            capacity,
+            1,
+            overflowPolicy,
+            3,
+            Duration.ofMillis(1),
+            closeTimeout);
+    return queue;
+  }
+
+  @Test
+  void revokesTokens() throws Exception {
+    var sut = createQueue(10, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST);
+
+    sut.revoke(new BearerAccessToken("token1"));
+    sut.revoke(new BearerAccessToken("token2"));
+    awaitCount(sut::getRevokedCount, 2);
+
+    assertThat(sender.revokedTokens).containsExactly("token1", "token2").inOrder();
+    assertThat(sut.getRetryCount()).isEqualTo(0);
+    assertThat(sut.getFailedCount()).isEqualTo(0);
+  }
+
+  @Test
+  void retriesServerErrors() throws Exception {
+    var sut = createQueue(10, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST);
+    sender.failures = 2;
+    sender.failureStatusCode = HTTPResponse.SC_SERVICE_UNAVAILABLE;
+
+    sut.revoke(new BearerAccessToken("token"));
+    awaitCount(sut::getRevokedCount, 1);
+
+    assertThat(sender.revokedTokens).containsExactly("token", "token", "token");
+    assertThat(sut.getRetryCount()).isEqualTo(2);
+    assertThat(sut.getFailedCount()).isEqualTo(0);
+  }
+
+  @Test
+  void givesUpAfterMaxAttempts() throws Exception {
+    var sut = createQueue(10, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST);
+    sender.failures = Integer.MAX_VALUE;
+    sender.failureStatusCode = HTTPResponse.SC_SERVER_ERROR;
+
+    sut.revoke(new BearerAccessToken("token"));
+    awaitCount(sut::getFailedCount, 1);
+
+    assertThat(sender.revokedTokens).containsExactly("token", "token", "token");
+    assertThat(sut.getRetryCount()).isEqualTo(2);
+    assertThat(sut.getRevokedCount()).isEqualTo(0);
+  }
+
+  @Test
+  void doesNotRetryClientErrors() throws Exception {
+    var sut = createQueue(10, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST);
+    sender.failures = Integer.MAX_VALUE;
+    sender.failureStatusCode = HTTPResponse.SC_UNAUTHORIZED;
+
+    sut.revoke(new BearerAccessToken("token"));
+    awaitCount(sut::getFailedCount, 1);
+
+    assertThat(sender.revokedTokens).containsExactly("token");
+    assertThat(sut.getRetryCount()).isEqualTo(0);
+  }
+
+  @Test
+  void keepsRevokingAfterUnexpectedError() throws Exception {
+    var sut = createQueue(10, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST);
+
+    sut.revoke(new BearerAccessToken("error"));
+    sut.revoke(new BearerAccessToken("token"));
+    awaitCount(sut::getRevokedCount, 1);
+
+    assertThat(sender.revokedTokens).containsExactly("error", "token").inOrder();
+    assertThat(sut.getFailedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void dropsOldestWhenFull() throws Exception {
+    var sut = createQueue(1, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST);
+    sut.revoke(new BearerAccessToken("blocking"));
+    sender.started.await();
+
+    sut.revoke(new BearerAccessToken("token1"));
+    sut.revoke(new BearerAccessToken("token2"));
+    assertThat(sut.getDroppedCount()).isEqualTo(1);
+    assertThat(sut.getQueueSize()).isEqualTo(1);
+
+    sender.release.countDown();
+    awaitCount(sut::getRevokedCount, 2);
+    assertThat(sender.revokedTokens).containsExactly("blocking", "token2").inOrder();
+  }
+
+  @Test
+  void dropsNewestWhenFull() throws Exception {
+    var sut = createQueue(1, TokenRevocationQueue.OverflowPolicy.DROP_NEWEST);
+    sut.revoke(new BearerAccessToken("blocking"));
+    sender.started.await();
+
+    sut.revoke(new BearerAccessToken("token1"));
+    sut.revoke(new BearerAccessToken("token2"));
+    assertThat(sut.getDroppedCount()).isEqualTo(1);
+
+    sender.release.countDown();
+    awaitCount(sut::getRevokedCount, 2);
+    assertThat(sender.revokedTokens).containsExactly("blocking", "token1").inOrder();
+  }
+
+  @Test
+  void callerRunsWhenFull() throws Exception {
+    var sut = createQueue(1, TokenRevocationQueue.OverflowPolicy.CALLER_RUNS);
+    sut.revoke(new BearerAccessToken("blocking"));
+    sender.started.await();
+
+    sut.revoke(new BearerAccessToken("token1"));
+    sut.revoke(new BearerAccessToken("token2"));
+    // token2 has been synchronously revoked
+    assertThat(sut.getRevokedCount()).isEqualTo(1);
+    assertThat(sut.getDroppedCount()).isEqualTo(0);
+
+    sender.release.countDown();
+    awaitCount(sut::getRevokedCount, 3);
+    assertThat(sender.revokedTokens).containsExactly("blocking", "token1", "token2");
+  }
+
+  @Test
+  void revokesQueuedTokensOnClose() throws Exception {
+    var sut = createQueue(10, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST);
+    sut.revoke(new BearerAccessToken("blocking"));
+    sender.started.await();
+    sut.revoke(new BearerAccessToken("token"));
+
+    sender.release.countDown();
+    awaitCount(sut::getRevokedCount, 1);
+    sut.close();
+
+    assertThat(sut.getRevokedCount()).isEqualTo(2);
+    sut.revoke(new BearerAccessToken("closed"));
+    assertThat(sut.getDroppedCount()).isEqualTo(1);
+    assertThat(sender.revokedTokens).containsExactly("blocking", "token").inOrder();
+  }
+
+  @Test
+  void revokesQueuedTokensAfterInterruptedRevocationOnClose() throws Exception {
+    var sut = createQueue(10, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST);
+    sut.revoke(new BearerAccessToken("blocking"));
+    sender.started.await();
+    sut.revoke(new BearerAccessToken("token"));
+
+    // Interrupts the blocking revocation, which restores the interrupt status
+    sut.close();
+
+    assertThat(sut.getFailedCount()).isEqualTo(1);
+    assertThat(sut.getRevokedCount()).isEqualTo(1);
+    assertThat(sender.revokedTokens).containsExactly("blocking", "token").inOrder();
+  }
+
+  @Test
+  void dropsQueuedTokensAfterCloseTimeout() throws Exception {
+    var sut =
+        createQueue(10, TokenRevocationQueue.OverflowPolicy.DROP_OLDEST, Duration.ofMillis(100));
+    sut.revoke(new BearerAccessToken("stuck"));
+    sender.started.await();
+    sut.revoke(new BearerAccessToken("token"));
+
+    var start = System.nanoTime();
+    sut.close();
+
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+    assertThat(sut.getDroppedCount()).isEqualTo(1);
+    assertThat(sut.getQueueSize()).isEqualTo(0);
+    assertThat(sender.revokedTokens).containsExactly("stuck");
+  }
+
+  private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (count.getAsLong() < expected && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(count.getAsLong()).isAtLeast(expected);
+  }
+
+  private static class FakeHTTPRequestSender implements HTTPRequestSender {
+    final Queue<String> revokedTokens = new ConcurrentLinkedQueue<>();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    volatile int failures;
+    volatile int failureStatusCode;
+
+    @Override
+    public ReadOnlyHTTPResponse send(ReadOnlyHTTPRequest httpRequest) throws IOException {
+      assertThat(httpRequest.getURI()).isEqualTo(REVOCATION_ENDPOINT);
+      // Like the HttpClient, fail fast when interrupted
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedIOException();
+      }
+      var token = URLUtils.parseParameters(httpRequest.getBody()).get("token").getFirst();
+      revokedTokens.add(token);
+      if (token.equals("error")) {
+        throw new AssertionError("Unexpected error");
+      } else if (token.equals("blocking")) {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          // Like the HttpClientRequestSender
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      } else if (token.equals("stuck")) {
+        // Ignores interrupts, like a request without timeouts
+        started.countDown();
+        var interrupted = false;
+        while (true) {
+          try {
+            release.await();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (failures > 0) {
+        failures--;
+        return new HTTPResponse(failureStatusCode);
+      }
+      return new HTTPResponse(HTTPResponse.SC_OK);
+    }
+  }
+}
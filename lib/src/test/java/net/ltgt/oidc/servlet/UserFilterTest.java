@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2026 Thomas Broyer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ltgt.oidc.servlet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.SessionID;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserFilterTest {
+  private static final Issuer ISSUER = new Issuer("https://op.example.com");
+
+  private final FakeServletContext servletContext = new FakeServletContext();
+  private final InMemoryLoggedOutSessionStore loggedOutSessionStore =
+      new InMemoryLoggedOutSessionStore();
+  private final UserFilter sut =
+      new UserFilter(SimpleUserPrincipal.FACTORY, loggedOutSessionStore);
+
+  @BeforeEach
+  void setUp() throws Exception {
+    servletContext.listeners.add(new BackchannelLogoutSessionListener(loggedOutSessionStore));
+    sut.init(servletContext.filterConfig());
+  }
+
+  @Test
+  void withSid_notLoggedOut() throws Exception {
+    var session = login(ISSUER, new SessionID("sid"), new Subject("sub"));
+
+    assertThat(doFilter(session)).isEqualTo("sub");
+    assertThat(session.invalidated).isFalse();
+  }
+
+  @Test
+  void withSid_loggedOutBySid() throws Exception {
+    var session = login(ISSUER, new SessionID("sid"), new Subject("sub"));
+
+    loggedOutSessionStore.logout(new SessionID("sid"));
+
+    assertThat(doFilter(session)).isNull();
+    assertThat(session.invalidated).isTrue();
+  }
+
+  @Test
+  void withSid_loggedOutBySubject() throws Exception {
+    var session = login(ISSUER, new SessionID("sid"), new Subject("sub"));
+
+    loggedOutSessionStore.logout(ISSUER, new Subject("sub"));
+
+    assertThat(doFilter(session)).isNull();
+    assertThat(session.invalidated).isTrue();
+  }
+
+  @Test
+  void withoutSid_notLoggedOut() throws Exception {
+    var session = login(ISSUER, null, new Subject("sub"));
+
+    assertThat(doFilter(session)).isEqualTo("sub");
+    assertThat(session.invalidated).isFalse();
+  }
+
+  @Test
+  void withoutSid_loggedOutBySubject() throws Exception {
+    var session = login(ISSUER, null, new Subject("sub"));
+
+    loggedOutSessionStore.logout(ISSUER, new Subject("sub"));
+
+    assertThat(doFilter(session)).isNull();
+    assertThat(session.invalidated).isTrue();
+  }
+
+  @Test
+  void withoutSid_loggedOutBySubjectAfterSessionIdChange() throws Exception {
+    var session = login(ISSUER, null, new Subject("sub"));
+    session.changeId();
+
+    loggedOutSessionStore.logout(ISSUER, new Subject("sub"));
+
+    assertThat(doFilter(session)).isNull();
+    assertThat(session.invalidated).isTrue();
+  }
+
+  @Test
+  void withoutSid_sameSubjectAtOtherIssuerNotLoggedOut() throws Exception {
+    var session = login(ISSUER, null, new Subject("sub"));
+
+    loggedOutSessionStore.logout(new Issuer("https://other-op.example.com"), new Subject("sub"));
+
+    assertThat(doFilter(session)).isEqualTo("sub");
+    assertThat(session.invalidated).isFalse();
+  }
+
+  @Test
+  void withoutSid_untrackedSessionNotLoggedOut() throws Exception {
+    // e.g. a session restored from a persistent store after a restart: listeners aren't called
+    var session = new FakeHttpSession(servletContext);
+    session.attributes.put(
+        SessionInfo.SESSION_ATTRIBUTE_NAME, sessionInfo(ISSUER, null, new Subject("sub")));
+
+    assertThat(doFilter(session)).isEqualTo("sub");
+    assertThat(session.invalidated).isFalse();
+  }
+
+  private FakeHttpSession login(Issuer issuer, @Nullable SessionID sid, Subject subject) {
+    var session = new FakeHttpSession(servletContext);
+    session
+        .get()
+        .setAttribute(SessionInfo.SESSION_ATTRIBUTE_NAME, sessionInfo(issuer, sid, subject));
+    return session;
+  }
+
+  private static SessionInfo sessionInfo(Issuer issuer, @Nullable SessionID sid, Subject subject) {
+    // The ID Token and User Info are never parsed by the UserFilter
+    return new SessionInfo("id-token", "{}", issuer, sid, subject);
+  }
+
+  /** Returns the remote user as seen by the filter chain. */
+  private @Nullable String doFilter(FakeHttpSession session) throws Exception {
+    var req =
+        new FakeHttpServletRequest(servletContext, "GET", "https://rp.example.com/")
+            .withSession(session);
+    var remoteUser = new AtomicReference<@Nullable String>();
+    sut.doFilter(
+        req.get(),
+        new FakeHttpServletResponse().get(),
+        (request, response) -> remoteUser.set(((HttpServletRequest) request).getRemoteUser()));
+    return remoteUser.get();
+  }
+}
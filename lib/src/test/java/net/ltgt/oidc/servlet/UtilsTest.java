@@ -17,7 +17,15 @@ package net.ltgt.oidc.servlet;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 
 class UtilsTest {
@@ -74,4 +82,55 @@ class UtilsTest {
 
     assertThat(actual.toJSONObject()).isEqualTo(expected.toJSONObject());
   }
+
+  @Test
+  void getJWKSource() throws Exception {
+    var servletContext = new FakeServletContext().get();
+    var jwkSetUri = URI.create("https://server.example.com/jwks");
+
+    var jwkSource = Utils.getJWKSource(servletContext, jwkSetUri);
+
+    assertThat(Utils.getJWKSource(servletContext, jwkSetUri)).isSameInstanceAs(jwkSource);
+    assertThat(Utils.getJWKSource(servletContext, URI.create("https://other.example.com/jwks")))
+        .isNotSameInstanceAs(jwkSource);
+    assertThat(Utils.getJWKSource(new FakeServletContext().get(), jwkSetUri))
+        .isNotSameInstanceAs(jwkSource);
+  }
+
+  @Test
+  void getJWKSourceConcurrently() throws Exception {
+    var servletContext = new FakeServletContext().get();
+    var jwkSetUri = URI.create("https://server.example.com/jwks");
+    var start = new CountDownLatch(1);
+    var executor = Executors.newFixedThreadPool(8);
+    try {
+      var futures = new ArrayList<Future<JWKSource<?>>>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return Utils.getJWKSource(servletContext, jwkSetUri);
+                }));
+      }
+      start.countDown();
+
+      var jwkSource = futures.get(0).get();
+      for (var future : futures) {
+        assertThat(future.get()).isSameInstanceAs(jwkSource);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void getJWKSourceFromContextAttribute() throws Exception {
+    var servletContext = new FakeServletContext().get();
+    var jwkSource = new ImmutableJWKSet<>(new JWKSet());
+    servletContext.setAttribute(Utils.JWK_SOURCE_CONTEXT_ATTRIBUTE_NAME, jwkSource);
+
+    assertThat(Utils.getJWKSource(servletContext, URI.create("https://server.example.com/jwks")))
+        .isSameInstanceAs(jwkSource);
+  }
 }
@@ -22,5 +22,6 @@ include(":oidc-servlets-bom", "platform")
 include(":oidc-servlets", "lib")
 include(":oidc-servlets-rs", "rs")
 include(":example")
+include(":benchmarks")
 
 enableFeaturePreview("TYPESAFE_PROJECT_ACCESSORS")